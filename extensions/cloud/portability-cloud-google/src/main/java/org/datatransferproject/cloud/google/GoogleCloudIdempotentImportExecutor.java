@@ -6,25 +6,49 @@ import com.google.cloud.datastore.*;
 import com.google.cloud.datastore.StructuredQuery.CompositeFilter;
 import com.google.cloud.datastore.StructuredQuery.PropertyFilter;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
 import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.ConcurrentResultCache;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.format;
 
+/**
+ * A {@link IdempotentImportExecutor} that persists results and errors in Datastore, so that they
+ * survive a worker restart.
+ *
+ * <p>By default every result or error is committed right away. With a write batch size above 1
+ * writes are buffered and committed together once the batch is full, once the oldest buffered
+ * write is older than the flush interval, or when {@link #flush()} is called.
+ *
+ * <p>When a job is resumed, only the keys of its known results are read, page by page, into Bloom
+ * filters. Results are then fetched one by one as they are needed, and previously recorded errors
+ * are only read by {@link #getErrors()}.
+ *
+ * <p>Items may be imported concurrently. Concurrent calls for the same idempotent id share a single
+ * execution.
+ */
 public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExecutor {
 
   private static final String IDEMPOTENT_RESULTS_KIND = "IdempotentResults";
@@ -35,19 +59,52 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
   private static final String IDEMPOTENT_ID_FIELD = "idempotent_id";
   private static final String ERROR_FIELD = "error_details";
 
+  // Datastore limits the number of mutations in one commit.
+  private static final int MAX_WRITES_PER_COMMIT = 500;
+
+  private static final int KEY_PAGE_SIZE = 1000;
+  private static final int INITIAL_KNOWN_KEYS_CAPACITY = 10_000;
+  private static final double KNOWN_KEYS_FPP = 0.01;
+
   private final Datastore datastore;
   private final Monitor monitor;
   private final ObjectMapper objectMapper;
+  private final int writeBatchSize;
+  private final long flushIntervalNanos;
+
+  // Writes not committed yet, in order. An empty entity deletes the key.
+  private final Map<Key, Optional<Entity>> pendingWrites = new LinkedHashMap<>();
+  private long oldestPendingWriteNanos;
 
   // These are all variables corresponding to the job state. Only initialized when setJobId() is called
-  private Map<String, Serializable> knownValues;
-  private Map<String, ErrorDetail> errors;
-  private UUID jobId;
-  private String jobIdPrefix;
+  // Values stored or fetched by this executor
+  private volatile ConcurrentResultCache knownValues;
+  // Ids that may have a result or an error from before the job was resumed, only read once set
+  private volatile KnownKeys persistedResultIds;
+  private volatile KnownKeys persistedErrorIds;
+  // Errors recorded by this executor, or all errors of the job once loaded by getErrors()
+  private volatile Map<String, ErrorDetail> errors;
+  private volatile boolean persistedErrorsLoaded;
+  private volatile Map<String, ErrorDetail> recentErrors;
+  private volatile UUID jobId;
+  private volatile String jobIdPrefix;
 
   public GoogleCloudIdempotentImportExecutor(Datastore datastore, Monitor monitor) {
+    this(datastore, monitor, 1, 0);
+  }
+
+  /**
+   * @param writeBatchSize the number of writes to buffer before committing them, 1 to commit every
+   *     write right away
+   * @param flushIntervalMillis the maximum time a write stays buffered, checked on every write
+   */
+  public GoogleCloudIdempotentImportExecutor(
+      Datastore datastore, Monitor monitor, int writeBatchSize, long flushIntervalMillis) {
+    Preconditions.checkArgument(writeBatchSize > 0, "writeBatchSize must be positive");
     this.datastore = datastore;
     this.monitor = monitor;
+    this.writeBatchSize = Math.min(writeBatchSize, MAX_WRITES_PER_COMMIT);
+    this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
     this.objectMapper = new ObjectMapper();
     this.objectMapper.registerModule(new JavaTimeModule());
     this.objectMapper.registerSubtypes(ErrorDetail.class);
@@ -69,14 +126,19 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
       String idempotentId, String itemName, Callable<T> callable) throws Exception {
     Preconditions.checkNotNull(jobId, "executing a callable before initialization of a job");
 
-    if (knownValues.containsKey(idempotentId)) {
+    if (isKeyCached(idempotentId)) {
       monitor.debug(
           () ->
               jobIdPrefix
                   + format("Using cached key %s from cache for %s", idempotentId, itemName));
-      return (T) knownValues.get(idempotentId);
+      return knownValues.get(idempotentId);
     }
+    return knownValues.execute(
+        idempotentId, () -> callAndRecordResult(idempotentId, itemName, callable));
+  }
 
+  private <T extends Serializable> T callAndRecordResult(
+      String idempotentId, String itemName, Callable<T> callable) throws Exception {
     try {
       T result = callable.call();
       monitor.debug(
@@ -96,85 +158,186 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
     }
   }
 
+  /** Persists the result of an item, which the caller caches in {@link #knownValues}. */
   private <T extends Serializable> void addResult(String idempotentId, T result)
       throws IOException {
-    knownValues.put(idempotentId, result);
+    Map<Key, Optional<Entity>> writes = new LinkedHashMap<>();
+    writes.put(
+        getResultsKey(idempotentId, jobId), Optional.of(createResultEntity(idempotentId, result)));
+    boolean failedBefore = errors.remove(idempotentId) != null;
+    if (failedBefore || persistedErrorIds.mightContain(idempotentId)) {
+      // if the errors contain this key, that means the ID previously failed
+      writes.put(getErrorKey(idempotentId, jobId), Optional.empty());
+    }
+    recentErrors.remove(idempotentId);
+    write(writes);
+  }
 
-    try {
-      Transaction transaction = datastore.newTransaction();
+  private void addError(String idempotentId, ErrorDetail errorDetail) throws IOException {
+    errors.put(idempotentId, errorDetail);
+    recentErrors.put(idempotentId, errorDetail);
+    write(
+        ImmutableMap.of(
+            getErrorKey(idempotentId, jobId),
+            Optional.of(createErrorEntity(idempotentId, errorDetail))));
+  }
 
-      transaction.put(createResultEntity(idempotentId, result));
-      if (errors.containsKey(idempotentId)) {
-        // if the errors contain this key, that means the ID
-        transaction.delete(getErrorKey(idempotentId, jobId));
-        errors.remove(idempotentId);
+  private synchronized void write(Map<Key, Optional<Entity>> writes) {
+    if (pendingWrites.isEmpty()) {
+      oldestPendingWriteNanos = System.nanoTime();
+    }
+    pendingWrites.putAll(writes);
+    if (pendingWrites.size() >= writeBatchSize
+        || System.nanoTime() - oldestPendingWriteNanos >= flushIntervalNanos) {
+      try {
+        flush();
+      } catch (IOException e) {
+        // The item itself was imported; its writes stay buffered for the next flush.
+        monitor.severe(() -> jobIdPrefix + "Error writing to datastore: " + e);
       }
-      transaction.commit();
-    } catch (DatastoreException e) {
-      monitor.severe(() -> jobIdPrefix + "Error writing result to datastore: " + e);
     }
   }
 
-  private void addError(String idempotentId, ErrorDetail errorDetail) throws IOException {
-    errors.put(idempotentId, errorDetail);
-    try {
+  /**
+   * Commits all buffered writes. Writes that fail to commit stay buffered and are retried by the
+   * next flush.
+   *
+   * @throws IOException if a commit failed
+   */
+  @Override
+  public synchronized void flush() throws IOException {
+    while (!pendingWrites.isEmpty()) {
+      List<Map.Entry<Key, Optional<Entity>>> batch = new ArrayList<>();
+      for (Map.Entry<Key, Optional<Entity>> write : pendingWrites.entrySet()) {
+        if (batch.size() == MAX_WRITES_PER_COMMIT) {
+          break;
+        }
+        batch.add(write);
+      }
       Transaction transaction = datastore.newTransaction();
-      transaction.put(createErrorEntity(idempotentId, errorDetail));
-      transaction.commit();
-    } catch (DatastoreException e) {
-      monitor.severe(() -> jobIdPrefix + "Error writing ErrorDetails to datastore: " + e);
+      try {
+        for (Map.Entry<Key, Optional<Entity>> write : batch) {
+          if (write.getValue().isPresent()) {
+            transaction.put(write.getValue().get());
+          } else {
+            transaction.delete(write.getKey());
+          }
+        }
+        transaction.commit();
+      } catch (DatastoreException e) {
+        throw new IOException(jobIdPrefix + "Error writing to datastore", e);
+      } finally {
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+      }
+      batch.forEach(write -> pendingWrites.remove(write.getKey()));
     }
   }
 
   @Override
   public <T extends Serializable> T getCachedValue(String idempotentId)
       throws IllegalArgumentException {
-    if (!knownValues.containsKey(idempotentId)) {
-      throw new IllegalArgumentException(
-          idempotentId
-              + " is not a known key, known keys: "
-              + Joiner.on(", ").join(knownValues.keySet()));
+    if (!isKeyCached(idempotentId)) {
+      throw new IllegalArgumentException(idempotentId + " is not a known key");
     }
-    return (T) knownValues.get(idempotentId);
+    return knownValues.get(idempotentId);
   }
 
   @Override
   public boolean isKeyCached(String idempotentId) {
-    return knownValues.containsKey(idempotentId);
+    if (knownValues.contains(idempotentId)) {
+      return true;
+    }
+    if (!persistedResultIds.mightContain(idempotentId)) {
+      return false;
+    }
+    Entity result = datastore.get(getResultsKey(idempotentId, jobId));
+    if (result == null) {
+      return false;
+    }
+    knownValues.put(idempotentId, result.getString(RESULTS_FIELD));
+    return true;
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
   }
 
   @Override
-  public Collection<ErrorDetail> getErrors() {
+  public synchronized Collection<ErrorDetail> getErrors() {
+    if (!persistedErrorsLoaded) {
+      // Once flushed, Datastore holds the errors recorded and resolved by this executor as well.
+      flushOrThrow();
+      // Merged into the live map, so errors recorded concurrently by other threads aren't lost.
+      getErrorDetailsForJob(jobId).forEach(errors::putIfAbsent);
+      persistedErrorsLoaded = true;
+    }
     return ImmutableList.copyOf(errors.values());
   }
 
+  @Override
+  public Collection<ErrorDetail> getRecentErrors() {
+    return ImmutableList.copyOf(recentErrors.values());
+  }
+
+  @Override
+  public void resetRecentErrors() {
+    recentErrors.clear();
+  }
+
   // In non-tests setJobId is only ever called once per executor, so the initialization of
-  // knownValues and errors only happens once
+  // the job state only happens once
   @Override
   public void setJobId(UUID jobId) {
     Preconditions.checkNotNull(jobId);
+    flushOrThrow();
     this.jobId = jobId;
-    this.knownValues = getKnownValuesForJob(jobId);
-    this.errors = getErrorDetailsForJob(jobId);
     jobIdPrefix = "Job " + jobId + ": ";
+    this.knownValues = new ConcurrentResultCache();
+    this.persistedResultIds = getPersistedIds(IDEMPOTENT_RESULTS_KIND, jobId);
+    this.persistedErrorIds = getPersistedIds(IDEMPONTENT_ERRORS_KIND, jobId);
+    this.errors = new ConcurrentHashMap<>();
+    this.persistedErrorsLoaded = false;
+    this.recentErrors = new ConcurrentHashMap<>();
   }
 
-  private Map<String, Serializable> getKnownValuesForJob(UUID jobId) {
-    Map<String, Serializable> dataStoreKnownValues = new HashMap<>();
-    Query<Entity> query =
-        Query.newEntityQueryBuilder()
-            .setKind(IDEMPOTENT_RESULTS_KIND)
-            .setFilter(CompositeFilter.and(PropertyFilter.eq(JOB_ID_FIELD, String.valueOf(jobId))))
-            .build();
-    QueryResults<Entity> results = datastore.run(query);
-
-    while (results.hasNext()) {
-      Entity result = results.next();
-      dataStoreKnownValues.put(
-          result.getString(IDEMPOTENT_ID_FIELD), result.getString(RESULTS_FIELD));
+  private void flushOrThrow() {
+    try {
+      flush();
+    } catch (IOException e) {
+      monitor.severe(() -> jobIdPrefix + "Error writing to datastore: " + e);
+      throw new IllegalStateException(e);
     }
+  }
 
-    return dataStoreKnownValues;
+  /** Reads the idempotent ids of all entities of {@code kind} for the job, without their values. */
+  private KnownKeys getPersistedIds(String kind, UUID jobId) {
+    KnownKeys knownKeys = new KnownKeys();
+    String keyNamePrefix = jobId + "_";
+    Cursor cursor = null;
+    int pageSize;
+    do {
+      KeyQuery.Builder query =
+          Query.newKeyQueryBuilder()
+              .setKind(kind)
+              .setFilter(CompositeFilter.and(PropertyFilter.eq(JOB_ID_FIELD, String.valueOf(jobId))))
+              .setLimit(KEY_PAGE_SIZE);
+      if (cursor != null) {
+        query.setStartCursor(cursor);
+      }
+      QueryResults<Key> results = datastore.run(query.build());
+      pageSize = 0;
+      while (results.hasNext()) {
+        knownKeys.put(results.next().getName().substring(keyNamePrefix.length()));
+        pageSize++;
+      }
+      cursor = results.getCursorAfter();
+    } while (pageSize == KEY_PAGE_SIZE);
+    monitor.debug(
+        () -> format("%sFound %d persisted %s", jobIdPrefix, knownKeys.size(), kind));
+    return knownKeys;
   }
 
   private Map<String, ErrorDetail> getErrorDetailsForJob(UUID jobId) {
@@ -250,4 +413,39 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
         .setKind(IDEMPONTENT_ERRORS_KIND)
         .newKey(jobId + "_" + idempotentId);
   }
+
+  /**
+   * Approximate set of idempotent ids. It may claim to contain ids it doesn't, but never misses
+   * one it contains. Grows by adding Bloom filters of doubling capacity.
+   */
+  private static final class KnownKeys {
+    private final List<BloomFilter<String>> filters = new ArrayList<>();
+    private int capacity = 0;
+    private int size = 0;
+
+    void put(String idempotentId) {
+      if (size == capacity) {
+        int filterCapacity = filters.isEmpty() ? INITIAL_KNOWN_KEYS_CAPACITY : capacity;
+        filters.add(
+            BloomFilter.create(
+                Funnels.stringFunnel(StandardCharsets.UTF_8), filterCapacity, KNOWN_KEYS_FPP));
+        capacity += filterCapacity;
+      }
+      filters.get(filters.size() - 1).put(idempotentId);
+      size++;
+    }
+
+    boolean mightContain(String idempotentId) {
+      for (BloomFilter<String> filter : filters) {
+        if (filter.mightContain(idempotentId)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    int size() {
+      return size;
+    }
+  }
 }
@@ -18,7 +18,11 @@ public class GoogleCloudIdempotentImportExecutorExtension implements
   public IdempotentImportExecutor getIdempotentImportExecutor(ExtensionContext extensionContext) {
     Monitor monitor = extensionContext.getMonitor();
     try {
-      return new GoogleCloudIdempotentImportExecutor(getDatastore(), monitor);
+      return new GoogleCloudIdempotentImportExecutor(
+          getDatastore(),
+          monitor,
+          extensionContext.getSetting("idempotentWriteBatchSize", 1),
+          extensionContext.getSetting("idempotentWriteFlushIntervalMillis", 10000));
     } catch (IOException e) {
       monitor.severe(() -> "Error initializing datastore: " + e);
       throw new IllegalStateException(e);
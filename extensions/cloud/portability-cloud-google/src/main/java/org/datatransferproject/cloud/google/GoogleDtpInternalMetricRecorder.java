@@ -76,6 +76,11 @@ class GoogleDtpInternalMetricRecorder implements DtpInternalMetricRecorder {
       "Duration of a job in MS",
       "ms");
 
+  private static final Measure.MeasureLong CLAIM_JOB_ATTEMPT = Measure.MeasureLong.create(
+      "claim_job_attempt",
+      "An attempt by a worker to claim a job, failing if another worker claimed it first",
+      "count");
+
   private static final Measure.MeasureLong EXPORT_PAGE_ATTEMPT = Measure.MeasureLong.create(
       "export_page_attempt",
       "A single export attempt",
@@ -176,6 +181,9 @@ class GoogleDtpInternalMetricRecorder implements DtpInternalMetricRecorder {
         KEY_IMPORT_SERVICE,
         KEY_SUCCESS);
 
+    setupView(
+        CLAIM_JOB_ATTEMPT, KEY_DATA_TYPE, KEY_EXPORT_SERVICE, KEY_IMPORT_SERVICE, KEY_SUCCESS);
+
     setupView(EXPORT_PAGE_ATTEMPT, KEY_DATA_TYPE, KEY_EXPORT_SERVICE, KEY_SUCCESS);
     setupView(EXPORT_PAGE_ATTEMPT_DURATION, KEY_DATA_TYPE, KEY_EXPORT_SERVICE, KEY_SUCCESS);
 
@@ -223,6 +231,20 @@ class GoogleDtpInternalMetricRecorder implements DtpInternalMetricRecorder {
     }
   }
 
+  @Override
+  public void claimJobAttemptFinished(
+      DataVertical dataType, String exportService, String importService, boolean success) {
+    TagContext tctx = tagger.emptyBuilder()
+        .put(KEY_DATA_TYPE, TagValue.create(dataType.getDataType()), TAG_METADATA)
+        .put(KEY_EXPORT_SERVICE, TagValue.create(exportService), TAG_METADATA)
+        .put(KEY_IMPORT_SERVICE, TagValue.create(importService), TAG_METADATA)
+        .put(KEY_SUCCESS, TagValue.create(Boolean.toString(success)), TAG_METADATA)
+        .build();
+    try (Scope ss = tagger.withTagContext(tctx)) {
+      STATS_RECORDER.newMeasureMap().put(CLAIM_JOB_ATTEMPT, 1).record();
+    }
+  }
+
   @Override
   public void exportPageAttemptFinished(
       DataVertical dataType,
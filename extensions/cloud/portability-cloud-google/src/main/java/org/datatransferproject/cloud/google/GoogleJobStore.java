@@ -15,6 +15,7 @@
  */
 package org.datatransferproject.cloud.google;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.Timestamp;
 import com.google.cloud.datastore.Blob;
@@ -26,9 +27,12 @@ import com.google.cloud.datastore.Entity;
 import com.google.cloud.datastore.Key;
 import com.google.cloud.datastore.LongValue;
 import com.google.cloud.datastore.PathElement;
+import com.google.cloud.datastore.ProjectionEntity;
+import com.google.cloud.datastore.ProjectionEntityQuery;
 import com.google.cloud.datastore.Query;
 import com.google.cloud.datastore.QueryResults;
 import com.google.cloud.datastore.StringValue;
+import com.google.cloud.datastore.StructuredQuery.CompositeFilter;
 import com.google.cloud.datastore.StructuredQuery.PropertyFilter;
 import com.google.cloud.datastore.TimestampValue;
 import com.google.cloud.datastore.Transaction;
@@ -40,15 +44,23 @@ import com.google.inject.Singleton;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Stack;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Consumer;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.storage.JobStoreWithValidator;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
+import org.datatransferproject.spi.cloud.types.JobStackDelta;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
+import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.models.DataModel;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 
@@ -59,6 +71,12 @@ public final class GoogleJobStore extends JobStoreWithValidator {
   private static final String JOB_KIND = "persistentKey";
   private static final String ERROR_KIND = "error";
   private static final String COUNTS_KIND = "counts";
+  private static final String JOB_STACK_KIND = "jobStack";
+  private static final String JOB_STACK_DELTA_KIND = "jobStackDelta";
+  // Datastore allows at most 500 mutations per commit.
+  private static final int MAX_MUTATIONS_PER_COMMIT = 500;
+  private static final TypeReference<List<ExportInformation>> EXPORT_INFORMATION_LIST =
+      new TypeReference<List<ExportInformation>>() {};
   private static final String CREATED_FIELD = "created";
   private static final String LAST_UPDATE_FIELD = "lastUpdated";
   // Field name for entities to store generic json data.
@@ -188,6 +206,83 @@ public final class GoogleJobStore extends JobStoreWithValidator {
     }
   }
 
+  /** Only the lease of the job is updated, rather than the whole job. */
+  @Override
+  public void renewJobLease(UUID jobId, String leaseHolder, Instant leaseExpiry)
+      throws IOException {
+    updateJobLease(
+        jobId,
+        leaseHolder,
+        leaseExpiry,
+        previous -> {
+          String state = previous.getString(PortabilityJob.JOB_STATE);
+          Preconditions.checkState(
+              PortabilityJob.State.NEW.name().equals(state)
+                  || PortabilityJob.State.IN_PROGRESS.name().equals(state));
+          String previousLeaseHolder = getStringOrNull(previous, PortabilityJob.LEASE_HOLDER);
+          Preconditions.checkState(
+              previousLeaseHolder == null || previousLeaseHolder.equals(leaseHolder));
+        });
+  }
+
+  /** Only the lease of the job is updated, rather than the whole job. */
+  @Override
+  public void takeOverJobLease(
+      UUID jobId, String expiredLeaseHolder, String leaseHolder, Instant leaseExpiry)
+      throws IOException {
+    Instant now = Instant.now();
+    updateJobLease(
+        jobId,
+        leaseHolder,
+        leaseExpiry,
+        previous -> {
+          Preconditions.checkState(
+              PortabilityJob.State.IN_PROGRESS
+                  .name()
+                  .equals(previous.getString(PortabilityJob.JOB_STATE)));
+          Preconditions.checkState(
+              expiredLeaseHolder.equals(getStringOrNull(previous, PortabilityJob.LEASE_HOLDER)));
+          String previousLeaseExpiry = getStringOrNull(previous, PortabilityJob.LEASE_EXPIRY);
+          Preconditions.checkState(
+              previousLeaseExpiry != null && Instant.parse(previousLeaseExpiry).isBefore(now));
+        });
+  }
+
+  /**
+   * Sets the lease fields of the job, within a {@code Transaction}, after {@code validator} has
+   * accepted the stored job. The other fields are written back as they are stored.
+   */
+  private void updateJobLease(
+      UUID jobId, String leaseHolder, Instant leaseExpiry, Consumer<Entity> validator)
+      throws IOException {
+    Preconditions.checkNotNull(jobId);
+    Transaction transaction = datastore.newTransaction();
+    try {
+      Entity previousEntity = transaction.get(getJobKey(jobId));
+      if (previousEntity == null) {
+        throw new IOException("Could not find record for jobId: " + jobId);
+      }
+      validator.accept(previousEntity);
+      transaction.put(
+          Entity.newBuilder(previousEntity)
+              .set(PortabilityJob.LEASE_HOLDER, leaseHolder)
+              .set(PortabilityJob.LEASE_EXPIRY, leaseExpiry.toString())
+              .set(LAST_UPDATE_FIELD, Timestamp.now())
+              .build());
+      transaction.commit();
+    } catch (DatastoreException e) {
+      throw new IOException("Failed to update the lease of jobId: " + jobId, e);
+    } finally {
+      if (transaction.isActive()) {
+        transaction.rollback();
+      }
+    }
+  }
+
+  private static String getStringOrNull(Entity entity, String property) {
+    return entity.contains(property) ? entity.getString(property) : null;
+  }
+
   @Override
   public void addErrorsToJob(UUID jobId, Collection<ErrorDetail> errors) throws IOException {
     if (errors == null || errors.isEmpty()) {
@@ -246,19 +341,57 @@ public final class GoogleJobStore extends JobStoreWithValidator {
    */
   @Override
   public UUID findFirst(JobAuthorization.State jobState) {
+    List<UUID> jobIds = findCandidates(jobState, 1);
+    return jobIds.isEmpty() ? null : jobIds.get(0);
+  }
+
+  @Override
+  public List<UUID> findCandidates(JobAuthorization.State jobState, int limit) {
     Query<Key> query =
         Query.newKeyQueryBuilder()
             .setKind(JOB_KIND)
             .setFilter(PropertyFilter.eq(PortabilityJob.AUTHORIZATION_STATE, jobState.name()))
             // .setOrderBy(OrderBy.asc("created"))
-            .setLimit(1)
+            .setLimit(limit)
             .build();
     QueryResults<Key> results = datastore.run(query);
-    if (!results.hasNext()) {
-      return null;
+    List<UUID> jobIds = new ArrayList<>();
+    while (results.hasNext()) {
+      jobIds.add(UUID.fromString(results.next().getName()));
+    }
+    return jobIds;
+  }
+
+  /**
+   * Finds in progress jobs whose lease has expired. Only their lease expiry is read, from a
+   * composite index on the job state and the lease expiry.
+   *
+   * <p>Lease expiries are stored as ISO-8601 strings, which only sort chronologically down to the
+   * second, as fractions of a second are left out when zero. The query therefore returns every
+   * lease that expired before the next full second, and the exact expiry is checked here.
+   */
+  @Override
+  public List<UUID> findJobsWithExpiredLease(Instant now, int limit) {
+    String bound = now.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1).toString();
+    ProjectionEntityQuery query =
+        Query.newProjectionEntityQueryBuilder()
+            .setKind(JOB_KIND)
+            .setProjection(PortabilityJob.LEASE_EXPIRY)
+            .setFilter(
+                CompositeFilter.and(
+                    PropertyFilter.eq(
+                        PortabilityJob.JOB_STATE, PortabilityJob.State.IN_PROGRESS.name()),
+                    PropertyFilter.lt(PortabilityJob.LEASE_EXPIRY, bound)))
+            .build();
+    QueryResults<ProjectionEntity> results = datastore.run(query);
+    List<UUID> jobIds = new ArrayList<>();
+    while (results.hasNext() && jobIds.size() < limit) {
+      ProjectionEntity entity = results.next();
+      if (Instant.parse(entity.getString(PortabilityJob.LEASE_EXPIRY)).isBefore(now)) {
+        jobIds.add(UUID.fromString(entity.getKey().getName()));
+      }
     }
-    Key key = results.next();
-    return UUID.fromString(key.getName());
+    return jobIds;
   }
 
   @Override
@@ -330,6 +463,11 @@ public final class GoogleJobStore extends JobStoreWithValidator {
     }
   }
 
+  @Override
+  public void removeData(UUID jobId, String key) {
+    datastore.delete(getDataKey(jobId, key));
+  }
+
   @Override
   public void create(UUID jobId, String key, InputStream stream) {
     googleTempFileStore.create(jobId, key, stream);
@@ -337,28 +475,44 @@ public final class GoogleJobStore extends JobStoreWithValidator {
 
   @Override
   public void addCounts(UUID jobId, Map<String, Integer> newCounts) throws IOException {
-    if (newCounts == null) {
+    if (newCounts == null || newCounts.isEmpty()) {
       return;
     }
 
+    List<String> dataTypes = new ArrayList<>(newCounts.keySet());
+    Key[] keys =
+        dataTypes.stream().map(dataType -> getCountsKey(jobId, dataType)).toArray(Key[]::new);
     Transaction transaction = datastore.newTransaction();
-
-    for (String dataType : newCounts.keySet()) {
-      Key key = getCountsKey(jobId, dataType);
-      Entity current = datastore.get(key);
-      Integer oldCount = 0;
-
-      if (current != null && current.getNames().contains(COUNTS_FIELD)) {
-        // Datastore only allows Long properties, but we only ever write Integers through this
-        // interface so the conversion is OK
-        oldCount = Math.toIntExact(current.getLong(COUNTS_FIELD));
+    try {
+      // A single lookup for all data types, returned in the order of the keys.
+      List<Entity> currentEntities = transaction.fetch(keys);
+      for (int i = 0; i < keys.length; i++) {
+        Entity current = currentEntities.get(i);
+        Integer oldCount = 0;
+
+        if (current != null && current.getNames().contains(COUNTS_FIELD)) {
+          // Datastore only allows Long properties, but we only ever write Integers through this
+          // interface so the conversion is OK
+          oldCount = Math.toIntExact(current.getLong(COUNTS_FIELD));
+        }
+        int newCount = oldCount + newCounts.get(dataTypes.get(i));
+        transaction.put(
+            GoogleCloudUtils.createEntityBuilder(keys[i], ImmutableMap.of(COUNTS_FIELD, newCount))
+                .build());
+      }
+      transaction.commit();
+    } finally {
+      if (transaction.isActive()) {
+        transaction.rollback();
       }
-      transaction.put(
-          GoogleCloudUtils.createEntityBuilder(
-                  key, ImmutableMap.of(COUNTS_FIELD, oldCount + newCounts.get(dataType)))
-              .build());
     }
-    transaction.commit();
+  }
+
+  /** Bytes are not stored by this job store, so only the counts are added. */
+  @Override
+  public void addCountsAndBytes(UUID jobId, Map<String, Integer> newCounts, Long bytes)
+      throws IOException {
+    addCounts(jobId, newCounts);
   }
 
   @Override
@@ -377,6 +531,70 @@ public final class GoogleJobStore extends JobStoreWithValidator {
     return countsMapBuilder.build();
   }
 
+  @Override
+  public Optional<Stack<ExportInformation>> loadJobStack(UUID jobId) throws IOException {
+    Entity entity = datastore.get(getJobStackKey(jobId));
+    if (entity == null) {
+      return Optional.empty();
+    }
+    try {
+      Stack<ExportInformation> stack = new Stack<>();
+      stack.addAll(
+          objectMapper.readValue(entity.getString(JSON_DATA_FIELD), EXPORT_INFORMATION_LIST));
+      QueryResults<Entity> results = datastore.run(getJobStackDeltasQuery(jobId));
+      Map<Integer, JobStackDelta> deltas = new TreeMap<>();
+      while (results.hasNext()) {
+        JobStackDelta delta =
+            objectMapper.readValue(results.next().getString(JSON_DATA_FIELD), JobStackDelta.class);
+        deltas.put(delta.getSequence(), delta);
+      }
+      // Deltas following a missing one belong to a stack that was only partially discarded.
+      for (int sequence = 1; deltas.containsKey(sequence); sequence++) {
+        deltas.get(sequence).applyTo(stack);
+      }
+      return Optional.of(stack);
+    } catch (IOException e) {
+      throw new IOException("Failed to load job stack of jobId: " + jobId, e);
+    }
+  }
+
+  /**
+   * Replaces the stack stored for {@code jobId}. The deltas of the previous stack are deleted
+   * first, so a failure in between leaves an earlier, but consistent, stack behind.
+   */
+  @Override
+  public void storeJobStack(UUID jobId, Stack<ExportInformation> stack) {
+    List<Key> deltaKeys = new ArrayList<>();
+    datastore.run(getJobStackDeltaKeysQuery(jobId)).forEachRemaining(deltaKeys::add);
+    for (int i = 0; i < deltaKeys.size(); i += MAX_MUTATIONS_PER_COMMIT) {
+      int end = Math.min(deltaKeys.size(), i + MAX_MUTATIONS_PER_COMMIT);
+      datastore.delete(deltaKeys.subList(i, end).toArray(new Key[0]));
+    }
+    try {
+      datastore.put(
+          createJsonEntity(getJobStackKey(jobId), objectMapper.writeValueAsString(stack)));
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to store job stack of jobId: " + jobId, e);
+    }
+  }
+
+  @Override
+  public boolean supportsJobStackDeltas() {
+    return true;
+  }
+
+  @Override
+  public void appendJobStackDelta(UUID jobId, JobStackDelta delta) {
+    try {
+      datastore.put(
+          createJsonEntity(
+              getJobStackDeltaKey(jobId, delta.getSequence()),
+              objectMapper.writeValueAsString(delta)));
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to store job stack delta of jobId: " + jobId, e);
+    }
+  }
+
   @Override
   public InputStreamWrapper getStream(UUID jobId, String key) {
     return googleTempFileStore.getStream(jobId, key);
@@ -397,6 +615,14 @@ public final class GoogleJobStore extends JobStoreWithValidator {
         .build();
   }
 
+  private static Entity createJsonEntity(Key key, String json) {
+    // Stacks can exceed the size limit of indexed strings.
+    return Entity.newBuilder(key)
+        .set(JSON_DATA_FIELD, StringValue.newBuilder(json).setExcludeFromIndexes(true).build())
+        .set(LAST_UPDATE_FIELD, Timestamp.now())
+        .build();
+  }
+
   private Key getJobKey(UUID jobId) {
     return datastore.newKeyFactory().setKind(JOB_KIND).newKey(jobId.toString());
   }
@@ -425,6 +651,36 @@ public final class GoogleJobStore extends JobStoreWithValidator {
         .newKey(dataType);
   }
 
+  private Key getJobStackKey(UUID jobId) {
+    return datastore
+        .newKeyFactory()
+        .setKind(JOB_STACK_KIND)
+        .addAncestor(PathElement.of(JOB_KIND, jobId.toString()))
+        .newKey(jobId.toString());
+  }
+
+  private Key getJobStackDeltaKey(UUID jobId, int sequence) {
+    return datastore
+        .newKeyFactory()
+        .setKind(JOB_STACK_DELTA_KIND)
+        .addAncestor(PathElement.of(JOB_KIND, jobId.toString()))
+        .newKey(sequence);
+  }
+
+  private Query<Entity> getJobStackDeltasQuery(UUID jobId) {
+    return Query.newEntityQueryBuilder()
+        .setKind(JOB_STACK_DELTA_KIND)
+        .setFilter(PropertyFilter.hasAncestor(getJobKey(jobId)))
+        .build();
+  }
+
+  private Query<Key> getJobStackDeltaKeysQuery(UUID jobId) {
+    return Query.newKeyQueryBuilder()
+        .setKind(JOB_STACK_DELTA_KIND)
+        .setFilter(PropertyFilter.hasAncestor(getJobKey(jobId)))
+        .build();
+  }
+
   private Query<Entity> getCountsQuery(UUID jobId) {
     // Use the main job as the ancestor to all the errors, see:
     // http://cloud/datastore/docs/concepts/queries#ancestor_queries
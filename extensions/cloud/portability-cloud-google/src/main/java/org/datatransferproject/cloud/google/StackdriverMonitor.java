@@ -104,6 +104,11 @@ class StackdriverMonitor implements JobAwareMonitor {
     debug(() -> format("Set job id to: %s", jobId));
   }
 
+  @Override
+  public JobAwareMonitor newJobMonitor() {
+    return new StackdriverMonitor(logging, projectId);
+  }
+
   @Override
   public void flushLogs() {
     logging.flush();
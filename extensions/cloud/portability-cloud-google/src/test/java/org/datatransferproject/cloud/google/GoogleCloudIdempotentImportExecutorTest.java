@@ -2,9 +2,16 @@ package org.datatransferproject.cloud.google;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.DatastoreException;
 import com.google.cloud.datastore.Transaction;
 import com.google.cloud.datastore.testing.LocalDatastoreHelper;
 import org.datatransferproject.api.launcher.Monitor;
@@ -80,6 +87,62 @@ public class GoogleCloudIdempotentImportExecutorTest {
     assertEquals(googleExecutor.getErrors().size(), 0);
   }
 
+  @Test
+  public void recentErrorsOnlyCoverThisRun() throws Exception {
+    initializeDS();
+    googleExecutor.setJobId(JOB_ID);
+    assertTrue(googleExecutor.getRecentErrors().isEmpty());
+
+    googleExecutor.executeAndSwallowIOExceptions(
+        "id5",
+        ITEM_NAME,
+        () -> {
+          throw new IOException("failed");
+        });
+    assertEquals(googleExecutor.getRecentErrors().size(), 1);
+    assertEquals(googleExecutor.getErrors().size(), 2);
+  }
+
+  @Test
+  public void writeBehindBuffersUntilFlush() throws Exception {
+    GoogleCloudIdempotentImportExecutor batchingExecutor =
+        new GoogleCloudIdempotentImportExecutor(datastore, monitor, 10, 60_000);
+    batchingExecutor.setJobId(JOB_ID);
+    batchingExecutor.executeAndSwallowIOExceptions("id1", ITEM_NAME, () -> "idempotentId1");
+    batchingExecutor.executeAndSwallowIOExceptions("id2", ITEM_NAME, () -> "idempotentId2");
+
+    googleExecutor.setJobId(JOB_ID);
+    assertFalse(googleExecutor.isKeyCached("id1"));
+
+    batchingExecutor.flush();
+    googleExecutor.setJobId(JOB_ID);
+    assertEquals(googleExecutor.getCachedValue("id1"), "idempotentId1");
+    assertEquals(googleExecutor.getCachedValue("id2"), "idempotentId2");
+  }
+
+  @Test
+  public void failedFlushThrowsAndRollsBack() throws Exception {
+    Transaction failingTransaction = mock(Transaction.class);
+    when(failingTransaction.commit())
+        .thenThrow(new DatastoreException(14, "unavailable", "UNAVAILABLE"));
+    when(failingTransaction.isActive()).thenReturn(true);
+    Datastore failingDatastore = spy(datastore);
+    GoogleCloudIdempotentImportExecutor batchingExecutor =
+        new GoogleCloudIdempotentImportExecutor(failingDatastore, monitor, 10, 60_000);
+    batchingExecutor.setJobId(JOB_ID);
+    batchingExecutor.executeAndSwallowIOExceptions("id1", ITEM_NAME, () -> "idempotentId1");
+    doReturn(failingTransaction).when(failingDatastore).newTransaction();
+
+    assertThrows(IOException.class, batchingExecutor::flush);
+    verify(failingTransaction).rollback();
+
+    // The write stays buffered, so that a later flush can still persist it.
+    doReturn(datastore.newTransaction()).when(failingDatastore).newTransaction();
+    batchingExecutor.flush();
+    googleExecutor.setJobId(JOB_ID);
+    assertEquals(googleExecutor.getCachedValue("id1"), "idempotentId1");
+  }
+
   private void initializeDS() throws IOException {
     Transaction t = datastore.newTransaction();
     t.put(googleExecutor.createResultEntity("id1", JOB_ID, "idempotentId1"));
@@ -17,6 +17,7 @@
 package org.datatransferproject.cloud.google;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -25,8 +26,12 @@ import com.google.cloud.datastore.testing.LocalDatastoreHelper;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.truth.Truth;
 import java.io.IOException;
+import java.time.Instant;
 import java.util.Map;
 import java.util.UUID;
+import org.datatransferproject.spi.cloud.types.JobAuthorization;
+import org.datatransferproject.spi.cloud.types.PortabilityJob;
+import org.datatransferproject.types.common.models.DataVertical;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -91,6 +96,56 @@ public class GoogleJobStoreTest {
     Truth.assertThat(counts.get(ITEM_NAME)).isEqualTo(2);
   }
 
+  @Test
+  public void leaseRenewalOnlyChangesTheLease() throws IOException {
+    googleJobStore.createJob(JOB_ID, inProgressJob().build());
+    Instant leaseExpiry = Instant.now().plusSeconds(60);
+
+    googleJobStore.renewJobLease(JOB_ID, "worker", leaseExpiry);
+
+    PortabilityJob job = googleJobStore.findJob(JOB_ID);
+    Truth.assertThat(job.leaseHolder()).isEqualTo("worker");
+    Truth.assertThat(job.leaseExpiry()).isEqualTo(leaseExpiry);
+    Truth.assertThat(job.exportService()).isEqualTo("DummyExportService");
+    Truth.assertThat(job.jobAuthorization().state())
+        .isEqualTo(JobAuthorization.State.CREDS_STORED);
+  }
+
+  @Test
+  public void expiredLeaseIsFoundAndTakenOver() throws IOException {
+    Instant leaseExpiry = Instant.now().minusMillis(500);
+    googleJobStore.createJob(
+        JOB_ID, inProgressJob().setLeaseHolder("deadWorker").setLeaseExpiry(leaseExpiry).build());
+
+    Truth.assertThat(googleJobStore.findJobsWithExpiredLease(leaseExpiry, 10)).isEmpty();
+    Truth.assertThat(googleJobStore.findJobsWithExpiredLease(leaseExpiry.plusMillis(1), 10))
+        .containsExactly(JOB_ID);
+
+    Instant newLeaseExpiry = Instant.now().plusSeconds(60);
+    assertThrows(
+        IllegalStateException.class,
+        () -> googleJobStore.takeOverJobLease(JOB_ID, "otherWorker", "worker", newLeaseExpiry));
+    googleJobStore.takeOverJobLease(JOB_ID, "deadWorker", "worker", newLeaseExpiry);
+    Truth.assertThat(googleJobStore.findJob(JOB_ID).leaseHolder()).isEqualTo("worker");
+    Truth.assertThat(googleJobStore.findJobsWithExpiredLease(Instant.now(), 10)).isEmpty();
+  }
+
+  private static PortabilityJob.Builder inProgressJob() {
+    return PortabilityJob.builder()
+        .setState(PortabilityJob.State.IN_PROGRESS)
+        .setTransferDataType(DataVertical.PHOTOS)
+        .setExportService("DummyExportService")
+        .setImportService("DummyImportService")
+        .setAndValidateJobAuthorization(
+            JobAuthorization.builder()
+                .setEncryptionScheme("cleartext")
+                .setState(JobAuthorization.State.CREDS_STORED)
+                .setSessionSecretKey("fooBar")
+                .setAuthPublicKey("key")
+                .setEncryptedAuthData("dummy export data")
+                .build());
+  }
+
   private void addItemToJobStoreCounts(final String itemName) throws IOException {
     googleJobStore.addCounts(
         JOB_ID, new ImmutableMap.Builder<String, Integer>().put(itemName, 1).build());
@@ -17,6 +17,7 @@ package org.datatransferproject.cloud.local;
 
 import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.cloud.dispatch.JobDispatcher;
 import org.datatransferproject.spi.cloud.extension.CloudExtension;
 import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
 import org.datatransferproject.spi.cloud.storage.JobStore;
@@ -37,6 +38,11 @@ public class LocalCloudExtension implements CloudExtension {
     return new LocalAppCredentialStore();
   }
 
+  @Override
+  public JobDispatcher getJobDispatcher() {
+    return new LocalJobDispatcher();
+  }
+
   @Override
   public void initialize(ExtensionContext context) {
     monitor = context.getMonitor();
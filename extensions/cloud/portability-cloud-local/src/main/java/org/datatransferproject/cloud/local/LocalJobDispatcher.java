@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.cloud.local;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.datatransferproject.spi.cloud.dispatch.JobDispatcher;
+
+/**
+ * An in-process {@link JobDispatcher} that hands each announced job to one waiting worker. Like
+ * {@link LocalJobStore}, its state is shared by every instance in the VM, so it works for an API
+ * and workers running together, e.g. in SingleVMMain.
+ */
+public class LocalJobDispatcher implements JobDispatcher {
+
+  private static final BlockingQueue<UUID> AVAILABLE_JOBS = new LinkedBlockingQueue<>();
+
+  @Override
+  public void publishAvailableJob(UUID jobId) {
+    AVAILABLE_JOBS.offer(jobId);
+  }
+
+  @Override
+  public UUID awaitAvailableJob(Duration timeout) throws InterruptedException {
+    return AVAILABLE_JOBS.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public boolean isPushBased() {
+    return true;
+  }
+}
@@ -22,9 +22,15 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Stack;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.LongAdder;
@@ -33,7 +39,9 @@ import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.storage.JobStoreWithValidator;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
 import org.datatransferproject.spi.cloud.types.JobAuthorization.State;
+import org.datatransferproject.spi.cloud.types.JobStackDelta;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
+import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.models.DataModel;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 
@@ -42,6 +50,8 @@ public final class LocalJobStore extends JobStoreWithValidator {
   private static ConcurrentHashMap<UUID, Map<String, Object>> JOB_MAP = new ConcurrentHashMap<>();
   private static ConcurrentHashMap<String, Map<Class<? extends DataModel>, DataModel>> DATA_MAP =
       new ConcurrentHashMap<>();
+  private static ConcurrentHashMap<UUID, Stack<ExportInformation>> JOB_STACK_MAP =
+      new ConcurrentHashMap<>();
   private static LocalTempFileStore localTempFileStore = new LocalTempFileStore();
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
@@ -103,14 +113,16 @@ public final class LocalJobStore extends JobStoreWithValidator {
       UUID jobId, PortabilityJob job, JobUpdateValidator validator) throws IOException {
     Preconditions.checkNotNull(jobId);
     try {
-      Map<String, Object> previousEntry = JOB_MAP.replace(jobId, job.toMap());
+      Map<String, Object> previousEntry = JOB_MAP.get(jobId);
       if (previousEntry == null) {
         throw new IOException("jobId: " + jobId + " didn't exist in the map");
       }
+      // Validate before replacing the entry, so that a failed validation leaves the job untouched.
       if (validator != null) {
         PortabilityJob previousJob = PortabilityJob.fromMap(previousEntry);
         validator.validate(previousJob, job);
       }
+      JOB_MAP.put(jobId, job.toMap());
     } catch (NullPointerException | IllegalStateException e) {
       throw new IOException("Couldn't update jobId: " + jobId, e);
     }
@@ -160,21 +172,48 @@ public final class LocalJobStore extends JobStoreWithValidator {
    */
   @Override
   public synchronized UUID findFirst(JobAuthorization.State jobState) {
+    List<UUID> jobIds = findCandidates(jobState, 1);
+    return jobIds.isEmpty() ? null : jobIds.get(0);
+  }
+
+  @Override
+  public synchronized List<UUID> findCandidates(JobAuthorization.State jobState, int limit) {
+    List<UUID> jobIds = new ArrayList<>();
     // Mimic an index lookup
     for (Entry<UUID, Map<String, Object>> job : JOB_MAP.entrySet()) {
+      if (jobIds.size() >= limit) {
+        break;
+      }
       Map<String, Object> properties = job.getValue();
       State state = State.valueOf(properties.get(PortabilityJob.AUTHORIZATION_STATE).toString());
       UUID jobKey = job.getKey();
       monitor.debug(
           () ->
               format(
-                  "Looking up first job in state %s: found job %s (state %s)",
+                  "Looking up jobs in state %s: found job %s (state %s)",
                   jobState, jobKey, state));
       if (state == jobState) {
-        return jobKey;
+        jobIds.add(jobKey);
+      }
+    }
+    return jobIds;
+  }
+
+  @Override
+  public synchronized List<UUID> findJobsWithExpiredLease(Instant now, int limit) {
+    List<UUID> jobIds = new ArrayList<>();
+    for (Entry<UUID, Map<String, Object>> job : JOB_MAP.entrySet()) {
+      if (jobIds.size() >= limit) {
+        break;
+      }
+      PortabilityJob portabilityJob = PortabilityJob.fromMap(job.getValue());
+      if (portabilityJob.state() == PortabilityJob.State.IN_PROGRESS
+          && portabilityJob.leaseExpiry() != null
+          && portabilityJob.leaseExpiry().isBefore(now)) {
+        jobIds.add(job.getKey());
       }
     }
-    return null;
+    return jobIds;
   }
 
   @Override
@@ -209,6 +248,40 @@ public final class LocalJobStore extends JobStoreWithValidator {
     return bytesMap.getOrDefault(jobId, new LongAdder()).longValue();
   }
 
+  @Override
+  public Optional<Stack<ExportInformation>> loadJobStack(UUID jobId) {
+    Stack<ExportInformation> stack = JOB_STACK_MAP.get(jobId);
+    if (stack == null) {
+      return Optional.empty();
+    }
+    Stack<ExportInformation> copy = new Stack<>();
+    synchronized (stack) {
+      copy.addAll(stack);
+    }
+    return Optional.of(copy);
+  }
+
+  @Override
+  public void storeJobStack(UUID jobId, Stack<ExportInformation> stack) {
+    Stack<ExportInformation> copy = new Stack<>();
+    copy.addAll(stack);
+    JOB_STACK_MAP.put(jobId, copy);
+  }
+
+  @Override
+  public boolean supportsJobStackDeltas() {
+    return true;
+  }
+
+  @Override
+  public void appendJobStackDelta(UUID jobId, JobStackDelta delta) {
+    Stack<ExportInformation> stack = JOB_STACK_MAP.get(jobId);
+    Preconditions.checkState(stack != null, "No job stack stored for jobId: %s", jobId);
+    synchronized (stack) {
+      delta.applyTo(stack);
+    }
+  }
+
   @Override
   public <T extends DataModel> void create(UUID jobId, String key, T model) {
     if (!DATA_MAP.containsKey(createFullKey(jobId, key))) {
@@ -236,14 +309,32 @@ public final class LocalJobStore extends JobStoreWithValidator {
     return (T) DATA_MAP.get(createFullKey(jobId, key)).get(type);
   }
 
+  @Override
+  public void removeData(UUID jobId, String key) {
+    DATA_MAP.remove(createFullKey(jobId, key));
+  }
+
   @Override
   public void create(UUID jobId, String key, InputStream stream) throws IOException {
-    localTempFileStore.writeInputStream(makeFileName(jobId, key), stream);
+    localTempFileStore.writeInputStream(jobId, makeFileName(key), stream);
   }
 
   @Override
   public InputStreamWrapper getStream(UUID jobId, String key) throws IOException {
-    return localTempFileStore.getInputStream(makeFileName(jobId, key));
+    return localTempFileStore.getInputStream(jobId, makeFileName(key));
+  }
+
+  @Override
+  public FileChannel getChannel(UUID jobId, String key) throws IOException {
+    return localTempFileStore.getChannel(jobId, makeFileName(key));
+  }
+
+  @Override
+  public void removeAllData(UUID jobId) throws IOException {
+    // See createFullKey
+    String keyPrefix = jobId + "-";
+    DATA_MAP.keySet().removeIf(key -> key.startsWith(keyPrefix));
+    localTempFileStore.removeJob(jobId);
   }
 
   private static String createFullKey(UUID jobId, String key) {
@@ -251,8 +342,8 @@ public final class LocalJobStore extends JobStoreWithValidator {
     return format("%s-%s", jobId.toString(), key);
   }
 
-  private static String makeFileName(UUID jobId, String inputName) {
-    String replace = inputName.replace("/", "_");
-    return createFullKey(jobId, replace);
+  private static String makeFileName(String inputName) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(inputName));
+    return inputName.replace("/", "_");
   }
 }
@@ -16,32 +16,94 @@
 
 package org.datatransferproject.cloud.local;
 
-import java.io.File;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
 
+/**
+ * Stores streams as files in a directory per job under the system temp directory, so that all
+ * files of a job can be removed at once when it finishes.
+ */
 public class LocalTempFileStore {
 
-  private String TEMP_DIR = "/tmp/";
+  private static final String JOB_DIRECTORY_PREFIX = "dtp-job-";
+  private static final int BUFFER_SIZE = 256 * 1024;
+
+  private final Path baseDirectory;
+
+  public LocalTempFileStore() {
+    this(Paths.get(System.getProperty("java.io.tmpdir")));
+  }
 
-  void writeInputStream(String filename, InputStream inputStream) throws IOException {
-    File file = new File(TEMP_DIR + filename);
-    file.createNewFile();
-    try (OutputStream outputStream = new FileOutputStream(file)) {
-      byte[] buffer = new byte[1024];
+  LocalTempFileStore(Path baseDirectory) {
+    this.baseDirectory = baseDirectory;
+  }
+
+  void writeInputStream(UUID jobId, String filename, InputStream inputStream) throws IOException {
+    Path jobDirectory = Files.createDirectories(getJobDirectory(jobId));
+    try (FileChannel file =
+        FileChannel.open(jobDirectory.resolve(filename), CREATE, WRITE, TRUNCATE_EXISTING)) {
+      if (inputStream instanceof FileInputStream) {
+        // Lets the OS copy the data without it passing through the Java heap.
+        FileChannel source = ((FileInputStream) inputStream).getChannel();
+        long position = 0;
+        long transferred;
+        while ((transferred = file.transferFrom(source, position, Long.MAX_VALUE)) > 0) {
+          position += transferred;
+        }
+        return;
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
       int bytesRead;
-      while ((bytesRead = inputStream.read(buffer)) != -1) {
-        outputStream.write(buffer, 0, bytesRead);
+      while ((bytesRead = inputStream.read(buffer.array())) != -1) {
+        buffer.limit(bytesRead);
+        while (buffer.hasRemaining()) {
+          file.write(buffer);
+        }
+        buffer.clear();
+      }
+    }
+  }
+
+  InputStreamWrapper getInputStream(UUID jobId, String filename) throws IOException {
+    FileChannel channel = getChannel(jobId, filename);
+    return new InputStreamWrapper(Channels.newInputStream(channel), channel.size());
+  }
+
+  /** Opens the file for reading; the returned channel supports positional and mapped reads. */
+  FileChannel getChannel(UUID jobId, String filename) throws IOException {
+    return FileChannel.open(getJobDirectory(jobId).resolve(filename), READ);
+  }
+
+  /** Deletes all files stored for {@code jobId}. */
+  void removeJob(UUID jobId) throws IOException {
+    Path jobDirectory = getJobDirectory(jobId);
+    if (!Files.exists(jobDirectory)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(jobDirectory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.deleteIfExists(path);
       }
     }
   }
 
-  InputStreamWrapper getInputStream(String filename) throws IOException {
-    File file = new File(TEMP_DIR + filename);
-    return new InputStreamWrapper(new FileInputStream(file), file.length());
+  private Path getJobDirectory(UUID jobId) {
+    return baseDirectory.resolve(JOB_DIRECTORY_PREFIX + jobId);
   }
 }
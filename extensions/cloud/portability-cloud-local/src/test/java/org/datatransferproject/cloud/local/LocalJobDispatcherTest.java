@@ -0,0 +1,39 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.cloud.local;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.time.Duration;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+public class LocalJobDispatcherTest {
+
+  @Test
+  public void publishedJobIsHandedToOneWorker() throws InterruptedException {
+    UUID jobId = UUID.randomUUID();
+    LocalJobDispatcher api = new LocalJobDispatcher();
+    LocalJobDispatcher worker1 = new LocalJobDispatcher();
+    LocalJobDispatcher worker2 = new LocalJobDispatcher();
+
+    api.publishAvailableJob(jobId);
+
+    assertThat(worker1.awaitAvailableJob(Duration.ofSeconds(1))).isEqualTo(jobId);
+    assertThat(worker2.awaitAvailableJob(Duration.ofMillis(10))).isNull();
+  }
+}
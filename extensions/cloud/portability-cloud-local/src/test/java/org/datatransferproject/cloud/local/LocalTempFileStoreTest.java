@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.cloud.local;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LocalTempFileStoreTest {
+
+  @TempDir public Path folder;
+
+  private final UUID jobId = UUID.randomUUID();
+  private final byte[] content = new byte[1_000_000];
+  private LocalTempFileStore store;
+
+  @BeforeEach
+  public void setUp() {
+    new Random(0).nextBytes(content);
+    store = new LocalTempFileStore(folder.resolve("store"));
+  }
+
+  @Test
+  public void streamIsReadBack() throws IOException {
+    store.writeInputStream(jobId, "photo", new ByteArrayInputStream(content));
+
+    InputStreamWrapper wrapper = store.getInputStream(jobId, "photo");
+    try (InputStream inputStream = wrapper.getStream()) {
+      assertThat(wrapper.getBytes()).isEqualTo((long) content.length);
+      assertThat(inputStream.readAllBytes()).isEqualTo(content);
+    }
+  }
+
+  @Test
+  public void fileStreamIsTransferredByChannel() throws IOException {
+    Path source = folder.resolve("source");
+    Files.write(source, content);
+
+    try (FileInputStream inputStream = new FileInputStream(source.toFile())) {
+      store.writeInputStream(jobId, "video", inputStream);
+    }
+
+    try (InputStream inputStream = store.getInputStream(jobId, "video").getStream()) {
+      assertThat(inputStream.readAllBytes()).isEqualTo(content);
+    }
+  }
+
+  @Test
+  public void removeJobDeletesOnlyThatJobsFiles() throws IOException {
+    UUID otherJobId = UUID.randomUUID();
+    store.writeInputStream(jobId, "photo", new ByteArrayInputStream(content));
+    store.writeInputStream(otherJobId, "photo", new ByteArrayInputStream(content));
+
+    store.removeJob(jobId);
+
+    assertThrows(IOException.class, () -> store.getChannel(jobId, "photo"));
+    store.getChannel(otherJobId, "photo").close();
+  }
+}
@@ -44,6 +44,16 @@ class AzureDtpInternalMetricRecorder implements DtpInternalMetricRecorder {
                 dataType, exportService, importService));
   }
 
+  @Override
+  public void claimJobAttemptFinished(
+      DataVertical dataType, String exportService, String importService, boolean success) {
+    monitor.debug(
+        () ->
+            format(
+                "Metric: claimJobAttemptFinished, data type: %s, from: %s, to: %s, success: %s",
+                dataType, exportService, importService, success));
+  }
+
   @Override
   public void exportPageAttemptFinished(
       DataVertical dataType,
@@ -3,6 +3,7 @@ package org.datatransferproject.cloud.microsoft.cosmos;
 import static com.microsoft.azure.storage.table.TableQuery.generateFilterCondition;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.microsoft.azure.storage.CloudStorageAccount;
@@ -12,6 +13,7 @@ import com.microsoft.azure.storage.blob.CloudBlobContainer;
 import com.microsoft.azure.storage.blob.CloudBlockBlob;
 import com.microsoft.azure.storage.table.CloudTable;
 import com.microsoft.azure.storage.table.CloudTableClient;
+import com.microsoft.azure.storage.table.TableBatchOperation;
 import com.microsoft.azure.storage.table.TableOperation;
 import com.microsoft.azure.storage.table.TableQuery;
 import com.microsoft.azure.storage.table.TableResult;
@@ -19,12 +21,20 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.security.InvalidKeyException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Stack;
+import java.util.TreeMap;
 import java.util.UUID;
 import org.datatransferproject.spi.cloud.storage.JobStoreWithValidator;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
+import org.datatransferproject.spi.cloud.types.JobStackDelta;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
+import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.models.DataModel;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 
@@ -42,6 +52,11 @@ public class AzureTableStore extends JobStoreWithValidator {
   private static final String BLOB_CONTAINER =
       "dataportability"; // Azure rules: The container name must be lowercase
   private static final int UNKNOWN_LENGTH = -1;
+  // Azure allows at most 100 operations per batch.
+  private static final int MAX_BATCH_OPERATIONS = 100;
+
+  private static final String JOB_STACK_KEY = "jobStack";
+  private static final String JOB_STACK_DELTA_KEY_PREFIX = "jobStackDelta-";
 
   private final TableStoreConfiguration configuration;
 
@@ -224,6 +239,12 @@ public class AzureTableStore extends JobStoreWithValidator {
 
   @Override
   public UUID findFirst(JobAuthorization.State jobState) {
+    List<UUID> jobIds = findCandidates(jobState, 1);
+    return jobIds.isEmpty() ? null : jobIds.get(0);
+  }
+
+  @Override
+  public List<UUID> findCandidates(JobAuthorization.State jobState, int limit) {
     try {
       String partitionFilter =
           generateFilterCondition(
@@ -238,19 +259,125 @@ public class AzureTableStore extends JobStoreWithValidator {
           TableQuery.combineFilters(partitionFilter, TableQuery.Operators.AND, stateFilter);
 
       TableQuery<DataWrapper> query =
-          TableQuery.from(DataWrapper.class).where(combinedFilter).take(1);
+          TableQuery.from(DataWrapper.class).where(combinedFilter).take(limit);
 
       CloudTable table = tableClient.getTableReference(JOB_TABLE);
+      List<UUID> jobIds = new ArrayList<>();
+      // take() only sets the page size, the iterator would go on to fetch the next pages
       Iterator<DataWrapper> iter = table.execute(query).iterator();
-      if (!iter.hasNext()) {
-        return null;
+      while (iter.hasNext() && jobIds.size() < limit) {
+        jobIds.add(UUID.fromString(iter.next().getRowKey()));
       }
-      return UUID.fromString(iter.next().getRowKey());
+      return jobIds;
     } catch (StorageException | URISyntaxException e) {
-      throw new MicrosoftStorageException("Error finding first job", e);
+      throw new MicrosoftStorageException("Error finding jobs", e);
+    }
+  }
+
+  @Override
+  public Optional<Stack<ExportInformation>> loadJobStack(UUID jobId) {
+    try {
+      CloudTable table = tableClient.getTableReference(JOB_DATA_TABLE);
+      TableOperation retrieve =
+          TableOperation.retrieve(
+              configuration.getPartitionKey(),
+              createRowKey(jobId, JOB_STACK_KEY),
+              DataWrapper.class);
+      DataWrapper wrapper = table.execute(retrieve).getResultAsType();
+      if (wrapper == null) {
+        return Optional.empty();
+      }
+      Stack<ExportInformation> stack = new Stack<>();
+      stack.addAll(
+          configuration
+              .getMapper()
+              .readValue(wrapper.getSerialized(), new TypeReference<List<ExportInformation>>() {}));
+      Map<Integer, JobStackDelta> deltas = new TreeMap<>();
+      for (DataWrapper deltaWrapper : table.execute(getJobStackDeltasQuery(jobId))) {
+        JobStackDelta delta =
+            configuration.getMapper().readValue(deltaWrapper.getSerialized(), JobStackDelta.class);
+        deltas.put(delta.getSequence(), delta);
+      }
+      // Deltas following a missing one belong to a stack that was only partially discarded.
+      for (int sequence = 1; deltas.containsKey(sequence); sequence++) {
+        deltas.get(sequence).applyTo(stack);
+      }
+      return Optional.of(stack);
+    } catch (StorageException | URISyntaxException | IOException e) {
+      throw new MicrosoftStorageException("Error loading job stack for job: " + jobId, e);
+    }
+  }
+
+  /**
+   * Replaces the stack stored for {@code jobId}. The deltas of the previous stack are deleted
+   * first, so a failure in between leaves an earlier, but consistent, stack behind.
+   */
+  @Override
+  public void storeJobStack(UUID jobId, Stack<ExportInformation> stack) {
+    try {
+      CloudTable table = tableClient.getTableReference(JOB_DATA_TABLE);
+      TableBatchOperation deletes = new TableBatchOperation();
+      for (DataWrapper deltaWrapper : table.execute(getJobStackDeltasQuery(jobId))) {
+        deletes.delete(deltaWrapper);
+        if (deletes.size() == MAX_BATCH_OPERATIONS) {
+          table.execute(deletes);
+          deletes = new TableBatchOperation();
+        }
+      }
+      if (!deletes.isEmpty()) {
+        table.execute(deletes);
+      }
+      insertOrReplace(table, createRowKey(jobId, JOB_STACK_KEY), stack);
+    } catch (StorageException | URISyntaxException | JsonProcessingException e) {
+      throw new MicrosoftStorageException("Error storing job stack for job: " + jobId, e);
     }
   }
 
+  @Override
+  public boolean supportsJobStackDeltas() {
+    return true;
+  }
+
+  @Override
+  public void appendJobStackDelta(UUID jobId, JobStackDelta delta) {
+    try {
+      insertOrReplace(
+          tableClient.getTableReference(JOB_DATA_TABLE),
+          createJobStackDeltaRowKey(jobId, delta.getSequence()),
+          delta);
+    } catch (StorageException | URISyntaxException | JsonProcessingException e) {
+      throw new MicrosoftStorageException("Error storing job stack delta for job: " + jobId, e);
+    }
+  }
+
+  private void insertOrReplace(CloudTable table, String rowKey, Object type)
+      throws JsonProcessingException, StorageException {
+    String serialized = configuration.getMapper().writeValueAsString(type);
+    table.execute(
+        TableOperation.insertOrReplace(
+            new DataWrapper(configuration.getPartitionKey(), rowKey, null, serialized)));
+  }
+
+  private TableQuery<DataWrapper> getJobStackDeltasQuery(UUID jobId) {
+    String prefix = createRowKey(jobId, JOB_STACK_DELTA_KEY_PREFIX);
+    String partitionFilter =
+        generateFilterCondition(
+            "PartitionKey", TableQuery.QueryComparisons.EQUAL, configuration.getPartitionKey());
+    // Delta row keys end in a zero-padded sequence number, and ':' sorts right after the digits.
+    String rowKeyFilter =
+        TableQuery.combineFilters(
+            generateFilterCondition(
+                "RowKey", TableQuery.QueryComparisons.GREATER_THAN_OR_EQUAL, prefix),
+            TableQuery.Operators.AND,
+            generateFilterCondition("RowKey", TableQuery.QueryComparisons.LESS_THAN, prefix + ":"));
+    return TableQuery.from(DataWrapper.class)
+        .where(TableQuery.combineFilters(partitionFilter, TableQuery.Operators.AND, rowKeyFilter));
+  }
+
+  private static String createJobStackDeltaRowKey(UUID jobId, int sequence) {
+    return createRowKey(jobId, String.format("%s%010d", JOB_STACK_DELTA_KEY_PREFIX, sequence));
+  }
+
   private void create(String rowKey, String tableName, String state, Object type)
       throws IOException {
     try {
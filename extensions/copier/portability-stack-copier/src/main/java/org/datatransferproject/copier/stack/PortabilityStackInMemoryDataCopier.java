@@ -17,10 +17,18 @@
 package org.datatransferproject.copier.stack;
 
 import com.google.inject.Provider;
+import com.google.inject.name.Named;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Stack;
 import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
 import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
@@ -30,10 +38,14 @@ import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportE
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.Exporter;
 import org.datatransferproject.spi.transfer.provider.Importer;
+import org.datatransferproject.spi.transfer.threads.WorkerThreads;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.spi.transfer.types.CopyException;
 import org.datatransferproject.transfer.Annotations;
+import org.datatransferproject.transfer.PortabilityJobCache;
+import org.datatransferproject.transfer.copier.ImportPipeline;
 import org.datatransferproject.transfer.copier.InMemoryDataCopier;
+import org.datatransferproject.transfer.copier.JobStackCheckpointer;
 import org.datatransferproject.transfer.copier.PortabilityAbstractInMemoryDataCopier;
 import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.models.ContainerResource;
@@ -43,11 +55,21 @@ import org.datatransferproject.types.transfer.retry.RetryStrategyLibrary;
 /** Implementation of {@link InMemoryDataCopier}. */
 public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMemoryDataCopier {
 
-  private static final AtomicInteger COPY_ITERATION_COUNTER = new AtomicInteger();
+  private final AtomicInteger copyIterationCounter = new AtomicInteger();
 
   private Stack<ExportInformation> exportInfoStack = new Stack<>();
 
-  @Inject
+  /**
+   * Entries that have been popped off {@link #exportInfoStack} but whose copy iteration has not
+   * finished yet, in the order they were popped. They are persisted along with the stack so a
+   * resumed job re-runs them.
+   */
+  private final List<ExportInformation> inFlightExportInfos = new ArrayList<>();
+
+  private final int maxConcurrentCopyIterations;
+  private final int importPipelineDepth;
+  private JobStackCheckpointer jobStackCheckpointer;
+
   public PortabilityStackInMemoryDataCopier(
       Provider<Exporter> exporterProvider,
       Provider<Importer> importerProvider,
@@ -57,6 +79,57 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
       @Annotations.RetryingExecutor IdempotentImportExecutor retryingIdempotentImportExecutor,
       DtpInternalMetricRecorder dtpInternalMetricRecorder,
       JobStore jobStore) {
+    this(
+        exporterProvider,
+        importerProvider,
+        retryStrategyLibraryProvider,
+        monitor,
+        idempotentImportExecutor,
+        retryingIdempotentImportExecutor,
+        dtpInternalMetricRecorder,
+        jobStore,
+        1,
+        0);
+  }
+
+  public PortabilityStackInMemoryDataCopier(
+      Provider<Exporter> exporterProvider,
+      Provider<Importer> importerProvider,
+      Provider<RetryStrategyLibrary> retryStrategyLibraryProvider,
+      Monitor monitor,
+      IdempotentImportExecutor idempotentImportExecutor,
+      @Annotations.RetryingExecutor IdempotentImportExecutor retryingIdempotentImportExecutor,
+      DtpInternalMetricRecorder dtpInternalMetricRecorder,
+      JobStore jobStore,
+      Integer maxConcurrentCopyIterations,
+      Integer importPipelineDepth) {
+    this(
+        exporterProvider,
+        importerProvider,
+        retryStrategyLibraryProvider,
+        monitor,
+        idempotentImportExecutor,
+        retryingIdempotentImportExecutor,
+        dtpInternalMetricRecorder,
+        jobStore,
+        new PortabilityJobCache(jobStore),
+        maxConcurrentCopyIterations,
+        importPipelineDepth);
+  }
+
+  @Inject
+  public PortabilityStackInMemoryDataCopier(
+      Provider<Exporter> exporterProvider,
+      Provider<Importer> importerProvider,
+      Provider<RetryStrategyLibrary> retryStrategyLibraryProvider,
+      Monitor monitor,
+      IdempotentImportExecutor idempotentImportExecutor,
+      @Annotations.RetryingExecutor IdempotentImportExecutor retryingIdempotentImportExecutor,
+      DtpInternalMetricRecorder dtpInternalMetricRecorder,
+      JobStore jobStore,
+      PortabilityJobCache jobCache,
+      @Named("maxConcurrentCopyIterations") Integer maxConcurrentCopyIterations,
+      @Named("importPipelineDepth") Integer importPipelineDepth) {
     super(
         exporterProvider,
         importerProvider,
@@ -65,12 +138,15 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
         idempotentImportExecutor,
         retryingIdempotentImportExecutor,
         dtpInternalMetricRecorder,
-        jobStore);
+        jobStore,
+        jobCache);
+    this.maxConcurrentCopyIterations = Math.max(1, maxConcurrentCopyIterations);
+    this.importPipelineDepth = Math.max(0, importPipelineDepth);
   }
 
   @Override
   public void resetCopyIterationCounter() {
-    COPY_ITERATION_COUNTER.set(0);
+    copyIterationCounter.set(0);
   }
 
   /**
@@ -79,6 +155,12 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
    * If there is more data to required to be exported, recursively copies using the specific {@link
    * ExportInformation} to continue the process.
    *
+   * <p>If {@code maxConcurrentCopyIterations} is greater than one, and both the importer and the
+   * idempotent executor are thread safe, independent entries of the stack (e.g. sibling container
+   * resources) are copied concurrently, up to that many at a time.
+   * Otherwise, if {@code importPipelineDepth} is positive, each page is imported in the background
+   * while the following pages are exported, with at most that many imports outstanding.
+   *
    * @param exportAuthData The auth data for the export
    * @param importAuthData The auth data for the import
    * @param exportInfo Any pagination or resource information to use for subsequent calls.
@@ -92,15 +174,34 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
       throws CopyException {
     idempotentImportExecutor.setJobId(jobId);
     String jobIdPrefix = "Job " + jobId + ": ";
+    jobStackCheckpointer = new JobStackCheckpointer(jobStore, jobId);
 
-    Optional<Stack<ExportInformation>> maybeLoadedStack = jobStore.loadJobStack(jobId);
+    Optional<Stack<ExportInformation>> maybeLoadedStack;
+    try {
+      maybeLoadedStack = jobStore.loadJobStack(jobId);
+    } catch (IOException e) {
+      throw new CopyException(jobIdPrefix + "Error loading the job stack", e);
+    }
+
+    int concurrentCopyIterations = getConcurrentCopyIterations(jobIdPrefix);
+    if (concurrentCopyIterations == 1 && importPipelineDepth > 0) {
+      maybeLoadedStack.ifPresent(loadedStack -> exportInfoStack = loadedStack);
+      copyStackPipelined(
+          exportAuthData,
+          importAuthData,
+          jobId,
+          jobIdPrefix,
+          exportInfo,
+          maybeLoadedStack.isPresent());
+      return;
+    }
 
     if (maybeLoadedStack.isPresent()) {
       // load stack from partially completed transfer
       exportInfoStack = maybeLoadedStack.get();
     } else {
       // start new transfer
-      int initialCopyIteration = COPY_ITERATION_COUNTER.incrementAndGet();
+      int initialCopyIteration = copyIterationCounter.incrementAndGet();
       ExportResult<?> initialExportResult =
           copyIteration(
               jobId, exportAuthData, importAuthData, exportInfo, jobIdPrefix, initialCopyIteration);
@@ -114,8 +215,13 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
           initialCopyIteration,
           initialExportResult.getContinuationData());
     }
+    if (concurrentCopyIterations > 1) {
+      copyStackConcurrently(
+          exportAuthData, importAuthData, jobId, jobIdPrefix, concurrentCopyIterations);
+      return;
+    }
     while (!exportInfoStack.isEmpty()) {
-      int copyIteration = COPY_ITERATION_COUNTER.incrementAndGet();
+      int copyIteration = copyIterationCounter.incrementAndGet();
       ExportInformation currentExportInfo = exportInfoStack.pop();
       ExportResult<?> exportResult =
           copyIteration(
@@ -135,8 +241,177 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
     }
   }
 
+  /**
+   * Returns how many copy iterations of the job may run at the same time. All of them share the
+   * importer and the idempotent executor, so they only run concurrently if both allow it.
+   */
+  private int getConcurrentCopyIterations(String jobIdPrefix) {
+    if (maxConcurrentCopyIterations == 1) {
+      return 1;
+    }
+    if (!idempotentImportExecutor.isThreadSafe() || !importerProvider.get().isThreadSafe()) {
+      monitor.info(
+          () ->
+              jobIdPrefix
+                  + "Copying one iteration at a time, as the importer or the idempotent executor"
+                  + " isn't thread safe");
+      return 1;
+    }
+    return maxConcurrentCopyIterations;
+  }
+
+  /**
+   * Drains the stack with a bounded pool of copy iterations. Only the calling thread touches the
+   * stack: it hands entries to the pool and pushes the continuation of each finished iteration,
+   * so entries are still only ever started once their parent iteration has completed.
+   */
+  private void copyStackConcurrently(
+      AuthData exportAuthData,
+      AuthData importAuthData,
+      UUID jobId,
+      String jobIdPrefix,
+      int concurrentCopyIterations)
+      throws CopyException {
+    ExecutorService executorService =
+        Executors.newFixedThreadPool(
+            concurrentCopyIterations,
+            WorkerThreads.newThreadFactory("copy-iteration-" + jobId + "-"));
+    CompletionService<FinishedCopyIteration> completionService =
+        new ExecutorCompletionService<>(executorService);
+    int running = 0;
+    try {
+      while (!exportInfoStack.isEmpty() || running > 0) {
+        while (running < concurrentCopyIterations && !exportInfoStack.isEmpty()) {
+          int copyIteration = copyIterationCounter.incrementAndGet();
+          ExportInformation currentExportInfo = exportInfoStack.pop();
+          inFlightExportInfos.add(currentExportInfo);
+          completionService.submit(
+              () ->
+                  new FinishedCopyIteration(
+                      currentExportInfo,
+                      copyIteration,
+                      copyIteration(
+                          jobId,
+                          exportAuthData,
+                          importAuthData,
+                          Optional.of(currentExportInfo),
+                          jobIdPrefix,
+                          copyIteration)));
+          running++;
+        }
+        FinishedCopyIteration finished = awaitNextCopyIteration(completionService, jobIdPrefix);
+        running--;
+        inFlightExportInfos.remove(finished.exportInfo);
+        // Import and Export were successful, determine what to do next
+        updateStackAfterCopyIteration(
+            jobId,
+            jobIdPrefix,
+            finished.exportInfo.getContainerResource(),
+            finished.copyIteration,
+            finished.exportResult.getContinuationData());
+      }
+    } finally {
+      executorService.shutdownNow();
+      inFlightExportInfos.clear();
+    }
+  }
+
+  /**
+   * Drains the stack on the calling thread, but hands the import half of each copy iteration to an
+   * {@link ImportPipeline} so the next page can be exported while the previous one is imported.
+   *
+   * @param exportInfo where to start the transfer from, ignored when resuming from a loaded stack
+   * @param resuming whether {@link #exportInfoStack} was loaded from a partially completed transfer
+   */
+  private void copyStackPipelined(
+      AuthData exportAuthData,
+      AuthData importAuthData,
+      UUID jobId,
+      String jobIdPrefix,
+      Optional<ExportInformation> exportInfo,
+      boolean resuming)
+      throws CopyException {
+    try (ImportPipeline importPipeline = new ImportPipeline(jobId, importPipelineDepth)) {
+      if (!resuming) {
+        exportAndQueueImport(
+            exportAuthData, importAuthData, jobId, jobIdPrefix, exportInfo, importPipeline);
+      }
+      while (!exportInfoStack.isEmpty()) {
+        exportAndQueueImport(
+            exportAuthData,
+            importAuthData,
+            jobId,
+            jobIdPrefix,
+            Optional.of(exportInfoStack.pop()),
+            importPipeline);
+      }
+      importPipeline.awaitAll();
+    }
+  }
+
+  private void exportAndQueueImport(
+      AuthData exportAuthData,
+      AuthData importAuthData,
+      UUID jobId,
+      String jobIdPrefix,
+      Optional<ExportInformation> exportInfo,
+      ImportPipeline importPipeline)
+      throws CopyException {
+    int copyIteration = copyIterationCounter.incrementAndGet();
+    monitor.debug(() -> jobIdPrefix + "Copy iteration: " + copyIteration);
+    ExportResult<?> exportResult =
+        exportIteration(jobId, exportAuthData, exportInfo, jobIdPrefix, copyIteration);
+    pushContinuation(
+        jobIdPrefix,
+        exportInfo.map(ExportInformation::getContainerResource).orElse(null),
+        copyIteration,
+        exportResult.getContinuationData());
+    // This is where a resumed job has to restart from once this page has been imported: it holds
+    // the pages exported after this one, whose imports may not have happened yet.
+    Stack<ExportInformation> resumableStack = getResumableStack();
+    importPipeline.submitAsync(
+        () ->
+            processExportResultAsync(
+                jobId, importAuthData, jobIdPrefix, copyIteration, exportResult),
+        () -> {
+          flushIdempotentImportExecutor(jobIdPrefix);
+          jobStackCheckpointer.checkpoint(resumableStack);
+        });
+  }
+
+  private static FinishedCopyIteration awaitNextCopyIteration(
+      CompletionService<FinishedCopyIteration> completionService, String jobIdPrefix)
+      throws CopyException {
+    try {
+      return completionService.take().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CopyException(jobIdPrefix + "Interrupted while waiting for copy iteration", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof CopyException) {
+        throw (CopyException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new CopyException(jobIdPrefix + "Error happened during copy iteration", cause);
+    }
+  }
+
   private void updateStackAfterCopyIteration(
       UUID jobId,
+      String jobIdPrefix,
+      ContainerResource exportContainerResource,
+      int copyIteration,
+      ContinuationData continuationData)
+      throws CopyException {
+    pushContinuation(jobIdPrefix, exportContainerResource, copyIteration, continuationData);
+    // The stored stack must not get ahead of the idempotent executor's persisted results.
+    flushIdempotentImportExecutor(jobIdPrefix);
+    jobStackCheckpointer.checkpoint(getResumableStack());
+  }
+
+  private void pushContinuation(
       String jobIdPrefix,
       ContainerResource exportContainerResource,
       int copyIteration,
@@ -171,6 +446,31 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
             new ExportInformation(continuationData.getPaginationData(), exportContainerResource));
       }
     }
-    jobStore.storeJobStack(jobId, (Stack<ExportInformation>) exportInfoStack.clone());
+  }
+
+  /**
+   * Returns a copy of the stack that also contains the in-flight entries, placed back on top in
+   * the order they were popped, so that resuming from it re-runs any unfinished copy iteration.
+   */
+  @SuppressWarnings("unchecked")
+  private Stack<ExportInformation> getResumableStack() {
+    Stack<ExportInformation> resumableStack = (Stack<ExportInformation>) exportInfoStack.clone();
+    for (int i = inFlightExportInfos.size() - 1; i >= 0; i--) {
+      resumableStack.push(inFlightExportInfos.get(i));
+    }
+    return resumableStack;
+  }
+
+  private static final class FinishedCopyIteration {
+    private final ExportInformation exportInfo;
+    private final int copyIteration;
+    private final ExportResult<?> exportResult;
+
+    private FinishedCopyIteration(
+        ExportInformation exportInfo, int copyIteration, ExportResult<?> exportResult) {
+      this.exportInfo = exportInfo;
+      this.copyIteration = copyIteration;
+      this.exportResult = exportResult;
+    }
   }
 }
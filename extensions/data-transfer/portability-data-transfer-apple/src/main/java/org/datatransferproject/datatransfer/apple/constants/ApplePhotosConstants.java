@@ -28,6 +28,9 @@ public class ApplePhotosConstants {
   public static final Integer maxNewMediaRequests = 50;
   // maximum media size that can be transferred, default 50GB
   public static final Long maxMediaTransferByteSize = 50_000_000_000L;
+  // Maximum num of files downloaded and uploaded at the same time. Each one holds up to two
+  // content chunks in memory, the one being uploaded and the next one being downloaded.
+  public static final Integer maxConcurrentContentTransfers = 2;
   public static final String BYTES_KEY = "bytes";
   public static final String COUNT_KEY = "count";
   public static final String APPLE_PHOTOS_IMPORT_ERROR_PREFIX = "APPLE PHOTOS IMPORT:";
@@ -27,9 +27,11 @@ import static org.apache.http.HttpStatus.SC_PRECONDITION_FAILED;
 import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
 import static org.apache.http.HttpStatus.SC_UNAUTHORIZED;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.UnmodifiableIterator;
+import com.google.common.util.concurrent.Uninterruptibles;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -38,11 +40,18 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.StringJoiner;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.apache.commons.io.IOUtils;
@@ -65,6 +74,7 @@ import org.datatransferproject.datatransfer.apple.photos.photosproto.PhotosProto
 import org.datatransferproject.datatransfer.apple.photos.photosproto.PhotosProtocol.NewPhotoAlbumRequest;
 import org.datatransferproject.datatransfer.apple.photos.streaming.StreamingContentClient;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.threads.WorkerThreads;
 import org.datatransferproject.spi.transfer.types.CopyException;
 import org.datatransferproject.spi.transfer.types.CopyExceptionWithFailureReason;
 import org.datatransferproject.spi.transfer.types.DestinationMemoryFullException;
@@ -169,28 +179,75 @@ public class AppleMediaInterface implements AppleBaseInterface {
     return getUploadUrlsResponse;
   }
 
-  // download from external server then upload to apple
+  /**
+   * Downloads each file from the external server and uploads it to Apple, moving up to {@link
+   * ApplePhotosConstants#maxConcurrentContentTransfers} files at a time.
+   */
   public Map<String, DownUpResult> uploadContent(
       @NotNull final Map<String, String> dataIdToDownloadURLMap,
       @NotNull final List<AuthorizeUploadResponse> authorizeUploadResponseList) {
     final Map<String, DownUpResult> dataIdToUploadResponseMap = new HashMap<>();
-    for (AuthorizeUploadResponse authorizeUploadResponse : authorizeUploadResponseList) {
-      final String dataId = authorizeUploadResponse.getDataId();
-      final String downloadURL = dataIdToDownloadURLMap.get(dataId);
-      try (final StreamingContentClient downloadClient =
-              new StreamingContentClient(
-                  downloadURL, StreamingContentClient.StreamingMode.DOWNLOAD, monitor);
-          final StreamingContentClient uploadClient =
-              new StreamingContentClient(
-                  authorizeUploadResponse.getUploadUrl(),
-                  StreamingContentClient.StreamingMode.UPLOAD,
-                  monitor)) {
-
-        final int maxRequestBytes = ApplePhotosConstants.contentRequestLength;
-        int totalSize = 0;
-        for (byte[] data = downloadClient.downloadBytes(maxRequestBytes);
-            data != null;
-            data = downloadClient.downloadBytes(maxRequestBytes)) {
+    if (authorizeUploadResponseList.isEmpty()) {
+      return dataIdToUploadResponseMap;
+    }
+
+    final int threads =
+        Math.min(
+            authorizeUploadResponseList.size(),
+            ApplePhotosConstants.maxConcurrentContentTransfers);
+    final ExecutorService transferExecutor =
+        newContentExecutor(threads, "apple-content-transfer-");
+    // Each transfer has at most one download in flight, so this never makes a transfer wait.
+    final ExecutorService downloadExecutor =
+        newContentExecutor(threads, "apple-content-download-");
+    try {
+      final Map<String, Future<DownUpResult>> transfers = new LinkedHashMap<>();
+      for (AuthorizeUploadResponse authorizeUploadResponse : authorizeUploadResponseList) {
+        final String dataId = authorizeUploadResponse.getDataId();
+        final String downloadURL = dataIdToDownloadURLMap.get(dataId);
+        final String uploadUrl = authorizeUploadResponse.getUploadUrl();
+        transfers.put(
+            dataId,
+            transferExecutor.submit(
+                () -> transferContent(dataId, downloadURL, uploadUrl, downloadExecutor)));
+      }
+      for (Map.Entry<String, Future<DownUpResult>> transfer : transfers.entrySet()) {
+        dataIdToUploadResponseMap.put(transfer.getKey(), getTransferResult(transfer.getValue()));
+      }
+    } finally {
+      transferExecutor.shutdownNow();
+      downloadExecutor.shutdownNow();
+    }
+    return dataIdToUploadResponseMap;
+  }
+
+  /**
+   * Streams a single file from its download URL to its Apple upload URL, downloading the next chunk
+   * on {@code downloadExecutor} while the current one is uploaded.
+   */
+  private DownUpResult transferContent(
+      final String dataId,
+      final String downloadURL,
+      final String uploadUrl,
+      final ExecutorService downloadExecutor) {
+    try (final StreamingContentClient downloadClient =
+            new StreamingContentClient(
+                downloadURL, StreamingContentClient.StreamingMode.DOWNLOAD, monitor);
+        final StreamingContentClient uploadClient =
+            new StreamingContentClient(
+                uploadUrl, StreamingContentClient.StreamingMode.UPLOAD, monitor)) {
+
+      final int maxRequestBytes = ApplePhotosConstants.contentRequestLength;
+      long totalSize = 0;
+      ChunkDownload nextChunk =
+          new ChunkDownload(downloadExecutor, downloadClient, maxRequestBytes);
+      try {
+        while (true) {
+          final byte[] data = nextChunk.get();
+          nextChunk = null;
+          if (data == null) {
+            break;
+          }
           totalSize += data.length;
 
           if (totalSize > ApplePhotosConstants.maxMediaTransferByteSize) {
@@ -198,21 +255,102 @@ public class AppleMediaInterface implements AppleBaseInterface {
             throw new AppleContentException(getApplePhotosImportThrowingMessage("file too large to import to Apple", ImmutableMap.of(
                     AuditKeys.dataId, Optional.of(dataId),
                     AuditKeys.downloadURL, Optional.of(downloadURL),
-                    AuditKeys.uploadUrl, Optional.of(authorizeUploadResponse.getUploadUrl()))));
+                    AuditKeys.uploadUrl, Optional.of(uploadUrl))));
           }
 
+          // A short chunk means the download is complete, otherwise fetch the next one meanwhile.
+          final boolean isLastChunk = data.length < maxRequestBytes;
+          if (!isLastChunk) {
+            nextChunk = new ChunkDownload(downloadExecutor, downloadClient, maxRequestBytes);
+          }
           uploadClient.uploadBytes(data);
-          if (data.length < maxRequestBytes) {
+          if (isLastChunk) {
             break;
           }
         }
-        final String singleFileUploadResponse = uploadClient.completeUpload();
-        dataIdToUploadResponseMap.put(dataId, DownUpResult.ofDataId(singleFileUploadResponse));
-      } catch (AppleContentException e) {
-        dataIdToUploadResponseMap.put(dataId, DownUpResult.ofError(e));
+      } finally {
+        // The download client is closed next, so the pending download must be done with it first.
+        if (nextChunk != null) {
+          nextChunk.cancelAndAwait();
+        }
       }
+      final String singleFileUploadResponse = uploadClient.completeUpload();
+      return DownUpResult.ofDataId(singleFileUploadResponse);
+    } catch (AppleContentException e) {
+      return DownUpResult.ofError(e);
     }
-    return dataIdToUploadResponseMap;
+  }
+
+  /** A chunk that is downloaded in the background, which can be cancelled and waited for. */
+  private static final class ChunkDownload {
+    // Claimed by either the download or its cancellation, whichever comes first
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final Future<byte[]> chunk;
+
+    ChunkDownload(
+        final ExecutorService downloadExecutor,
+        final StreamingContentClient downloadClient,
+        final int maxRequestBytes) {
+      chunk =
+          downloadExecutor.submit(
+              () -> {
+                if (!started.compareAndSet(false, true)) {
+                  return null;
+                }
+                try {
+                  return downloadClient.downloadBytes(maxRequestBytes);
+                } finally {
+                  finished.countDown();
+                }
+              });
+    }
+
+    @Nullable
+    byte[] get() throws AppleContentException {
+      return getDownloadedChunk(chunk);
+    }
+
+    /** Cancels the download and, if it already started, waits until it has stopped. */
+    void cancelAndAwait() {
+      final boolean running = !started.compareAndSet(false, true);
+      chunk.cancel(true);
+      if (running) {
+        Uninterruptibles.awaitUninterruptibly(finished);
+      }
+    }
+  }
+
+  @Nullable
+  private static byte[] getDownloadedChunk(final Future<byte[]> chunk)
+      throws AppleContentException {
+    try {
+      return chunk.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AppleContentException("Interrupted when downloading from Content", e);
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), AppleContentException.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new AppleContentException("Error when downloading from Content", e.getCause());
+    }
+  }
+
+  private static DownUpResult getTransferResult(final Future<DownUpResult> transfer) {
+    try {
+      return transfer.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return DownUpResult.ofError(
+          new AppleContentException("Interrupted when transferring Content", e));
+    } catch (ExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static ExecutorService newContentExecutor(final int threads, final String namePrefix) {
+    return Executors.newFixedThreadPool(threads, WorkerThreads.newThreadFactory(namePrefix));
   }
 
   public CreateMediaResponse createMedia(
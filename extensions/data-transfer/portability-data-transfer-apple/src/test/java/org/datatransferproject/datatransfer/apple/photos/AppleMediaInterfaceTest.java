@@ -0,0 +1,144 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.datatransfer.apple.photos;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.datatransfer.apple.photos.photosproto.PhotosProtocol.AuthorizeUploadResponse;
+import org.datatransferproject.types.transfer.auth.AppCredentials;
+import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Moves content between a local download server and a local upload server. */
+public class AppleMediaInterfaceTest {
+
+  private final Map<String, byte[]> uploads = new ConcurrentHashMap<>();
+  private ExecutorService serverExecutor;
+  private HttpServer server;
+  private String serverUrl;
+  private AppleMediaInterface mediaInterface;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/download/",
+        exchange -> {
+          String dataId = lastPathSegment(exchange);
+          if (dataId.startsWith("missing")) {
+            respond(exchange, 404, new byte[0]);
+          } else {
+            respond(exchange, 200, content(dataId));
+          }
+        });
+    server.createContext(
+        "/upload/",
+        exchange -> {
+          String dataId = lastPathSegment(exchange);
+          uploads.put(dataId, exchange.getRequestBody().readAllBytes());
+          respond(exchange, 200, ("uploaded-" + dataId).getBytes(UTF_8));
+        });
+    serverExecutor = Executors.newCachedThreadPool();
+    server.setExecutor(serverExecutor);
+    server.start();
+    serverUrl = "http://localhost:" + server.getAddress().getPort();
+
+    mediaInterface =
+        new AppleMediaInterface(
+            mock(TokensAndUrlAuthData.class),
+            mock(AppCredentials.class),
+            "test-exporter",
+            new Monitor() {});
+  }
+
+  @AfterEach
+  public void tearDown() {
+    server.stop(0);
+    serverExecutor.shutdownNow();
+  }
+
+  @Test
+  public void uploadContentMovesEveryFile() {
+    ImmutableList<String> dataIds = ImmutableList.of("photo1", "photo2", "video1");
+
+    Map<String, DownUpResult> results = uploadContent(dataIds);
+
+    assertThat(results.keySet()).containsExactlyElementsIn(dataIds);
+    for (String dataId : dataIds) {
+      assertThat(results.get(dataId).isOk()).isTrue();
+      assertThat(results.get(dataId).successDataId().trim()).isEqualTo("uploaded-" + dataId);
+      assertThat(uploads.get(dataId)).isEqualTo(content(dataId));
+    }
+  }
+
+  @Test
+  public void failedDownloadOnlyFailsItsFile() {
+    Map<String, DownUpResult> results = uploadContent(ImmutableList.of("photo1", "missing1"));
+
+    assertThat(results.get("photo1").isOk()).isTrue();
+    assertThat(results.get("missing1").isOk()).isFalse();
+    assertThat(uploads.get("photo1")).isEqualTo(content("photo1"));
+  }
+
+  private Map<String, DownUpResult> uploadContent(ImmutableList<String> dataIds) {
+    ImmutableMap.Builder<String, String> downloadUrls = ImmutableMap.builder();
+    ImmutableList.Builder<AuthorizeUploadResponse> authorizeUploadResponses =
+        ImmutableList.builder();
+    for (String dataId : dataIds) {
+      downloadUrls.put(dataId, serverUrl + "/download/" + dataId);
+      authorizeUploadResponses.add(
+          AuthorizeUploadResponse.newBuilder()
+              .setDataId(dataId)
+              .setUploadUrl(serverUrl + "/upload/" + dataId)
+              .build());
+    }
+    return mediaInterface.uploadContent(downloadUrls.build(), authorizeUploadResponses.build());
+  }
+
+  private static byte[] content(String dataId) {
+    return Strings.repeat(dataId, 1000).getBytes(UTF_8);
+  }
+
+  private static String lastPathSegment(HttpExchange exchange) {
+    String path = exchange.getRequestURI().getPath();
+    return path.substring(path.lastIndexOf('/') + 1);
+  }
+
+  private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+    exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+    try (OutputStream responseBody = exchange.getResponseBody()) {
+      responseBody.write(body);
+    }
+  }
+}
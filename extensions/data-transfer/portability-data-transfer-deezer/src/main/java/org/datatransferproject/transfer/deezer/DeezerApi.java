@@ -16,17 +16,19 @@
 package org.datatransferproject.transfer.deezer;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestFactory;
 import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.http.HttpTransport;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
 import com.google.common.io.CharStreams;
-import com.google.common.util.concurrent.RateLimiter;
 import org.datatransferproject.transfer.deezer.model.Error;
 import org.datatransferproject.transfer.deezer.model.InsertResponse;
 import org.datatransferproject.transfer.deezer.model.PlaylistDetails;
@@ -34,6 +36,8 @@ import org.datatransferproject.transfer.deezer.model.PlaylistSummary;
 import org.datatransferproject.transfer.deezer.model.PlaylistsResponse;
 import org.datatransferproject.transfer.deezer.model.Track;
 import org.datatransferproject.transfer.deezer.model.User;
+import org.datatransferproject.types.transfer.ratelimit.AdaptiveRateLimiter;
+import org.datatransferproject.types.transfer.retry.RetryAfterException;
 import org.datatransferproject.types.transfer.serviceconfig.TransferServiceConfig;
 
 import java.io.IOException;
@@ -41,6 +45,7 @@ import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Map;
 
@@ -53,10 +58,12 @@ public class DeezerApi {
   private static final ObjectMapper MAPPER =
       new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
   private static final String BASE_URL = "https://api.deezer.com";
+  // Deezer reports an exceeded quota as an error with this code, in a successful response.
+  private static final int QUOTA_EXCEEDED_CODE = 4;
 
   private final String accessToken;
   private final HttpTransport httpTransport;
-  private final RateLimiter perUserRateLimiter;
+  private final AdaptiveRateLimiter perUserRateLimiter;
 
   public DeezerApi(
       String accessToken,
@@ -64,7 +71,10 @@ public class DeezerApi {
       TransferServiceConfig transferServiceConfig) {
     this.accessToken = accessToken;
     this.httpTransport = httpTransport;
-    this.perUserRateLimiter = transferServiceConfig.getPerUserRateLimiter();
+    // Deezer's quota is per access token, which is hashed so the limiter doesn't keep it around.
+    this.perUserRateLimiter =
+        transferServiceConfig.getAdaptivePerUserRateLimiter(
+            Hashing.sha256().hashString(accessToken, StandardCharsets.UTF_8).toString());
   }
 
   public User getUser() throws IOException {
@@ -132,16 +142,7 @@ public class DeezerApi {
             new GenericUrl(url
                 + "?output=json&request_method=post&access_token=" + accessToken
                 + extraArgs));
-    perUserRateLimiter.acquire();
-    HttpResponse response = getRequest.execute();
-    int statusCode = response.getStatusCode();
-    if (statusCode != 200) {
-      throw new IOException(
-          "Bad status code: " + statusCode + " error: " + response.getStatusMessage());
-    }
-    String result =
-        CharStreams.toString(new InputStreamReader(response.getContent(), StandardCharsets.UTF_8));
-    return result;
+    return execute(getRequest);
   }
 
   private <T> T makeRequest(String url, Class<T> clazz)
@@ -150,8 +151,33 @@ public class DeezerApi {
     HttpRequest getRequest =
         requestFactory.buildGetRequest(
             new GenericUrl(url + "?output=json&access_token=" + accessToken));
-    perUserRateLimiter.acquire();
-    HttpResponse response = getRequest.execute();
+    return MAPPER.readValue(execute(getRequest), clazz);
+  }
+
+  /**
+   * Executes the request once the rate limiter allows it, and slows the limiter down if Deezer
+   * throttled it, or speeds it up if it didn't.
+   */
+  private String execute(HttpRequest request) throws IOException {
+    try {
+      perUserRateLimiter.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting to call Deezer", e);
+    }
+    HttpResponse response;
+    try {
+      response = request.execute();
+    } catch (HttpResponseException e) {
+      if (e.getStatusCode() == 429 || e.getStatusCode() == 503) {
+        Duration retryAfter = AdaptiveRateLimiter.parseRetryAfter(e.getHeaders().getRetryAfter());
+        perUserRateLimiter.onThrottled(retryAfter);
+        if (retryAfter != null) {
+          throw new RetryAfterException(e.getMessage(), retryAfter, e);
+        }
+      }
+      throw e;
+    }
     int statusCode = response.getStatusCode();
     if (statusCode != 200) {
       throw new IOException(
@@ -159,6 +185,25 @@ public class DeezerApi {
     }
     String result =
         CharStreams.toString(new InputStreamReader(response.getContent(), StandardCharsets.UTF_8));
-    return MAPPER.readValue(result, clazz);
+    Error error = parseError(result);
+    if (error != null && error.getCode() == QUOTA_EXCEEDED_CODE) {
+      perUserRateLimiter.onThrottled(null);
+      throw new IOException("Deezer quota exceeded: " + error);
+    }
+    perUserRateLimiter.onSuccess();
+    return result;
+  }
+
+  /** Returns the error wrapped in {@code body}, or null if the body doesn't hold one. */
+  private static Error parseError(String body) {
+    if (!body.contains("\"error\"")) {
+      return null;
+    }
+    try {
+      JsonNode error = MAPPER.readTree(body).get("error");
+      return error != null && error.isObject() ? MAPPER.treeToValue(error, Error.class) : null;
+    } catch (IOException e) {
+      return null;
+    }
   }
 }
@@ -4,6 +4,7 @@ import static java.lang.String.format;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.Optional;
 import java.util.UUID;
@@ -26,6 +27,7 @@ import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
 public class GenericFileImporter<C extends ContainerResource, R> extends GenericImporter<C, R> {
   private TemporaryPerJobDataStore dataStore;
   private ConnectionProvider connectionProvider;
+  private final boolean replayableFileUploads;
 
   static final MediaType MULTIPART_RELATED = MediaType.parse("multipart/related");
   static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
@@ -36,9 +38,25 @@ public class GenericFileImporter<C extends ContainerResource, R> extends Generic
       URL endpoint,
       TemporaryPerJobDataStore dataStore,
       Monitor monitor) {
+    this(containerSerializer, appCredentials, endpoint, dataStore, monitor, false);
+  }
+
+  /**
+   * @param replayableFileUploads whether file contents are first copied to a temp file, so that
+   *     their upload can be retried by the HTTP client. Otherwise they are streamed straight from
+   *     their source.
+   */
+  public GenericFileImporter(
+      ContainerSerializer<C, R> containerSerializer,
+      AppCredentials appCredentials,
+      URL endpoint,
+      TemporaryPerJobDataStore dataStore,
+      Monitor monitor,
+      boolean replayableFileUploads) {
     super(containerSerializer, appCredentials, endpoint, monitor);
     this.dataStore = dataStore;
     this.connectionProvider = new ConnectionProvider(dataStore);
+    this.replayableFileUploads = replayableFileUploads;
   }
 
   @Override
@@ -56,10 +74,27 @@ public class GenericFileImporter<C extends ContainerResource, R> extends Generic
       UUID jobId, AuthData authData, ImportableFileData<R> data)
       throws IOException, InvalidTokenException, DestinationMemoryFullException {
     InputStreamWrapper wrapper = connectionProvider.getInputStreamForItem(jobId, data.getFile());
-    File tempFile =
-        dataStore.getTempFileFromInputStream(wrapper.getStream(), data.getFile().getName(), null);
     MediaType mimeType =
         Optional.ofNullable(MediaType.parse(data.getFileMimeType())).orElse(OCTET_STREAM);
+    try (InputStream inputStream = wrapper.getStream()) {
+      if (!replayableFileUploads) {
+        // A size of zero means unknown, which makes the request use chunked transfer encoding.
+        long contentLength = wrapper.getBytes() > 0 ? wrapper.getBytes() : -1;
+        return postFile(
+            authData, data, new InputStreamRequestBody(mimeType, inputStream, contentLength));
+      }
+      File tempFile =
+          dataStore.getTempFileFromInputStream(inputStream, data.getFile().getName(), null);
+      try {
+        return postFile(authData, data, RequestBody.create(mimeType, tempFile));
+      } finally {
+        tempFile.delete();
+      }
+    }
+  }
+
+  private boolean postFile(AuthData authData, ImportableFileData<R> data, RequestBody fileBody)
+      throws IOException, InvalidTokenException, DestinationMemoryFullException {
     Request request =
         new Request.Builder()
             .url(endpoint)
@@ -68,14 +103,12 @@ public class GenericFileImporter<C extends ContainerResource, R> extends Generic
                 new MultipartBody.Builder()
                     .setType(MULTIPART_RELATED)
                     .addPart(RequestBody.create(JSON, om.writeValueAsBytes(data.getJsonData())))
-                    .addPart(MultipartBody.create(mimeType, tempFile))
+                    .addPart(fileBody)
                     .build())
             .build();
 
     try (Response response = client.newCall(request).execute()) {
       return parseResponse(response);
-    } finally {
-      tempFile.delete();
     }
   }
 }
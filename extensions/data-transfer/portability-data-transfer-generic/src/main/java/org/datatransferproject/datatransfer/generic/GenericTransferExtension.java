@@ -60,15 +60,18 @@ class GenericTransferServiceConfig {
   private final String serviceId;
   private final URL endpoint;
   private final Set<GenericTransferServiceVerticalConfig> verticals;
+  private final boolean replayableFileUploads;
 
   public GenericTransferServiceConfig(
       @JsonProperty(value = "serviceId", required = true) String serviceId,
       @JsonProperty(value = "endpoint", required = true) URL endpoint,
       @JsonProperty(value = "verticals", required = true)
-          List<GenericTransferServiceVerticalConfig> verticals) {
+          List<GenericTransferServiceVerticalConfig> verticals,
+      @JsonProperty(value = "replayableFileUploads") Boolean replayableFileUploads) {
     this.serviceId = serviceId;
     this.endpoint = endpoint;
     this.verticals = new HashSet<>(verticals);
+    this.replayableFileUploads = Boolean.TRUE.equals(replayableFileUploads);
   }
 
   public String getServiceId() {
@@ -83,6 +86,15 @@ class GenericTransferServiceConfig {
     return verticals;
   }
 
+  /**
+   * Whether the endpoint needs file uploads that can be retried, e.g. because it is behind a proxy
+   * that may drop connections mid-request. Such uploads are staged in a temp file first, while
+   * others are streamed from their source.
+   */
+  public boolean getReplayableFileUploads() {
+    return replayableFileUploads;
+  }
+
   public boolean supportsVertical(DataVertical vertical) {
     return verticals.stream()
         .map(verticalConfig -> verticalConfig.getVertical())
@@ -147,7 +159,8 @@ public class GenericTransferExtension implements TransferExtension {
               appCredentials,
               urlAppend(serviceConfig.getEndpoint(), "blobs"),
               jobStore,
-              context.getMonitor()));
+              context.getMonitor(),
+              serviceConfig.getReplayableFileUploads()));
     }
 
     if (serviceConfig.supportsVertical(MEDIA)
@@ -161,7 +174,8 @@ public class GenericTransferExtension implements TransferExtension {
               appCredentials,
               urlAppend(serviceConfig.getEndpoint(), "media"),
               jobStore,
-              context.getMonitor()));
+              context.getMonitor(),
+              serviceConfig.getReplayableFileUploads()));
     }
 
     if (serviceConfig.supportsVertical(SOCIAL_POSTS)) {
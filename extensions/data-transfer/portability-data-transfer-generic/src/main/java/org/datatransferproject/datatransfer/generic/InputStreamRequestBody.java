@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.datatransfer.generic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+
+/**
+ * A {@link RequestBody} that streams its content from an {@link InputStream}, so it can only be
+ * written once; a retried request fails instead of sending a truncated body. If {@code
+ * contentLength} is -1, requests containing it are sent with chunked transfer encoding.
+ *
+ * <p>The stream is not closed by the body.
+ */
+class InputStreamRequestBody extends RequestBody {
+
+  private final MediaType contentType;
+  private final InputStream inputStream;
+  private final long contentLength;
+  private boolean written;
+
+  InputStreamRequestBody(MediaType contentType, InputStream inputStream, long contentLength) {
+    this.contentType = contentType;
+    this.inputStream = inputStream;
+    this.contentLength = contentLength;
+  }
+
+  @Override
+  public MediaType contentType() {
+    return contentType;
+  }
+
+  @Override
+  public long contentLength() {
+    return contentLength;
+  }
+
+  @Override
+  public synchronized void writeTo(BufferedSink sink) throws IOException {
+    if (written) {
+      throw new IOException("The streamed request body can't be sent again");
+    }
+    written = true;
+    sink.writeAll(Okio.source(inputStream));
+  }
+}
@@ -63,7 +63,8 @@ public class GenericFileImporterTest {
     return new MultipartStream(
         request.getBody().inputStream(),
         boundary.getBytes(),
-        Integer.parseInt(request.getHeader("Content-Length")),
+        // Streamed bodies of unknown length are chunked and have no Content-Length header.
+        (int) request.getBodySize(),
         null);
   }
 
@@ -109,6 +110,7 @@ public class GenericFileImporterTest {
     assertEquals(1, webServer.getRequestCount());
 
     RecordedRequest request = webServer.takeRequest();
+    assertEquals("chunked", request.getHeader("Transfer-Encoding"));
     MultipartStream stream = getMultipartStream(request);
 
     assertTrue("Missing JSON part", stream.skipPreamble());
@@ -124,6 +126,45 @@ public class GenericFileImporterTest {
     assertFalse("Unexpected extra data", stream.readBoundary());
   }
 
+  @Test
+  public void testGenericFileImporterReplayableUploads() throws Exception {
+    GenericFileImporter<IdOnlyContainerResource, String> importer =
+        new GenericFileImporter<>(
+            container ->
+                Arrays.asList(
+                    new ImportableFileData<>(
+                        new CachedDownloadableItem(container.getId(), container.getId()),
+                        "video/mp4",
+                        new GenericPayload<>(container.getId(), "schemasource"),
+                        container.getId(),
+                        container.getId())),
+            new AppCredentials("key", "secret"),
+            webServer.url("/id").url(),
+            dataStore,
+            monitor,
+            true);
+    InMemoryIdempotentImportExecutor executor = new InMemoryIdempotentImportExecutor(monitor);
+    webServer.enqueue(new MockResponse().setResponseCode(201).setBody("OK"));
+
+    importer.importItem(
+        UUID.randomUUID(),
+        executor,
+        new TokensAndUrlAuthData(
+            "accessToken", "refreshToken", webServer.url("/refresh").toString()),
+        new IdOnlyContainerResource("id"));
+
+    RecordedRequest request = webServer.takeRequest();
+    assertEquals(request.getBodySize(), Long.parseLong(request.getHeader("Content-Length")));
+    MultipartStream stream = getMultipartStream(request);
+    assertTrue("Missing JSON part", stream.skipPreamble());
+    readPartHeaders(stream);
+    readPartBody(stream);
+    assertTrue("Missing file part", stream.readBoundary());
+    assertEquals("video/mp4", readPartHeaders(stream).get("Content-Type"));
+    assertEquals("Hello world", readPartBody(stream));
+    assertFalse("Unexpected extra data", stream.readBoundary());
+  }
+
   @Test
   public void testGenericFileImporterMixedTypes() throws Exception {
     GenericFileImporter<IdOnlyContainerResource, String> importer =
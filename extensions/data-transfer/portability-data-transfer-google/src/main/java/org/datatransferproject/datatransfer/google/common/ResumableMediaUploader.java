@@ -0,0 +1,270 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.datatransfer.google.common;
+
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.EmptyContent;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpContent;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpTransport;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Uploads media bytes to Google Photos without holding a whole item in memory, using the
+ * resumable upload protocol described at
+ * https://developers.google.com/photos/library/guides/resumable-uploads.
+ *
+ * <p>The media is read into a buffer of at most one chunk. Media that fit in a single chunk are
+ * sent in one raw upload request, larger media chunk by chunk in a resumable upload session. A
+ * chunk that fails to upload is resumed from the offset the service acknowledged; as the stream
+ * can't be rewound, that offset has to lie within the chunk still buffered.
+ */
+public class ResumableMediaUploader {
+
+  public static final String UPLOAD_URL = "https://photoslibrary.googleapis.com/v1/uploads";
+  // A multiple of the 256 KiB chunk granularity the service asks for.
+  public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+  private static final int MAX_RESUME_ATTEMPTS = 3;
+  private static final int READ_TIMEOUT_MILLIS = 2 * 60000;
+  private static final String CONTENT_TYPE = "application/octet-stream";
+  private static final String UPLOAD_COMMAND = "X-Goog-Upload-Command";
+  private static final String UPLOAD_OFFSET = "X-Goog-Upload-Offset";
+  private static final String UPLOAD_PROTOCOL = "X-Goog-Upload-Protocol";
+  private static final String UPLOAD_RAW_SIZE = "X-Goog-Upload-Raw-Size";
+  private static final String UPLOAD_URL_HEADER = "X-Goog-Upload-URL";
+  private static final String UPLOAD_GRANULARITY = "X-Goog-Upload-Chunk-Granularity";
+  private static final String UPLOAD_STATUS = "X-Goog-Upload-Status";
+  private static final String UPLOAD_SIZE_RECEIVED = "X-Goog-Upload-Size-Received";
+
+  /** Supplies the OAuth access token that authorizes upload requests. */
+  public interface AccessTokenProvider {
+
+    String getAccessToken() throws IOException;
+
+    /**
+     * Refreshes the access token after the service rejected {@code rejectedAccessToken}, and
+     * returns the new one. Concurrent uploads share the token, so another one may already have
+     * refreshed it.
+     */
+    String refreshAccessToken(String rejectedAccessToken) throws IOException;
+  }
+
+  private final HttpRequestFactory requestFactory;
+  private final AccessTokenProvider accessTokenProvider;
+  private final int chunkSize;
+
+  public ResumableMediaUploader(HttpTransport transport, AccessTokenProvider accessTokenProvider) {
+    this(transport, accessTokenProvider, DEFAULT_CHUNK_SIZE);
+  }
+
+  @VisibleForTesting
+  ResumableMediaUploader(
+      HttpTransport transport, AccessTokenProvider accessTokenProvider, int chunkSize) {
+    this.requestFactory = transport.createRequestFactory();
+    this.accessTokenProvider = accessTokenProvider;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Uploads the media read from the stream and returns its upload token, or null if the stream was
+   * empty.
+   *
+   * @param sizeInBytes the size of the media if known, otherwise 0
+   * @param finalHeaders headers of the request completing the upload, such as the media's hash
+   */
+  @Nullable
+  public String upload(InputStream inputStream, long sizeInBytes, Map<String, String> finalHeaders)
+      throws IOException {
+    // Don't buffer a whole chunk for media known to be smaller; one more byte tells whether the
+    // reported size was right.
+    byte[] buffer =
+        new byte[sizeInBytes > 0 ? (int) Math.min(chunkSize, sizeInBytes + 1) : chunkSize];
+    int filled = fill(inputStream, buffer, 0);
+    while (filled == buffer.length && buffer.length < chunkSize) {
+      buffer = Arrays.copyOf(buffer, chunkSize);
+      filled = fill(inputStream, buffer, filled);
+    }
+    if (filled == 0) {
+      return null;
+    }
+    if (filled < buffer.length) {
+      return uploadRaw(buffer, filled, finalHeaders);
+    }
+    return uploadResumable(inputStream, buffer, sizeInBytes, finalHeaders);
+  }
+
+  private String uploadRaw(byte[] buffer, int length, Map<String, String> finalHeaders)
+      throws IOException {
+    Map<String, String> headers = new LinkedHashMap<>(finalHeaders);
+    headers.put(UPLOAD_PROTOCOL, "raw");
+    return execute(UPLOAD_URL, new ByteArrayContent(CONTENT_TYPE, buffer, 0, length), headers)
+        .parseAsString();
+  }
+
+  /** Uploads the full buffer and the rest of the stream in a resumable upload session. */
+  private String uploadResumable(
+      InputStream inputStream, byte[] buffer, long sizeInBytes, Map<String, String> finalHeaders)
+      throws IOException {
+    Map<String, String> startHeaders = new LinkedHashMap<>();
+    startHeaders.put(UPLOAD_COMMAND, "start");
+    startHeaders.put(UPLOAD_PROTOCOL, "resumable");
+    if (sizeInBytes > 0) {
+      startHeaders.put(UPLOAD_RAW_SIZE, Long.toString(sizeInBytes));
+    }
+    HttpResponse startResponse = execute(UPLOAD_URL, new EmptyContent(), startHeaders);
+    String uploadUrl = startResponse.getHeaders().getFirstHeaderStringValue(UPLOAD_URL_HEADER);
+    String granularityHeader =
+        startResponse.getHeaders().getFirstHeaderStringValue(UPLOAD_GRANULARITY);
+    startResponse.ignore();
+    if (uploadUrl == null) {
+      throw new IOException("Resumable upload was started without an upload URL");
+    }
+    int granularity = granularityHeader != null ? Integer.parseInt(granularityHeader) : 1;
+
+    int filled = buffer.length;
+    long offset = 0;
+    while (true) {
+      boolean last = filled < buffer.length;
+      // All chunks but the last have to be a multiple of the granularity.
+      int length = last ? filled : filled - filled % granularity;
+      if (!last && length == 0) {
+        buffer = Arrays.copyOf(buffer, granularity);
+        filled = fill(inputStream, buffer, filled);
+        continue;
+      }
+      String uploadToken = uploadChunk(uploadUrl, buffer, length, offset, last, finalHeaders);
+      if (last) {
+        return uploadToken;
+      }
+      System.arraycopy(buffer, length, buffer, 0, filled - length);
+      filled -= length;
+      offset += length;
+      filled = fill(inputStream, buffer, filled);
+    }
+  }
+
+  /**
+   * Uploads the first {@code length} bytes of the buffer, which start at {@code offset} in the
+   * media, resuming from the offset the service acknowledged if a request fails. Returns the upload
+   * token if this is the last chunk.
+   */
+  @Nullable
+  private String uploadChunk(
+      String uploadUrl,
+      byte[] buffer,
+      int length,
+      long offset,
+      boolean last,
+      Map<String, String> finalHeaders)
+      throws IOException {
+    long received = offset;
+    for (int attempt = 0; ; attempt++) {
+      int sent = (int) (received - offset);
+      Map<String, String> headers = new LinkedHashMap<>();
+      headers.put(UPLOAD_COMMAND, last ? "upload, finalize" : "upload");
+      headers.put(UPLOAD_OFFSET, Long.toString(received));
+      if (last) {
+        headers.putAll(finalHeaders);
+      }
+      HttpContent content = new ByteArrayContent(CONTENT_TYPE, buffer, sent, length - sent);
+      try {
+        HttpResponse response = execute(uploadUrl, content, headers);
+        if (last) {
+          return response.parseAsString();
+        }
+        response.ignore();
+        return null;
+      } catch (IOException e) {
+        if (attempt >= MAX_RESUME_ATTEMPTS || !isResumable(e)) {
+          throw e;
+        }
+      }
+
+      HttpResponse status =
+          execute(uploadUrl, new EmptyContent(), ImmutableMap.of(UPLOAD_COMMAND, "query"));
+      if ("final".equals(status.getHeaders().getFirstHeaderStringValue(UPLOAD_STATUS))) {
+        if (last) {
+          // The last chunk arrived but its response got lost, the query answers with it instead.
+          return status.parseAsString();
+        }
+        status.ignore();
+        throw new IOException("Upload session was finalized before all of the media was sent");
+      }
+      String sizeReceived = status.getHeaders().getFirstHeaderStringValue(UPLOAD_SIZE_RECEIVED);
+      status.ignore();
+      received = sizeReceived != null ? Long.parseLong(sizeReceived) : offset;
+      if (received < offset || received > offset + length) {
+        throw new IOException(
+            String.format(
+                "Can't resume upload from offset %d, only bytes %d to %d are buffered",
+                received, offset, offset + length));
+      }
+    }
+  }
+
+  /** Network errors and server failures may be resumed, client errors and throttling not. */
+  private static boolean isResumable(IOException e) {
+    if (!(e instanceof HttpResponseException)) {
+      return true;
+    }
+    int statusCode = ((HttpResponseException) e).getStatusCode();
+    return statusCode == 408 || (statusCode >= 500 && statusCode != 503);
+  }
+
+  private HttpResponse execute(String url, HttpContent content, Map<String, String> headers)
+      throws IOException {
+    String accessToken = accessTokenProvider.getAccessToken();
+    try {
+      return buildRequest(url, content, accessToken, headers).execute();
+    } catch (HttpResponseException e) {
+      if (e.getStatusCode() != 401) {
+        throw e;
+      }
+      // If the second attempt fails as well, something else is wrong and the error bubbles up.
+      String refreshedAccessToken = accessTokenProvider.refreshAccessToken(accessToken);
+      return buildRequest(url, content, refreshedAccessToken, headers).execute();
+    }
+  }
+
+  private HttpRequest buildRequest(
+      String url, HttpContent content, String accessToken, Map<String, String> headers)
+      throws IOException {
+    HttpRequest request = requestFactory.buildPostRequest(new GenericUrl(url), content);
+    request.getHeaders().setAuthorization("Bearer " + accessToken);
+    headers.forEach((key, value) -> request.getHeaders().set(key, value));
+    request.setReadTimeout(READ_TIMEOUT_MILLIS);
+    return request;
+  }
+
+  /** Reads until the buffer is full or the stream ends, returning the number of bytes buffered. */
+  private static int fill(InputStream inputStream, byte[] buffer, int filled) throws IOException {
+    return filled + ByteStreams.read(inputStream, buffer, filled, buffer.length - filled);
+  }
+}
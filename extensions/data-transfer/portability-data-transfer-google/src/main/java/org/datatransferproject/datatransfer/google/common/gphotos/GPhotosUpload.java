@@ -25,12 +25,16 @@ import com.google.api.client.json.JsonFactory;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.UnmodifiableIterator;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.photos.library.v1.PhotosLibraryClient;
 import com.google.rpc.Code;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -38,8 +42,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.google.common.GoogleCredentialFactory;
@@ -62,6 +72,7 @@ import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportE
 import org.datatransferproject.spi.transfer.idempotentexecutor.ItemImportResult;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.Importer;
+import org.datatransferproject.spi.transfer.threads.WorkerThreads;
 import org.datatransferproject.spi.transfer.types.DestinationMemoryFullException;
 import org.datatransferproject.spi.transfer.types.InvalidTokenException;
 import org.datatransferproject.spi.transfer.types.PermissionDeniedException;
@@ -94,9 +105,15 @@ import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
 public class GPhotosUpload {
   private final static String ALBUMLESS_IDENTIFIER = "%s_ALBUMLESS_ITEMS";
 
+  /** How many items of a batch {@link PipelinedItemBatchUploader}s upload at the same time. */
+  public static final int DEFAULT_UPLOAD_PARALLELISM = 4;
+
+  private static final Duration CREATE_TIMEOUT = Duration.ofMinutes(5);
+
   private UUID jobId;
   private IdempotentImportExecutor executor;
   private TokensAndUrlAuthData authData;
+  private int uploadParallelism;
 
   // We partition into groups of 49 as 50 is the maximum number of items that can be created
   // in one call. (We use 49 to avoid potential off by one errors)
@@ -110,9 +127,22 @@ public class GPhotosUpload {
    */
   public GPhotosUpload(
       UUID jobId, IdempotentImportExecutor executor, TokensAndUrlAuthData authData) {
+    this(jobId, executor, authData, 1);
+  }
+
+  /**
+   * Like {@link #GPhotosUpload(UUID, IdempotentImportExecutor, TokensAndUrlAuthData)}, but uploads
+   * up to `uploadParallelism` items of a batch at the same time.
+   */
+  public GPhotosUpload(
+      UUID jobId,
+      IdempotentImportExecutor executor,
+      TokensAndUrlAuthData authData,
+      int uploadParallelism) {
     this.jobId = jobId;
     this.executor = executor;
     this.authData = authData;
+    this.uploadParallelism = uploadParallelism;
   }
 
   /**
@@ -129,6 +159,115 @@ public class GPhotosUpload {
     if (items == null || items.size() <= 0) {
       return bytes;
     }
+    for (Entry<String, List<T>> albumEntry : groupByAlbumId(items).entrySet()) {
+      String googleAlbumId = getGoogleAlbumId(albumEntry.getKey());
+      UnmodifiableIterator<List<T>> batches =
+          Iterators.partition(albumEntry.getValue().iterator(), BATCH_UPLOAD_SIZE);
+
+      while (batches.hasNext()) {
+        long batchBytes =
+            importer.uploadToAlbum(jobId, authData, batches.next(), executor, googleAlbumId);
+        bytes += batchBytes;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Imports all `items` in batches like {@link #uploadItemsViaBatching(Collection,
+   * ItemBatchUploader)}, but uploads the bytes of the items in a batch concurrently, and the next
+   * batch while the current one is being created.
+   *
+   * <p>Returns the number of uploaded bytes, as summed across all `items` that were uploaded.
+   */
+  public <T extends DownloadableFile> long uploadItemsViaBatching(
+      Collection<T> items, PipelinedItemBatchUploader<T> uploader) throws Exception {
+    long bytes = 0L;
+    if (items == null || items.size() <= 0) {
+      return bytes;
+    }
+    // Uploads and creations are recorded in the executor, so they can only run concurrently, with
+    // each other too, if it allows. Otherwise both run one after another on the calling thread.
+    boolean concurrent = executor.isThreadSafe();
+    int threads = concurrent ? uploadParallelism : 1;
+    ExecutorService uploadService =
+        threads > 1
+            ? Executors.newFixedThreadPool(
+                threads, WorkerThreads.newThreadFactory("gphotos-upload-"))
+            : MoreExecutors.newDirectExecutorService();
+    ExecutorService createService =
+        concurrent
+            ? Executors.newSingleThreadExecutor(
+                WorkerThreads.newThreadFactory("gphotos-create-"))
+            : MoreExecutors.newDirectExecutorService();
+    try {
+      Future<Long> pendingCreate = Futures.immediateFuture(0L);
+      for (Entry<String, List<T>> albumEntry : groupByAlbumId(items).entrySet()) {
+        String googleAlbumId = getGoogleAlbumId(albumEntry.getKey());
+        UnmodifiableIterator<List<T>> batches =
+            Iterators.partition(albumEntry.getValue().iterator(), BATCH_UPLOAD_SIZE);
+
+        while (batches.hasNext()) {
+          List<UploadedItem<T>> uploads = uploadBatch(uploadService, batches.next(), uploader);
+          // At most one batch is created at a time, in the order the batches were uploaded.
+          bytes += getResult(pendingCreate);
+          pendingCreate =
+              uploads.isEmpty()
+                  ? Futures.immediateFuture(0L)
+                  : createService.submit(
+                      () ->
+                          uploader.createItems(jobId, authData, uploads, executor, googleAlbumId));
+        }
+      }
+      bytes += getResult(pendingCreate);
+    } finally {
+      uploadService.shutdownNow();
+      // Don't interrupt a batch that is being created, its items have to be recorded as imported
+      // even if another batch failed.
+      MoreExecutors.shutdownAndAwaitTermination(createService, CREATE_TIMEOUT);
+    }
+    return bytes;
+  }
+
+  /** Uploads the bytes of every item of the batch, and returns the successful uploads in order. */
+  private <T> List<UploadedItem<T>> uploadBatch(
+      ExecutorService uploadService, List<T> batch, PipelinedItemBatchUploader<T> uploader)
+      throws Exception {
+    AtomicBoolean failed = new AtomicBoolean();
+    List<Future<UploadedItem<T>>> futures = new ArrayList<>(batch.size());
+    for (T item : batch) {
+      futures.add(
+          uploadService.submit(
+              () -> {
+                // Like a sequential loop, don't start new uploads once one has failed.
+                if (failed.get()) {
+                  return null;
+                }
+                try {
+                  return uploader.uploadItem(jobId, authData, item, executor);
+                } catch (Exception e) {
+                  failed.set(true);
+                  throw e;
+                }
+              }));
+    }
+
+    List<UploadedItem<T>> uploads = new ArrayList<>(batch.size());
+    try {
+      for (Future<UploadedItem<T>> future : futures) {
+        UploadedItem<T> upload = getResult(future);
+        if (upload != null) {
+          uploads.add(upload);
+        }
+      }
+    } catch (Exception e) {
+      futures.forEach(future -> future.cancel(true));
+      throw e;
+    }
+    return uploads;
+  }
+
+  private <T extends DownloadableFile> Map<String, List<T>> groupByAlbumId(Collection<T> items) {
     Map<String, List<T>> itemsByAlbumId =
         items.stream()
             .filter(
@@ -141,30 +280,30 @@ public class GPhotosUpload {
             .filter(
                 item -> !executor.isKeyCached(item.getIdempotentId()) && item.getFolderId() == null)
             .collect(Collectors.toList()));
+    return itemsByAlbumId;
+  }
 
-    for (Entry<String, List<T>> albumEntry : itemsByAlbumId.entrySet()) {
-      String originalAlbumId = albumEntry.getKey();
-      String googleAlbumId;
-      if (Strings.isNullOrEmpty(originalAlbumId) || originalAlbumId.equals(format(ALBUMLESS_IDENTIFIER, jobId))) {
-        // This is ok, since NewMediaItemUpload will ignore all null values and it's possible to
-        // upload a NewMediaItem without a corresponding album id.
-        googleAlbumId = null;
-      } else {
-        // Note this will throw if creating the album failed, which is what we want
-        // because that will also mark this photo as being failed.
-        googleAlbumId = executor.getCachedValue(originalAlbumId);
-      }
-
-      UnmodifiableIterator<List<T>> batches =
-          Iterators.partition(albumEntry.getValue().iterator(), BATCH_UPLOAD_SIZE);
+  @Nullable
+  private String getGoogleAlbumId(String originalAlbumId) throws Exception {
+    if (Strings.isNullOrEmpty(originalAlbumId) || originalAlbumId.equals(format(ALBUMLESS_IDENTIFIER, jobId))) {
+      // This is ok, since NewMediaItemUpload will ignore all null values and it's possible to
+      // upload a NewMediaItem without a corresponding album id.
+      return null;
+    }
+    // Note this will throw if creating the album failed, which is what we want
+    // because that will also mark this photo as being failed.
+    return executor.getCachedValue(originalAlbumId);
+  }
 
-      while (batches.hasNext()) {
-        long batchBytes =
-            importer.uploadToAlbum(jobId, authData, batches.next(), executor, googleAlbumId);
-        bytes += batchBytes;
-      }
+  private static <V> V getResult(Future<V> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      Throwables.throwIfInstanceOf(cause, Exception.class);
+      Throwables.throwIfUnchecked(cause);
+      throw new IllegalStateException(cause);
     }
-    return bytes;
   }
 
   // TODO(aksingh737,jzacsh) consider renaming lower-level gphotos code (ie: anything of the "google
@@ -187,4 +326,55 @@ public class GPhotosUpload {
         String targetAlbumId)
         throws Exception;
   }
+
+  /**
+   * Uploads a batch of items in two steps: first the bytes of every item, which {@link
+   * GPhotosUpload} does concurrently, then the creation of all uploaded items in one call.
+   */
+  public interface PipelinedItemBatchUploader<T> {
+    /**
+     * Uploads the bytes of an item. Returns null if the upload failed and was recorded as such in
+     * the `executor`.
+     */
+    @Nullable
+    UploadedItem<T> uploadItem(
+        UUID jobId, TokensAndUrlAuthData authData, T item, IdempotentImportExecutor executor)
+        throws Exception;
+
+    /**
+     * Creates the uploaded items, and returns the number of bytes of the ones that were created.
+     */
+    long createItems(
+        UUID jobId,
+        TokensAndUrlAuthData authData,
+        List<UploadedItem<T>> uploads,
+        IdempotentImportExecutor executor,
+        String targetAlbumId)
+        throws Exception;
+  }
+
+  /** An item whose bytes were uploaded, and which can be created with its upload token. */
+  public static final class UploadedItem<T> {
+    private final T item;
+    private final String uploadToken;
+    private final Long sizeInBytes;
+
+    public UploadedItem(T item, String uploadToken, Long sizeInBytes) {
+      this.item = item;
+      this.uploadToken = uploadToken;
+      this.sizeInBytes = sizeInBytes;
+    }
+
+    public T getItem() {
+      return item;
+    }
+
+    public String getUploadToken() {
+      return uploadToken;
+    }
+
+    public Long getSizeInBytes() {
+      return sizeInBytes;
+    }
+  }
 }
@@ -34,11 +34,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.google.common.GoogleCredentialFactory;
 import org.datatransferproject.datatransfer.google.common.GooglePhotosImportUtils;
 import org.datatransferproject.datatransfer.google.common.gphotos.GPhotosUpload;
+import org.datatransferproject.datatransfer.google.common.gphotos.GPhotosUpload.PipelinedItemBatchUploader;
+import org.datatransferproject.datatransfer.google.common.gphotos.GPhotosUpload.UploadedItem;
 import org.datatransferproject.datatransfer.google.mediaModels.BatchMediaItemResponse;
 import org.datatransferproject.datatransfer.google.mediaModels.GoogleAlbum;
 import org.datatransferproject.datatransfer.google.mediaModels.NewMediaItem;
@@ -54,6 +57,7 @@ import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputS
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
 import org.datatransferproject.spi.transfer.i18n.BaseMultilingualDictionary;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentTask;
 import org.datatransferproject.spi.transfer.idempotentexecutor.ItemImportResult;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.Importer;
@@ -90,6 +94,7 @@ public class GoogleMediaImporter
   // in one call. (We use 49 to avoid potential off by one errors)
   // https://developers.google.com/photos/library/guides/upload-media#creating-media-item
   private static final int BATCH_UPLOAD_SIZE = 49;
+  private static final int ALBUM_IMPORT_CONCURRENCY = 4;
 
   public GoogleMediaImporter(
       GoogleCredentialFactory credentialFactory,
@@ -154,13 +159,18 @@ public class GoogleMediaImporter
     // WARNING: this should be constructed PER request so as to not conflate job IDs or auth data
     // across processes. That is: do NOT cache an instance of this object across your requests, say
     // by storing the instance as a member of your adapter's Importer or Exporter implementations.
-    final GPhotosUpload gPhotosUpload = new GPhotosUpload(jobId, idempotentImportExecutor, authData);
+    final GPhotosUpload gPhotosUpload = new GPhotosUpload(
+        jobId, idempotentImportExecutor, authData, GPhotosUpload.DEFAULT_UPLOAD_PARALLELISM);
 
     // Uploads album metadata
+    List<IdempotentTask<String>> albumTasks = new ArrayList<>();
     for (MediaAlbum album : data.getAlbums()) {
-      idempotentImportExecutor.executeAndSwallowIOExceptions(
-          album.getId(), album.getName(), () -> importSingleAlbum(jobId, authData, album));
+      albumTasks.add(
+          IdempotentTask.of(
+              album.getId(), album.getName(), () -> importSingleAlbum(jobId, authData, album)));
     }
+    idempotentImportExecutor.executeBatchAndSwallowIOExceptions(
+        albumTasks, ALBUM_IMPORT_CONCURRENCY);
 
     long bytes =
         importPhotos(data.getPhotos(), gPhotosUpload)
@@ -191,17 +201,84 @@ public class GoogleMediaImporter
       throws Exception {
     return gPhotosUpload.uploadItemsViaBatching(
         photos,
-        this::importPhotoBatch);
+        new PipelinedItemBatchUploader<PhotoModel>() {
+          @Override
+          public UploadedItem<PhotoModel> uploadItem(
+              UUID jobId,
+              TokensAndUrlAuthData authData,
+              PhotoModel photo,
+              IdempotentImportExecutor executor)
+              throws Exception {
+            return uploadPhoto(jobId, authData, photo, executor);
+          }
+
+          @Override
+          public long createItems(
+              UUID jobId,
+              TokensAndUrlAuthData authData,
+              List<UploadedItem<PhotoModel>> uploads,
+              IdempotentImportExecutor executor,
+              String targetAlbumId)
+              throws Exception {
+            return createPhotoBatch(jobId, authData, uploads, executor, targetAlbumId);
+          }
+        });
   }
 
   // TODO(aksingh737,jzacsh) if we consolidate underlying gphtoos SDK approaches, then this and the
   // GoogleVideosInterface.uploadBatchOfVideos function can be de-duped. Right now they interact with
   // differnet APIs and while maybe possible, probably better to spend time on de-duping the
   // underlying SDK wrappers first.
-  private long importPhotoBatch(
+  @Nullable
+  private UploadedItem<PhotoModel> uploadPhoto(
+      UUID jobId, TokensAndUrlAuthData authData, PhotoModel photo, IdempotentImportExecutor executor)
+      throws Exception {
+    UploadedItem<PhotoModel> upload = null;
+    Long size = null;
+    try {
+      InputStreamWrapper streamWrapper = connectionProvider
+          .getInputStreamForItem(jobId, photo);
+
+      try (InputStream s = streamWrapper.getStream()) {
+        String uploadToken = getOrCreatePhotosInterface(jobId, authData).uploadMediaContent(s,
+            photo.getSha1(), streamWrapper.getBytes());
+        size = streamWrapper.getBytes();
+        upload = new UploadedItem<>(photo, uploadToken, size);
+      } catch (UploadErrorException e) {
+        if (e.getMessage().contains(ERROR_HASH_MISMATCH)) {
+          monitor.severe(
+              () -> format("%s: SHA-1 (%s) mismatch during upload", jobId, photo.getSha1()));
+        }
+
+        Long finalSize = size;
+        executor.importAndSwallowIOExceptions(photo, p -> ItemImportResult.error(e, finalSize));
+      }
+
+      try {
+        if (photo.isInTempStore()) {
+          jobStore.removeData(jobId, photo.getFetchableUrl());
+        }
+      } catch (Exception e) {
+        // Swallow the exception caused by Remove data so that existing flows continue
+        monitor.info(
+            () ->
+                format(
+                    "%s: Exception swallowed in removeData call for localPath %s",
+                    jobId, photo.getFetchableUrl()),
+            e);
+      }
+    } catch (IOException exception) {
+      Long finalSize = size;
+      executor.importAndSwallowIOExceptions(
+          photo, p -> ItemImportResult.error(exception, finalSize));
+    }
+    return upload;
+  }
+
+  private long createPhotoBatch(
       UUID jobId,
       TokensAndUrlAuthData authData,
-      List<PhotoModel> photos,
+      List<UploadedItem<PhotoModel>> uploads,
       IdempotentImportExecutor executor,
       String albumId)
       throws Exception {
@@ -209,51 +286,12 @@ public class GoogleMediaImporter
     final HashMap<String, PhotoModel> uploadTokenToDataId = new HashMap<>();
     final HashMap<String, Long> uploadTokenToLength = new HashMap<>();
 
-    // TODO: resumable uploads https://developers.google.com/photos/library/guides/resumable-uploads
-    //  Resumable uploads would allow the upload of larger media that don't fit in memory.  To do
-    //  this however, seems to require knowledge of the total file size.
-    for (PhotoModel photo : photos) {
-      Long size = null;
-      try {
-        InputStreamWrapper streamWrapper = connectionProvider
-            .getInputStreamForItem(jobId, photo);
-
-        try (InputStream s = streamWrapper.getStream()) {
-          String uploadToken = getOrCreatePhotosInterface(jobId, authData).uploadMediaContent(s,
-              photo.getSha1());
-          String description = GooglePhotosImportUtils.cleanDescription(photo.getDescription());
-          mediaItems.add(new NewMediaItem(description, uploadToken, photo.getTitle()));
-          uploadTokenToDataId.put(uploadToken, photo);
-          size = streamWrapper.getBytes();
-          uploadTokenToLength.put(uploadToken, size);
-        } catch (UploadErrorException e) {
-          if (e.getMessage().contains(ERROR_HASH_MISMATCH)) {
-            monitor.severe(
-                () -> format("%s: SHA-1 (%s) mismatch during upload", jobId, photo.getSha1()));
-          }
-
-          Long finalSize = size;
-          executor.importAndSwallowIOExceptions(photo, p -> ItemImportResult.error(e, finalSize));
-        }
-
-        try {
-          if (photo.isInTempStore()) {
-            jobStore.removeData(jobId, photo.getFetchableUrl());
-          }
-        } catch (Exception e) {
-          // Swallow the exception caused by Remove data so that existing flows continue
-          monitor.info(
-              () ->
-                  format(
-                      "%s: Exception swallowed in removeData call for localPath %s",
-                      jobId, photo.getFetchableUrl()),
-              e);
-        }
-      } catch (IOException exception) {
-        Long finalSize = size;
-        executor.importAndSwallowIOExceptions(
-            photo, p -> ItemImportResult.error(exception, finalSize));
-      }
+    for (UploadedItem<PhotoModel> upload : uploads) {
+      PhotoModel photo = upload.getItem();
+      String description = GooglePhotosImportUtils.cleanDescription(photo.getDescription());
+      mediaItems.add(new NewMediaItem(description, upload.getUploadToken(), photo.getTitle()));
+      uploadTokenToDataId.put(upload.getUploadToken(), photo);
+      uploadTokenToLength.put(upload.getUploadToken(), upload.getSizeInBytes());
     }
 
     if (mediaItems.isEmpty()) {
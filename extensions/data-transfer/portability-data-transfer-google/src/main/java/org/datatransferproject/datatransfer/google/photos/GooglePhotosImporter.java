@@ -36,11 +36,14 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.google.common.GoogleCredentialFactory;
 import org.datatransferproject.datatransfer.google.common.GooglePhotosImportUtils;
 import org.datatransferproject.datatransfer.google.common.gphotos.GPhotosUpload;
+import org.datatransferproject.datatransfer.google.common.gphotos.GPhotosUpload.PipelinedItemBatchUploader;
+import org.datatransferproject.datatransfer.google.common.gphotos.GPhotosUpload.UploadedItem;
 import org.datatransferproject.datatransfer.google.mediaModels.BatchMediaItemResponse;
 import org.datatransferproject.datatransfer.google.mediaModels.GoogleAlbum;
 import org.datatransferproject.datatransfer.google.mediaModels.NewMediaItem;
@@ -182,7 +185,8 @@ public class GooglePhotosImporter
     }
     IdempotentImportExecutor executor =
         (retryingIdempotentExecutor != null && enableRetrying) ? retryingIdempotentExecutor : idempotentImportExecutor;
-    GPhotosUpload gPhotosUpload = new GPhotosUpload(jobId, executor, authData);
+    GPhotosUpload gPhotosUpload =
+        new GPhotosUpload(jobId, executor, authData, GPhotosUpload.DEFAULT_UPLOAD_PARALLELISM);
 
     for (PhotoAlbum album : data.getAlbums()) {
       executor.executeAndSwallowIOExceptions(
@@ -209,14 +213,83 @@ public class GooglePhotosImporter
   @VisibleForTesting // TODO(aksingh737,jzacsh) stop exposing this to unit tests
   public long importPhotos(Collection<PhotoModel> photos, GPhotosUpload gPhotosUpload)
       throws Exception {
-    return gPhotosUpload.uploadItemsViaBatching(photos, this::importPhotoBatch);
+    return gPhotosUpload.uploadItemsViaBatching(
+        photos,
+        new PipelinedItemBatchUploader<PhotoModel>() {
+          @Override
+          public UploadedItem<PhotoModel> uploadItem(
+              UUID jobId,
+              TokensAndUrlAuthData authData,
+              PhotoModel photo,
+              IdempotentImportExecutor executor)
+              throws Exception {
+            return uploadPhoto(jobId, authData, photo, executor);
+          }
+
+          @Override
+          public long createItems(
+              UUID jobId,
+              TokensAndUrlAuthData authData,
+              List<UploadedItem<PhotoModel>> uploads,
+              IdempotentImportExecutor executor,
+              String targetAlbumId)
+              throws Exception {
+            return createPhotoBatch(jobId, authData, uploads, executor, targetAlbumId);
+          }
+        });
   }
 
   // TODO(aksingh737) WARNING: stop maintaining this code here; use newer GPhotosUpload instead
-  private long importPhotoBatch(
+  @Nullable
+  private UploadedItem<PhotoModel> uploadPhoto(
+      UUID jobId, TokensAndUrlAuthData authData, PhotoModel photo, IdempotentImportExecutor executor)
+      throws Exception {
+    UploadedItem<PhotoModel> upload = null;
+    Long size = null;
+    try {
+      InputStreamWrapper streamWrapper = connectionProvider
+          .getInputStreamForItem(jobId, photo);
+
+      try (InputStream s = streamWrapper.getStream()) {
+        String uploadToken = getOrCreatePhotosInterface(jobId, authData).uploadMediaContent(s,
+            photo.getSha1(), streamWrapper.getBytes());
+        size = streamWrapper.getBytes();
+        upload = new UploadedItem<>(photo, uploadToken, size);
+      } catch (UploadErrorException e) {
+        if (e.getMessage().contains(ERROR_HASH_MISMATCH)) {
+          monitor.severe(
+              () -> format("%s: SHA-1 (%s) mismatch during upload", jobId, photo.getSha1()));
+        }
+
+        Long finalSize = size;
+        executor.importAndSwallowIOExceptions(photo, p -> ItemImportResult.error(e, finalSize));
+      }
+
+      try {
+        if (photo.isInTempStore()) {
+          jobStore.removeData(jobId, photo.getFetchableUrl());
+        }
+      } catch (Exception e) {
+        // Swallow the exception caused by Remove data so that existing flows continue
+        monitor.info(
+            () ->
+                format(
+                    "%s: Exception swallowed in removeData call for localPath %s",
+                    jobId, photo.getFetchableUrl()),
+            e);
+      }
+    } catch (IOException exception) {
+      Long finalSize = size;
+      executor.importAndSwallowIOExceptions(
+          photo, p -> ItemImportResult.error(exception, finalSize));
+    }
+    return upload;
+  }
+
+  private long createPhotoBatch(
       UUID jobId,
       TokensAndUrlAuthData authData,
-      List<PhotoModel> photos,
+      List<UploadedItem<PhotoModel>> uploads,
       IdempotentImportExecutor executor,
       String albumId)
       throws Exception {
@@ -224,51 +297,12 @@ public class GooglePhotosImporter
     final HashMap<String, PhotoModel> uploadTokenToDataId = new HashMap<>();
     final HashMap<String, Long> uploadTokenToLength = new HashMap<>();
 
-    // TODO: resumable uploads https://developers.google.com/photos/library/guides/resumable-uploads
-    //  Resumable uploads would allow the upload of larger media that don't fit in memory.  To do
-    //  this however, seems to require knowledge of the total file size.
-    for (PhotoModel photo : photos) {
-      Long size = null;
-      try {
-        InputStreamWrapper streamWrapper = connectionProvider
-            .getInputStreamForItem(jobId, photo);
-
-        try (InputStream s = streamWrapper.getStream()) {
-          String uploadToken = getOrCreatePhotosInterface(jobId, authData).uploadMediaContent(s,
-              photo.getSha1());
-          String description = GooglePhotosImportUtils.cleanDescription(photo.getDescription());
-          mediaItems.add(new NewMediaItem(description, uploadToken, photo.getTitle()));
-          uploadTokenToDataId.put(uploadToken, photo);
-          size = streamWrapper.getBytes();
-          uploadTokenToLength.put(uploadToken, size);
-        } catch (UploadErrorException e) {
-          if (e.getMessage().contains(ERROR_HASH_MISMATCH)) {
-            monitor.severe(
-                () -> format("%s: SHA-1 (%s) mismatch during upload", jobId, photo.getSha1()));
-          }
-
-          Long finalSize = size;
-          executor.importAndSwallowIOExceptions(photo, p -> ItemImportResult.error(e, finalSize));
-        }
-
-        try {
-          if (photo.isInTempStore()) {
-            jobStore.removeData(jobId, photo.getFetchableUrl());
-          }
-        } catch (Exception e) {
-          // Swallow the exception caused by Remove data so that existing flows continue
-          monitor.info(
-              () ->
-                  format(
-                      "%s: Exception swallowed in removeData call for localPath %s",
-                      jobId, photo.getFetchableUrl()),
-              e);
-        }
-      } catch (IOException exception) {
-        Long finalSize = size;
-        executor.importAndSwallowIOExceptions(
-            photo, p -> ItemImportResult.error(exception, finalSize));
-      }
+    for (UploadedItem<PhotoModel> upload : uploads) {
+      PhotoModel photo = upload.getItem();
+      String description = GooglePhotosImportUtils.cleanDescription(photo.getDescription());
+      mediaItems.add(new NewMediaItem(description, upload.getUploadToken(), photo.getTitle()));
+      uploadTokenToDataId.put(upload.getUploadToken(), photo);
+      uploadTokenToLength.put(upload.getUploadToken(), upload.getSizeInBytes());
     }
 
     if (mediaItems.isEmpty()) {
@@ -20,7 +20,6 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.http.ByteArrayContent;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpContent;
 import com.google.api.client.http.HttpRequest;
@@ -28,21 +27,23 @@ import com.google.api.client.http.HttpRequestFactory;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.http.HttpTransport;
-import com.google.api.client.http.InputStreamContent;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.http.json.JsonHttpContent;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.util.ArrayMap;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
 import com.google.common.io.BaseEncoding;
 import com.google.common.io.CharStreams;
-import com.google.common.util.concurrent.RateLimiter;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collections;
@@ -55,6 +56,7 @@ import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.google.common.GoogleCredentialFactory;
+import org.datatransferproject.datatransfer.google.common.ResumableMediaUploader;
 import org.datatransferproject.datatransfer.google.mediaModels.AlbumListResponse;
 import org.datatransferproject.datatransfer.google.mediaModels.BatchMediaItemResponse;
 import org.datatransferproject.datatransfer.google.mediaModels.GoogleAlbum;
@@ -64,6 +66,9 @@ import org.datatransferproject.datatransfer.google.mediaModels.NewMediaItemUploa
 import org.datatransferproject.spi.transfer.types.InvalidTokenException;
 import org.datatransferproject.spi.transfer.types.PermissionDeniedException;
 import org.datatransferproject.spi.transfer.types.UploadErrorException;
+import org.datatransferproject.types.transfer.ratelimit.AdaptiveRateLimiter;
+import org.datatransferproject.types.transfer.ratelimit.AdaptiveRateLimiters;
+import org.datatransferproject.types.transfer.retry.RetryAfterException;
 
 // TODO (#1307): Find a way to consolidate all 3P API interfaces
 public class GooglePhotosInterface {
@@ -72,6 +77,7 @@ public class GooglePhotosInterface {
   private static final String GOOG_ERROR_HASH_MISMATCH_LEGACY = "Checksum from header does not match received payload content.";
   private static final String GOOG_ERROR_HASH_MISMATCH_UNIFIED = "User-provided checksum does not match received payload content.";
 
+  private static final String SERVICE = "GooglePhotos";
   private static final String BASE_URL = "https://photoslibrary.googleapis.com/v1/";
   private static final int ALBUM_PAGE_SIZE = 20; // TODO
   private static final int MEDIA_PAGE_SIZE = 50; // TODO
@@ -82,19 +88,18 @@ public class GooglePhotosInterface {
   private static final String ACCESS_TOKEN_KEY = "access_token";
   private static final String FILTERS_KEY = "filters";
   private static final String INCLUDE_ARCHIVED_KEY = "includeArchivedMedia";
-  private static final Map<String, String> PHOTO_UPLOAD_PARAMS =
-      ImmutableMap.of(
-          "Content-type", "application/octet-stream",
-          "X-Goog-Upload-Protocol", "raw");
 
   private final ObjectMapper objectMapper =
       new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
   private final HttpTransport httpTransport = new NetHttpTransport();
-  private Credential credential;
+  // Requests of several threads may find the credential expired at the same time.
+  private final Object credentialLock = new Object();
+  private volatile Credential credential;
   private final JsonFactory jsonFactory;
   private final Monitor monitor;
   private final GoogleCredentialFactory credentialFactory;
-  private final RateLimiter writeRateLimiter;
+  private final Supplier<AdaptiveRateLimiter> writeRateLimiter;
+  private final ResumableMediaUploader uploader;
 
   public GooglePhotosInterface(
       GoogleCredentialFactory credentialFactory,
@@ -106,7 +111,28 @@ public class GooglePhotosInterface {
     this.credential = credential;
     this.jsonFactory = jsonFactory;
     this.monitor = monitor;
-    writeRateLimiter = RateLimiter.create(writesPerSecond);
+    // Writes slow down when Google Photos throttles them, and recover up to writesPerSecond. All
+    // jobs writing for the same user share the limiter; it's only looked up on the first write, so
+    // an exporter's rate never becomes the one its user's imports are held to.
+    String userId = userId(credential);
+    writeRateLimiter =
+        Suppliers.memoize(
+            () -> AdaptiveRateLimiters.forUser(SERVICE, userId, writesPerSecond, writesPerSecond));
+    uploader =
+        new ResumableMediaUploader(
+            httpTransport,
+            new ResumableMediaUploader.AccessTokenProvider() {
+              @Override
+              public String getAccessToken() {
+                return currentAccessToken();
+              }
+
+              @Override
+              public String refreshAccessToken(String rejectedAccessToken) throws IOException {
+                refreshCredential(rejectedAccessToken);
+                return currentAccessToken();
+              }
+            });
   }
 
   public AlbumListResponse listAlbums(Optional<String> pageToken)
@@ -159,17 +185,19 @@ public class GooglePhotosInterface {
 
   public String uploadMediaContent(InputStream inputStream, @Nullable String sha1)
       throws IOException, InvalidTokenException, PermissionDeniedException, UploadErrorException {
-    // TODO: add filename
-    InputStreamContent content = new InputStreamContent(null, inputStream);
-    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-    content.writeTo(outputStream);
-    byte[] contentBytes = outputStream.toByteArray();
-    if (contentBytes.length == 0) {
-      // Google Photos cannot add an empty photo so gracefully ignore
-      return "EMPTY_PHOTO";
-    }
-    HttpContent httpContent = new ByteArrayContent(null, contentBytes);
+    return uploadMediaContent(inputStream, sha1, 0);
+  }
 
+  /**
+   * Uploads media content in chunks, so that the whole item never has to be held in memory, and
+   * returns its upload token.
+   *
+   * @param sizeInBytes the size of the content if known, otherwise 0
+   */
+  public String uploadMediaContent(
+      InputStream inputStream, @Nullable String sha1, long sizeInBytes)
+      throws IOException, InvalidTokenException, PermissionDeniedException, UploadErrorException {
+    // TODO: add filename
     // Adding optional fields.
     ImmutableMap.Builder<String, String> headers = ImmutableMap.builder();
     if (sha1 != null && !sha1.isEmpty()) {
@@ -180,8 +208,22 @@ public class GooglePhotosInterface {
           .encodeToString(BaseEncoding.base16().decode(sha1.toUpperCase())));
     }
 
-    return makePostRequest(BASE_URL + "uploads/", Optional.of(PHOTO_UPLOAD_PARAMS),
-        Optional.of(headers.build()), httpContent, String.class);
+    // Wait for write permit before uploading
+    acquireWritePermit();
+    String uploadToken;
+    try {
+      uploadToken = uploader.upload(inputStream, sizeInBytes, headers.build());
+      writeRateLimiter.get().onSuccess();
+    } catch (HttpResponseException e) {
+      onWriteError(e);
+      // The uploader already refreshed the credential on a 401, so every error is final here.
+      throw toException(e);
+    }
+    if (uploadToken == null) {
+      // Google Photos cannot add an empty photo so gracefully ignore
+      return "EMPTY_PHOTO";
+    }
+    return uploadToken;
   }
 
   public BatchMediaItemResponse createPhotos(NewMediaItemUpload newMediaItemUpload)
@@ -196,9 +238,10 @@ public class GooglePhotosInterface {
   private <T> T makeGetRequest(String url, Optional<Map<String, String>> parameters, Class<T> clazz)
       throws IOException, InvalidTokenException, PermissionDeniedException {
     HttpRequestFactory requestFactory = httpTransport.createRequestFactory();
+    String accessToken = currentAccessToken();
     HttpRequest getRequest =
         requestFactory.buildGetRequest(
-            new GenericUrl(url + "?" + generateParamsString(parameters)));
+            new GenericUrl(url + "?" + generateParamsString(parameters, accessToken)));
 
     HttpResponse response;
     try {
@@ -206,9 +249,11 @@ public class GooglePhotosInterface {
     } catch (HttpResponseException e) {
       response =
           handleHttpResponseException(
+              accessToken,
               () ->
                   requestFactory.buildGetRequest(
-                      new GenericUrl(url + "?" + generateParamsString(parameters))),
+                      new GenericUrl(
+                          url + "?" + generateParamsString(parameters, currentAccessToken()))),
               e);
     }
 
@@ -222,12 +267,14 @@ public class GooglePhotosInterface {
       Optional<Map<String, String>> extraHeaders, HttpContent httpContent, Class<T> clazz)
       throws IOException, InvalidTokenException, PermissionDeniedException, UploadErrorException {
     // Wait for write permit before making request
-    writeRateLimiter.acquire();
+    acquireWritePermit();
 
     HttpRequestFactory requestFactory = httpTransport.createRequestFactory();
+    String accessToken = currentAccessToken();
     HttpRequest postRequest =
         requestFactory.buildPostRequest(
-            new GenericUrl(url + "?" + generateParamsString(parameters)), httpContent);
+            new GenericUrl(url + "?" + generateParamsString(parameters, accessToken)),
+            httpContent);
     extraHeaders.ifPresent(stringStringMap -> stringStringMap.forEach(
         (key, value) -> postRequest.getHeaders().set(key, value)));
     postRequest.setReadTimeout(2 * 60000); // 2 minutes read timeout
@@ -235,14 +282,18 @@ public class GooglePhotosInterface {
 
     try {
       response = postRequest.execute();
+      writeRateLimiter.get().onSuccess();
     } catch (HttpResponseException e) {
-      maybeRethrowAsUploadError(e);
+      onWriteError(e);
 
       response =
           handleHttpResponseException(
+              accessToken,
               () ->
                   requestFactory.buildPostRequest(
-                      new GenericUrl(url + "?" + generateParamsString(parameters)), httpContent),
+                      new GenericUrl(
+                          url + "?" + generateParamsString(parameters, currentAccessToken())),
+                      httpContent),
               e);
     }
 
@@ -256,6 +307,15 @@ public class GooglePhotosInterface {
     }
   }
 
+  /** Slows writes down if they were throttled, and rethrows upload errors. */
+  private void onWriteError(HttpResponseException e) throws UploadErrorException {
+    if (e.getStatusCode() == 429 || e.getStatusCode() == 503) {
+      writeRateLimiter.get().onThrottled(
+          AdaptiveRateLimiter.parseRetryAfter(e.getHeaders().getRetryAfter()));
+    }
+    maybeRethrowAsUploadError(e);
+  }
+
   /**
    * Converting {@link HttpResponseException} to upload-related exceptions. Current this is only
    * used for payload hash verifications.
@@ -273,22 +333,65 @@ public class GooglePhotosInterface {
   }
 
   private HttpResponse handleHttpResponseException(
-      SupplierWithIO<HttpRequest> httpRequest, HttpResponseException e)
+      String rejectedAccessToken, SupplierWithIO<HttpRequest> httpRequest, HttpResponseException e)
       throws IOException, InvalidTokenException, PermissionDeniedException {
     // if the response is "unauthorized", refresh the token and try the request again
     final int statusCode = e.getStatusCode();
 
     if (statusCode == 401) {
+      refreshCredential(rejectedAccessToken);
+
+      // if the second attempt throws an error, then something else is wrong, and we bubble up the
+      // response errors
+      return httpRequest.getWithIO().execute();
+    }
+    throw toException(e);
+  }
+
+  private void acquireWritePermit() throws IOException {
+    try {
+      writeRateLimiter.get().acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for a write permit", e);
+    }
+  }
+
+  private String currentAccessToken() {
+    return Preconditions.checkNotNull(credential.getAccessToken());
+  }
+
+  /**
+   * Refreshes the credential after the service rejected {@code rejectedAccessToken}, unless another
+   * request has already refreshed it since.
+   */
+  private void refreshCredential(String rejectedAccessToken) throws IOException {
+    synchronized (credentialLock) {
+      if (!rejectedAccessToken.equals(credential.getAccessToken())) {
+        return;
+      }
       monitor.info(() -> "Attempting to refresh authorization token");
       // if the credential refresh failed, let the error bubble up via the IOException that gets
       // thrown
       credential = credentialFactory.refreshCredential(credential);
       monitor.info(() -> "Refreshed authorization token successfully");
-
-      // if the second attempt throws an error, then something else is wrong, and we bubble up the
-      // response errors
-      return httpRequest.getWithIO().execute();
     }
+  }
+
+  /** Identifies the user of {@code credential} by a hash of its refresh token. */
+  private static String userId(Credential credential) {
+    String token =
+        credential.getRefreshToken() != null
+            ? credential.getRefreshToken()
+            : credential.getAccessToken();
+    return Hashing.sha256()
+        .hashString(Strings.nullToEmpty(token), StandardCharsets.UTF_8)
+        .toString();
+  }
+
+  /** Converts an error response that can't be recovered from to the exception to throw. */
+  private IOException toException(HttpResponseException e) throws PermissionDeniedException {
+    final int statusCode = e.getStatusCode();
     // "The caller does not have permission" is potential error for albums.
     // "Google Photos is disabled for the user" is potential error for photos.
     if (statusCode == 403 &&
@@ -297,23 +400,31 @@ public class GooglePhotosInterface {
       throw new PermissionDeniedException("User permission to google photos was denied", e);
     } else {
       // something else is wrong, bubble up the error
-      throw new IOException(
+      String message =
           "Bad status code: "
               + e.getStatusCode()
               + " Error: '"
               + e.getStatusMessage()
               + "' Content: "
-              + e.getContent());
+              + e.getContent();
+      Duration retryAfter =
+          statusCode == 429 || statusCode == 503
+              ? AdaptiveRateLimiter.parseRetryAfter(e.getHeaders().getRetryAfter())
+              : null;
+      if (retryAfter != null) {
+        return new RetryAfterException(message, retryAfter, e);
+      }
+      return new IOException(message);
     }
   }
 
-  private String generateParamsString(Optional<Map<String, String>> params) {
+  private String generateParamsString(Optional<Map<String, String>> params, String accessToken) {
     Map<String, String> updatedParams = new ArrayMap<>();
     if (params.isPresent()) {
       updatedParams.putAll(params.get());
     }
 
-    updatedParams.put(ACCESS_TOKEN_KEY, Preconditions.checkNotNull(credential.getAccessToken()));
+    updatedParams.put(ACCESS_TOKEN_KEY, accessToken);
 
     List<String> orderedKeys = updatedParams.keySet().stream().collect(Collectors.toList());
     Collections.sort(orderedKeys);
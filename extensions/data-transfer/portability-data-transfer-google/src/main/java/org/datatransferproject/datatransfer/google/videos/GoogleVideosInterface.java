@@ -20,7 +20,6 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.http.ByteArrayContent;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpContent;
 import com.google.api.client.http.HttpHeaders;
@@ -28,7 +27,6 @@ import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestFactory;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpTransport;
-import com.google.api.client.http.InputStreamContent;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.http.json.JsonHttpContent;
 import com.google.api.client.json.JsonFactory;
@@ -57,7 +55,6 @@ import com.google.photos.library.v1.upload.UploadMediaItemResponse;
 import com.google.photos.library.v1.util.NewMediaItemFactory;
 import com.google.rpc.Code;
 import com.google.rpc.Status;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -80,6 +77,7 @@ import java.util.stream.Collectors;
 import org.apache.commons.lang3.tuple.Pair;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.google.common.GooglePhotosImportUtils;
+import org.datatransferproject.datatransfer.google.common.ResumableMediaUploader;
 import org.datatransferproject.datatransfer.google.mediaModels.BatchMediaItemResponse;
 import org.datatransferproject.datatransfer.google.mediaModels.MediaItemSearchResponse;
 import org.datatransferproject.datatransfer.google.mediaModels.NewMediaItemUpload;
@@ -114,23 +112,40 @@ public class GoogleVideosInterface {
   private final HttpTransport httpTransport = new NetHttpTransport();
   private final Credential credential;
   private JsonFactory jsonFactory;
+  private final ResumableMediaUploader uploader;
 
   GoogleVideosInterface(Credential credential, JsonFactory jsonFactory) {
     this.credential = credential;
     this.jsonFactory = jsonFactory;
+    this.uploader =
+        new ResumableMediaUploader(
+            httpTransport,
+            new ResumableMediaUploader.AccessTokenProvider() {
+              @Override
+              public String getAccessToken() throws IOException {
+                // getAccessToken will return null when the token needs to be refreshed
+                if (credential.getAccessToken() == null) {
+                  credential.refreshToken();
+                }
+                return Preconditions.checkNotNull(credential.getAccessToken());
+              }
+
+              @Override
+              public String refreshAccessToken(String rejectedAccessToken) throws IOException {
+                if (rejectedAccessToken.equals(credential.getAccessToken())
+                    && !credential.refreshToken()) {
+                  throw new IOException("Couldn't refresh the access token");
+                }
+                return getAccessToken();
+              }
+            });
   }
 
   // TODO(aksingh737) probably dead code; seems it's not called or if it is, then reconcile why this
   // exists *and* GoogleVideosInterface#uploadMediaItem internal logic exists, calling entirely
   // different APIs.
   String uploadVideoContent(InputStream inputStream, String filename) throws IOException {
-    InputStreamContent content = new InputStreamContent(null, inputStream);
-    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-    content.writeTo(outputStream);
-    byte[] contentBytes = outputStream.toByteArray();
-    HttpContent httpContent = new ByteArrayContent(null, contentBytes);
-
-    return makePostRequest(BASE_URL + "uploads/", Optional.empty(), httpContent, String.class);
+    return uploader.upload(inputStream, 0, ImmutableMap.of());
   }
 
   // TODO(aksingh737) probably dead code; seems it's not called; see TODO atop uploadVideoContent
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.datatransfer.google.common;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ResumableMediaUploaderTest {
+
+  private static final String SESSION_URL = "https://photoslibrary.googleapis.com/v1/uploads/1";
+  private static final String UPLOAD_TOKEN = "uploadToken";
+  private static final byte[] MEDIA = "0123456789".getBytes(UTF_8);
+
+  private FakeUploadService uploadService;
+  private ResumableMediaUploader uploader;
+
+  @BeforeEach
+  public void setUp() {
+    uploadService = new FakeUploadService();
+    uploader = new ResumableMediaUploader(uploadService, accessTokens(), 4);
+  }
+
+  @Test
+  public void mediaSmallerThanAChunkIsUploadedInOneRequest() throws IOException {
+    uploader = new ResumableMediaUploader(uploadService, accessTokens(), MEDIA.length + 1);
+
+    String uploadToken = uploader.upload(new ByteArrayInputStream(MEDIA), 0, ImmutableMap.of());
+
+    assertThat(uploadToken).isEqualTo(UPLOAD_TOKEN);
+    assertThat(uploadService.commands()).containsExactly("raw");
+    assertThat(uploadService.received.toByteArray()).isEqualTo(MEDIA);
+  }
+
+  @Test
+  public void largerMediaIsUploadedInChunks() throws IOException {
+    String uploadToken =
+        uploader.upload(
+            new ByteArrayInputStream(MEDIA), MEDIA.length, ImmutableMap.of("X-Goog-Hash", "hash"));
+
+    assertThat(uploadToken).isEqualTo(UPLOAD_TOKEN);
+    assertThat(uploadService.commands())
+        .containsExactly("start", "upload", "upload", "upload, finalize")
+        .inOrder();
+    assertThat(uploadService.requests.get(0).getFirstHeaderValue("X-Goog-Upload-Raw-Size"))
+        .isEqualTo("10");
+    assertThat(uploadService.requests.get(3).getFirstHeaderValue("X-Goog-Hash")).isEqualTo("hash");
+    assertThat(uploadService.received.toByteArray()).isEqualTo(MEDIA);
+  }
+
+  @Test
+  public void failedChunkIsResumedFromTheAcknowledgedOffset() throws IOException {
+    uploadService.failures = 1;
+
+    String uploadToken = uploader.upload(new ByteArrayInputStream(MEDIA), 0, ImmutableMap.of());
+
+    assertThat(uploadToken).isEqualTo(UPLOAD_TOKEN);
+    assertThat(uploadService.commands())
+        .containsExactly("start", "upload", "query", "upload", "upload", "upload, finalize")
+        .inOrder();
+    assertThat(uploadService.requests.get(3).getFirstHeaderValue("X-Goog-Upload-Offset"))
+        .isEqualTo("2");
+    assertThat(uploadService.received.toByteArray()).isEqualTo(MEDIA);
+  }
+
+  @Test
+  public void emptyMediaIsNotUploaded() throws IOException {
+    assertThat(uploader.upload(new ByteArrayInputStream(new byte[0]), 0, ImmutableMap.of()))
+        .isNull();
+    assertThat(uploadService.requests).isEmpty();
+  }
+
+  private static ResumableMediaUploader.AccessTokenProvider accessTokens() {
+    return new ResumableMediaUploader.AccessTokenProvider() {
+      @Override
+      public String getAccessToken() {
+        return "accessToken";
+      }
+
+      @Override
+      public String refreshAccessToken(String rejectedAccessToken) {
+        return "accessToken";
+      }
+    };
+  }
+
+  /**
+   * Answers upload requests like the Photos upload service, with a chunk granularity of 2 bytes.
+   * A failing chunk request only stores the first half of its bytes.
+   */
+  private static class FakeUploadService extends MockHttpTransport {
+
+    private final List<MockLowLevelHttpRequest> requests = new ArrayList<>();
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    private int failures;
+
+    @Override
+    public LowLevelHttpRequest buildRequest(String method, String url) {
+      MockLowLevelHttpRequest request =
+          new MockLowLevelHttpRequest(url) {
+            @Override
+            public LowLevelHttpResponse execute() throws IOException {
+              return respond(this);
+            }
+          };
+      requests.add(request);
+      return request;
+    }
+
+    private List<String> commands() {
+      return requests.stream()
+          .map(
+              request ->
+                  "raw".equals(request.getFirstHeaderValue("X-Goog-Upload-Protocol"))
+                      ? "raw"
+                      : request.getFirstHeaderValue("X-Goog-Upload-Command"))
+          .collect(Collectors.toList());
+    }
+
+    private LowLevelHttpResponse respond(MockLowLevelHttpRequest request) throws IOException {
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      if (request.getStreamingContent() != null) {
+        request.getStreamingContent().writeTo(content);
+      }
+      String command = request.getFirstHeaderValue("X-Goog-Upload-Command");
+      if (command == null) {
+        received.write(content.toByteArray());
+        return new MockLowLevelHttpResponse().setContent(UPLOAD_TOKEN);
+      }
+      switch (command) {
+        case "start":
+          return new MockLowLevelHttpResponse()
+              .addHeader("X-Goog-Upload-URL", SESSION_URL)
+              .addHeader("X-Goog-Upload-Chunk-Granularity", "2");
+        case "query":
+          return new MockLowLevelHttpResponse()
+              .addHeader("X-Goog-Upload-Status", "active")
+              .addHeader("X-Goog-Upload-Size-Received", String.valueOf(received.size()));
+        default:
+          assertThat(request.getUrl()).isEqualTo(SESSION_URL);
+          assertThat(request.getFirstHeaderValue("X-Goog-Upload-Offset"))
+              .isEqualTo(String.valueOf(received.size()));
+          byte[] bytes = content.toByteArray();
+          if (failures > 0) {
+            failures--;
+            received.write(bytes, 0, bytes.length / 2);
+            return new MockLowLevelHttpResponse().setStatusCode(500);
+          }
+          received.write(bytes);
+          return new MockLowLevelHttpResponse()
+              .setContent(command.endsWith("finalize") ? UPLOAD_TOKEN : "");
+      }
+    }
+  }
+}
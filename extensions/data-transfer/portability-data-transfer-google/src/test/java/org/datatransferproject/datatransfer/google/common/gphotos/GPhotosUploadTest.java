@@ -0,0 +1,245 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.datatransfer.google.common.gphotos;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.datatransfer.google.common.gphotos.GPhotosUpload.PipelinedItemBatchUploader;
+import org.datatransferproject.datatransfer.google.common.gphotos.GPhotosUpload.UploadedItem;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.InMemoryIdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.ItemImportResult;
+import org.datatransferproject.types.common.models.photos.PhotoModel;
+import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class GPhotosUploadTest {
+
+  private IdempotentImportExecutor executor;
+  private GPhotosUpload gPhotosUpload;
+
+  @BeforeEach
+  public void setUp() {
+    executor = new InMemoryIdempotentImportExecutor(mock(Monitor.class));
+    gPhotosUpload =
+        new GPhotosUpload(UUID.randomUUID(), executor, mock(TokensAndUrlAuthData.class), 4);
+  }
+
+  @Test
+  public void nextBatchIsUploadedWhileTheCurrentOneIsCreated() throws Exception {
+    // Two batches, the second one with a single photo.
+    List<PhotoModel> photos = photos(50);
+    CountDownLatch lastPhotoUploaded = new CountDownLatch(1);
+    List<List<String>> createdBatches = Collections.synchronizedList(new ArrayList<>());
+
+    long bytes =
+        gPhotosUpload.uploadItemsViaBatching(
+            photos,
+            new PipelinedItemBatchUploader<PhotoModel>() {
+              @Override
+              public UploadedItem<PhotoModel> uploadItem(
+                  UUID jobId,
+                  TokensAndUrlAuthData authData,
+                  PhotoModel photo,
+                  IdempotentImportExecutor executor) {
+                if (photo == photos.get(49)) {
+                  lastPhotoUploaded.countDown();
+                }
+                return new UploadedItem<>(photo, "token-" + photo.getDataId(), 10L);
+              }
+
+              @Override
+              public long createItems(
+                  UUID jobId,
+                  TokensAndUrlAuthData authData,
+                  List<UploadedItem<PhotoModel>> uploads,
+                  IdempotentImportExecutor executor,
+                  String targetAlbumId)
+                  throws Exception {
+                if (createdBatches.isEmpty()) {
+                  // The first batch can only be created once the second one is uploading.
+                  assertThat(lastPhotoUploaded.await(10, TimeUnit.SECONDS)).isTrue();
+                }
+                createdBatches.add(
+                    uploads.stream()
+                        .map(UploadedItem::getUploadToken)
+                        .collect(Collectors.toList()));
+                return 10L * uploads.size();
+              }
+            });
+
+    assertThat(bytes).isEqualTo(500L);
+    assertThat(createdBatches).hasSize(2);
+    assertThat(createdBatches.get(0)).hasSize(49);
+    assertThat(createdBatches.get(0).get(0)).isEqualTo("token-photo0");
+    assertThat(createdBatches.get(1)).containsExactly("token-photo49");
+  }
+
+  @Test
+  public void batchesAreCreatedBeforeTheNextIsUploadedWithoutThreadSafeExecutor()
+      throws Exception {
+    IdempotentImportExecutor singleThreadedExecutor =
+        new InMemoryIdempotentImportExecutor(mock(Monitor.class)) {
+          @Override
+          public boolean isThreadSafe() {
+            return false;
+          }
+        };
+    GPhotosUpload sequentialUpload =
+        new GPhotosUpload(
+            UUID.randomUUID(), singleThreadedExecutor, mock(TokensAndUrlAuthData.class), 4);
+    List<PhotoModel> photos = photos(50);
+    List<String> calls = Collections.synchronizedList(new ArrayList<>());
+    Thread callingThread = Thread.currentThread();
+
+    sequentialUpload.uploadItemsViaBatching(
+        photos,
+        new PipelinedItemBatchUploader<PhotoModel>() {
+          @Override
+          public UploadedItem<PhotoModel> uploadItem(
+              UUID jobId,
+              TokensAndUrlAuthData authData,
+              PhotoModel photo,
+              IdempotentImportExecutor executor) {
+            assertThat(Thread.currentThread()).isSameAs(callingThread);
+            calls.add("upload " + photo.getDataId());
+            return new UploadedItem<>(photo, "token-" + photo.getDataId(), 10L);
+          }
+
+          @Override
+          public long createItems(
+              UUID jobId,
+              TokensAndUrlAuthData authData,
+              List<UploadedItem<PhotoModel>> uploads,
+              IdempotentImportExecutor executor,
+              String targetAlbumId) {
+            assertThat(Thread.currentThread()).isSameAs(callingThread);
+            calls.add("create " + uploads.size());
+            return 10L * uploads.size();
+          }
+        });
+
+    assertThat(calls.subList(48, 52))
+        .containsExactly("upload photo48", "create 49", "upload photo49", "create 1")
+        .inOrder();
+  }
+
+  @Test
+  public void failedUploadStopsTheImport() {
+    List<PhotoModel> photos = photos(3);
+    List<UploadedItem<PhotoModel>> created = Collections.synchronizedList(new ArrayList<>());
+
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            gPhotosUpload.uploadItemsViaBatching(
+                photos,
+                new PipelinedItemBatchUploader<PhotoModel>() {
+                  @Override
+                  public UploadedItem<PhotoModel> uploadItem(
+                      UUID jobId,
+                      TokensAndUrlAuthData authData,
+                      PhotoModel photo,
+                      IdempotentImportExecutor executor) {
+                    if (photo == photos.get(1)) {
+                      throw new IllegalStateException("upload failed");
+                    }
+                    return new UploadedItem<>(photo, "token-" + photo.getDataId(), 10L);
+                  }
+
+                  @Override
+                  public long createItems(
+                      UUID jobId,
+                      TokensAndUrlAuthData authData,
+                      List<UploadedItem<PhotoModel>> uploads,
+                      IdempotentImportExecutor executor,
+                      String targetAlbumId) {
+                    created.addAll(uploads);
+                    return 0;
+                  }
+                }));
+    assertThat(created).isEmpty();
+  }
+
+  @Test
+  public void itemsWithoutUploadAreNotCreated() throws Exception {
+    List<PhotoModel> photos = photos(2);
+    List<UploadedItem<PhotoModel>> created = Collections.synchronizedList(new ArrayList<>());
+
+    gPhotosUpload.uploadItemsViaBatching(
+        photos,
+        new PipelinedItemBatchUploader<PhotoModel>() {
+          @Override
+          public UploadedItem<PhotoModel> uploadItem(
+              UUID jobId,
+              TokensAndUrlAuthData authData,
+              PhotoModel photo,
+              IdempotentImportExecutor executor)
+              throws Exception {
+            if (photo == photos.get(0)) {
+              executor.importAndSwallowIOExceptions(
+                  photo,
+                  p -> ItemImportResult.error(new IOException("not found"), null));
+              return null;
+            }
+            return new UploadedItem<>(photo, "token-" + photo.getDataId(), 10L);
+          }
+
+          @Override
+          public long createItems(
+              UUID jobId,
+              TokensAndUrlAuthData authData,
+              List<UploadedItem<PhotoModel>> uploads,
+              IdempotentImportExecutor executor,
+              String targetAlbumId) {
+            created.addAll(uploads);
+            return 0;
+          }
+        });
+
+    assertThat(created).hasSize(1);
+    assertThat(created.get(0).getItem()).isSameAs(photos.get(1));
+  }
+
+  private static List<PhotoModel> photos(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(
+            i ->
+                new PhotoModel(
+                    "title" + i,
+                    "https://example.com/" + i,
+                    null,
+                    "image/jpeg",
+                    "photo" + i,
+                    null,
+                    false))
+        .collect(Collectors.toList());
+  }
+}
@@ -22,6 +22,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atMostOnce;
@@ -154,7 +155,8 @@ public class GoogleMediaImporterTest {
             OLD_ALBUM_ID,
             false,
             SHA1);
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(SHA1))).thenReturn("token1");
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(SHA1), anyLong()))
+        .thenReturn("token1");
 
     PhotoModel photoModel2 =
         new PhotoModel(
@@ -165,7 +167,7 @@ public class GoogleMediaImporterTest {
             "oldPhotoID2",
             OLD_ALBUM_ID,
             false);
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null), anyLong()))
         .thenReturn("token2");
 
     BatchMediaItemResponse batchMediaItemResponse =
@@ -220,7 +222,7 @@ public class GoogleMediaImporterTest {
             OLD_ALBUM_ID,
             false);
 
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null), anyLong()))
         .thenReturn("token1", "token2");
     BatchMediaItemResponse batchMediaItemResponse =
         new BatchMediaItemResponse(
@@ -258,7 +260,7 @@ public class GoogleMediaImporterTest {
             false,
             SHA1);
 
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(SHA1)))
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(SHA1), anyLong()))
         .thenThrow(new UploadErrorException("Hash mismatch will be thrown", new Throwable()));
     BatchMediaItemResponse batchMediaItemResponse = new BatchMediaItemResponse(
         new NewMediaItemResult[]{});
@@ -366,7 +368,8 @@ public class GoogleMediaImporterTest {
             OLD_ALBUM_ID,
             true);
 
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null))).thenReturn("token1");
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null), anyLong()))
+        .thenReturn("token1");
     PhotosLibraryClient photosLibraryClient = mock(PhotosLibraryClient.class);
     JobStore jobStore = mock(LocalJobStore.class);
     Mockito.when(jobStore.getStream(any(), any()))
@@ -417,7 +420,7 @@ public class GoogleMediaImporterTest {
             OLD_ALBUM_ID,
             true);
 
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null), anyLong()))
         .thenThrow(new IOException("Unit Testing"));
     PhotosLibraryClient photosLibraryClient = mock(PhotosLibraryClient.class);
     JobStore jobStore = mock(LocalJobStore.class);
@@ -468,7 +471,7 @@ public class GoogleMediaImporterTest {
             OLD_ALBUM_ID,
             true);
 
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null), anyLong()))
         .thenReturn("token1", "token2");
     PhotosLibraryClient photosLibraryClient = mock(PhotosLibraryClient.class);
     JobStore jobStore = mock(LocalJobStore.class);
@@ -513,7 +516,7 @@ public class GoogleMediaImporterTest {
             OLD_ALBUM_ID,
             true);
 
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null), anyLong()))
         .thenReturn("token1", "token2");
     PhotosLibraryClient photosLibraryClient = mock(PhotosLibraryClient.class);
     JobStore jobStore = mock(LocalJobStore.class);
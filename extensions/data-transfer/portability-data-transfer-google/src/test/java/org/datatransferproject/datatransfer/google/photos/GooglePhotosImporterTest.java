@@ -22,6 +22,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atMostOnce;
@@ -137,7 +138,8 @@ public class GooglePhotosImporterTest {
             OLD_ALBUM_ID,
             false,
             SHA1);
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(SHA1))).thenReturn("token1");
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(SHA1), anyLong()))
+        .thenReturn("token1");
 
     PhotoModel photoModel2 =
         new PhotoModel(
@@ -148,7 +150,7 @@ public class GooglePhotosImporterTest {
             "oldPhotoID2",
             OLD_ALBUM_ID,
             false);
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null), anyLong()))
         .thenReturn("token2");
 
     BatchMediaItemResponse batchMediaItemResponse =
@@ -203,7 +205,7 @@ public class GooglePhotosImporterTest {
             OLD_ALBUM_ID,
             false);
 
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null), anyLong()))
         .thenReturn("token1", "token2");
     BatchMediaItemResponse batchMediaItemResponse =
         new BatchMediaItemResponse(
@@ -241,7 +243,7 @@ public class GooglePhotosImporterTest {
             false,
             SHA1);
 
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(SHA1)))
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(SHA1), anyLong()))
         .thenThrow(new UploadErrorException("Hash mismatch will be thrown", new Throwable()));
     BatchMediaItemResponse batchMediaItemResponse = new BatchMediaItemResponse(
         new NewMediaItemResult[]{});
@@ -329,7 +331,8 @@ public class GooglePhotosImporterTest {
             OLD_ALBUM_ID,
             true);
 
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null))).thenReturn("token1");
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null), anyLong()))
+        .thenReturn("token1");
     JobStore jobStore = Mockito.mock(LocalJobStore.class);
     Mockito.when(jobStore.getStream(any(), any()))
         .thenReturn(
@@ -370,7 +373,7 @@ public class GooglePhotosImporterTest {
             OLD_ALBUM_ID,
             true);
 
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null), anyLong()))
         .thenThrow(new IOException("Unit Testing"));
     JobStore jobStore = Mockito.mock(LocalJobStore.class);
     Mockito.when(jobStore.getStream(any(), any()))
@@ -411,7 +414,7 @@ public class GooglePhotosImporterTest {
             OLD_ALBUM_ID,
             true);
 
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null), anyLong()))
         .thenReturn("token1", "token2");
     JobStore jobStore = Mockito.mock(LocalJobStore.class);
     Mockito.when(jobStore.getStream(any(), any()))
@@ -446,7 +449,7 @@ public class GooglePhotosImporterTest {
             OLD_ALBUM_ID,
             true);
 
-    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadMediaContent(any(), eq(null), anyLong()))
         .thenReturn("token1", "token2");
     JobStore jobStore = Mockito.mock(LocalJobStore.class);
     Mockito.when(jobStore.getStream(any(), any()))
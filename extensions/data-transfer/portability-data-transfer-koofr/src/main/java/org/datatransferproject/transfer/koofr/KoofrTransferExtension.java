@@ -97,6 +97,10 @@ public class KoofrTransferExtension implements TransferExtension {
 
     int fileUploadReadTimeout = context.getSetting("koofrFileUploadReadTimeout", 60000);
     int fileUploadWriteTimeout = context.getSetting("koofrFileUploadWriteTimeout", 60000);
+    // How many albums or photos of a page are imported at the same time.
+    int photoImportConcurrency =
+        context.getSetting(
+            "koofrPhotoImportConcurrency", KoofrPhotosImporter.DEFAULT_IMPORT_CONCURRENCY);
 
     monitor.info(
         () ->
@@ -116,7 +120,9 @@ public class KoofrTransferExtension implements TransferExtension {
             BASE_API_URL, client, fileUploadClient, mapper, monitor, credentialFactory);
 
     ImmutableMap.Builder<DataVertical, Importer> importBuilder = ImmutableMap.builder();
-    importBuilder.put(PHOTOS, new KoofrPhotosImporter(koofrClientFactory, monitor, jobStore));
+    importBuilder.put(
+        PHOTOS,
+        new KoofrPhotosImporter(koofrClientFactory, monitor, jobStore, photoImportConcurrency));
     importBuilder.put(VIDEOS, new KoofrVideosImporter(koofrClientFactory, monitor, jobStore));
     importerMap = importBuilder.build();
 
@@ -19,8 +19,10 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.TimeZone;
 import java.util.UUID;
 import java.util.concurrent.atomic.LongAdder;
@@ -36,6 +38,7 @@ import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentTask;
 import org.datatransferproject.spi.transfer.idempotentexecutor.ItemImportResult;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.Importer;
@@ -58,10 +61,13 @@ public class KoofrPhotosImporter
 
   private static final String SKIPPED_FILE_RESULT_FORMAT = "skipped-%s";
   private static final String TITLE_DATE_FORMAT = "yyyy-MM-dd HH.mm.ss ";
+  /** How many albums or photos are imported at the same time, unless configured otherwise. */
+  public static final int DEFAULT_IMPORT_CONCURRENCY = 4;
   private final KoofrClientFactory koofrClientFactory;
   private final JobStore jobStore;
   private final ConnectionProvider connectionProvider;
   private final Monitor monitor;
+  private final int importConcurrency;
   private final KoofrTransmogrificationConfig transmogrificationConfig =
       new KoofrTransmogrificationConfig();
 
@@ -71,10 +77,19 @@ public class KoofrPhotosImporter
 
   public KoofrPhotosImporter(
       KoofrClientFactory koofrClientFactory, Monitor monitor, JobStore jobStore) {
+    this(koofrClientFactory, monitor, jobStore, DEFAULT_IMPORT_CONCURRENCY);
+  }
+
+  public KoofrPhotosImporter(
+      KoofrClientFactory koofrClientFactory,
+      Monitor monitor,
+      JobStore jobStore,
+      int importConcurrency) {
     this.koofrClientFactory = koofrClientFactory;
     this.connectionProvider = new ConnectionProvider(jobStore);
     this.monitor = monitor;
     this.jobStore = jobStore;
+    this.importConcurrency = importConcurrency;
   }
 
   @Override
@@ -99,35 +114,44 @@ public class KoofrPhotosImporter
                 "%s: Importing %s albums and %s photos after transmogrification",
                 jobId, resource.getAlbums().size(), resource.getPhotos().size()));
 
+    // Album folders are created concurrently, within a root folder that has to exist first.
+    String rootPath = resource.getAlbums().isEmpty() ? null : koofrClient.ensureRootFolder();
+    List<IdempotentTask<String>> albumTasks = new ArrayList<>();
     for (PhotoAlbum album : resource.getAlbums()) {
       // Create a Koofr folder and then save the id with the mapping data
-      idempotentImportExecutor.executeAndSwallowIOExceptions(
-          album.getId(), album.getName(), () -> createAlbumFolder(album, koofrClient));
+      albumTasks.add(
+          IdempotentTask.of(
+              album.getId(),
+              album.getName(),
+              () -> createAlbumFolder(album, rootPath, koofrClient)));
     }
+    idempotentImportExecutor.executeBatchAndSwallowIOExceptions(albumTasks, importConcurrency);
 
     final LongAdder totalImportedFilesSizes = new LongAdder();
+    List<IdempotentTask<String>> photoTasks = new ArrayList<>();
     for (PhotoModel photoModel : resource.getPhotos()) {
-      idempotentImportExecutor.importAndSwallowIOExceptions(
-          photoModel,
-          photo -> {
-            ItemImportResult<String> fileImportResult =
-                importSinglePhoto(photoModel, jobId, idempotentImportExecutor, koofrClient);
-            if (fileImportResult != null && fileImportResult.hasBytes()) {
-              totalImportedFilesSizes.add(fileImportResult.getBytes());
-            }
-            return fileImportResult;
-          });
+      photoTasks.add(
+          IdempotentTask.ofImport(
+              photoModel,
+              photo -> {
+                ItemImportResult<String> fileImportResult =
+                    importSinglePhoto(photoModel, jobId, idempotentImportExecutor, koofrClient);
+                if (fileImportResult != null && fileImportResult.hasBytes()) {
+                  totalImportedFilesSizes.add(fileImportResult.getBytes());
+                }
+                return fileImportResult;
+              }));
     }
+    idempotentImportExecutor.executeBatchAndSwallowIOExceptions(photoTasks, importConcurrency);
     return ImportResult.OK.copyWithBytes(totalImportedFilesSizes.longValue());
   }
 
-  private String createAlbumFolder(PhotoAlbum album, KoofrClient koofrClient)
+  private String createAlbumFolder(PhotoAlbum album, String rootPath, KoofrClient koofrClient)
       throws IOException, InvalidTokenException {
     String albumName = KoofrTransmogrificationConfig.getAlbumName(album.getName());
 
     monitor.debug(() -> String.format("Create Koofr folder %s", albumName));
 
-    String rootPath = koofrClient.ensureRootFolder();
     String fullPath = rootPath + "/" + albumName;
 
     koofrClient.ensureFolder(rootPath, albumName);
@@ -233,7 +257,10 @@ public class KoofrPhotosImporter
     }
 
     SimpleDateFormat dateFormat = getOrCreateTitleDateFormat(jobId);
-    return dateFormat.format(dateCreated) + originalTitle;
+    // Photos are imported concurrently, and a SimpleDateFormat isn't thread safe.
+    synchronized (dateFormat) {
+      return dateFormat.format(dateCreated) + originalTitle;
+    }
   }
 
   private Date getDateCreated(PhotoModel photo, byte[] bytes) {
@@ -266,7 +293,9 @@ public class KoofrPhotosImporter
         return null;
       }
 
-      return exifDateFormat.parse(values[0]);
+      synchronized (exifDateFormat) {
+        return exifDateFormat.parse(values[0]);
+      }
     } catch (Exception e) {
       monitor.info(
           () ->
@@ -2,6 +2,7 @@ package org.datatransferproject.transfer.koofr.photos;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
@@ -89,6 +90,7 @@ public class KoofrPhotosImporterTest {
               return result;
             });
     when(executor.importAndSwallowIOExceptions(any(), any())).thenCallRealMethod();
+    when(executor.executeBatchAndSwallowIOExceptions(any(), anyInt())).thenCallRealMethod();
     authData = new TokensAndUrlAuthData("acc", "refresh", "");
   }
 
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.transfer.microsoft;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A pool of equally sized buffers that chunked uploads read their stream into, so that a worker
+ * reuses a handful of chunk-sized arrays rather than allocating a new one for every chunk of every
+ * file.
+ *
+ * <p>Buffers are handed out with {@link #acquire} and given back with {@link #release}. When the
+ * pool is empty a new buffer is allocated; at most {@code maxPooledBuffers} released buffers are
+ * kept, the others are left to the garbage collector. Safe for concurrent use.
+ */
+public class ChunkBufferPool {
+  /**
+   * OneDrive requires every chunk of an upload session except the last to be a multiple of this
+   * size.
+   */
+  public static final int CHUNK_SIZE_MULTIPLE_BYTES = 320 * 1024; // 320KiB
+
+  /** Default number of bytes to upload to Microsoft's APIs at a time. */
+  public static final int DEFAULT_CHUNK_SIZE_BYTES = 100 * CHUNK_SIZE_MULTIPLE_BYTES; // 32000KiB
+
+  private final int chunkSizeBytes;
+  private final BlockingQueue<byte[]> freeBuffers;
+
+  public ChunkBufferPool(int chunkSizeBytes, int maxPooledBuffers) {
+    checkArgument(chunkSizeBytes > 0, "chunkSizeBytes must be positive: %s", chunkSizeBytes);
+    checkArgument(maxPooledBuffers > 0, "maxPooledBuffers must be positive: %s", maxPooledBuffers);
+    this.chunkSizeBytes = chunkSizeBytes;
+    this.freeBuffers = new ArrayBlockingQueue<>(maxPooledBuffers);
+  }
+
+  public int getChunkSizeBytes() {
+    return chunkSizeBytes;
+  }
+
+  /** Returns a buffer of {@link #getChunkSizeBytes()} bytes, reusing a released one if possible. */
+  public byte[] acquire() {
+    byte[] buffer = freeBuffers.poll();
+    return buffer != null ? buffer : new byte[chunkSizeBytes];
+  }
+
+  /**
+   * Gives a buffer obtained from {@link #acquire} back to the pool. The caller must not use it
+   * afterwards.
+   */
+  public void release(byte[] buffer) {
+    if (buffer.length == chunkSizeBytes) {
+      freeBuffers.offer(buffer);
+    }
+  }
+}
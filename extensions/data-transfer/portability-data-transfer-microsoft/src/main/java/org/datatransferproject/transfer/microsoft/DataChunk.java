@@ -5,13 +5,14 @@ import com.google.auto.value.AutoValue;
 /** Describe small buffers of bytes captured from a large java.io Stream. */
 @AutoValue
 public abstract class DataChunk {
-  /** Bytes being held in this buffer. */
+  /**
+   * Buffer holding this chunk's bytes, starting at index zero. The buffer may be larger than the
+   * chunk.
+   */
   public abstract byte[] chunk();
 
   /** Byte count of {@link chunk}. */
-  public int size() {
-    return chunk().length;
-  }
+  public abstract int size();
 
   /** Index-offset within the original java.io Stream at which {@link chunk} had started. */
   public abstract long streamByteOffset();
@@ -31,6 +32,8 @@ public abstract class DataChunk {
   public abstract static class Builder {
     public abstract Builder setChunk(byte[] value);
 
+    public abstract Builder setSize(int value);
+
     public abstract Builder setStreamByteOffset(long value);
 
     public abstract DataChunk build();
@@ -98,6 +98,21 @@ public class MicrosoftTransferExtension implements TransferExtension {
     if (initialized) return;
 
     final double maxWritesPerSecond =  context.getSetting("msoftMaxWritesPerSecond", 1.0);
+    // Size of the chunks OneDrive uploads are sent in, and how many chunk buffers are kept for
+    // reuse across uploads; each concurrently uploaded file holds one buffer.
+    final int uploadChunkSizeBytes =
+        context.getSetting("msoftUploadChunkSizeBytes", ChunkBufferPool.DEFAULT_CHUNK_SIZE_BYTES);
+    Preconditions.checkArgument(
+        uploadChunkSizeBytes > 0
+            && uploadChunkSizeBytes % ChunkBufferPool.CHUNK_SIZE_MULTIPLE_BYTES == 0,
+        "msoftUploadChunkSizeBytes must be a positive multiple of %s, got %s",
+        ChunkBufferPool.CHUNK_SIZE_MULTIPLE_BYTES,
+        uploadChunkSizeBytes);
+    final int maxPooledUploadBuffers = context.getSetting("msoftMaxPooledUploadBuffers", 4);
+    // How many albums or files of a page of media are imported at the same time.
+    final int mediaImportConcurrency =
+        context.getSetting(
+            "msoftMediaImportConcurrency", MicrosoftMediaImporter.DEFAULT_IMPORT_CONCURRENCY);
     TemporaryPerJobDataStore jobStore = context.getService(TemporaryPerJobDataStore.class);
     HttpTransport httpTransport = context.getService(HttpTransport.class);
     JsonFactory jsonFactory = context.getService(JsonFactory.class);
@@ -125,6 +140,8 @@ public class MicrosoftTransferExtension implements TransferExtension {
     JobFileStream jobFileStream = new JobFileStream();
 
     Monitor monitor = context.getMonitor();
+    ChunkBufferPool uploadBufferPool =
+        new ChunkBufferPool(uploadChunkSizeBytes, maxPooledUploadBuffers);
 
     ImmutableMap.Builder<DataVertical, Importer> importBuilder = ImmutableMap.builder();
     importBuilder.put(
@@ -135,9 +152,10 @@ public class MicrosoftTransferExtension implements TransferExtension {
         new MicrosoftCalendarImporter(BASE_GRAPH_URL, client, mapper, transformerService));
     importBuilder.put(
         PHOTOS, new MicrosoftPhotosImporter(BASE_GRAPH_URL, client, mapper, jobStore, monitor,
-          credentialFactory, jobFileStream));
+          credentialFactory, jobFileStream, uploadBufferPool));
     importBuilder.put(MEDIA, new MicrosoftMediaImporter(BASE_GRAPH_URL, client, mapper, jobStore, monitor,
-          credentialFactory, jobFileStream, maxWritesPerSecond));
+          credentialFactory, jobFileStream, maxWritesPerSecond, uploadBufferPool,
+          mediaImportConcurrency));
     importerMap = importBuilder.build();
 
     ImmutableMap.Builder<DataVertical, Exporter> exporterBuilder = ImmutableMap.builder();
@@ -1,5 +1,6 @@
 package org.datatransferproject.transfer.microsoft;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Optional;
@@ -7,17 +8,35 @@ import java.util.Optional;
 /**
  * Allows tracking reads across a stream.
  *
+ * <p>Every chunk is read into the same buffer, borrowed from a {@link ChunkBufferPool} and given
+ * back by {@link #close()}, so a chunk's bytes are only valid until the next call to {@link
+ * #nextChunk()} or {@link #close()}.
+ *
  * <p>Does not close the held input stream.
  */
-public class StreamChunker {
-  private final int chunkSizeBytes;
+public class StreamChunker implements Closeable {
+  private final ChunkBufferPool bufferPool;
   private final InputStream inputStream;
 
-  private long streamByteOffset = 0;
+  private byte[] buffer;
+  private long streamByteOffset;
 
   public StreamChunker(int chunkSizeBytes, InputStream inputStream) {
+    this(new ChunkBufferPool(chunkSizeBytes, 1), inputStream);
+  }
+
+  public StreamChunker(ChunkBufferPool bufferPool, InputStream inputStream) {
+    this(bufferPool, inputStream, 0);
+  }
+
+  /**
+   * Chunks a stream that starts {@code streamByteOffset} bytes into the original stream, e.g. to
+   * resume an interrupted upload.
+   */
+  public StreamChunker(ChunkBufferPool bufferPool, InputStream inputStream, long streamByteOffset) {
+    this.bufferPool = bufferPool;
     this.inputStream = inputStream;
-    this.chunkSizeBytes = chunkSizeBytes;
+    this.streamByteOffset = streamByteOffset;
   }
 
   /**
@@ -27,16 +46,29 @@ public class StreamChunker {
    * remaining in the stream.
    */
   public Optional<DataChunk> nextChunk() throws IOException {
-    byte[] chunkOfData = inputStream.readNBytes(chunkSizeBytes);
+    if (buffer == null) {
+      buffer = bufferPool.acquire();
+    }
+    int size = inputStream.readNBytes(buffer, 0, buffer.length);
     Optional<DataChunk> resp =
-        chunkOfData.length == 0
+        size == 0
             ? Optional.empty()
             : Optional.of(
                 DataChunk.builder()
-                    .setChunk(chunkOfData)
+                    .setChunk(buffer)
+                    .setSize(size)
                     .setStreamByteOffset(streamByteOffset)
                     .build());
-    streamByteOffset += chunkOfData.length;
+    streamByteOffset += size;
     return resp;
   }
+
+  /** Returns the chunk buffer to its pool. */
+  @Override
+  public void close() {
+    if (buffer != null) {
+      bufferPool.release(buffer);
+      buffer = null;
+    }
+  }
 }
@@ -19,18 +19,23 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static org.datatransferproject.spi.api.transport.DiscardingStreamCounter.discardForLength;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.UUID;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -41,11 +46,13 @@ import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.api.transport.JobFileStream;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentTask;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.Importer;
 import org.datatransferproject.spi.transfer.types.CopyExceptionWithFailureReason;
 import org.datatransferproject.spi.transfer.types.DestinationMemoryFullException;
 import org.datatransferproject.spi.transfer.types.PermissionDeniedException;
+import org.datatransferproject.transfer.microsoft.ChunkBufferPool;
 import org.datatransferproject.transfer.microsoft.DataChunk;
 import org.datatransferproject.transfer.microsoft.MicrosoftApiResponse;
 import org.datatransferproject.transfer.microsoft.MicrosoftTransmogrificationConfig;
@@ -59,9 +66,6 @@ import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
 /** Imports albums with their photos and videos to OneDrive using the Microsoft Graph API. */
 public class MicrosoftMediaImporter
     implements Importer<TokensAndUrlAuthData, MediaContainerResource> {
-  /** Max number of bytes to upload to Microsoft's APIs at a time. */
-  private static final int MICROSOFT_UPLOAD_CHUNK_BYTE_SIZE = 32000 * 1024; // 32000KiB
-
   private final OkHttpClient client;
   private final ObjectMapper objectMapper;
   private final TemporaryPerJobDataStore jobStore;
@@ -69,10 +73,14 @@ public class MicrosoftMediaImporter
   private final MicrosoftCredentialFactory credentialFactory;
   private final JobFileStream jobFileStream;
   private final RateLimiter writeRateLimiter;
+  private final ChunkBufferPool uploadBufferPool;
 
   private final MicrosoftTransmogrificationConfig transmogrificationConfig =
       new MicrosoftTransmogrificationConfig();
-  private Credential credential;
+  // Items are imported concurrently, each of them possibly refreshing the credential.
+  private final Object credentialLock = new Object();
+  private volatile Credential credential;
+  private final int importConcurrency;
 
   private final String createFolderUrl;
   private final String uploadMediaUrlTemplate;
@@ -80,6 +88,12 @@ public class MicrosoftMediaImporter
 
   private static final String UPLOAD_PARAMS = "?@microsoft.graph.conflictBehavior=rename";
 
+  /** How many albums or files are imported at the same time, unless configured otherwise. */
+  public static final int DEFAULT_IMPORT_CONCURRENCY = 4;
+
+  /** Job store key prefix of a file's {@link MicrosoftUploadSession}. */
+  private static final String UPLOAD_SESSION_KEY_PREFIX = "msoftUploadSession-";
+
   public MicrosoftMediaImporter(
       String baseUrl,
       OkHttpClient client,
@@ -89,6 +103,30 @@ public class MicrosoftMediaImporter
       MicrosoftCredentialFactory credentialFactory,
       JobFileStream jobFileStream,
       double maxWritesPerSecond) {
+    this(
+        baseUrl,
+        client,
+        objectMapper,
+        jobStore,
+        monitor,
+        credentialFactory,
+        jobFileStream,
+        maxWritesPerSecond,
+        new ChunkBufferPool(ChunkBufferPool.DEFAULT_CHUNK_SIZE_BYTES, 1),
+        DEFAULT_IMPORT_CONCURRENCY);
+  }
+
+  public MicrosoftMediaImporter(
+      String baseUrl,
+      OkHttpClient client,
+      ObjectMapper objectMapper,
+      TemporaryPerJobDataStore jobStore,
+      Monitor monitor,
+      MicrosoftCredentialFactory credentialFactory,
+      JobFileStream jobFileStream,
+      double maxWritesPerSecond,
+      ChunkBufferPool uploadBufferPool,
+      int importConcurrency) {
     // NOTE: "special/photos" is a specific folder in One Drive that corresponds to items that
     // should appear in https://photos.onedrive.com/, for more information see:
     // https://learn.microsoft.com/en-us/onedrive/developer/rest-api/api/drive_get_specialfolder?#special-folder-names
@@ -108,6 +146,8 @@ public class MicrosoftMediaImporter
     this.credential = null;
     this.jobFileStream = jobFileStream;
     this.writeRateLimiter = RateLimiter.create(maxWritesPerSecond);
+    this.uploadBufferPool = uploadBufferPool;
+    this.importConcurrency = importConcurrency;
   }
 
   @Override
@@ -127,11 +167,13 @@ public class MicrosoftMediaImporter
 
     logDebugJobStatus("%s after transmogrification", jobId, resource);
 
+    List<IdempotentTask<String>> albumTasks = new ArrayList<>();
     for (MediaAlbum album : resource.getAlbums()) {
       // Create a OneDrive folder and then save the id with the mapping data
-      idempotentImportExecutor.executeAndSwallowIOExceptions(
-          album.getId(), album.getName(), () -> createOneDriveFolder(album));
+      albumTasks.add(
+          IdempotentTask.of(album.getId(), album.getName(), () -> createOneDriveFolder(album)));
     }
+    idempotentImportExecutor.executeBatchAndSwallowIOExceptions(albumTasks, importConcurrency);
 
     executeIdempotentImport(jobId, idempotentImportExecutor, resource.getVideos());
 
@@ -184,74 +226,179 @@ public class MicrosoftMediaImporter
       IdempotentImportExecutor idempotentImportExecutor,
       Collection<? extends DownloadableFile> downloadableFiles)
       throws Exception {
+    List<IdempotentTask<String>> tasks = new ArrayList<>();
     for (DownloadableFile downloadableFile : downloadableFiles) {
-      idempotentImportExecutor.executeAndSwallowIOExceptions(
-          downloadableFile.getIdempotentId(),
-          downloadableFile.getName(),
-          () -> importDownloadableItem(downloadableFile, jobId, idempotentImportExecutor));
+      tasks.add(
+          IdempotentTask.of(
+              downloadableFile.getIdempotentId(),
+              downloadableFile.getName(),
+              () -> importDownloadableItem(downloadableFile, jobId, idempotentImportExecutor)));
     }
+    idempotentImportExecutor.executeBatchAndSwallowIOExceptions(tasks, importConcurrency);
   }
 
+  /**
+   * Uploads a file through a OneDrive upload session, returning the ID of the created item.
+   *
+   * <p>The session is kept in the job store under the file's idempotent ID. If an earlier attempt
+   * left one behind, the upload resumes where OneDrive says the session stopped, so a retry only
+   * reads and sends the rest of the file.
+   */
   private String importDownloadableItem(
       DownloadableFile item, UUID jobId, IdempotentImportExecutor idempotentImportExecutor)
       throws Exception {
-    final long totalFileSize = discardForLength(jobFileStream.streamFile(item, jobId, jobStore));
-    if (totalFileSize <= 0) {
-      throw new IOException(
-          String.format(
-              "jobid %s hit empty unexpectedly empty (bytes=%d) download for file %s",
-              jobId, totalFileSize, item.getFetchableUrl()));
+    final String uploadSessionKey = UPLOAD_SESSION_KEY_PREFIX + item.getIdempotentId();
+    final MicrosoftUploadSession previousSession =
+        jobStore.findData(jobId, uploadSessionKey, MicrosoftUploadSession.class);
+    final OptionalLong resumeOffset =
+        previousSession == null ? OptionalLong.empty() : findResumeOffset(previousSession);
+
+    final MicrosoftUploadSession uploadSession;
+    final long startOffset;
+    if (resumeOffset.isPresent()) {
+      uploadSession = previousSession;
+      startOffset = resumeOffset.getAsLong();
+      monitor.info(
+          () ->
+              String.format(
+                  "jobid %s resuming upload of file %s at byte %d of %d",
+                  jobId, item.getIdempotentId(), startOffset, uploadSession.getTotalFileSize()));
+    } else {
+      final long totalFileSize = discardForLength(jobFileStream.streamFile(item, jobId, jobStore));
+      if (totalFileSize <= 0) {
+        throw new IOException(
+            String.format(
+                "jobid %s hit empty unexpectedly empty (bytes=%d) download for file %s",
+                jobId, totalFileSize, item.getFetchableUrl()));
+      }
+      uploadSession =
+          new MicrosoftUploadSession(
+              createUploadSession(item, idempotentImportExecutor), totalFileSize);
+      startOffset = 0;
+      if (previousSession == null) {
+        jobStore.create(jobId, uploadSessionKey, uploadSession);
+      } else {
+        jobStore.update(jobId, uploadSessionKey, uploadSession);
+      }
     }
-    try (InputStream fileStream = jobFileStream.streamFile(item, jobId, jobStore)) {
-      String itemUploadUrl = createUploadSession(item, idempotentImportExecutor);
 
+    final String itemId;
+    try (InputStream fileStream = jobFileStream.streamFile(item, jobId, jobStore, startOffset)) {
       MicrosoftApiResponse finalChunkResponse =
-          uploadStreamInChunks(totalFileSize, itemUploadUrl, item.getMimeType(), fileStream);
+          uploadStreamInChunks(
+              uploadSession.getTotalFileSize(),
+              uploadSession.getUploadUrl(),
+              item.getMimeType(),
+              fileStream,
+              startOffset);
       checkState(
           finalChunkResponse.isOkay(),
           "final chunk-upload response should have had an ID, but a non-OK response came back: %s",
           finalChunkResponse.toString());
 
       // get complete file response
-      return finalChunkResponse.getJsonValue(
-          objectMapper,
-          "id",
-          "final chunk-upload response should have had ID, but got empty HTTP response-body");
+      itemId =
+          finalChunkResponse.getJsonValue(
+              objectMapper,
+              "id",
+              "final chunk-upload response should have had ID, but got empty HTTP response-body");
+    } catch (CopyExceptionWithFailureReason | IllegalStateException e) {
+      // Retrying won't get the upload through, so its session is no use anymore.
+      removeUploadSession(jobId, uploadSessionKey);
+      throw e;
+    }
+    removeUploadSession(jobId, uploadSessionKey);
+    return itemId;
+  }
+
+  /**
+   * Forgets the upload session of a file once its upload is over, as the session's URL is
+   * pre-authenticated.
+   */
+  private void removeUploadSession(UUID jobId, String uploadSessionKey) {
+    try {
+      jobStore.removeData(jobId, uploadSessionKey);
+    } catch (RuntimeException e) {
+      monitor.info(
+          () ->
+              String.format(
+                  "jobid %s could not remove upload session %s", jobId, uploadSessionKey),
+          e);
     }
   }
 
   /**
    * Depletes input stream, uploading a chunk of the stream at a time, throwing a DTP exception
-   * along the way if any unrecoverable errors are encountered.
+   * along the way if any unrecoverable errors are encountered. The stream starts {@code
+   * streamByteOffset} bytes into the file.
    */
   private MicrosoftApiResponse uploadStreamInChunks(
-      long totalFileSize, String itemUploadUrl, String itemMimeType, InputStream inputStream)
+      long totalFileSize,
+      String itemUploadUrl,
+      String itemMimeType,
+      InputStream inputStream,
+      long streamByteOffset)
       throws IOException, DestinationMemoryFullException, PermissionDeniedException {
     MicrosoftApiResponse lastChunkResponse = null;
-    StreamChunker streamChunker = new StreamChunker(MICROSOFT_UPLOAD_CHUNK_BYTE_SIZE, inputStream);
-    Optional<DataChunk> currentChunk;
-    while (true) {
-      currentChunk = streamChunker.nextChunk();
-      if (currentChunk.isEmpty()) {
-        break;
+    try (StreamChunker streamChunker =
+        new StreamChunker(uploadBufferPool, inputStream, streamByteOffset)) {
+      Optional<DataChunk> currentChunk;
+      while (true) {
+        currentChunk = streamChunker.nextChunk();
+        if (currentChunk.isEmpty()) {
+          break;
+        }
+        lastChunkResponse =
+            uploadChunk(currentChunk.get(), itemUploadUrl, totalFileSize, itemMimeType);
+
+        // Log our progress before continuing to the next chunk.
+        final DataChunk lastChunksent = currentChunk.get();
+        final int httpStatus = lastChunkResponse.httpStatus();
+        monitor.info(
+            () ->
+                String.format(
+                    "Uploaded chunk range %d-%d (of total bytesize: %d) successfuly, HTTP status"
+                        + " %d",
+                    lastChunksent.streamByteOffset(),
+                    lastChunksent.finalByteOffset(),
+                    totalFileSize,
+                    httpStatus));
       }
-      lastChunkResponse =
-          uploadChunk(currentChunk.get(), itemUploadUrl, totalFileSize, itemMimeType);
+    }
+    return checkNotNull(
+        lastChunkResponse, "bug: empty-stream already checked for yet stream empty now?");
+  }
 
-      // Log our progress before continuing to the next chunk.
-      final DataChunk lastChunksent = currentChunk.get();
-      final int httpStatus = lastChunkResponse.httpStatus();
+  /**
+   * Asks OneDrive where to continue an upload session left behind by an earlier attempt, returning
+   * empty if the session can't be resumed, e.g. because it expired.
+   *
+   * <p>See also:
+   * https://learn.microsoft.com/en-us/graph/api/driveitem-createuploadsession?view=graph-rest-1.0#resuming-an-in-progress-upload
+   */
+  private OptionalLong findResumeOffset(MicrosoftUploadSession session) throws IOException {
+    MicrosoftApiResponse response =
+        sendMicrosoftRequest(new Request.Builder().url(session.getUploadUrl()).get());
+    if (!response.isOkay() || response.body().isEmpty()) {
       monitor.info(
           () ->
               String.format(
-                  "Uploaded chunk range %d-%d (of total bytesize: %d) successfuly, HTTP status %d",
-                  lastChunksent.streamByteOffset(),
-                  lastChunksent.finalByteOffset(),
-                  totalFileSize,
-                  httpStatus));
+                  "previous upload session can't be resumed, starting over: %s", response));
+      return OptionalLong.empty();
     }
-    return checkNotNull(
-        lastChunkResponse, "bug: empty-stream already checked for yet stream empty now?");
+
+    // Ranges look like "12345-" or "12345-67890"; we upload in order so only the first matters.
+    final long offset;
+    try {
+      JsonNode ranges = objectMapper.readTree(response.body().get()).path("nextExpectedRanges");
+      offset = Long.parseLong(ranges.path(0).asText().split("-", -1)[0]);
+    } catch (IOException | NumberFormatException e) {
+      monitor.info(() -> "previous upload session has no usable nextExpectedRanges", e);
+      return OptionalLong.empty();
+    }
+    return offset >= 0 && offset < session.getTotalFileSize()
+        ? OptionalLong.of(offset)
+        : OptionalLong.empty();
   }
 
   // Request an upload session to the OneDrive api so that we can upload chunks
@@ -350,10 +497,12 @@ public class MicrosoftMediaImporter
   }
 
   private Credential getOrCreateCredential(TokensAndUrlAuthData authData) {
-    if (this.credential == null) {
-      this.credential = this.credentialFactory.createCredential(authData);
+    synchronized (credentialLock) {
+      if (this.credential == null) {
+        this.credential = this.credentialFactory.createCredential(authData);
+      }
+      return this.credential;
     }
-    return this.credential;
   }
 
   /** Low-level API call used by other helpers: prefer {@link tryWithCreds} instead. */
@@ -380,14 +529,28 @@ public class MicrosoftMediaImporter
       throws IOException {
     MicrosoftApiResponse response = sendMicrosoftRequest(requestBuilder);
     if (response.isTokenRefreshRequired()) {
-      credentialFactory.refreshCredential(credential);
-      monitor.info(() -> "Refreshed Microsoft authorization token successfuly");
+      refreshCredential(requestBuilder.build().header("Authorization"));
       requestBuilder.header("Authorization", "Bearer " + credential.getAccessToken());
       response = sendMicrosoftRequest(requestBuilder);
     }
     return Pair.of(requestBuilder.build(), response);
   }
 
+  /**
+   * Refreshes the credential after Microsoft rejected the request sent with {@code
+   * rejectedAuthorization}, unless another import has already refreshed it since.
+   */
+  private void refreshCredential(@Nullable String rejectedAuthorization) throws IOException {
+    synchronized (credentialLock) {
+      if (rejectedAuthorization != null
+          && !rejectedAuthorization.equals("Bearer " + credential.getAccessToken())) {
+        return;
+      }
+      credentialFactory.refreshCredential(credential);
+      monitor.info(() -> "Refreshed Microsoft authorization token successfuly");
+    }
+  }
+
   /**
    * Try a request to Microsoft servers or fail with a critical DTP exception, after considering
    * standard token-refresh retry options.
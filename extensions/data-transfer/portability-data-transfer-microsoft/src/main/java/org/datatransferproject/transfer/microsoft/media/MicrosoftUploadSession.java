@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.transfer.microsoft.media;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import org.datatransferproject.types.common.models.DataModel;
+
+/**
+ * A OneDrive upload session created for a file, kept in the job's temporary data store under the
+ * file's idempotent ID so that a retried import can resume the upload rather than start over.
+ */
+@JsonTypeName("org.dataportability:MicrosoftUploadSession")
+public class MicrosoftUploadSession extends DataModel {
+  private final String uploadUrl;
+  private final long totalFileSize;
+
+  @JsonCreator
+  public MicrosoftUploadSession(
+      @JsonProperty("uploadUrl") String uploadUrl,
+      @JsonProperty("totalFileSize") long totalFileSize) {
+    this.uploadUrl = uploadUrl;
+    this.totalFileSize = totalFileSize;
+  }
+
+  public String getUploadUrl() {
+    return uploadUrl;
+  }
+
+  /** Size of the file being uploaded, which is part of every chunk's Content-Range. */
+  public long getTotalFileSize() {
+    return totalFileSize;
+  }
+}
@@ -43,6 +43,7 @@ import org.datatransferproject.spi.transfer.provider.Importer;
 import org.datatransferproject.spi.transfer.types.CopyExceptionWithFailureReason;
 import org.datatransferproject.spi.transfer.types.DestinationMemoryFullException;
 import org.datatransferproject.spi.transfer.types.PermissionDeniedException;
+import org.datatransferproject.transfer.microsoft.ChunkBufferPool;
 import org.datatransferproject.transfer.microsoft.DataChunk;
 import org.datatransferproject.transfer.microsoft.MicrosoftTransmogrificationConfig;
 import org.datatransferproject.transfer.microsoft.StreamChunker;
@@ -59,14 +60,13 @@ import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
 // class.
 public class MicrosoftPhotosImporter
     implements Importer<TokensAndUrlAuthData, PhotosContainerResource> {
-  private static final int MICROSOFT_UPLOAD_CHUNK_BYTE_SIZE = 32000 * 1024; // 32000KiB
-
   private final OkHttpClient client;
   private final ObjectMapper objectMapper;
   private final TemporaryPerJobDataStore jobStore;
   private final Monitor monitor;
   private final MicrosoftCredentialFactory credentialFactory;
   private final JobFileStream jobFileStream;
+  private final ChunkBufferPool uploadBufferPool;
   private final MicrosoftTransmogrificationConfig transmogrificationConfig =
       new MicrosoftTransmogrificationConfig();
   private Credential credential;
@@ -85,6 +85,26 @@ public class MicrosoftPhotosImporter
       Monitor monitor,
       MicrosoftCredentialFactory credentialFactory,
       JobFileStream jobFileStream) {
+    this(
+        baseUrl,
+        client,
+        objectMapper,
+        jobStore,
+        monitor,
+        credentialFactory,
+        jobFileStream,
+        new ChunkBufferPool(ChunkBufferPool.DEFAULT_CHUNK_SIZE_BYTES, 1));
+  }
+
+  public MicrosoftPhotosImporter(
+      String baseUrl,
+      OkHttpClient client,
+      ObjectMapper objectMapper,
+      TemporaryPerJobDataStore jobStore,
+      Monitor monitor,
+      MicrosoftCredentialFactory credentialFactory,
+      JobFileStream jobFileStream,
+      ChunkBufferPool uploadBufferPool) {
     createFolderUrl = baseUrl + "/v1.0/me/drive/special/photos/children";
     // first param is the folder id, second param is the file name
     // /me/drive/items/{parent-id}:/{filename}:/content;
@@ -99,6 +119,7 @@ public class MicrosoftPhotosImporter
     this.credentialFactory = credentialFactory;
     this.credential = null;
     this.jobFileStream = jobFileStream;
+    this.uploadBufferPool = uploadBufferPool;
   }
 
   @Override
@@ -228,12 +249,14 @@ public class MicrosoftPhotosImporter
       long totalFileSize, String itemUploadUrl, String itemMimeType, InputStream inputStream)
       throws IOException, DestinationMemoryFullException {
     Response lastChunkResponse = null;
-    StreamChunker streamChunker = new StreamChunker(MICROSOFT_UPLOAD_CHUNK_BYTE_SIZE, inputStream);
-    Optional<DataChunk> nextChunk;
-    while (true) {
-      nextChunk = streamChunker.nextChunk();
-      if (!nextChunk.isPresent()) break;
-      lastChunkResponse = uploadChunk(nextChunk.get(), itemUploadUrl, totalFileSize, itemMimeType);
+    try (StreamChunker streamChunker = new StreamChunker(uploadBufferPool, inputStream)) {
+      Optional<DataChunk> nextChunk;
+      while (true) {
+        nextChunk = streamChunker.nextChunk();
+        if (!nextChunk.isPresent()) break;
+        lastChunkResponse =
+            uploadChunk(nextChunk.get(), itemUploadUrl, totalFileSize, itemMimeType);
+      }
     }
     return lastChunkResponse;
   }
@@ -5,6 +5,7 @@ import static com.google.common.truth.Truth.assertThat;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Optional;
+import org.datatransferproject.transfer.microsoft.ChunkBufferPool;
 import org.datatransferproject.transfer.microsoft.DataChunk;
 import org.datatransferproject.transfer.microsoft.StreamChunker;
 import org.junit.jupiter.api.Test;
@@ -89,4 +90,39 @@ public class StreamChunkerTest {
 
     assertThat(streamChunker.nextChunk().isEmpty()).isTrue();
   }
+
+  @Test
+  public void testChunksShareOneBufferReturnedToPoolOnClose() throws IOException {
+    ChunkBufferPool pool = new ChunkBufferPool(10, 1);
+    byte[] buffer;
+    try (StreamChunker streamChunker =
+        new StreamChunker(pool, new ByteArrayInputStream(new byte[15]))) {
+      DataChunk first = streamChunker.nextChunk().get();
+      buffer = first.chunk();
+      assertThat(first.size()).isEqualTo(10);
+
+      DataChunk second = streamChunker.nextChunk().get();
+      assertThat(second.chunk()).isSameAs(buffer);
+      assertThat(second.size()).isEqualTo(5);
+      assertThat(second.streamByteOffset()).isEqualTo(10);
+      assertThat(second.finalByteOffset()).isEqualTo(14);
+    }
+
+    assertThat(pool.acquire()).isSameAs(buffer);
+    assertThat(pool.acquire()).isNotSameAs(buffer);
+  }
+
+  @Test
+  public void testPoolKeepsAtMostMaxPooledBuffers() {
+    ChunkBufferPool pool = new ChunkBufferPool(10, 1);
+    byte[] first = pool.acquire();
+    byte[] second = pool.acquire();
+    assertThat(first.length).isEqualTo(10);
+
+    pool.release(first);
+    pool.release(second);
+
+    assertThat(pool.acquire()).isSameAs(first);
+    assertThat(pool.acquire()).isNotSameAs(second);
+  }
 }
@@ -22,10 +22,12 @@ import static okhttp3.Protocol.HTTP_2;
 import static org.datatransferproject.transfer.microsoft.MicrosoftApiResponse.CAUSE_PREFIX_UNRECOGNIZED_EXCEPTION;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -37,6 +39,7 @@ import com.google.api.client.auth.oauth2.Credential;
 import com.google.common.collect.ImmutableList;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.channels.Channels;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
@@ -344,6 +347,63 @@ public class MicrosoftMediaImporterTest {
     assertThat(result).isEqualTo(ImportResult.OK);
   }
 
+  @Test
+  public void testImportItemResumesPreviousUploadSession() throws Exception {
+    PhotoModel photo =
+        new PhotoModel(
+            "Pic1",
+            "http://fake.com/1.jpg",
+            "A pic",
+            "image/jpg",
+            "p1", // dataId
+            null, // albumdId
+            true /*isInTempStore*/);
+    byte[] contents = new byte[2 * CHUNK_SIZE];
+    when(jobStore.getChannel(uuid, photo.getFetchableUrl()))
+        .thenReturn(Channels.newChannel(new ByteArrayInputStream(contents)));
+    when(jobStore.findData(eq(uuid), any(), eq(MicrosoftUploadSession.class)))
+        .thenReturn(new MicrosoftUploadSession("https://scalia.com/link", contents.length));
+    MediaContainerResource data =
+        new MediaContainerResource(ImmutableList.of(), ImmutableList.of(photo), null /*videos*/);
+
+    Call statusCall = mock(Call.class);
+    doReturn(statusCall)
+        .when(client)
+        .newCall(
+            argThat(
+                (Request r) ->
+                    r.url().toString().contains("scalia.com/link") && r.method().equals("GET")));
+    String sessionStatus = String.format("{\"nextExpectedRanges\": [\"%d-\"]}", CHUNK_SIZE);
+    when(statusCall.execute()).thenReturn(fakeResponse(200, "OK", sessionStatus).build());
+
+    Call uploadCall = mock(Call.class);
+    doReturn(uploadCall)
+        .when(client)
+        .newCall(
+            argThat(
+                (Request r) ->
+                    r.url().toString().contains("scalia.com/link") && r.method().equals("PUT")));
+    when(uploadCall.execute()).thenReturn(fakeResponse(200, "OK", "{\"id\": \"rand1\"}").build());
+
+    ImportResult result = importer.importItem(uuid, executor, authData, data);
+
+    assertThat(result).isEqualTo(ImportResult.OK);
+    assertThat(executor.getErrors()).isEmpty();
+    verify(client, never())
+        .newCall(argThat((Request r) -> r.url().toString().contains("createUploadSession")));
+    verify(jobStore).removeData(eq(uuid), any());
+    verify(client, times(1))
+        .newCall(
+            argThat(
+                (Request r) ->
+                    r.method().equals("PUT")
+                        && r.header("Content-Range")
+                            .equals(
+                                String.format(
+                                    "bytes %d-%d/%d",
+                                    CHUNK_SIZE, 2 * CHUNK_SIZE - 1, 2 * CHUNK_SIZE))));
+  }
+
   private static Response.Builder fakeErrorResponse(
       int statusCode, String httpMessage, String jsonErrorValue) {
     return fakeResponse(statusCode, httpMessage, String.format("{ \"error\": %s ", jsonErrorValue));
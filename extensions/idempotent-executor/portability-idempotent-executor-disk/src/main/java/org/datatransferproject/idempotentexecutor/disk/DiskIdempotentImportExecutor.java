@@ -0,0 +1,324 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.idempotentexecutor.disk;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.types.transfer.errors.ErrorDetail;
+import org.datatransferproject.types.transfer.retry.RetryException;
+import org.datatransferproject.types.transfer.retry.RetryStrategyLibrary;
+import org.datatransferproject.types.transfer.retry.RetryingCallable;
+
+/**
+ * A {@link IdempotentImportExecutor} that keeps known values in a {@link DiskKeyValueStore}, so
+ * that its heap usage doesn't grow with the number of imported items. The most recently used
+ * values are additionally kept on heap, up to {@code hotSetSize} of them.
+ *
+ * <p>Like the in-memory executors, the known values only live as long as the job on this worker;
+ * they aren't shared with a worker that resumes the job. The store is removed once the job ends or
+ * the executor moves on to another job. Errors are kept on heap.
+ *
+ * <p>Concurrent calls for the same idempotent id execute it only once: later callers wait for the
+ * first one and share its outcome.
+ *
+ * <p>If a {@link RetryStrategyLibrary} is given, calls are retried following it, and items which
+ * fail with a skippable error aren't cached, as in {@code RetryingInMemoryIdempotentImportExecutor}.
+ */
+public class DiskIdempotentImportExecutor implements IdempotentImportExecutor {
+
+  private final Map<String, ErrorDetail> errors = new ConcurrentHashMap<>();
+  private final Map<String, ErrorDetail> recentErrors = new ConcurrentHashMap<>();
+  private final Monitor monitor;
+  private final Path baseDirectory;
+  private final Map<String, Serializable> hotSet;
+  // Executions in progress, by idempotent id
+  private final Map<String, CompletableFuture<Serializable>> inFlight = new ConcurrentHashMap<>();
+  @Nullable private final RetryStrategyLibrary retryStrategyLibrary;
+  private volatile UUID jobId;
+  private DiskKeyValueStore store;
+
+  public DiskIdempotentImportExecutor(
+      Monitor monitor,
+      Path baseDirectory,
+      int hotSetSize,
+      @Nullable RetryStrategyLibrary retryStrategyLibrary) {
+    checkArgument(hotSetSize >= 0, "Hot set size must not be negative: %s", hotSetSize);
+    this.monitor = monitor;
+    this.baseDirectory = baseDirectory;
+    this.retryStrategyLibrary = retryStrategyLibrary;
+    this.hotSet =
+        new LinkedHashMap<String, Serializable>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Serializable> eldest) {
+            return size() > hotSetSize;
+          }
+        };
+  }
+
+  @Override
+  public <T extends Serializable> T executeAndSwallowIOExceptions(
+      String idempotentId, String itemName, Callable<T> callable) throws Exception {
+    try {
+      return executeOrThrowException(idempotentId, itemName, callable);
+    } catch (IOException e) {
+      // Note all errors are logged in executeOrThrowException so no need to re-log them here.
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T extends Serializable> T executeOrThrowException(
+      String idempotentId, String itemName, Callable<T> callable) throws Exception {
+    String jobIdPrefix = "Job " + jobId + ": ";
+
+    if (isKeyCached(idempotentId)) {
+      monitor.debug(
+          () ->
+              jobIdPrefix
+                  + format("Using cached key %s from cache for %s", idempotentId, itemName));
+      return getCachedValue(idempotentId);
+    }
+    CompletableFuture<Serializable> execution = new CompletableFuture<>();
+    CompletableFuture<Serializable> running = inFlight.putIfAbsent(idempotentId, execution);
+    if (running != null) {
+      monitor.debug(
+          () ->
+              jobIdPrefix
+                  + format("Waiting for running execution of %s for %s", idempotentId, itemName));
+      return (T) awaitOutcome(running);
+    }
+    try {
+      // The key may have been stored after the check above, by an execution that has since ended.
+      T result =
+          isKeyCached(idempotentId)
+              ? getCachedValue(idempotentId)
+              : execute(idempotentId, itemName, callable, jobIdPrefix);
+      execution.complete(result);
+      return result;
+    } catch (Throwable t) {
+      execution.completeExceptionally(t);
+      throw t;
+    } finally {
+      inFlight.remove(idempotentId, execution);
+    }
+  }
+
+  private <T extends Serializable> T execute(
+      String idempotentId, String itemName, Callable<T> callable, String jobIdPrefix)
+      throws Exception {
+    T result;
+    if (retryStrategyLibrary == null) {
+      try {
+        result = callable.call();
+      } catch (Exception e) {
+        ErrorDetail errorDetail = recordError(idempotentId, itemName, e, false);
+        monitor.severe(() -> jobIdPrefix + "Problem with importing item: " + errorDetail);
+        throw e;
+      }
+    } else {
+      try {
+        result =
+            new RetryingCallable<>(callable, retryStrategyLibrary, Clock.systemUTC(), monitor)
+                .call();
+      } catch (RetryException e) {
+        ErrorDetail errorDetail = recordError(idempotentId, itemName, e, e.canSkip());
+        if (e.canSkip()) {
+          monitor.severe(
+              () -> jobIdPrefix + "Problem with importing item, but skipping: " + errorDetail);
+          // Skipped items are not cached, so they are tried again if executed again.
+          return null;
+        }
+        monitor.severe(
+            () -> jobIdPrefix + "Problem with importing item, cannot be skipped: " + errorDetail);
+        // In RetryingCallable.call(), we wrap the exception in a RetryException.
+        // We throw e.getCause() to get the original exception.
+        throw e.getCause();
+      }
+    }
+    monitor.debug(
+        () -> jobIdPrefix + format("Storing key %s in cache for %s", idempotentId, itemName));
+    store(idempotentId, result);
+    errors.remove(idempotentId);
+    return result;
+  }
+
+  private static Serializable awaitOutcome(CompletableFuture<Serializable> execution)
+      throws Exception {
+    try {
+      return execution.get();
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), Exception.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public synchronized <T extends Serializable> T getCachedValue(String idempotentId) {
+    if (hotSet.containsKey(idempotentId)) {
+      return (T) hotSet.get(idempotentId);
+    }
+    byte[] bytes;
+    try {
+      bytes = store().get(idempotentId);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (bytes == null) {
+      throw new IllegalArgumentException(
+          format("Key %s not found, there are %d known keys", idempotentId, store.size()));
+    }
+    T value = (T) deserialize(bytes);
+    hotSet.put(idempotentId, value);
+    return value;
+  }
+
+  @Override
+  public synchronized boolean isKeyCached(String idempotentId) {
+    if (hotSet.containsKey(idempotentId)) {
+      return true;
+    }
+    try {
+      return store().contains(idempotentId);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
+  @Override
+  public Collection<ErrorDetail> getErrors() {
+    return ImmutableList.copyOf(errors.values());
+  }
+
+  @Override
+  public synchronized void setJobId(UUID jobId) {
+    if (this.jobId != null && !this.jobId.equals(jobId)) {
+      closeStore();
+      hotSet.clear();
+      errors.clear();
+      recentErrors.clear();
+    }
+    this.jobId = jobId;
+  }
+
+  @Override
+  public synchronized void finishJob(UUID jobId) {
+    if (jobId.equals(this.jobId)) {
+      closeStore();
+      hotSet.clear();
+    }
+  }
+
+  @Override
+  public Collection<ErrorDetail> getRecentErrors() {
+    return ImmutableList.copyOf(recentErrors.values());
+  }
+
+  @Override
+  public void resetRecentErrors() {
+    recentErrors.clear();
+  }
+
+  private synchronized void store(String idempotentId, Serializable value) throws IOException {
+    store().put(idempotentId, serialize(value));
+    hotSet.put(idempotentId, value);
+  }
+
+  /** Opens the store on first use, so that idle executors don't create any files. */
+  private DiskKeyValueStore store() throws IOException {
+    if (store == null) {
+      Files.createDirectories(baseDirectory);
+      store = new DiskKeyValueStore(Files.createTempDirectory(baseDirectory, "idempotent-"));
+    }
+    return store;
+  }
+
+  private void closeStore() {
+    if (store == null) {
+      return;
+    }
+    try {
+      store.close();
+    } catch (IOException e) {
+      monitor.info(() -> "Job " + jobId + ": Couldn't remove idempotent store", e);
+    }
+    store = null;
+  }
+
+  private ErrorDetail recordError(
+      String idempotentId, String itemName, Exception e, boolean canSkip) {
+    ErrorDetail errorDetail =
+        ErrorDetail.builder()
+            .setId(idempotentId)
+            .setTitle(itemName)
+            .setException(Throwables.getStackTraceAsString(e))
+            .setCanSkip(canSkip)
+            .build();
+    errors.put(idempotentId, errorDetail);
+    recentErrors.put(idempotentId, errorDetail);
+    return errorDetail;
+  }
+
+  private static byte[] serialize(@Nullable Serializable value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(value);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Serializable deserialize(byte[] bytes) {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return (Serializable) in.readObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Couldn't read cached value", e);
+    }
+  }
+}
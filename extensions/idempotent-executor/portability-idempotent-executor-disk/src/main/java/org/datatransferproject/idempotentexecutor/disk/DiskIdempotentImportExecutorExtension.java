@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.idempotentexecutor.disk;
+
+import java.nio.file.Paths;
+import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutorExtension;
+import org.datatransferproject.types.transfer.retry.RetryStrategyLibrary;
+
+/**
+ * Provides {@link DiskIdempotentImportExecutor}s, for workers whose jobs import more items than
+ * the in-memory executors can hold on heap.
+ *
+ * <p>The store lives under the {@code idempotentStoreDirectory} setting, which defaults to the
+ * system temp directory, and {@code idempotentHotSetSize} values are kept on heap.
+ */
+public class DiskIdempotentImportExecutorExtension implements IdempotentImportExecutorExtension {
+
+  private IdempotentImportExecutor idempotentImportExecutor;
+  private IdempotentImportExecutor retryingIdempotentImportExecutor;
+
+  @Override
+  public synchronized IdempotentImportExecutor getIdempotentImportExecutor(
+      ExtensionContext extensionContext) {
+    if (idempotentImportExecutor == null) {
+      idempotentImportExecutor = getJobScopedIdempotentImportExecutor(extensionContext);
+    }
+    return idempotentImportExecutor;
+  }
+
+  @Override
+  public synchronized IdempotentImportExecutor getRetryingIdempotentImportExecutor(
+      ExtensionContext extensionContext) {
+    if (retryingIdempotentImportExecutor == null) {
+      retryingIdempotentImportExecutor =
+          getJobScopedRetryingIdempotentImportExecutor(extensionContext);
+    }
+    return retryingIdempotentImportExecutor;
+  }
+
+  @Override
+  public IdempotentImportExecutor getJobScopedIdempotentImportExecutor(
+      ExtensionContext extensionContext) {
+    return newExecutor(extensionContext, null);
+  }
+
+  @Override
+  public IdempotentImportExecutor getJobScopedRetryingIdempotentImportExecutor(
+      ExtensionContext extensionContext) {
+    return newExecutor(extensionContext, extensionContext.getSetting("retryLibrary", null));
+  }
+
+  @Override
+  public void initialize() {
+  }
+
+  private static IdempotentImportExecutor newExecutor(
+      ExtensionContext extensionContext, RetryStrategyLibrary retryStrategyLibrary) {
+    String directory =
+        extensionContext.getSetting(
+            "idempotentStoreDirectory", System.getProperty("java.io.tmpdir"));
+    int hotSetSize = extensionContext.getSetting("idempotentHotSetSize", 10_000);
+    return new DiskIdempotentImportExecutor(
+        extensionContext.getMonitor(), Paths.get(directory), hotSetSize, retryStrategyLibrary);
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.idempotentexecutor.disk;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * A string to bytes map kept in files, so that its size doesn't count against the Java heap.
+ *
+ * <p>Entries are appended to a data file as {@code [key length][value length][key][value]}
+ * records. A memory-mapped open-addressing hash table maps the 64 bit hash of each key to the offset
+ * of its latest record; keys are compared against the record on lookup, so hash collisions are
+ * harmless. The table doubles before it gets more than {@link #MAX_LOAD_FACTOR} full.
+ *
+ * <p>Overwritten records aren't reclaimed, which is fine for idempotent results since each key is
+ * normally written once. The store isn't durable: it only lives as long as this instance, and its
+ * files are removed on {@link #close()}.
+ */
+final class DiskKeyValueStore implements Closeable {
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+  private static final long EMPTY_SLOT = 0;
+  private static final int SLOT_BYTES = 2 * Long.BYTES;
+  private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+  private static final int INITIAL_CAPACITY = 1 << 16;
+  // The largest power of two whose table still fits in a single mapping.
+  private static final int MAX_CAPACITY = 1 << 26;
+  private static final double MAX_LOAD_FACTOR = 0.7;
+
+  private final Path directory;
+  private final FileChannel data;
+  private long dataSize;
+
+  private Path indexFile;
+  private MappedByteBuffer index;
+  private int capacity;
+  private int indexGeneration;
+  private int size;
+
+  DiskKeyValueStore(Path directory) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.data =
+        FileChannel.open(
+            directory.resolve("data"),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    directory.toFile().deleteOnExit();
+    directory.resolve("data").toFile().deleteOnExit();
+    this.capacity = INITIAL_CAPACITY;
+    this.indexFile = newIndexFile();
+    this.index = map(indexFile, capacity);
+  }
+
+  /** Returns the value stored for {@code key}, or null if there is none. */
+  @Nullable
+  synchronized byte[] get(String key) throws IOException {
+    byte[] keyBytes = key.getBytes(UTF_8);
+    long hash = hash(keyBytes);
+    for (int slot = firstSlot(hash, capacity); ; slot = nextSlot(slot, capacity)) {
+      long slotHash = index.getLong(slot * SLOT_BYTES);
+      if (slotHash == EMPTY_SLOT) {
+        return null;
+      }
+      if (slotHash == hash) {
+        long offset = index.getLong(slot * SLOT_BYTES + Long.BYTES);
+        byte[] value = readValueIfKeyMatches(offset, keyBytes);
+        if (value != null) {
+          return value;
+        }
+      }
+    }
+  }
+
+  synchronized boolean contains(String key) throws IOException {
+    return get(key) != null;
+  }
+
+  /** Stores {@code value} for {@code key}, replacing any previous value. */
+  synchronized void put(String key, byte[] value) throws IOException {
+    byte[] keyBytes = key.getBytes(UTF_8);
+    long hash = hash(keyBytes);
+    if (size + 1 > capacity * MAX_LOAD_FACTOR) {
+      grow();
+    }
+    long offset = append(keyBytes, value);
+    for (int slot = firstSlot(hash, capacity); ; slot = nextSlot(slot, capacity)) {
+      int position = slot * SLOT_BYTES;
+      long slotHash = index.getLong(position);
+      if (slotHash == EMPTY_SLOT) {
+        index.putLong(position, hash);
+        index.putLong(position + Long.BYTES, offset);
+        size++;
+        return;
+      }
+      if (slotHash == hash
+          && readValueIfKeyMatches(index.getLong(position + Long.BYTES), keyBytes) != null) {
+        index.putLong(position + Long.BYTES, offset);
+        return;
+      }
+    }
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    data.close();
+    Files.deleteIfExists(directory.resolve("data"));
+    Files.deleteIfExists(indexFile);
+    Files.deleteIfExists(directory);
+  }
+
+  private long append(byte[] keyBytes, byte[] value) throws IOException {
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + keyBytes.length + value.length);
+    record.putInt(keyBytes.length).putInt(value.length).put(keyBytes).put(value).flip();
+    long offset = dataSize;
+    long position = offset;
+    while (record.hasRemaining()) {
+      position += data.write(record, position);
+    }
+    dataSize = position;
+    return offset;
+  }
+
+  @Nullable
+  private byte[] readValueIfKeyMatches(long offset, byte[] keyBytes) throws IOException {
+    ByteBuffer header = read(offset, RECORD_HEADER_BYTES);
+    int keyLength = header.getInt();
+    int valueLength = header.getInt();
+    if (keyLength != keyBytes.length) {
+      return null;
+    }
+    ByteBuffer keyAndValue = read(offset + RECORD_HEADER_BYTES, keyLength + valueLength);
+    byte[] storedKey = new byte[keyLength];
+    keyAndValue.get(storedKey);
+    if (!Arrays.equals(storedKey, keyBytes)) {
+      return null;
+    }
+    byte[] value = new byte[valueLength];
+    keyAndValue.get(value);
+    return value;
+  }
+
+  private ByteBuffer read(long offset, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    long position = offset;
+    while (buffer.hasRemaining()) {
+      int read = data.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("Truncated record at offset " + offset + " in " + directory);
+      }
+      position += read;
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private void grow() throws IOException {
+    if (capacity >= MAX_CAPACITY) {
+      throw new IOException(
+          "Idempotent key store in " + directory + " is full with " + size + " keys");
+    }
+    int newCapacity = capacity * 2;
+    Path newIndexFile = newIndexFile();
+    MappedByteBuffer newIndex = map(newIndexFile, newCapacity);
+    for (int slot = 0; slot < capacity; slot++) {
+      long hash = index.getLong(slot * SLOT_BYTES);
+      if (hash == EMPTY_SLOT) {
+        continue;
+      }
+      int newSlot = firstSlot(hash, newCapacity);
+      while (newIndex.getLong(newSlot * SLOT_BYTES) != EMPTY_SLOT) {
+        newSlot = nextSlot(newSlot, newCapacity);
+      }
+      long offset = index.getLong(slot * SLOT_BYTES + Long.BYTES);
+      newIndex.putLong(newSlot * SLOT_BYTES, hash);
+      newIndex.putLong(newSlot * SLOT_BYTES + Long.BYTES, offset);
+    }
+    // The old mapping stays valid until it is garbage collected, even once its file is gone.
+    Files.deleteIfExists(indexFile);
+    indexFile = newIndexFile;
+    index = newIndex;
+    capacity = newCapacity;
+  }
+
+  private Path newIndexFile() {
+    Path file = directory.resolve("index-" + indexGeneration++);
+    file.toFile().deleteOnExit();
+    return file;
+  }
+
+  private static MappedByteBuffer map(Path file, int capacity) throws IOException {
+    // A freshly mapped file reads as zeros, i.e. all slots start out empty.
+    try (FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      return channel.map(MapMode.READ_WRITE, 0, (long) capacity * SLOT_BYTES);
+    }
+  }
+
+  private static long hash(byte[] keyBytes) {
+    long hash = HASH_FUNCTION.hashBytes(keyBytes).asLong();
+    return hash == EMPTY_SLOT ? 1 : hash;
+  }
+
+  private static int firstSlot(long hash, int capacity) {
+    return Long.hashCode(hash) & (capacity - 1);
+  }
+
+  private static int nextSlot(int slot, int capacity) {
+    return (slot + 1) & (capacity - 1);
+  }
+}
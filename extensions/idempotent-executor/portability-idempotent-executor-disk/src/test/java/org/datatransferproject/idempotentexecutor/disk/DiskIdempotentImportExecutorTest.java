@@ -0,0 +1,180 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.idempotentexecutor.disk;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.datatransferproject.api.launcher.Monitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DiskIdempotentImportExecutorTest {
+
+  @TempDir public Path folder;
+
+  private DiskIdempotentImportExecutor executor;
+  private UUID jobId;
+
+  @BeforeEach
+  public void setUp() {
+    executor = new DiskIdempotentImportExecutor(new Monitor() {}, folder, 2, null);
+    jobId = UUID.randomUUID();
+    executor.setJobId(jobId);
+  }
+
+  @Test
+  public void valuesEvictedFromHotSetAreReadFromDisk() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      String value = "value" + i;
+      executor.executeOrThrowException("id" + i, "item" + i, () -> value);
+    }
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(executor.isKeyCached("id" + i)).isTrue();
+      assertThat(executor.<String>getCachedValue("id" + i)).isEqualTo("value" + i);
+    }
+    assertThat(executor.isKeyCached("id10")).isFalse();
+  }
+
+  @Test
+  public void cachedValuesAreNotRecomputed() throws Exception {
+    executor.executeOrThrowException("id", "item", () -> "first");
+
+    assertThat(executor.executeOrThrowException("id", "item", () -> "second"))
+        .isEqualTo("first");
+  }
+
+  @Test
+  public void nullResultsAreCached() throws Exception {
+    executor.executeOrThrowException("id", "item", () -> null);
+
+    assertThat(executor.isKeyCached("id")).isTrue();
+    assertThat(executor.<String>getCachedValue("id")).isNull();
+  }
+
+  @Test
+  public void storeGrowsPastItsInitialCapacity() throws Exception {
+    int items = 100_000;
+    for (int i = 0; i < items; i++) {
+      int value = i;
+      executor.executeOrThrowException("id" + i, "item" + i, () -> value);
+    }
+
+    for (int i = 0; i < items; i += 997) {
+      assertThat(executor.<Integer>getCachedValue("id" + i)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void failuresAreRecordedAndNotCached() throws Exception {
+    assertThat(
+            executor.executeAndSwallowIOExceptions(
+                "id",
+                "item",
+                () -> {
+                  throw new IOException("failed");
+                }))
+        .isNull();
+
+    assertThat(executor.isKeyCached("id")).isFalse();
+    assertThat(executor.getErrors()).hasSize(1);
+    assertThrows(IllegalArgumentException.class, () -> executor.getCachedValue("id"));
+
+    executor.executeOrThrowException("id", "item", () -> "retried");
+    assertThat(executor.getErrors()).isEmpty();
+  }
+
+  @Test
+  public void concurrentExecutionsOfSameIdRunOnce() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> first =
+          threads.submit(
+              () ->
+                  executor.executeOrThrowException(
+                      "id",
+                      "item",
+                      () -> {
+                        calls.incrementAndGet();
+                        started.countDown();
+                        release.await();
+                        return "first";
+                      }));
+      started.await();
+      Future<String> second =
+          threads.submit(
+              () ->
+                  executor.executeOrThrowException(
+                      "id",
+                      "item",
+                      () -> {
+                        calls.incrementAndGet();
+                        return "second";
+                      }));
+      release.countDown();
+
+      assertThat(first.get()).isEqualTo("first");
+      assertThat(second.get()).isEqualTo("first");
+      assertThat(calls.get()).isEqualTo(1);
+    } finally {
+      threads.shutdownNow();
+    }
+  }
+
+  @Test
+  public void storeIsRemovedWhenJobFinishes() throws Exception {
+    executor.executeOrThrowException("id", "item", () -> "value");
+    assertThat(listFolder()).isNotEmpty();
+
+    executor.finishJob(jobId);
+
+    assertThat(listFolder()).isEmpty();
+  }
+
+  @Test
+  public void storeIsRemovedWhenJobChanges() throws Exception {
+    executor.executeOrThrowException("id", "item", () -> "value");
+
+    executor.setJobId(UUID.randomUUID());
+
+    assertThat(listFolder()).isEmpty();
+    assertThat(executor.isKeyCached("id")).isFalse();
+  }
+
+  private List<Path> listFolder() throws IOException {
+    try (Stream<Path> files = Files.list(folder)) {
+      return files.collect(Collectors.toList());
+    }
+  }
+}
@@ -38,6 +38,9 @@ public class DelegatingExtensionContext implements ExtensionContext {
 
   @Override
   public Monitor getMonitor() {
+    if (overriddenRegisteredClasses.containsKey(Monitor.class)) {
+      return (Monitor) overriddenRegisteredClasses.get(Monitor.class);
+    }
     return baseExtensionContext.getMonitor();
   }
 
@@ -46,6 +46,12 @@ public interface DtpInternalMetricRecorder {
       String importService,
       Duration duration);
 
+  /**
+   * A transfer worker attempted to claim a job, which fails if another worker claimed it first.
+   **/
+  default void claimJobAttemptFinished(
+      DataVertical dataType, String exportService, String importService, boolean success) {}
+
   /** An single attempt to export a page of data finished. **/
   void exportPageAttemptFinished(
       DataVertical dataType,
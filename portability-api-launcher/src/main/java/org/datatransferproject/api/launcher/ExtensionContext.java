@@ -15,6 +15,9 @@
  */
 package org.datatransferproject.api.launcher;
 
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
 import org.datatransferproject.api.launcher.Constants.Environment;
 
 /** Provides information required to bootstrap extensions. */
@@ -57,6 +60,36 @@ public interface ExtensionContext {
    */
   <T> T getSetting(String setting, T defaultValue);
 
+  /**
+   * Returns the configuration value for a duration setting, or the default value if not found.
+   * Values are either a number of milliseconds or an ISO-8601 duration, such as {@code PT2M}.
+   *
+   * @param setting the parameter key
+   * @param defaultValue the default value
+   * @throws IllegalArgumentException if the value isn't a duration
+   */
+  default Duration getDurationSetting(String setting, Duration defaultValue) {
+    Object value = getSetting(setting, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    if (value instanceof Number) {
+      return Duration.ofMillis(((Number) value).longValue());
+    }
+    String text = value.toString().trim();
+    try {
+      return Duration.ofMillis(Long.parseLong(text));
+    } catch (NumberFormatException e) {
+      // Not a number of milliseconds, so it has to be an ISO-8601 duration.
+    }
+    try {
+      return Duration.parse(text);
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException(
+          "Setting '" + setting + "' is not a duration: " + text, e);
+    }
+  }
+
   // Required settings
   @Flag
   String cloud();
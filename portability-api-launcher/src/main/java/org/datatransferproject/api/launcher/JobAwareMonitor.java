@@ -6,4 +6,13 @@ public interface JobAwareMonitor extends Monitor {
    * Sets the jobId for the monitor, this will be included with all log messages.
    */
   void setJobId(String jobId);
+
+  /**
+   * Returns a monitor that logs to the same destinations as this one but has no jobId yet, for a
+   * worker that runs several jobs at once to give each job its own. Monitors whose jobId can be
+   * set more than once may return themselves.
+   */
+  default JobAwareMonitor newJobMonitor() {
+    return this;
+  }
 }
@@ -56,6 +56,16 @@ public class LoggingDtpInternalMetricRecorder implements DtpInternalMetricRecord
                 dataType, exportService, importService));
   }
 
+  @Override
+  public void claimJobAttemptFinished(
+      DataVertical dataType, String exportService, String importService, boolean success) {
+    monitor.debug(
+        () ->
+            format(
+                "Metric: claimJobAttemptFinished, data type: %s, from: %s, to: %s, success: %s",
+                dataType, exportService, importService, success));
+  }
+
   @Override
   public void exportPageAttemptFinished(
       DataVertical dataType,
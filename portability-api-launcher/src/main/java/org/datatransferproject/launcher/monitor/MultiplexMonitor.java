@@ -57,6 +57,18 @@ public class MultiplexMonitor implements JobAwareMonitor {
     }
   }
 
+  @Override
+  public JobAwareMonitor newJobMonitor() {
+    Monitor[] jobDelegates = new Monitor[delegates.length];
+    for (int i = 0; i < delegates.length; i++) {
+      jobDelegates[i] =
+          delegates[i] instanceof JobAwareMonitor
+              ? ((JobAwareMonitor) delegates[i]).newJobMonitor()
+              : delegates[i];
+    }
+    return new MultiplexMonitor(jobDelegates);
+  }
+
   @Override
   public void flushLogs() {
     for (Monitor delegate : delegates) {
@@ -14,6 +14,8 @@ public class EventCode {
   public static final EventCode WORKER_JOB_ERRORED = new EventCode("WORKER_JOB_ERRORED");
   public static final EventCode WORKER_JOB_FINISHED = new EventCode("WORKER_JOB_FINISHED");
   public static final EventCode WORKER_JOB_STARTED = new EventCode("WORKER_JOB_STARTED");
+  public static final EventCode WORKER_JOB_TAKEN_OVER = new EventCode("WORKER_JOB_TAKEN_OVER");
+  public static final EventCode WORKER_JOB_LEASE_LOST = new EventCode("WORKER_JOB_LEASE_LOST");
 
   public static final EventCode WATCHING_SERVICE_JOB_ERRORED = new EventCode("WATCHING_SERVICE_JOB_ERRORED");
   public static final EventCode WATCHING_SERVICE_JOB_PREEMPTED = new EventCode("WATCHING_SERVICE_JOB_PREEMPTED");
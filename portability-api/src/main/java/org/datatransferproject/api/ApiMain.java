@@ -35,6 +35,7 @@ import org.datatransferproject.security.SymmetricKeyGenerator;
 import org.datatransferproject.spi.api.auth.extension.AuthServiceExtension;
 import org.datatransferproject.spi.api.token.TokenManager;
 import org.datatransferproject.spi.api.transport.TransportBinder;
+import org.datatransferproject.spi.cloud.dispatch.JobDispatcher;
 import org.datatransferproject.spi.cloud.extension.CloudExtension;
 import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
 import org.datatransferproject.spi.cloud.storage.JobStore;
@@ -134,6 +135,7 @@ public class ApiMain {
     extensionContext.registerService(TemporaryPerJobDataStore.class, cloudExtension.getJobStore());
     extensionContext.registerService(
         AppCredentialStore.class, cloudExtension.getAppCredentialStore());
+    extensionContext.registerService(JobDispatcher.class, cloudExtension.getJobDispatcher());
 
     // TODO: Load up only "enabled" services
     List<AuthServiceExtension> authServiceExtensions = new ArrayList<>();
@@ -25,6 +25,7 @@ import org.datatransferproject.security.SymmetricKeyGenerator;
 import org.datatransferproject.spi.api.auth.AuthServiceProviderRegistry;
 import org.datatransferproject.spi.api.auth.extension.AuthServiceExtension;
 import org.datatransferproject.spi.api.token.TokenManager;
+import org.datatransferproject.spi.cloud.dispatch.JobDispatcher;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 
 import javax.net.ssl.KeyManagerFactory;
@@ -86,6 +87,7 @@ public class ApiServicesModule extends FlagBindingModule {
     bind(SymmetricKeyGenerator.class).toInstance(keyGenerator);
     bind(TypeManager.class).toInstance(typeManager);
     bind(JobStore.class).toInstance(jobStore);
+    bind(JobDispatcher.class).toInstance(context.getService(JobDispatcher.class));
     bind(TokenManager.class).toInstance(tokenManager);
 
     // Ensure a DtpInternalMetricRecorder exists
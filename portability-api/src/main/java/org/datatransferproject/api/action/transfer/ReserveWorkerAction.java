@@ -5,6 +5,7 @@ import com.google.inject.Inject;
 import org.datatransferproject.api.action.Action;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.launcher.monitor.events.EventCode;
+import org.datatransferproject.spi.cloud.dispatch.JobDispatcher;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.types.client.transfer.ReserveWorker;
 import org.datatransferproject.types.client.transfer.ReservedWorker;
@@ -19,11 +20,13 @@ import static org.datatransferproject.api.action.ActionUtils.decodeJobId;
 public class ReserveWorkerAction implements Action<ReserveWorker, ReservedWorker> {
 
   private final JobStore jobStore;
+  private final JobDispatcher jobDispatcher;
   private final Monitor monitor;
 
   @Inject
-  ReserveWorkerAction(JobStore jobStore, Monitor monitor) {
+  ReserveWorkerAction(JobStore jobStore, JobDispatcher jobDispatcher, Monitor monitor) {
     this.jobStore = jobStore;
+    this.jobDispatcher = jobDispatcher;
     this.monitor = monitor;
   }
 
@@ -38,6 +41,7 @@ public class ReserveWorkerAction implements Action<ReserveWorker, ReservedWorker
     Preconditions.checkNotNull(id, "transfer job ID required for ReserveWorkerAction");
     UUID jobId = decodeJobId(id);
     updateStateToCredsAvailable(jobId);
+    jobDispatcher.publishAvailableJob(jobId);
     // Instead of returning an empty string, return a ReservedWorker response with an empty public
     // key.
     // TODO(seehamrun): consider making this a ReserveWorkerResponse type that contains a status if
@@ -3,8 +3,12 @@ package org.datatransferproject.spi.api.transport;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.ByteStreams;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.util.UUID;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.types.common.DownloadableFile;
@@ -32,4 +36,38 @@ public class JobFileStream {
       return this.remoteFileStreamer.get(downloadableFile);
     }
   }
+
+  /**
+   * Streams a file starting {@code offset} bytes in, e.g. to resume an interrupted upload. Where
+   * the file's source supports it only the remainder of the file is read, otherwise the stream is
+   * skipped to the offset.
+   */
+  public InputStream streamFile(
+      DownloadableFile downloadableFile,
+      UUID jobId,
+      TemporaryPerJobDataStore jobStore,
+      long offset)
+      throws IOException {
+    if (offset == 0) {
+      return streamFile(downloadableFile, jobId, jobStore);
+    }
+    checkState(downloadableFile.getFetchableUrl() != null, "missing fetchable URL for file");
+    if (!downloadableFile.isInTempStore()) {
+      return this.remoteFileStreamer.get(downloadableFile, offset);
+    }
+
+    ReadableByteChannel channel = jobStore.getChannel(jobId, downloadableFile.getFetchableUrl());
+    if (channel instanceof SeekableByteChannel) {
+      ((SeekableByteChannel) channel).position(offset);
+      return Channels.newInputStream(channel);
+    }
+    InputStream inputStream = Channels.newInputStream(channel);
+    try {
+      ByteStreams.skipFully(inputStream, offset);
+    } catch (IOException e) {
+      inputStream.close();
+      throw e;
+    }
+    return inputStream;
+  }
 }
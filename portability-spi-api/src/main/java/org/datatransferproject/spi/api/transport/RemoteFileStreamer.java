@@ -1,5 +1,6 @@
 package org.datatransferproject.spi.api.transport;
 
+import com.google.common.io.ByteStreams;
 import java.io.IOException;
 import java.io.InputStream;
 import org.datatransferproject.types.common.DownloadableItem;
@@ -8,4 +9,20 @@ public interface RemoteFileStreamer {
   public InputStream get(String remoteUrl) throws IOException;
 
   public InputStream get(DownloadableItem downloadableItem) throws IOException;
+
+  /**
+   * Streams the item starting {@code offset} bytes in. By default the whole item is downloaded
+   * and the first {@code offset} bytes are discarded; implementations able to request a range
+   * should only download the remainder.
+   */
+  default InputStream get(DownloadableItem downloadableItem, long offset) throws IOException {
+    InputStream inputStream = get(downloadableItem);
+    try {
+      ByteStreams.skipFully(inputStream, offset);
+    } catch (IOException e) {
+      inputStream.close();
+      throw e;
+    }
+    return inputStream;
+  }
 }
@@ -2,13 +2,16 @@ package org.datatransferproject.spi.api.transport;
 
 import static com.google.common.base.Preconditions.checkState;
 
+import com.google.common.io.ByteStreams;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
 import org.datatransferproject.types.common.DownloadableItem;
 
 /** Implements a simple HTTP GET against a URL to stream the results. */
@@ -35,6 +38,41 @@ public class UrlGetStreamer implements RemoteFileStreamer {
     return get(downloadableItem.getFetchableUrl());
   }
 
+  /**
+   * Asks the server for just the bytes from {@code offset} on with a Range request, and skips to
+   * the offset itself if the server sends the whole file anyway.
+   */
+  @Override
+  public InputStream get(DownloadableItem downloadableItem, long offset) throws IOException {
+    if (offset == 0) {
+      return get(downloadableItem);
+    }
+    checkState(
+        downloadableItem.getFetchableUrl() != null,
+        "trying to download incomplete DownloadableItem: missing fetchable URL");
+    checkState(
+        !downloadableItem.isInTempStore(),
+        "trying to re-download an already stored item: \"%s\"",
+        downloadableItem.getFetchableUrl());
+
+    URLConnection connection = toUrl(downloadableItem.getFetchableUrl()).openConnection();
+    connection.setRequestProperty("Range", String.format("bytes=%d-", offset));
+    InputStream inputStream = new BufferedInputStream(connection.getInputStream());
+    boolean isPartial =
+        connection instanceof HttpURLConnection
+            && ((HttpURLConnection) connection).getResponseCode()
+                == HttpURLConnection.HTTP_PARTIAL;
+    if (!isPartial) {
+      try {
+        ByteStreams.skipFully(inputStream, offset);
+      } catch (IOException e) {
+        inputStream.close();
+        throw e;
+      }
+    }
+    return inputStream;
+  }
+
   /** Easily construct a {@link java.net.URL} while mapping to the exceptions DTP needs. */
   private static URL toUrl(String url) throws IOException {
     try {
@@ -3,13 +3,19 @@ package org.datatransferproject.spi.cloud.connection;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
 import org.datatransferproject.types.common.DownloadableItem;
 
 public class ConnectionProvider {
 
+  // Total length of the resource in a Content-Range response header, e.g. "bytes 0-0/1234".
+  private static final Pattern CONTENT_RANGE_TOTAL = Pattern.compile("^bytes \\d+-\\d+/(\\d+)$");
+
   private final TemporaryPerJobDataStore jobStore;
 
   public ConnectionProvider(TemporaryPerJobDataStore jobStore) {
@@ -29,6 +35,47 @@ public class ConnectionProvider {
         conn.getInputStream(), Math.max(conn.getContentLengthLong(), 0));
   }
 
+  /**
+   * Returns the size of {@code item} without downloading it, if it can be determined: either from
+   * the temp store, or from a HEAD request or, failing that, a request for its first byte.
+   */
+  public Optional<Long> getSizeForItem(UUID jobId, DownloadableItem item) throws IOException {
+    if (item.isInTempStore()) {
+      InputStreamWrapper wrapper = jobStore.getStream(jobId, item.getFetchableUrl());
+      wrapper.getStream().close();
+      return wrapper.getBytes() > 0 ? Optional.of(wrapper.getBytes()) : Optional.empty();
+    }
+
+    URL url = new URL(item.getFetchableUrl());
+    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    conn.setRequestMethod("HEAD");
+    try {
+      if (conn.getResponseCode() == HttpURLConnection.HTTP_OK && conn.getContentLengthLong() > 0) {
+        return Optional.of(conn.getContentLengthLong());
+      }
+    } finally {
+      conn.disconnect();
+    }
+
+    // Some servers don't answer HEAD requests, or omit the length from them.
+    conn = (HttpURLConnection) url.openConnection();
+    conn.setRequestProperty("Range", "bytes=0-0");
+    try {
+      if (conn.getResponseCode() == HttpURLConnection.HTTP_PARTIAL) {
+        String contentRange = conn.getHeaderField("Content-Range");
+        Matcher matcher =
+            CONTENT_RANGE_TOTAL.matcher(contentRange == null ? "" : contentRange.trim());
+        if (matcher.matches()) {
+          return Optional.of(Long.parseLong(matcher.group(1)));
+        }
+      }
+      return Optional.empty();
+    } finally {
+      // Don't leave the connection to be reused with a full response body still to be read.
+      conn.disconnect();
+    }
+  }
+
   public static HttpURLConnection getConnection(String urlStr) throws IOException {
     URL url = new URL(urlStr);
     HttpURLConnection conn = (HttpURLConnection) url.openConnection();
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.cloud.dispatch;
+
+import java.time.Duration;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/**
+ * Tells idle transfer workers about jobs that are ready to be claimed, so they don't have to find
+ * them by repeatedly querying the {@link org.datatransferproject.spi.cloud.storage.JobStore}.
+ *
+ * <p>Dispatch is only a hint: a job handed to a worker may already have been claimed by another
+ * one, and notifications may be lost, so workers still claim jobs through the job store and fall
+ * back to polling it now and then.
+ */
+public interface JobDispatcher {
+
+  /** Announces that {@code jobId} is in state CREDS_AVAILABLE and can be claimed by a worker. */
+  void publishAvailableJob(UUID jobId);
+
+  /**
+   * Waits up to {@code timeout} for a job to be announced, returning its id, or null if none was.
+   */
+  @Nullable
+  UUID awaitAvailableJob(Duration timeout) throws InterruptedException;
+
+  /**
+   * Returns true if jobs are pushed to waiting workers; false if workers must find them by polling
+   * the job store.
+   */
+  boolean isPushBased();
+}
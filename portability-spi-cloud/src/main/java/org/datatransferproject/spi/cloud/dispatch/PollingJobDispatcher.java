@@ -0,0 +1,40 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.cloud.dispatch;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * A {@link JobDispatcher} for job stores that can't notify workers. Announcements are dropped and
+ * workers poll the job store for available jobs.
+ */
+public class PollingJobDispatcher implements JobDispatcher {
+
+  @Override
+  public void publishAvailableJob(UUID jobId) {}
+
+  @Override
+  public UUID awaitAvailableJob(Duration timeout) {
+    return null;
+  }
+
+  @Override
+  public boolean isPushBased() {
+    return false;
+  }
+}
@@ -16,6 +16,8 @@
 package org.datatransferproject.spi.cloud.extension;
 
 import org.datatransferproject.api.launcher.AbstractExtension;
+import org.datatransferproject.spi.cloud.dispatch.JobDispatcher;
+import org.datatransferproject.spi.cloud.dispatch.PollingJobDispatcher;
 import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 
@@ -35,4 +37,14 @@ public interface CloudExtension extends AbstractExtension {
    * @return the instance
    */
   AppCredentialStore getAppCredentialStore();
+
+  /**
+   * Returns the dispatcher used to tell workers about jobs ready to be claimed. Defaults to
+   * polling the job store.
+   *
+   * @return the instance
+   */
+  default JobDispatcher getJobDispatcher() {
+    return new PollingJobDispatcher();
+  }
 }
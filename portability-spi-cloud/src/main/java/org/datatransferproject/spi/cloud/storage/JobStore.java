@@ -1,12 +1,17 @@
 package org.datatransferproject.spi.cloud.storage;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Stack;
 import java.util.UUID;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
+import org.datatransferproject.spi.cloud.types.JobStackDelta;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
 import org.datatransferproject.spi.cloud.types.PortabilityJob.State;
 import org.datatransferproject.types.common.ExportInformation;
@@ -112,6 +117,15 @@ public interface JobStore extends TemporaryPerJobDataStore {
    */
   UUID findFirst(JobAuthorization.State jobState);
 
+  /**
+   * Gets the IDs of up to {@code limit} {@link PortabilityJob}s in state {@code jobState} in the
+   * store. Workers pick among them at random, so that they don't all race to claim the same job.
+   */
+  default List<UUID> findCandidates(JobAuthorization.State jobState, int limit) {
+    UUID jobId = findFirst(jobState);
+    return jobId == null ? Collections.emptyList() : Collections.singletonList(jobId);
+  }
+
   /**
    * Updates the counter data.
    *
@@ -142,6 +156,21 @@ public interface JobStore extends TemporaryPerJobDataStore {
    */
   default void addBytes(UUID jobId, Map<String, Long> bytes) {}
 
+  /**
+   * Adds to both the counter data and the bytes count of the job. Stores that can should do this in
+   * a single round trip, as it is how workers periodically flush the totals of their imports.
+   *
+   * @param newCounts the new items counted, may be null
+   * @param bytes the size in bytes of new items, may be null
+   */
+  default void addCountsAndBytes(UUID jobId, Map<String, Integer> newCounts, Long bytes)
+      throws IOException {
+    addCounts(jobId, newCounts);
+    if (bytes != null && bytes != 0) {
+      addBytes(jobId, bytes);
+    }
+  }
+
   /** Provides the total number of bytes transferred. */
   default Long getBytes(UUID jobId) {
     return null;
@@ -149,18 +178,92 @@ public interface JobStore extends TemporaryPerJobDataStore {
 
   /**
    * Returns a stack of export information associated with outstanding job iterations - used to
-   * resume job transfer.
+   * resume job transfer. Stores supporting {@link JobStackDelta}s return the last stored stack with
+   * its consecutive deltas applied.
+   *
+   * @throws IOException if the stored stack couldn't be read
    */
-  default Optional<Stack<ExportInformation>> loadJobStack(UUID jobId) {
+  default Optional<Stack<ExportInformation>> loadJobStack(UUID jobId) throws IOException {
     return Optional.empty();
   }
 
   /**
    * Stores a stack of export information associated with the remaining copy iterations left in a job
-   * transfer.
+   * transfer. Any {@link JobStackDelta}s stored for the previous stack are discarded.
    */
   default void storeJobStack(UUID jobId, Stack<ExportInformation> stack) {}
 
+  /**
+   * Whether this store stores {@link JobStackDelta}s as such, so that {@link #appendJobStackDelta}
+   * is cheaper than storing the whole stack.
+   */
+  default boolean supportsJobStackDeltas() {
+    return false;
+  }
+
+  /**
+   * Stores a change to the stack last stored by {@link #storeJobStack}, so that the whole stack
+   * doesn't have to be written after every copy iteration. Deltas are numbered consecutively from 1
+   * after each call to {@link #storeJobStack}; when loading, deltas after a missing one are
+   * ignored, so a partially discarded set of deltas still yields an earlier consistent stack.
+   *
+   * <p>Stores that don't {@link #supportsJobStackDeltas support deltas} apply the delta to the
+   * stored stack and store the whole stack again.
+   *
+   * @throws IllegalStateException if no stack is stored for the job
+   */
+  default void appendJobStackDelta(UUID jobId, JobStackDelta delta) {
+    Stack<ExportInformation> stack;
+    try {
+      stack =
+          loadJobStack(jobId)
+              .orElseThrow(
+                  () -> new IllegalStateException("No job stack stored for jobId: " + jobId));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    delta.applyTo(stack);
+    storeJobStack(jobId, stack);
+  }
+
+  /**
+   * Records that {@code leaseHolder} is processing the job and will renew its lease before {@code
+   * leaseExpiry}. Stores that support leases let other workers take over a job whose lease has
+   * expired, see {@link #findJobsWithExpiredLease}.
+   *
+   * @throws IOException if the job doesn't exist or there was a problem updating it
+   * @throws IllegalStateException if the lease is held by someone else, or the job is not new or
+   *     in progress anymore
+   */
+  default void renewJobLease(UUID jobId, String leaseHolder, Instant leaseExpiry)
+      throws IOException {}
+
+  /**
+   * Takes over the lease of an in progress job from {@code expiredLeaseHolder}, whose lease has
+   * expired. Only one transfer worker can take over a given lease.
+   *
+   * <p>Stores that don't support taking over leases find no job with an expired lease, see {@link
+   * #findJobsWithExpiredLease}, and refuse to take one over.
+   *
+   * @throws IOException if the job doesn't exist or there was a problem updating it
+   * @throws IllegalStateException if the lease isn't held by {@code expiredLeaseHolder} or hasn't
+   *     expired
+   */
+  default void takeOverJobLease(
+      UUID jobId, String expiredLeaseHolder, String leaseHolder, Instant leaseExpiry)
+      throws IOException {
+    throw new IllegalStateException("This job store doesn't support taking over leases");
+  }
+
+  /**
+   * Gets the IDs of up to {@code limit} in progress jobs whose lease expired before {@code now},
+   * which are presumably abandoned by a dead transfer worker. Stores that don't support taking over
+   * leases return none.
+   */
+  default List<UUID> findJobsWithExpiredLease(Instant now, int limit) {
+    return Collections.emptyList();
+  }
+
   /**
    * Called by a transfer worker when abandoning the job matching {@code jobId}, and do cleanup at their end.
    * Accepts the {@code reason} for abandoning the job (can be derived from but not limited to {@link State})
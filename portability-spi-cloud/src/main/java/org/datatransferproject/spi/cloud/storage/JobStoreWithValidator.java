@@ -7,6 +7,7 @@ import static org.datatransferproject.spi.cloud.types.JobAuthorization.State.CRE
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import java.io.IOException;
+import java.time.Instant;
 import java.util.UUID;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
@@ -88,6 +89,53 @@ public abstract class JobStoreWithValidator implements JobStore {
             .build());
   }
 
+  /**
+   * Only the lease of the job is changed. If the rest of the job changed since it was read, such as
+   * by a cancellation, the renewal fails rather than undoing that change, and the next renewal
+   * reads the job again.
+   */
+  @Override
+  public void renewJobLease(UUID jobId, String leaseHolder, Instant leaseExpiry)
+      throws IOException {
+    PortabilityJob updatedJob = withLease(findJob(jobId), leaseHolder, leaseExpiry);
+
+    updateJob(
+        jobId,
+        updatedJob,
+        ((previous, updated) -> {
+          Preconditions.checkState(withLease(previous, leaseHolder, leaseExpiry).equals(updated));
+          Preconditions.checkState(
+              previous.state() == State.NEW || previous.state() == State.IN_PROGRESS);
+          Preconditions.checkState(
+              previous.leaseHolder() == null || previous.leaseHolder().equals(leaseHolder));
+        }));
+  }
+
+  /** Only the lease of the job is changed, as in {@link #renewJobLease}. */
+  @Override
+  public void takeOverJobLease(
+      UUID jobId, String expiredLeaseHolder, String leaseHolder, Instant leaseExpiry)
+      throws IOException {
+    PortabilityJob updatedJob = withLease(findJob(jobId), leaseHolder, leaseExpiry);
+    Instant now = Instant.now();
+
+    updateJob(
+        jobId,
+        updatedJob,
+        ((previous, updated) -> {
+          Preconditions.checkState(withLease(previous, leaseHolder, leaseExpiry).equals(updated));
+          Preconditions.checkState(previous.state() == State.IN_PROGRESS);
+          Preconditions.checkState(expiredLeaseHolder.equals(previous.leaseHolder()));
+          Preconditions.checkState(
+              previous.leaseExpiry() != null && previous.leaseExpiry().isBefore(now));
+        }));
+  }
+
+  private static PortabilityJob withLease(
+      PortabilityJob job, String leaseHolder, Instant leaseExpiry) {
+    return job.toBuilder().setLeaseHolder(leaseHolder).setLeaseExpiry(leaseExpiry).build();
+  }
+
   /**
    * Verifies a {@code PortabilityJob} already exists for {@code jobId}, and updates the entry to
    * {@code job}.
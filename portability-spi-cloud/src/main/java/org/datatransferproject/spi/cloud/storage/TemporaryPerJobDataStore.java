@@ -4,6 +4,8 @@ package org.datatransferproject.spi.cloud.storage;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.UUID;
@@ -44,6 +46,18 @@ public interface TemporaryPerJobDataStore {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Returns a channel over the stream stored for {@code key}. Stores keeping streams in local files
+   * return a {@link java.nio.channels.FileChannel}, which also supports positional and
+   * memory-mapped reads.
+   */
+  default ReadableByteChannel getChannel(UUID jobId, String key) throws IOException {
+    return Channels.newChannel(getStream(jobId, key).getStream());
+  }
+
+  /** Removes all data stored for the job, once it has finished. */
+  default void removeAllData(UUID jobId) throws IOException {}
+
   default File getTempFileFromInputStream(InputStream inputStream, String prefix, String suffix)
       throws IOException {
     File tmp = Files.createTempFile(prefix, suffix).toFile();
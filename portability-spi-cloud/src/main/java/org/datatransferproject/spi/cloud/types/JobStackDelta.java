@@ -0,0 +1,82 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.cloud.types;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Stack;
+import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.types.common.ExportInformation;
+
+/**
+ * A change to the stack of export information stored for a job: {@code popCount} entries are
+ * popped off the stack, then the {@code pushed} entries are pushed in order.
+ *
+ * <p>Deltas are numbered from 1 after each full stack is stored, see {@link
+ * JobStore#appendJobStackDelta}.
+ */
+public final class JobStackDelta {
+
+  private final int sequence;
+  private final int popCount;
+  private final List<ExportInformation> pushed;
+
+  @JsonCreator
+  public JobStackDelta(
+      @JsonProperty("sequence") int sequence,
+      @JsonProperty("popCount") int popCount,
+      @JsonProperty("pushed") List<ExportInformation> pushed) {
+    Preconditions.checkArgument(sequence > 0, "Sequence must be positive: %s", sequence);
+    Preconditions.checkArgument(popCount >= 0, "Pop count must not be negative: %s", popCount);
+    this.sequence = sequence;
+    this.popCount = popCount;
+    this.pushed = pushed == null ? ImmutableList.of() : ImmutableList.copyOf(pushed);
+  }
+
+  /** The position of this delta among the deltas stored since the last full stack. */
+  @JsonProperty("sequence")
+  public int getSequence() {
+    return sequence;
+  }
+
+  @JsonProperty("popCount")
+  public int getPopCount() {
+    return popCount;
+  }
+
+  @JsonProperty("pushed")
+  public List<ExportInformation> getPushed() {
+    return pushed;
+  }
+
+  /** Applies this delta to {@code stack}. */
+  public void applyTo(Stack<ExportInformation> stack) {
+    Preconditions.checkState(
+        popCount <= stack.size(),
+        "Delta %s pops %s entries off a stack of %s",
+        sequence,
+        popCount,
+        stack.size());
+    for (int i = 0; i < popCount; i++) {
+      stack.pop();
+    }
+    stack.addAll(pushed);
+  }
+}
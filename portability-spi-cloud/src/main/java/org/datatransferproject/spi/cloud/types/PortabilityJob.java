@@ -23,6 +23,9 @@ import org.datatransferproject.types.common.models.DataVertical;
 @JsonDeserialize(builder = PortabilityJob.Builder.class)
 public abstract class PortabilityJob {
   public static final String AUTHORIZATION_STATE = "AUTHORIZATION_STATE";
+  public static final String JOB_STATE = "JOB_STATE";
+  public static final String LEASE_HOLDER = "LEASE_HOLDER";
+  public static final String LEASE_EXPIRY = "LEASE_EXPIRY";
   // Keys for specific values in the key value store
   private static final String DATA_TYPE_KEY = "DATA_TYPE";
   private static final String EXPORT_SERVICE_KEY = "EXPORT_SERVICE";
@@ -37,7 +40,6 @@ public abstract class PortabilityJob {
       "IMPORT_ENCRYPTED_INITIAL_AUTH_DATA";
   private static final String EXPORT_ENCRYPTED_INITIAL_AUTH_DATA =
       "EXPORT_ENCRYPTED_INITIAL_AUTH_DATA";
-  private static final String JOB_STATE = "JOB_STATE";
   private static final String TRANSFER_MODE = "TRANSFER_MODE";
   private static final String FAILURE_REASON = "FAILURE_REASON";
   private static final String NUMBER_OF_FAILED_FILES_KEY = "NUM_FAILED_FILES";
@@ -110,6 +112,14 @@ public abstract class PortabilityJob {
             ? DataVertical.fromDataType((String) properties.get(DATA_TYPE_KEY))
             : null;
 
+    String leaseHolder =
+        properties.containsKey(LEASE_HOLDER) ? (String) properties.get(LEASE_HOLDER) : null;
+
+    Instant leaseExpiry =
+        properties.containsKey(LEASE_EXPIRY)
+            ? Instant.parse((String) properties.get(LEASE_EXPIRY))
+            : null;
+
     return PortabilityJob.builder()
         .setState(state)
         .setExportService((String) properties.get(EXPORT_SERVICE_KEY))
@@ -135,6 +145,8 @@ public abstract class PortabilityJob {
         .setUserLocale(userLocale)
         .setUserAlias(userAlias)
         .setTransferMode(transferMode)
+        .setLeaseHolder(leaseHolder)
+        .setLeaseExpiry(leaseExpiry)
         .build();
   }
 
@@ -197,6 +209,19 @@ public abstract class PortabilityJob {
   @JsonProperty("transferMode")
   public abstract TransferMode transferMode();
 
+  /** The claim of the transfer worker currently processing the job, if it holds a lease on it. */
+  @Nullable
+  @JsonProperty("leaseHolder")
+  public abstract String leaseHolder();
+
+  /**
+   * When the lease of {@link #leaseHolder()} runs out. If the worker hasn't renewed it by then, it
+   * is presumed dead and another worker may take the job over.
+   */
+  @Nullable
+  @JsonProperty("leaseExpiry")
+  public abstract Instant leaseExpiry();
+
   public abstract PortabilityJob.Builder toBuilder();
 
   public Map<String, Object> toMap() {
@@ -263,6 +288,15 @@ public abstract class PortabilityJob {
       builder.put(TRANSFER_MODE, transferMode().toString());
     }
 
+    if (null != leaseHolder()) {
+      builder.put(LEASE_HOLDER, leaseHolder());
+    }
+
+    if (null != leaseExpiry()) {
+      // Stored as text, as not every store keeps longs as such.
+      builder.put(LEASE_EXPIRY, leaseExpiry().toString());
+    }
+
     return builder.build();
   }
 
@@ -361,6 +395,14 @@ public abstract class PortabilityJob {
     @JsonProperty("transferMode")
     public abstract Builder setTransferMode(TransferMode transferMode);
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("leaseHolder")
+    public abstract Builder setLeaseHolder(String leaseHolder);
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("leaseExpiry")
+    public abstract Builder setLeaseExpiry(Instant leaseExpiry);
+
     // For internal use only; clients should use setAndValidateJobAuthorization
     protected abstract Builder setJobAuthorization(JobAuthorization jobAuthorization);
   }
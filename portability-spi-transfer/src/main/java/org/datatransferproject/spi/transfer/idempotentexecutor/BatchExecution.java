@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.transfer.idempotentexecutor;
+
+import com.google.common.base.Throwables;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.datatransferproject.spi.transfer.threads.WorkerThreads;
+
+/**
+ * Runs the tasks of a batch through an {@link IdempotentImportExecutor}.
+ *
+ * <p>The calling thread works through the tasks along with up to {@code maxConcurrency - 1}
+ * threads of the batch's own, from {@link WorkerThreads}, so they are virtual threads where the
+ * worker uses them. As no pool is shared between batches, a batch started by a task of another
+ * batch can't wait for threads held by the batch it is part of.
+ */
+final class BatchExecution {
+
+  private BatchExecution() {}
+
+  static <T extends Serializable> List<T> executeAndSwallowIOExceptions(
+      IdempotentImportExecutor executor, List<IdempotentTask<T>> tasks, int maxConcurrency)
+      throws Exception {
+    // Tasks sharing an idempotent id run once and share the result, as they would if they ran one
+    // after another.
+    Map<String, IdempotentTask<T>> tasksById = new LinkedHashMap<>();
+    tasks.forEach(task -> tasksById.putIfAbsent(task.getIdempotentId(), task));
+    int threads = Math.min(maxConcurrency, tasksById.size());
+    if (threads <= 1 || !executor.isThreadSafe()) {
+      List<T> results = new ArrayList<>(tasks.size());
+      for (IdempotentTask<T> task : tasks) {
+        results.add(
+            executor.executeAndSwallowIOExceptions(
+                task.getIdempotentId(), task.getItemName(), task.getCallable()));
+      }
+      return results;
+    }
+
+    Map<String, CompletableFuture<T>> resultsById = new LinkedHashMap<>();
+    tasksById.keySet().forEach(id -> resultsById.put(id, new CompletableFuture<>()));
+    Queue<IdempotentTask<T>> pending = new ConcurrentLinkedQueue<>(tasksById.values());
+    AtomicBoolean failed = new AtomicBoolean();
+    Runnable drainPending =
+        () -> {
+          for (IdempotentTask<T> task = pending.poll(); task != null; task = pending.poll()) {
+            CompletableFuture<T> result = resultsById.get(task.getIdempotentId());
+            // Like the sequential loop, don't start new items once one has failed.
+            if (failed.get()) {
+              result.complete(null);
+              continue;
+            }
+            try {
+              result.complete(
+                  executor.executeAndSwallowIOExceptions(
+                      task.getIdempotentId(), task.getItemName(), task.getCallable()));
+            } catch (Throwable t) {
+              failed.set(true);
+              result.completeExceptionally(t);
+            }
+          }
+        };
+    ThreadFactory threadFactory = WorkerThreads.newThreadFactory("idempotent-import-");
+    for (int i = 1; i < threads; i++) {
+      threadFactory.newThread(WorkerThreads.propagateContext(drainPending)).start();
+    }
+
+    List<T> results = new ArrayList<>(tasks.size());
+    Throwable failure = null;
+    try {
+      drainPending.run();
+      for (IdempotentTask<T> task : tasks) {
+        try {
+          results.add(resultsById.get(task.getIdempotentId()).get());
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+          results.add(null);
+        }
+      }
+    } catch (InterruptedException e) {
+      // Let the items already running finish, but don't start any more.
+      failed.set(true);
+      throw e;
+    }
+    if (failure != null) {
+      Throwables.throwIfInstanceOf(failure, Exception.class);
+      Throwables.throwIfUnchecked(failure);
+      throw new IllegalStateException(failure);
+    }
+    return results;
+  }
+}
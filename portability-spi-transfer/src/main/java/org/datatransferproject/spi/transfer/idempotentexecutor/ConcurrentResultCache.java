@@ -0,0 +1,114 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.transfer.idempotentexecutor;
+
+import com.google.common.base.Throwables;
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The results of an {@link IdempotentImportExecutor}, keyed by idempotent id. Safe for concurrent
+ * use: calls for an idempotent id that is already being executed by another thread wait for that
+ * execution and share its result or exception instead of executing again. A callable that
+ * re-enters the execution of its own idempotent id fails instead of waiting for itself.
+ */
+public final class ConcurrentResultCache {
+  // ConcurrentHashMap doesn't allow null values, but callables may return null.
+  private static final Object NULL_RESULT = new Object();
+
+  private final ConcurrentMap<String, Object> knownValues = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, InFlightCall> inFlight = new ConcurrentHashMap<>();
+
+  public boolean contains(String idempotentId) {
+    return knownValues.containsKey(idempotentId);
+  }
+
+  /** @throws IllegalArgumentException if the key is not found */
+  @SuppressWarnings("unchecked")
+  public <T extends Serializable> T get(String idempotentId) {
+    Object value = knownValues.get(idempotentId);
+    if (value == null) {
+      throw new IllegalArgumentException(
+          idempotentId + " is not a known key, " + knownValues.size() + " keys are known");
+    }
+    return (T) unwrap(value);
+  }
+
+  /**
+   * Returns the known result for {@code idempotentId}, or else calls {@code callable} and caches
+   * its result. Exceptions thrown by {@code callable} are not cached.
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends Serializable> T execute(String idempotentId, Callable<T> callable)
+      throws Exception {
+    InFlightCall call = new InFlightCall();
+    InFlightCall inFlightCall = inFlight.putIfAbsent(idempotentId, call);
+    if (inFlightCall != null) {
+      if (inFlightCall.owner == Thread.currentThread()) {
+        // Waiting would deadlock, as this thread is the one that has to complete the call.
+        throw new IllegalStateException(
+            idempotentId + " is already being executed by the current thread");
+      }
+      return (T) await(inFlightCall.result);
+    }
+    try {
+      // Another thread may have finished this id since the caller checked for a known value.
+      Object value = knownValues.get(idempotentId);
+      if (value == null) {
+        T result = callable.call();
+        value = result == null ? NULL_RESULT : result;
+        knownValues.put(idempotentId, value);
+      }
+      call.result.complete(value);
+      return (T) unwrap(value);
+    } catch (Throwable t) {
+      call.result.completeExceptionally(t);
+      throw t;
+    } finally {
+      inFlight.remove(idempotentId, call);
+    }
+  }
+
+  /** Caches a result that was stored elsewhere, such as by an earlier run of the job. */
+  public void put(String idempotentId, Serializable value) {
+    knownValues.put(idempotentId, value == null ? NULL_RESULT : value);
+  }
+
+  private static Object await(CompletableFuture<Object> inFlightCall) throws Exception {
+    try {
+      return unwrap(inFlightCall.get());
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      Throwables.throwIfInstanceOf(cause, Exception.class);
+      Throwables.throwIfUnchecked(cause);
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private static Object unwrap(Object value) {
+    return value == NULL_RESULT ? null : value;
+  }
+
+  /** An execution in progress, and the thread running it. */
+  private static final class InFlightCall {
+    private final Thread owner = Thread.currentThread();
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+  }
+}
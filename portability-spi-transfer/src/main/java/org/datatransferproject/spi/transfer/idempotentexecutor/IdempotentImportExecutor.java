@@ -16,8 +16,10 @@
 
 package org.datatransferproject.spi.transfer.idempotentexecutor;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.List;
+import java.util.UUID;
 import javax.annotation.Nullable;
 import org.datatransferproject.types.common.ImportableItem;
 
@@ -46,6 +48,46 @@ public interface IdempotentImportExecutor extends CachingExecutor {
         });
   }
 
+  /**
+   * Executes every task like {@link #executeAndSwallowIOExceptions}, running up to {@code
+   * maxConcurrency} of them at the same time if this executor {@link #isThreadSafe is thread safe}
+   * and one after another otherwise. Tasks sharing an idempotent id are executed only once.
+   *
+   * <p>If a task throws an exception other than an IO exception no further tasks are started, and
+   * the exception of the first such task is rethrown once the running ones finished.
+   *
+   * @return the result of every task, in the order of {@code tasks}; null for the ones whose IO
+   *     exception was swallowed
+   */
+  default <T extends Serializable> List<T> executeBatchAndSwallowIOExceptions(
+      List<IdempotentTask<T>> tasks, int maxConcurrency) throws Exception {
+    return BatchExecution.executeAndSwallowIOExceptions(this, tasks, maxConcurrency);
+  }
+
+  /**
+   * Whether {@code execute} may be called from several threads at once. Executors that return
+   * false only ever see one call at a time from {@link #executeBatchAndSwallowIOExceptions}.
+   */
+  default boolean isThreadSafe() {
+    return false;
+  }
+
+  /**
+   * Persists any results and errors that this executor buffered instead of writing them right
+   * away. Copiers call this at the end of every copy iteration, before storing the job's progress,
+   * so that a resumed job knows about every item imported before that point.
+   *
+   * @throws IOException if buffered writes couldn't be persisted, in which case the job's progress
+   *     must not be stored
+   */
+  default void flush() throws IOException {}
+
+  /**
+   * Releases anything this executor holds for job {@code jobId}, once the job has ended and its
+   * errors have been read.
+   */
+  default void finishJob(UUID jobId) {}
+
   default <T extends ImportableItem, R extends Serializable>
       List<R> importBatchAndSwallowIOExceptions(
           List<T> items, ImportFunction<List<T>, List<R>> function) {
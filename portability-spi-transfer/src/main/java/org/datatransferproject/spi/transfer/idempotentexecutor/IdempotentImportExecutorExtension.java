@@ -10,4 +10,20 @@ public interface IdempotentImportExecutorExtension extends BootExtension {
       ExtensionContext extensionContext) {
     return null;
   }
+
+  /**
+   * Returns an executor that is used by a single job only, for workers that run several jobs at
+   * once. The default returns {@link #getIdempotentImportExecutor}, which is only correct for
+   * extensions that create a new executor on every call.
+   */
+  default IdempotentImportExecutor getJobScopedIdempotentImportExecutor(
+      ExtensionContext extensionContext) {
+    return getIdempotentImportExecutor(extensionContext);
+  }
+
+  /** The retrying counterpart of {@link #getJobScopedIdempotentImportExecutor}. */
+  default IdempotentImportExecutor getJobScopedRetryingIdempotentImportExecutor(
+      ExtensionContext extensionContext) {
+    return getRetryingIdempotentImportExecutor(extensionContext);
+  }
 }
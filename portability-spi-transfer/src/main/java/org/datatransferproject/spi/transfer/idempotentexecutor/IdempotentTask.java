@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.transfer.idempotentexecutor;
+
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+import org.datatransferproject.types.common.ImportableItem;
+
+/**
+ * A call to make at most once for a given idempotent id, as one element of a batch passed to
+ * {@link IdempotentImportExecutor#executeBatchAndSwallowIOExceptions}.
+ */
+public final class IdempotentTask<T extends Serializable> {
+  private final String idempotentId;
+  private final String itemName;
+  private final Callable<T> callable;
+
+  private IdempotentTask(String idempotentId, String itemName, Callable<T> callable) {
+    this.idempotentId = idempotentId;
+    this.itemName = itemName;
+    this.callable = callable;
+  }
+
+  /**
+   * @param idempotentId a unique ID to prevent data from being duplicated
+   * @param itemName a user visible/understandable string to be displayed to the user if the item
+   *     can't be imported
+   * @param callable the callable to execute
+   */
+  public static <T extends Serializable> IdempotentTask<T> of(
+      String idempotentId, String itemName, Callable<T> callable) {
+    return new IdempotentTask<>(idempotentId, itemName, callable);
+  }
+
+  /**
+   * Returns a task that imports {@code item} through {@code function}, as {@link
+   * IdempotentImportExecutor#importAndSwallowIOExceptions} does.
+   */
+  public static <I extends ImportableItem, T extends Serializable> IdempotentTask<T> ofImport(
+      I item, ImportFunction<I, T> function) {
+    return of(
+        item.getIdempotentId(),
+        item.getName(),
+        () -> {
+          ItemImportResult<T> result = function.apply(item);
+          if (result.getStatus() == ItemImportResult.Status.SUCCESS) {
+            return result.getData();
+          }
+          throw result.getException();
+        });
+  }
+
+  public String getIdempotentId() {
+    return idempotentId;
+  }
+
+  public String getItemName() {
+    return itemName;
+  }
+
+  public Callable<T> getCallable() {
+    return callable;
+  }
+}
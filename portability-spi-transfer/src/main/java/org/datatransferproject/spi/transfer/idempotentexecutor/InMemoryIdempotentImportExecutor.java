@@ -18,7 +18,6 @@ package org.datatransferproject.spi.transfer.idempotentexecutor;
 
 import static java.lang.String.format;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import java.util.UUID;
@@ -29,17 +28,20 @@ import org.datatransferproject.types.transfer.errors.ErrorDetail;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
-/** A {@link IdempotentImportExecutor} that stores known values in memory. */
+/**
+ * A {@link IdempotentImportExecutor} that stores known values in memory. It is thread safe, and
+ * concurrent calls for the same idempotent id share a single execution.
+ */
 public class InMemoryIdempotentImportExecutor implements IdempotentImportExecutor {
-  private final Map<String, Serializable> knownValues = new HashMap<>();
-  private final Map<String, ErrorDetail> errors = new HashMap<>();
-  private final Map<String, ErrorDetail> recentErrors = new HashMap<>();
+  private final ConcurrentResultCache knownValues = new ConcurrentResultCache();
+  private final Map<String, ErrorDetail> errors = new ConcurrentHashMap<>();
+  private final Map<String, ErrorDetail> recentErrors = new ConcurrentHashMap<>();
   private final Monitor monitor;
-  private UUID jobId;
+  private volatile UUID jobId;
 
   public InMemoryIdempotentImportExecutor(Monitor monitor) {
     this.monitor = monitor;
@@ -57,21 +59,26 @@ public class InMemoryIdempotentImportExecutor implements IdempotentImportExecuto
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public <T extends Serializable> T executeOrThrowException(
       String idempotentId, String itemName, Callable<T> callable) throws Exception {
     String jobIdPrefix = "Job " + jobId + ": ";
 
-    if (knownValues.containsKey(idempotentId)) {
+    if (knownValues.contains(idempotentId)) {
       monitor.debug(
           () ->
               jobIdPrefix
                   + format("Using cached key %s from cache for %s", idempotentId, itemName));
-      return (T) knownValues.get(idempotentId);
+      return knownValues.get(idempotentId);
     }
+    return knownValues.execute(
+        idempotentId, () -> callAndRecordErrors(jobIdPrefix, idempotentId, itemName, callable));
+  }
+
+  private <T extends Serializable> T callAndRecordErrors(
+      String jobIdPrefix, String idempotentId, String itemName, Callable<T> callable)
+      throws Exception {
     try {
       T result = callable.call();
-      knownValues.put(idempotentId, result);
       monitor.debug(
           () -> jobIdPrefix + format("Storing key %s in cache for %s", idempotentId, itemName));
       errors.remove(idempotentId);
@@ -91,20 +98,18 @@ public class InMemoryIdempotentImportExecutor implements IdempotentImportExecuto
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public <T extends Serializable> T getCachedValue(String idempotentId) {
-    if (!knownValues.containsKey(idempotentId)) {
-      throw new IllegalArgumentException(
-          idempotentId
-              + " is not a known key, known keys: "
-              + Joiner.on(", ").join(knownValues.keySet()));
-    }
-    return (T) knownValues.get(idempotentId);
+    return knownValues.get(idempotentId);
   }
 
   @Override
   public boolean isKeyCached(String idempotentId) {
-    return knownValues.containsKey(idempotentId);
+    return knownValues.contains(idempotentId);
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
   }
 
   @Override
@@ -26,6 +26,19 @@ public class InMemoryIdempotentImportExecutorExtension
     return retryingIdempotentImportExecutor;
   }
 
+  @Override
+  public IdempotentImportExecutor getJobScopedIdempotentImportExecutor(
+      ExtensionContext extensionContext) {
+    return new InMemoryIdempotentImportExecutor(extensionContext.getMonitor());
+  }
+
+  @Override
+  public IdempotentImportExecutor getJobScopedRetryingIdempotentImportExecutor(
+      ExtensionContext extensionContext) {
+    return new RetryingInMemoryIdempotentImportExecutor(
+        extensionContext.getMonitor(), extensionContext.getSetting("retryLibrary", null));
+  }
+
   @Override
   public void initialize() {
   }
@@ -18,31 +18,33 @@ package org.datatransferproject.spi.transfer.idempotentexecutor;
 
 import static java.lang.String.format;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
 import java.io.Serializable;
 import java.time.Clock;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 import org.datatransferproject.types.transfer.retry.RetryException;
 import org.datatransferproject.types.transfer.retry.RetryStrategyLibrary;
 import org.datatransferproject.types.transfer.retry.RetryingCallable;
 
-/** A {@link IdempotentImportExecutor} that stores known values in memory. */
+/**
+ * A {@link IdempotentImportExecutor} that stores known values in memory. It is thread safe, and
+ * concurrent calls for the same idempotent id share a single execution.
+ */
 public class RetryingInMemoryIdempotentImportExecutor implements IdempotentImportExecutor {
 
-  private final Map<String, Serializable> knownValues = new HashMap<>();
-  private final Map<String, ErrorDetail> errors = new HashMap<>();
-  private final Map<String, ErrorDetail> recentErrors = new HashMap<>();
+  private final ConcurrentResultCache knownValues = new ConcurrentResultCache();
+  private final Map<String, ErrorDetail> errors = new ConcurrentHashMap<>();
+  private final Map<String, ErrorDetail> recentErrors = new ConcurrentHashMap<>();
   private final Monitor monitor;
-  private UUID jobId;
+  private volatile UUID jobId;
   private final RetryStrategyLibrary retryStrategyLibrary;
 
   public RetryingInMemoryIdempotentImportExecutor(
@@ -63,11 +65,28 @@ public class RetryingInMemoryIdempotentImportExecutor implements IdempotentImpor
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public <T extends Serializable> T executeOrThrowException(
       String idempotentId, String itemName, Callable<T> callable) throws Exception {
     String jobIdPrefix = "Job " + jobId + ": ";
 
+    if (knownValues.contains(idempotentId)) {
+      monitor.debug(
+          () ->
+              jobIdPrefix
+                  + format("Using cached key %s from cache for %s", idempotentId, itemName));
+      return knownValues.get(idempotentId);
+    }
+    try {
+      return knownValues.execute(
+          idempotentId, () -> callAndRecordErrors(jobIdPrefix, idempotentId, itemName, callable));
+    } catch (SkippedException e) {
+      return null;
+    }
+  }
+
+  private <T extends Serializable> T callAndRecordErrors(
+      String jobIdPrefix, String idempotentId, String itemName, Callable<T> callable)
+      throws Exception {
     RetryingCallable<T> retryingCallable =
         new RetryingCallable<>(
             callable,
@@ -75,16 +94,8 @@ public class RetryingInMemoryIdempotentImportExecutor implements IdempotentImpor
             Clock.systemUTC(),
             monitor);
 
-    if (knownValues.containsKey(idempotentId)) {
-      monitor.debug(
-          () ->
-              jobIdPrefix
-                  + format("Using cached key %s from cache for %s", idempotentId, itemName));
-      return (T) knownValues.get(idempotentId);
-    }
     try {
       T result = retryingCallable.call();
-      knownValues.put(idempotentId, result);
       monitor.debug(
           () -> jobIdPrefix + format("Storing key %s in cache for %s", idempotentId, itemName));
       errors.remove(idempotentId);
@@ -99,7 +110,8 @@ public class RetryingInMemoryIdempotentImportExecutor implements IdempotentImpor
         errors.put(idempotentId, errorDetail);
         recentErrors.put(idempotentId, errorDetail);
         monitor.severe(() -> jobIdPrefix + "Problem with importing item, but skipping: " + errorDetail);
-        return  null;
+        // Skipped items are not cached, so they are tried again if executed again.
+        throw new SkippedException();
       } else {
         ErrorDetail errorDetail = errorDetailBuilder.build();
         errors.put(idempotentId, errorDetail);
@@ -113,20 +125,18 @@ public class RetryingInMemoryIdempotentImportExecutor implements IdempotentImpor
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public <T extends Serializable> T getCachedValue(String idempotentId) {
-    if (!knownValues.containsKey(idempotentId)) {
-      throw new IllegalArgumentException(
-          idempotentId
-              + " is not a known key, known keys: "
-              + Joiner.on(", ").join(knownValues.keySet()));
-    }
-    return (T) knownValues.get(idempotentId);
+    return knownValues.get(idempotentId);
   }
 
   @Override
   public boolean isKeyCached(String idempotentId) {
-    return knownValues.containsKey(idempotentId);
+    return knownValues.contains(idempotentId);
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
   }
 
   @Override
@@ -148,4 +158,7 @@ public class RetryingInMemoryIdempotentImportExecutor implements IdempotentImpor
   public void resetRecentErrors() {
     recentErrors.clear();
   }
+
+  /** Signals that an item failed but may be skipped, so that its result isn't cached. */
+  private static final class SkippedException extends Exception {}
 }
@@ -39,4 +39,13 @@ public interface Importer<A extends AuthData, T extends DataModel> {
       A authData,
       T data)
       throws Exception;
+
+  /**
+   * Whether {@link #importItem} may be called for several pages of the same job at the same time.
+   * Copiers only import a job's pages concurrently if the importer opts in by returning true, and
+   * its idempotent executor is thread safe as well.
+   */
+  default boolean isThreadSafe() {
+    return false;
+  }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.transfer.threads;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.UnaryOperator;
+
+/**
+ * Creates the threads that jobs, copy iterations and imports run on.
+ *
+ * <p>By default these are platform threads. When virtual threads are enabled and the runtime
+ * supports them (Java 21 and later), they are virtual threads instead, so that a worker can block
+ * on far more concurrent I/O than it could afford platform threads for. A virtual thread that
+ * blocks, e.g. sleeping until a retry is due, parks without holding on to a carrier thread.
+ *
+ * <p>The project is compiled for Java 11, which is why virtual threads are looked up reflectively.
+ */
+public final class WorkerThreads {
+  private static volatile boolean virtualThreadsEnabled = false;
+  private static volatile UnaryOperator<Runnable> contextPropagator = UnaryOperator.identity();
+
+  private WorkerThreads() {}
+
+  /**
+   * Switches to virtual threads for all threads created from now on.
+   *
+   * @return whether virtual threads are in use, which is not the case if the runtime lacks them
+   */
+  public static synchronized boolean enableVirtualThreads() {
+    if (!virtualThreadsEnabled && isVirtualThreadSupported()) {
+      virtualThreadsEnabled = true;
+    }
+    return virtualThreadsEnabled;
+  }
+
+  public static boolean isVirtualThreadsEnabled() {
+    return virtualThreadsEnabled;
+  }
+
+  /**
+   * Returns a factory for threads named {@code namePrefix} followed by a sequence number.
+   */
+  public static ThreadFactory newThreadFactory(String namePrefix) {
+    if (virtualThreadsEnabled) {
+      return newVirtualThreadFactory(namePrefix);
+    }
+    return new ThreadFactoryBuilder().setNameFormat(namePrefix + "%d").build();
+  }
+
+  /**
+   * Sets how {@link #propagateContext} carries the context of a thread, such as the job it works
+   * on, over to the thread that runs a task handed over by it.
+   */
+  public static void setContextPropagator(UnaryOperator<Runnable> propagator) {
+    contextPropagator = propagator;
+  }
+
+  /**
+   * Wraps {@code task} to run in the context of the calling thread. Threads shared by several jobs
+   * must run their tasks this way, as they don't inherit the context of the job that needs them.
+   */
+  public static Runnable propagateContext(Runnable task) {
+    return contextPropagator.apply(task);
+  }
+
+  /**
+   * Wraps {@code executor} to run every task in the context of the calling thread, whichever thread
+   * hands the task over later, e.g. a timer shared by all jobs.
+   */
+  public static Executor propagateContext(Executor executor) {
+    ThreadLocal<Runnable> currentTask = new ThreadLocal<>();
+    // The context is captured once, here, rather than when each task is handed over.
+    Runnable runCurrentTask = propagateContext(() -> currentTask.get().run());
+    return task ->
+        executor.execute(
+            () -> {
+              currentTask.set(task);
+              try {
+                runCurrentTask.run();
+              } finally {
+                currentTask.remove();
+              }
+            });
+  }
+
+  private static boolean isVirtualThreadSupported() {
+    try {
+      Thread.class.getMethod("ofVirtual");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  private static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+    try {
+      // Equivalent to Thread.ofVirtual().name(namePrefix, 0).factory()
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builder = builderClass.getMethod("name", String.class, long.class)
+          .invoke(builder, namePrefix, 0L);
+      Method factory = builderClass.getMethod("factory");
+      return (ThreadFactory) factory.invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Unable to create virtual threads", e);
+    }
+  }
+}
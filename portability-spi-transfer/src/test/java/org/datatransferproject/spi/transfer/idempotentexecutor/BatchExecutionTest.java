@@ -0,0 +1,118 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.transfer.idempotentexecutor;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.datatransferproject.api.launcher.Monitor;
+import org.junit.jupiter.api.Test;
+
+public class BatchExecutionTest {
+
+  private final IdempotentImportExecutor executor =
+      new InMemoryIdempotentImportExecutor(mock(Monitor.class));
+
+  @Test
+  public void resultsFollowTaskOrder() throws Exception {
+    List<String> results =
+        executor.executeBatchAndSwallowIOExceptions(
+            ImmutableList.<IdempotentTask<String>>of(
+                IdempotentTask.of("a", "a", () -> "resultA"),
+                IdempotentTask.of(
+                    "b",
+                    "b",
+                    () -> {
+                      throw new IOException("swallowed");
+                    }),
+                IdempotentTask.of("c", "c", () -> "resultC")),
+            4);
+
+    assertThat(results).containsExactly("resultA", null, "resultC").inOrder();
+    assertThat(executor.getErrors()).hasSize(1);
+    assertThat(executor.isKeyCached("c")).isTrue();
+  }
+
+  @Test
+  public void duplicateIdsRunOnce() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    List<Integer> results =
+        executor.executeBatchAndSwallowIOExceptions(
+            ImmutableList.<IdempotentTask<Integer>>of(
+                IdempotentTask.of("a", "a", calls::incrementAndGet),
+                IdempotentTask.of("a", "a", calls::incrementAndGet)),
+            4);
+
+    assertThat(results).containsExactly(1, 1);
+    assertThat(calls.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void batchesStartedByTasksOfABatchComplete() throws Exception {
+    ImmutableList.Builder<IdempotentTask<Integer>> outerTasks = ImmutableList.builder();
+    for (int i = 0; i < 100; i++) {
+      String outerId = "outer" + i;
+      outerTasks.add(
+          IdempotentTask.of(
+              outerId,
+              outerId,
+              () ->
+                  executor
+                      .executeBatchAndSwallowIOExceptions(
+                          ImmutableList.<IdempotentTask<Integer>>of(
+                              IdempotentTask.of(outerId + "a", outerId, () -> 1),
+                              IdempotentTask.of(outerId + "b", outerId, () -> 2)),
+                          2)
+                      .stream()
+                      .mapToInt(Integer::intValue)
+                      .sum()));
+    }
+
+    List<Integer> results = executor.executeBatchAndSwallowIOExceptions(outerTasks.build(), 100);
+
+    assertThat(results).containsExactlyElementsIn(Collections.nCopies(100, 3));
+  }
+
+  @Test
+  public void otherExceptionsStopTheBatch() {
+    IllegalStateException failure = new IllegalStateException("fatal");
+    AtomicInteger calls = new AtomicInteger();
+
+    IllegalStateException thrown =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                executor.executeBatchAndSwallowIOExceptions(
+                    ImmutableList.<IdempotentTask<Integer>>of(
+                        IdempotentTask.of(
+                            "a",
+                            "a",
+                            () -> {
+                              throw failure;
+                            }),
+                        IdempotentTask.of("b", "b", calls::incrementAndGet)),
+                    1));
+
+    assertThat(thrown).isSameAs(failure);
+    assertThat(calls.get()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.transfer.idempotentexecutor;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.datatransferproject.api.launcher.Monitor;
+import org.junit.jupiter.api.Test;
+
+public class InMemoryIdempotentImportExecutorTest {
+
+  private final InMemoryIdempotentImportExecutor executor =
+      new InMemoryIdempotentImportExecutor(mock(Monitor.class));
+
+  @Test
+  public void concurrentCallsForSameIdShareOneExecution() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch callStarted = new CountDownLatch(1);
+    CountDownLatch releaseCall = new CountDownLatch(1);
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    try {
+      Future<Integer> first =
+          threads.submit(
+              () ->
+                  executor.executeOrThrowException(
+                      "id",
+                      "name",
+                      () -> {
+                        callStarted.countDown();
+                        releaseCall.await();
+                        return calls.incrementAndGet();
+                      }));
+      assertThat(callStarted.await(5, TimeUnit.SECONDS)).isTrue();
+      Future<Integer> second =
+          threads.submit(
+              () -> executor.executeOrThrowException("id", "name", calls::incrementAndGet));
+      releaseCall.countDown();
+
+      assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+      assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+      assertThat(calls.get()).isEqualTo(1);
+    } finally {
+      threads.shutdownNow();
+    }
+  }
+
+  @Test
+  public void reentrantCallForSameIdFailsInsteadOfDeadlocking() {
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            executor.executeOrThrowException(
+                "id",
+                "name",
+                () -> executor.executeOrThrowException("id", "name", () -> "inner")));
+    assertThat(executor.isKeyCached("id")).isFalse();
+  }
+
+  @Test
+  public void nullResultsAreCached() throws Exception {
+    assertThat((String) executor.executeOrThrowException("id", "name", () -> null)).isNull();
+    assertThat(executor.isKeyCached("id")).isTrue();
+    assertThat((String) executor.getCachedValue("id")).isNull();
+  }
+
+  @Test
+  public void unknownKeyThrows() {
+    assertThrows(IllegalArgumentException.class, () -> executor.getCachedValue("missing"));
+  }
+
+  @Test
+  public void batchRunsConcurrently() throws Exception {
+    int items = 4;
+    CountDownLatch allStarted = new CountDownLatch(items);
+    ImmutableList.Builder<IdempotentTask<Boolean>> tasks = ImmutableList.builder();
+    for (int i = 0; i < items; i++) {
+      tasks.add(
+          IdempotentTask.of(
+              "id" + i,
+              "name" + i,
+              () -> {
+                allStarted.countDown();
+                // Only completes if every item runs at the same time.
+                return allStarted.await(5, TimeUnit.SECONDS);
+              }));
+    }
+
+    List<Boolean> results = executor.executeBatchAndSwallowIOExceptions(tasks.build(), items);
+
+    assertThat(results).containsExactly(true, true, true, true);
+  }
+}
@@ -26,6 +26,16 @@ public final class Annotations {
   @Retention(RetentionPolicy.RUNTIME)
   @interface CancelScheduler {}
 
+  /** A scheduler for renewing the lease on the job being processed. */
+  @Qualifier
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface LeaseScheduler {}
+
+  /** Stops the current job once it has been canceled, errored or preempted in the job store. */
+  @Qualifier
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface JobTerminator {}
+
   @Qualifier
   @Retention(RetentionPolicy.RUNTIME)
   public @interface RetryingExecutor {}
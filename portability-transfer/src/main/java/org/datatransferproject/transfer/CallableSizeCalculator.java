@@ -2,44 +2,96 @@ package org.datatransferproject.transfer;
 
 import static org.datatransferproject.spi.api.transport.DiscardingStreamCounter.discardForLength;
 
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
 import org.datatransferproject.types.common.DownloadableItem;
 
+/**
+ * Computes the size of items, preferring the cheapest source available for each: the size reported
+ * by the exporting service, then the size the item's host reports without sending its content, and
+ * only as a last resort the number of bytes in a full download.
+ *
+ * <p>Items are sized concurrently on the given executor.
+ */
 public class CallableSizeCalculator implements Callable<Map<String, Long>> {
 
   private final UUID jobId;
   private final ConnectionProvider connectionProvider;
   private final Collection<? extends DownloadableItem> items;
+  private final ExecutorService executor;
 
   public CallableSizeCalculator(
       UUID jobId,
       ConnectionProvider connectionProvider,
       Collection<? extends DownloadableItem> items) {
+    this(jobId, connectionProvider, items, MoreExecutors.newDirectExecutorService());
+  }
+
+  public CallableSizeCalculator(
+      UUID jobId,
+      ConnectionProvider connectionProvider,
+      Collection<? extends DownloadableItem> items,
+      ExecutorService executor) {
     this.jobId = Objects.requireNonNull(jobId);
     this.connectionProvider = Objects.requireNonNull(connectionProvider);
     this.items = Objects.requireNonNull(items);
+    this.executor = Objects.requireNonNull(executor);
   }
 
   @Override
   public Map<String, Long> call() throws Exception {
-    Map<String, Long> result = new LinkedHashMap<>();
+    List<Future<Long>> sizes = new ArrayList<>(items.size());
     for (DownloadableItem item : items) {
-      InputStreamWrapper stream = connectionProvider.getInputStreamForItem(jobId, item);
-      long size = stream.getBytes();
-      if (size <= 0) {
-        size = discardForLength(stream.getStream());
-      }
+      sizes.add(executor.submit(() -> getSize(item)));
+    }
 
-      result.put(item.getIdempotentId(), size);
+    Map<String, Long> result = new LinkedHashMap<>();
+    int i = 0;
+    try {
+      for (DownloadableItem item : items) {
+        result.put(item.getIdempotentId(), sizes.get(i++).get());
+      }
+    } catch (ExecutionException e) {
+      sizes.forEach(size -> size.cancel(true));
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
     }
 
     return result;
   }
+
+  private long getSize(DownloadableItem item) throws Exception {
+    Long reportedSize = item.getSizeInBytes();
+    if (reportedSize != null && reportedSize > 0) {
+      return reportedSize;
+    }
+
+    Optional<Long> size = connectionProvider.getSizeForItem(jobId, item);
+    if (size.isPresent()) {
+      return size.get();
+    }
+
+    InputStreamWrapper stream = connectionProvider.getInputStreamForItem(jobId, item);
+    if (stream.getBytes() > 0) {
+      Closeables.closeQuietly(stream.getStream());
+      return stream.getBytes();
+    }
+    return discardForLength(stream.getStream());
+  }
 }
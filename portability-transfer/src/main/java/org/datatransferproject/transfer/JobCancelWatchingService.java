@@ -23,21 +23,30 @@ import org.datatransferproject.launcher.monitor.events.EventCode;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
 
-/** A service that polls storage to see if a job is canceled, if it is it kills the binary. */
+/**
+ * A service that polls storage to see if a job is canceled, if it is it stops the job. A worker
+ * running a single job stops it by killing the binary.
+ */
 class JobCancelWatchingService extends AbstractScheduledService {
   private final JobStore store;
+  private final PortabilityJobCache jobCache;
   private final Scheduler scheduler;
   private final Monitor monitor;
   private final DtpInternalMetricRecorder dtpInternalMetricRecorder;
+  private final Runnable jobTerminator;
 
   @Inject
   JobCancelWatchingService(
-          JobStore store, @Annotations.CancelScheduler Scheduler scheduler,
-          Monitor monitor, DtpInternalMetricRecorder dtpInternalMetricRecorder) {
+          JobStore store, PortabilityJobCache jobCache,
+          @Annotations.CancelScheduler Scheduler scheduler,
+          Monitor monitor, DtpInternalMetricRecorder dtpInternalMetricRecorder,
+          @Annotations.JobTerminator Runnable jobTerminator) {
     this.store = store;
+    this.jobCache = jobCache;
     this.scheduler = scheduler;
     this.monitor = monitor;
     this.dtpInternalMetricRecorder = dtpInternalMetricRecorder;
+    this.jobTerminator = jobTerminator;
   }
 
   @Override
@@ -46,7 +55,8 @@ class JobCancelWatchingService extends AbstractScheduledService {
       return;
     }
     monitor.debug(() -> "polling for job to check cancellation");
-    PortabilityJob currentJob = store.findJob(JobMetadata.getJobId());
+    // Reading through the cache keeps the job it holds as current as this poll.
+    PortabilityJob currentJob = jobCache.refresh(JobMetadata.getJobId());
     switch (currentJob.state()) {
       case CANCELED:
         monitor.info(
@@ -59,7 +69,8 @@ class JobCancelWatchingService extends AbstractScheduledService {
             JobMetadata.getStopWatch().elapsed());
         monitor.flushLogs();
         store.abandonJob(JobMetadata.getJobId(), PortabilityJob.State.CANCELED.toString());
-        System.exit(0);
+        jobCache.invalidate(JobMetadata.getJobId());
+        terminateJob();
         break;
       case ERROR:
         monitor.severe(
@@ -68,7 +79,8 @@ class JobCancelWatchingService extends AbstractScheduledService {
         recordGeneralMetric(PortabilityJob.State.ERROR.toString());
         monitor.flushLogs();
         store.abandonJob(JobMetadata.getJobId(), PortabilityJob.State.ERROR.toString());
-        System.exit(0);
+        jobCache.invalidate(JobMetadata.getJobId());
+        terminateJob();
         break;
       case PREEMPTED:
         monitor.info(
@@ -77,7 +89,8 @@ class JobCancelWatchingService extends AbstractScheduledService {
         recordGeneralMetric(PortabilityJob.State.PREEMPTED.toString());
         monitor.flushLogs();
         store.abandonJob(JobMetadata.getJobId(), PortabilityJob.State.PREEMPTED.toString());
-        System.exit(0);
+        jobCache.invalidate(JobMetadata.getJobId());
+        terminateJob();
         break;
       default:
         monitor.debug(
@@ -87,6 +100,12 @@ class JobCancelWatchingService extends AbstractScheduledService {
     }
   }
 
+  private void terminateJob() {
+    JobMetadata.markTerminated();
+    jobTerminator.run();
+    stopAsync();
+  }
+
   @Override
   protected Scheduler scheduler() {
     return scheduler;
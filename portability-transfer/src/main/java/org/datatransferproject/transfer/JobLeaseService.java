@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer;
+
+import static java.lang.String.format;
+
+import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.inject.Inject;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.launcher.monitor.events.EventCode;
+import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.spi.cloud.types.PortabilityJob;
+
+/**
+ * A service that renews this worker's lease on the job it is processing, so that other workers
+ * don't take the job over while it is alive. If another worker did take the job over, e.g. because
+ * this one couldn't reach the store for longer than the lease, it stops the job.
+ *
+ * <p>Leases are only kept when {@code jobFailoverEnabled} is set.
+ */
+class JobLeaseService extends AbstractScheduledService {
+  private final JobStore store;
+  private final Scheduler scheduler;
+  private final Monitor monitor;
+  private final Runnable jobTerminator;
+  private final boolean failoverEnabled;
+  private final long leaseDurationMillis;
+
+  @Inject
+  JobLeaseService(
+      JobStore store,
+      @Annotations.LeaseScheduler Scheduler scheduler,
+      Monitor monitor,
+      @Annotations.JobTerminator Runnable jobTerminator,
+      ExtensionContext context) {
+    this.store = store;
+    this.scheduler = scheduler;
+    this.monitor = monitor;
+    this.jobTerminator = jobTerminator;
+    this.failoverEnabled = context.getSetting("jobFailoverEnabled", false);
+    this.leaseDurationMillis =
+        failoverEnabled
+            ? context.getDurationSetting("jobLeaseDuration", Duration.ofMinutes(2)).toMillis()
+            : 0;
+  }
+
+  @Override
+  protected void runOneIteration() {
+    if (!failoverEnabled || !JobMetadata.isInitialized()) {
+      return;
+    }
+    UUID jobId = JobMetadata.getJobId();
+    String leaseHolder = JobMetadata.getLeaseHolder();
+    try {
+      store.renewJobLease(jobId, leaseHolder, Instant.now().plusMillis(leaseDurationMillis));
+      monitor.debug(() -> format("Renewed the lease on job %s", jobId));
+    } catch (IOException | IllegalStateException e) {
+      PortabilityJob job = store.findJob(jobId);
+      if (job != null && job.leaseHolder() != null && !leaseHolder.equals(job.leaseHolder())) {
+        monitor.severe(
+            () -> format("Job %s was taken over by another worker", jobId),
+            EventCode.WORKER_JOB_LEASE_LOST);
+        monitor.flushLogs();
+        jobTerminator.run();
+        stopAsync();
+      } else {
+        // The job may have ended meanwhile, otherwise the next iteration tries again.
+        monitor.info(() -> format("Could not renew the lease on job %s", jobId), e);
+      }
+    }
+  }
+
+  @Override
+  protected Scheduler scheduler() {
+    return scheduler;
+  }
+}
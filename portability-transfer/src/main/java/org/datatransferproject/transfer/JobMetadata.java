@@ -27,25 +27,18 @@ import org.datatransferproject.types.common.models.DataVertical;
  * <p>
  *
  * <p>This class is completely static to ensure it is a singleton within each transfer worker
- * instance.
+ * instance. A worker that runs several jobs at once gives each job its own scope via {@link
+ * #enterJobScope()}; the static accessors then resolve against the scope of the calling thread,
+ * which threads started by it inherit.
  */
 @SuppressWarnings("WeakerAccess")
 // We make the class and various methods public so they can be accessed from Monitors
 public final class JobMetadata {
-  private static byte[] encodedPrivateKey = null;
-  private static UUID jobId = null;
-  private static DataVertical dataType = null;
-  private static String exportService = null;
-  private static String importService = null;
-  private static Stopwatch stopWatch = null;
+  private static final Scope PROCESS_SCOPE = new Scope();
+  private static final InheritableThreadLocal<Scope> JOB_SCOPE = new InheritableThreadLocal<>();
 
   public static boolean isInitialized() {
-    return (jobId != null
-        && encodedPrivateKey != null
-        && dataType != null
-        && exportService != null
-        && importService != null
-        && stopWatch != null);
+    return currentScope().isInitialized();
   }
 
   static void init(
@@ -55,52 +48,152 @@ public final class JobMetadata {
       String initExportService,
       String initImportService,
       Stopwatch initStopWatch) {
-    Preconditions.checkState(!isInitialized(), "JobMetadata cannot be initialized twice");
-    jobId = initJobId;
-    encodedPrivateKey = initEncodedPrivateKey;
-    dataType = initDataType;
-    exportService = initExportService;
-    importService = initImportService;
-    stopWatch = initStopWatch;
+    currentScope()
+        .init(
+            initJobId,
+            initEncodedPrivateKey,
+            initDataType,
+            initExportService,
+            initImportService,
+            initStopWatch);
   }
 
   // TODO: remove this
-  static synchronized void reset() {
-    jobId = null;
-    encodedPrivateKey = null;
-    dataType = null;
-    exportService = null;
-    importService = null;
-    stopWatch = null;
+  static void reset() {
+    currentScope().reset();
+  }
+
+  /**
+   * Binds the calling thread, and any thread it starts until {@link #exitJobScope()}, to a new and
+   * uninitialized job scope.
+   */
+  static void enterJobScope() {
+    JOB_SCOPE.set(new Scope());
+  }
+
+  /** Returns the calling thread to the process wide scope. */
+  static void exitJobScope() {
+    JOB_SCOPE.remove();
+  }
+
+  /**
+   * Wraps {@code task} to run in the scope of the calling thread, whichever thread runs it, e.g. a
+   * pooled thread shared by several jobs.
+   */
+  static Runnable inCurrentScope(Runnable task) {
+    Scope scope = JOB_SCOPE.get();
+    return () -> {
+      Scope previousScope = JOB_SCOPE.get();
+      JOB_SCOPE.set(scope);
+      try {
+        task.run();
+      } finally {
+        JOB_SCOPE.set(previousScope);
+      }
+    };
   }
 
   static byte[] getPrivateKey() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return encodedPrivateKey;
+    return currentInitializedScope().encodedPrivateKey;
   }
 
   public static UUID getJobId() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return jobId;
+    return currentInitializedScope().jobId;
   }
 
   public static DataVertical getDataType() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return dataType;
+    return currentInitializedScope().dataType;
   }
 
   public static String getExportService() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return exportService;
+    return currentInitializedScope().exportService;
   }
 
   public static String getImportService() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return importService;
+    return currentInitializedScope().importService;
   }
 
   public static Stopwatch getStopWatch() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return stopWatch;
+    return currentInitializedScope().stopWatch;
+  }
+
+  /**
+   * Records that the job was stopped because the store no longer has it in progress, e.g. because
+   * it was canceled, so that it must not be marked as finished.
+   */
+  static void markTerminated() {
+    currentInitializedScope().terminated = true;
+  }
+
+  /** Whether the job was stopped by {@link #markTerminated()}. */
+  static boolean isTerminated() {
+    return currentScope().terminated;
+  }
+
+  /** Identifies this worker's lease on the job, which is new each time a job is initialized. */
+  static String getLeaseHolder() {
+    return currentInitializedScope().leaseHolder;
+  }
+
+  private static Scope currentScope() {
+    Scope scope = JOB_SCOPE.get();
+    return scope == null ? PROCESS_SCOPE : scope;
+  }
+
+  private static Scope currentInitializedScope() {
+    Scope scope = currentScope();
+    Preconditions.checkState(scope.isInitialized(), "JobMetadata must be initialized");
+    return scope;
+  }
+
+  /** The metadata of a single job. */
+  private static final class Scope {
+    // Written by the polling thread and read by the job's threads.
+    private volatile byte[] encodedPrivateKey = null;
+    private volatile UUID jobId = null;
+    private volatile DataVertical dataType = null;
+    private volatile String exportService = null;
+    private volatile String importService = null;
+    private volatile Stopwatch stopWatch = null;
+    private volatile String leaseHolder = null;
+    private volatile boolean terminated = false;
+
+    synchronized boolean isInitialized() {
+      return (jobId != null
+          && encodedPrivateKey != null
+          && dataType != null
+          && exportService != null
+          && importService != null
+          && stopWatch != null);
+    }
+
+    synchronized void init(
+        UUID initJobId,
+        byte[] initEncodedPrivateKey,
+        DataVertical initDataType,
+        String initExportService,
+        String initImportService,
+        Stopwatch initStopWatch) {
+      Preconditions.checkState(!isInitialized(), "JobMetadata cannot be initialized twice");
+      jobId = initJobId;
+      encodedPrivateKey = initEncodedPrivateKey;
+      dataType = initDataType;
+      exportService = initExportService;
+      importService = initImportService;
+      stopWatch = initStopWatch;
+      leaseHolder = UUID.randomUUID().toString();
+      terminated = false;
+    }
+
+    synchronized void reset() {
+      jobId = null;
+      encodedPrivateKey = null;
+      dataType = null;
+      exportService = null;
+      importService = null;
+      stopWatch = null;
+      leaseHolder = null;
+      terminated = false;
+    }
   }
 }
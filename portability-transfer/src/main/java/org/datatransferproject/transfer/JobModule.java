@@ -0,0 +1,234 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.transfer;
+
+import static org.datatransferproject.transfer.WorkerModule.findTransferExtension;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import java.io.IOException;
+import java.util.List;
+import org.datatransferproject.api.launcher.DelegatingExtensionContext;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
+import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.JobAwareMonitor;
+import org.datatransferproject.api.launcher.MetricRecorder;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.launcher.metrics.ServiceAwareMetricRecorder;
+import org.datatransferproject.spi.transfer.extension.TransferExtension;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutorExtension;
+import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.Importer;
+import org.datatransferproject.spi.transfer.provider.SignalHandler;
+import org.datatransferproject.spi.transfer.provider.TransferCompatibilityProvider;
+import org.datatransferproject.transfer.copier.InMemoryDataCopier;
+import org.datatransferproject.transfer.copier.InMemoryDataCopierClassLoader;
+import org.datatransferproject.types.transfer.serviceconfig.TransferServiceConfig;
+
+/**
+ * Bindings that belong to a single job: the exporter and importer chosen from {@link JobMetadata},
+ * the idempotent executors and the copier holding the job's progress.
+ *
+ * <p>A worker running one job at a time installs this module next to the {@link WorkerModule}. A
+ * worker running several jobs at once installs a new instance in a child injector for every job,
+ * with {@code jobScoped} set so that no job sees another one's executors, transfer extensions or
+ * monitor.
+ */
+final class JobModule extends AbstractModule {
+
+  private final ExtensionContext context;
+  private final List<TransferExtension> transferExtensions;
+  private final IdempotentImportExecutorExtension idempotentImportExecutorExtension;
+  private final TransferCompatibilityProvider compatibilityProvider;
+  private final boolean jobScoped;
+  private final Runnable jobTerminator;
+
+  JobModule(
+      ExtensionContext context,
+      List<TransferExtension> transferExtensions,
+      IdempotentImportExecutorExtension idempotentImportExecutorExtension,
+      TransferCompatibilityProvider transferCompatibilityProvider,
+      boolean jobScoped,
+      Runnable jobTerminator) {
+    this.context = jobScoped ? newJobContext(context) : context;
+    this.transferExtensions = transferExtensions;
+    this.idempotentImportExecutorExtension =
+        jobScoped
+            ? new JobScopedIdempotentImportExecutorExtension(idempotentImportExecutorExtension)
+            : idempotentImportExecutorExtension;
+    this.compatibilityProvider = transferCompatibilityProvider;
+    this.jobScoped = jobScoped;
+    this.jobTerminator = jobTerminator;
+  }
+
+  @Override
+  protected void configure() {
+    bind(InMemoryDataCopier.class).to(InMemoryDataCopierClassLoader.load());
+    bind(Runnable.class).annotatedWith(Annotations.JobTerminator.class).toInstance(jobTerminator);
+  }
+
+  @Provides
+  @Singleton
+  Monitor getMonitor() {
+    return context.getMonitor();
+  }
+
+  @Provides
+  @Singleton
+  Exporter getExporter(ImmutableList<TransferExtension> transferExtensions) {
+    TransferExtension extension =
+        findTransferExtension(transferExtensions, JobMetadata.getExportService());
+    extension.initialize(getServiceSpecificContext(extension));
+    return compatibilityProvider.getCompatibleExporter(extension, JobMetadata.getDataType());
+  }
+
+  @Provides
+  @Singleton
+  Importer getImporter(ImmutableList<TransferExtension> transferExtensions) {
+    TransferExtension extension =
+        findTransferExtension(transferExtensions, JobMetadata.getImportService());
+    extension.initialize(getServiceSpecificContext(extension));
+    return compatibilityProvider.getCompatibleImporter(extension, JobMetadata.getDataType());
+  }
+
+  @Provides
+  @Singleton
+  @Annotations.ImportSignalHandler
+  SignalHandler getImportSignalHandler(ImmutableList<TransferExtension> transferExtensions) {
+    TransferExtension extension =
+        findTransferExtension(transferExtensions, JobMetadata.getImportService());
+    extension.initialize(getServiceSpecificContext(extension));
+    return extension.getSignalHandler();
+  }
+
+  @Provides
+  @Singleton
+  @Annotations.ExportSignalHandler
+  SignalHandler getExportSignalHandler(ImmutableList<TransferExtension> transferExtensions) {
+    TransferExtension extension =
+        findTransferExtension(transferExtensions, JobMetadata.getExportService());
+    extension.initialize(getServiceSpecificContext(extension));
+    return extension.getSignalHandler();
+  }
+
+  @Provides
+  @Singleton
+  ImmutableList<TransferExtension> getTransferExtensions() {
+    return ImmutableList.copyOf(transferExtensions);
+  }
+
+  @Provides
+  @Singleton
+  public IdempotentImportExecutor getIdempotentImportExecutor() {
+    return idempotentImportExecutorExtension.getIdempotentImportExecutor(context);
+  }
+
+  @Provides
+  @Singleton
+  @Annotations.RetryingExecutor
+  public IdempotentImportExecutor getRetryingIdempotentImportExecutor() {
+    return idempotentImportExecutorExtension.getRetryingIdempotentImportExecutor(context);
+  }
+
+  /**
+   * The maximum number of copy iterations of this job that copiers supporting it may run at the
+   * same time. A limit in the import service's config takes precedence over the worker's {@code
+   * maxConcurrentCopyIterations} setting, which defaults to 1, i.e. copy iterations run one after
+   * another.
+   */
+  @Provides
+  @Named("maxConcurrentCopyIterations")
+  Integer getMaxConcurrentCopyIterations(ImmutableList<TransferExtension> transferExtensions) {
+    TransferExtension extension =
+        findTransferExtension(transferExtensions, JobMetadata.getImportService());
+    return getTransferServiceConfig(extension)
+        .getMaxConcurrentCopyIterations()
+        .orElseGet(() -> context.getSetting("maxConcurrentCopyIterations", 1));
+  }
+
+  private ExtensionContext getServiceSpecificContext(TransferExtension extension) {
+    DelegatingExtensionContext serviceSpecificContext = new DelegatingExtensionContext(context);
+    serviceSpecificContext.registerOverrideService(
+        MetricRecorder.class,
+        new ServiceAwareMetricRecorder(
+            extension.getServiceId(), context.getService(DtpInternalMetricRecorder.class)));
+    serviceSpecificContext.registerOverrideService(
+        TransferServiceConfig.class, getTransferServiceConfig(extension));
+    if (jobScoped) {
+      // Transfer extensions look up their executors through the context as well.
+      serviceSpecificContext.registerOverrideService(
+          IdempotentImportExecutorExtension.class, idempotentImportExecutorExtension);
+    }
+    return serviceSpecificContext;
+  }
+
+  /** Gives a job its own monitor, as the jobId a monitor logs with can't be shared by jobs. */
+  private static ExtensionContext newJobContext(ExtensionContext context) {
+    Monitor monitor = context.getMonitor();
+    if (!(monitor instanceof JobAwareMonitor)) {
+      return context;
+    }
+    DelegatingExtensionContext jobContext = new DelegatingExtensionContext(context);
+    jobContext.registerOverrideService(Monitor.class, ((JobAwareMonitor) monitor).newJobMonitor());
+    return jobContext;
+  }
+
+  private TransferServiceConfig getTransferServiceConfig(TransferExtension ext) {
+    try {
+      return TransferServiceConfig.getForService(ext.getServiceId());
+    } catch (IOException e) {
+      throw new RuntimeException("Couldn't create config for " + ext.getServiceId(), e);
+    }
+  }
+
+  /** Hands out the same job scoped executors to everything that belongs to one job. */
+  private static final class JobScopedIdempotentImportExecutorExtension
+      implements IdempotentImportExecutorExtension {
+    private final IdempotentImportExecutorExtension delegate;
+    private IdempotentImportExecutor idempotentImportExecutor;
+    private IdempotentImportExecutor retryingIdempotentImportExecutor;
+
+    JobScopedIdempotentImportExecutorExtension(IdempotentImportExecutorExtension delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized IdempotentImportExecutor getIdempotentImportExecutor(
+        ExtensionContext extensionContext) {
+      if (idempotentImportExecutor == null) {
+        idempotentImportExecutor = delegate.getJobScopedIdempotentImportExecutor(extensionContext);
+      }
+      return idempotentImportExecutor;
+    }
+
+    @Override
+    public synchronized IdempotentImportExecutor getRetryingIdempotentImportExecutor(
+        ExtensionContext extensionContext) {
+      if (retryingIdempotentImportExecutor == null) {
+        retryingIdempotentImportExecutor =
+            delegate.getJobScopedRetryingIdempotentImportExecutor(extensionContext);
+      }
+      return retryingIdempotentImportExecutor;
+    }
+
+    @Override
+    public void initialize() {}
+  }
+}
@@ -23,12 +23,20 @@ import com.google.common.base.Strings;
 import com.google.common.util.concurrent.AbstractScheduledService;
 import com.google.inject.Inject;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
 import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.JobAwareMonitor;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.launcher.monitor.events.EventCode;
+import org.datatransferproject.spi.cloud.dispatch.JobDispatcher;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
@@ -42,32 +50,76 @@ import org.datatransferproject.spi.transfer.types.FailureReasons;
  * A service that polls storage for a job to process in two steps: <br> (1) find an unassigned job
  * for this transfer worker <br> (2) wait until the job is ready to process (i.e. creds are
  * available)
+ *
+ * <p>When the {@link JobDispatcher} pushes jobs to workers, step (1) waits for a job to be
+ * announced instead, and only falls back to querying storage every {@code
+ * jobDispatchFallbackPollInterval} milliseconds, for jobs whose announcement was missed.
+ *
+ * <p>Storage is queried for up to {@code jobClaimCandidates} jobs, which are tried in a random
+ * order, so that workers polling at the same time spread out over the available jobs instead of
+ * all racing to claim the first one.
+ *
+ * <p>When {@code jobFailoverEnabled} is set, the private key of a claimed job is backed up with
+ * {@link WorkerKeyBackup}, and a worker that finds no job to claim looks for an in progress job
+ * whose lease expired, at most once per {@code jobLeaseDuration} milliseconds, and takes it over.
+ * The job then resumes from the job stack and idempotent import results its previous worker
+ * stored.
  */
 class JobPollingService extends AbstractScheduledService {
 
+  // How long one iteration waits for a job to be announced, so the service can still be stopped.
+  private static final long MAX_DISPATCH_WAIT_MILLIS = 10_000;
+
   private final JobStore store;
+  private final JobDispatcher jobDispatcher;
   private final TransferKeyGenerator transferKeyGenerator;
   private final PublicKeySerializer publicKeySerializer;
   private final Scheduler scheduler;
   private final Monitor monitor;
+  private final DtpInternalMetricRecorder metricRecorder;
+  private final WorkerKeyBackup workerKeyBackup;
   private final Stopwatch stopwatch = Stopwatch.createUnstarted();
   private final int credsTimeoutSeconds;
+  private final int claimCandidates;
+  private final long fallbackPollIntervalMillis;
+  private final boolean failoverEnabled;
+  private final long leaseDurationMillis;
+  private long nextFallbackPollMillis;
+  private long nextLeaseScanMillis;
 
   @Inject
   JobPollingService(
       JobStore store,
+      JobDispatcher jobDispatcher,
       TransferKeyGenerator transferKeyGenerator,
       PublicKeySerializer publicKeySerializer,
       Scheduler scheduler,
       Monitor monitor,
+      DtpInternalMetricRecorder metricRecorder,
+      WorkerKeyBackup workerKeyBackup,
       ExtensionContext context) {
     monitor.debug(() -> "initializing JobPollingService");
     this.store = store;
+    this.jobDispatcher = jobDispatcher;
     this.transferKeyGenerator = transferKeyGenerator;
     this.publicKeySerializer = publicKeySerializer;
     this.scheduler = scheduler;
     this.monitor = monitor;
+    this.metricRecorder = metricRecorder;
+    this.workerKeyBackup = workerKeyBackup;
     this.credsTimeoutSeconds = context.getSetting("credTimeoutSeconds", 300);
+    this.claimCandidates = context.getSetting("jobClaimCandidates", 10);
+    this.fallbackPollIntervalMillis =
+        jobDispatcher.isPushBased()
+            ? context
+                .getDurationSetting("jobDispatchFallbackPollInterval", Duration.ofMinutes(1))
+                .toMillis()
+            : 0;
+    this.failoverEnabled = context.getSetting("jobFailoverEnabled", false);
+    this.leaseDurationMillis =
+        failoverEnabled
+            ? context.getDurationSetting("jobLeaseDuration", Duration.ofMinutes(2)).toMillis()
+            : 0;
     monitor.debug(() -> "initialized JobPollingService");
   }
 
@@ -118,33 +170,74 @@ class JobPollingService extends AbstractScheduledService {
    * object for this running instance of the transfer worker.
    */
   private void pollForUnassignedJob() {
-    UUID jobId = store.findFirst(JobAuthorization.State.CREDS_AVAILABLE);
-    monitor.debug(() -> "Polling for a job in state CREDS_AVAILABLE");
-    if (jobId == null) {
+    List<UUID> jobIds = findUnassignedJobs();
+    if (jobIds.isEmpty()) {
       monitor.debug(() -> "Did not find job after polling");
+      if (failoverEnabled) {
+        pollForAbandonedJob();
+      }
       return;
     }
-    monitor.debug(() -> format("Found job %s", jobId));
+    monitor.debug(() -> format("Found jobs %s", jobIds));
     Preconditions.checkState(!JobMetadata.isInitialized());
     WorkerKeyPair keyPair = transferKeyGenerator.generate();
-    // TODO: Back up private key (keyPair.getPrivate()) in case this transfer worker dies mid-copy,
-    // so we don't have to make the user start from scratch. Some options are to manage this key
-    // pair within our hosting platform's key management system rather than generating here, or to
-    // encrypt and store the private key on the client.
+    // The private key is backed up once the job is claimed if failover is enabled, so that the
+    // user doesn't have to start from scratch if this transfer worker dies mid-copy.
     // Note: tryToClaimJob may fail if another transfer worker beat us to it. That's ok -- this
-    // transfer
-    // worker will keep polling until it can claim a job.
-    boolean claimed = tryToClaimJob(jobId, keyPair);
-    if (claimed) {
-      monitor.debug(
-          () ->
-              format(
-                  "Updated job %s to CREDS_ENCRYPTION_KEY_GENERATED, publicKey length: %s",
-                  jobId, keyPair.getEncodedPublicKey().length));
-      stopwatch.start();
+    // transfer worker tries the next candidate, and will keep polling until it can claim a job.
+    for (UUID jobId : jobIds) {
+      if (tryToClaimJob(jobId, keyPair)) {
+        monitor.debug(
+            () ->
+                format(
+                    "Updated job %s to CREDS_ENCRYPTION_KEY_GENERATED, publicKey length: %s",
+                    jobId, keyPair.getEncodedPublicKey().length));
+        stopwatch.start();
+        return;
+      }
     }
   }
 
+  /**
+   * Returns the ids of jobs in state CREDS_AVAILABLE, in the order they should be tried, or an
+   * empty list if none were found. Any of them may already have been claimed by another transfer
+   * worker.
+   */
+  private List<UUID> findUnassignedJobs() {
+    if (!jobDispatcher.isPushBased()) {
+      monitor.debug(() -> "Polling for a job in state CREDS_AVAILABLE");
+      return findCandidates();
+    }
+
+    long now = System.currentTimeMillis();
+    if (now >= nextFallbackPollMillis) {
+      nextFallbackPollMillis = now + fallbackPollIntervalMillis;
+      monitor.debug(() -> "Polling for a job in state CREDS_AVAILABLE missed by the dispatcher");
+      List<UUID> jobIds = findCandidates();
+      if (!jobIds.isEmpty()) {
+        return jobIds;
+      }
+    }
+
+    long waitMillis = Math.min(MAX_DISPATCH_WAIT_MILLIS, nextFallbackPollMillis - now);
+    monitor.debug(() -> format("Waiting up to %d ms for a job to be dispatched", waitMillis));
+    try {
+      UUID jobId = jobDispatcher.awaitAvailableJob(Duration.ofMillis(waitMillis));
+      return jobId == null ? Collections.emptyList() : Collections.singletonList(jobId);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Collections.emptyList();
+    }
+  }
+
+  private List<UUID> findCandidates() {
+    List<UUID> jobIds =
+        new ArrayList<>(
+            store.findCandidates(JobAuthorization.State.CREDS_AVAILABLE, claimCandidates));
+    Collections.shuffle(jobIds, ThreadLocalRandom.current());
+    return jobIds;
+  }
+
   /**
    * Claims {@link PortabilityJob} {@code jobId} and updates it with our public key in storage.
    * Returns true if the claim was successful; otherwise it returns false.
@@ -153,6 +246,15 @@ class JobPollingService extends AbstractScheduledService {
     // Lookup the job so we can append to its existing properties.
     PortabilityJob existingJob = store.findJob(jobId);
     monitor.debug(() -> format("JobPollingService: tryToClaimJob: jobId: %s", existingJob));
+    if (existingJob == null) {
+      monitor.debug(() -> format("Could not claim job %s, it no longer exists", jobId));
+      return false;
+    }
+    if (existingJob.jobAuthorization().state() != JobAuthorization.State.CREDS_AVAILABLE) {
+      monitor.debug(() -> format("Could not claim job %s, it was already claimed", jobId));
+      recordClaimAttempt(existingJob, false);
+      return false;
+    }
 
     // TODO: Consider moving this check earlier in the flow
     String scheme = existingJob.jobAuthorization().encryptionScheme();
@@ -196,9 +298,10 @@ class JobPollingService extends AbstractScheduledService {
                       + " worker. Error msg: %s",
                   jobId, e.getMessage()),
           e);
-
+      recordClaimAttempt(existingJob, false);
       return false;
     }
+    recordClaimAttempt(existingJob, true);
 
     if (monitor instanceof JobAwareMonitor) {
       ((JobAwareMonitor) monitor).setJobId(jobId.toString());
@@ -214,9 +317,111 @@ class JobPollingService extends AbstractScheduledService {
     monitor.debug(
         () -> format("Stored updated job: tryToClaimJob: JobMetadata initialized: %s", jobId));
 
+    if (failoverEnabled) {
+      backUpWorkerKey(jobId, keyPair);
+    }
+    return true;
+  }
+
+  private void backUpWorkerKey(UUID jobId, WorkerKeyPair keyPair) {
+    try {
+      workerKeyBackup.backUp(jobId, keyPair.getEncodedPrivateKey());
+    } catch (IOException | RuntimeException e) {
+      monitor.info(
+          () -> format("Could not back up the worker key, job %s can't be taken over", jobId), e);
+    }
+  }
+
+  /**
+   * Looks for in progress jobs whose worker stopped renewing its lease, and takes one of them over.
+   * Their credentials are already stored, so this service stops as soon as it took one over.
+   */
+  private void pollForAbandonedJob() {
+    long now = System.currentTimeMillis();
+    if (now < nextLeaseScanMillis) {
+      return;
+    }
+    nextLeaseScanMillis = now + leaseDurationMillis;
+    monitor.debug(() -> "Polling for a job in state IN_PROGRESS whose lease expired");
+    List<UUID> jobIds =
+        new ArrayList<>(store.findJobsWithExpiredLease(Instant.ofEpochMilli(now), claimCandidates));
+    Collections.shuffle(jobIds, ThreadLocalRandom.current());
+    for (UUID jobId : jobIds) {
+      if (tryToTakeOverJob(jobId)) {
+        monitor.info(
+            () -> format("Took over job %s, whose lease expired", jobId),
+            EventCode.WORKER_JOB_TAKEN_OVER);
+        this.stopAsync();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Takes over the lease on {@link PortabilityJob} {@code jobId} and initializes the job metadata
+   * with the private key its previous worker backed up. Returns true if the takeover was
+   * successful; otherwise it returns false.
+   */
+  private boolean tryToTakeOverJob(UUID jobId) {
+    PortabilityJob existingJob = store.findJob(jobId);
+    if (existingJob == null
+        || existingJob.state() != PortabilityJob.State.IN_PROGRESS
+        || existingJob.leaseHolder() == null) {
+      monitor.debug(() -> format("Could not take over job %s, it is not in progress", jobId));
+      return false;
+    }
+
+    byte[] encodedPrivateKey;
+    try {
+      encodedPrivateKey = workerKeyBackup.restore(jobId);
+    } catch (IOException | RuntimeException e) {
+      monitor.info(() -> format("Could not restore the worker key of job %s", jobId), e);
+      return false;
+    }
+    if (encodedPrivateKey == null) {
+      monitor.debug(() -> format("Could not take over job %s, its key wasn't backed up", jobId));
+      return false;
+    }
+
+    Preconditions.checkState(!JobMetadata.isInitialized());
+    JobMetadata.init(
+        jobId,
+        encodedPrivateKey,
+        existingJob.transferDataType(),
+        existingJob.exportService(),
+        existingJob.importService(),
+        Stopwatch.createUnstarted());
+    try {
+      store.takeOverJobLease(
+          jobId,
+          existingJob.leaseHolder(),
+          JobMetadata.getLeaseHolder(),
+          Instant.now().plusMillis(leaseDurationMillis));
+    } catch (IllegalStateException | IOException e) {
+      monitor.debug(
+          () ->
+              format(
+                  "Could not take over job %s. It was probably already taken over by another"
+                      + " transfer worker. Error msg: %s",
+                  jobId, e.getMessage()),
+          e);
+      JobMetadata.reset();
+      recordClaimAttempt(existingJob, false);
+      return false;
+    }
+    recordClaimAttempt(existingJob, true);
+
+    if (monitor instanceof JobAwareMonitor) {
+      ((JobAwareMonitor) monitor).setJobId(jobId.toString());
+    }
     return true;
   }
 
+  private void recordClaimAttempt(PortabilityJob job, boolean success) {
+    metricRecorder.claimJobAttemptFinished(
+        job.transferDataType(), job.exportService(), job.importService(), success);
+  }
+
   /**
    * Polls for job with populated auth data and stops this service when found.
    */
@@ -64,6 +64,7 @@ class JobProcessor {
   private final JobHooks hooks;
   private final ObjectMapper objectMapper;
   private final InMemoryDataCopier copier;
+  private final WorkerKeyBackup workerKeyBackup;
   private final AuthDataDecryptService decryptService;
   private final Provider<SignalHandler> exportSignalHandlerProvider;
   private final Provider<SignalHandler> importSignalHandlerProvider;
@@ -77,6 +78,7 @@ class JobProcessor {
       JobHooks hooks,
       ObjectMapper objectMapper,
       InMemoryDataCopier copier,
+      WorkerKeyBackup workerKeyBackup,
       AuthDataDecryptService decryptService,
       @ExportSignalHandler Provider<SignalHandler> exportSignalHandlerProvider,
       @ImportSignalHandler Provider<SignalHandler> importSignalHandlerProvider,
@@ -87,6 +89,7 @@ class JobProcessor {
     this.hooks = hooks;
     this.objectMapper = objectMapper;
     this.copier = copier;
+    this.workerKeyBackup = workerKeyBackup;
     this.decryptService = decryptService;
     this.exportSignalHandlerProvider = exportSignalHandlerProvider;
     this.importSignalHandlerProvider = importSignalHandlerProvider;
@@ -104,10 +107,13 @@ class JobProcessor {
     AuthData importAuthData = null;
 
     try {
-      markJobStarted(jobId);
+      PortabilityJob job = store.findJob(jobId);
+      // A job taken over from a worker whose lease expired is already in progress.
+      if (job.state() != State.IN_PROGRESS) {
+        markJobStarted(jobId);
+      }
       hooks.jobStarted(jobId);
 
-      PortabilityJob job = store.findJob(jobId);
       JobAuthorization jobAuthorization = job.jobAuthorization();
 
       monitor.debug(
@@ -180,16 +186,25 @@ class JobProcessor {
       monitor.debug(
           () -> format("Finished processing jobId: %s with %d error(s).", jobId, numErrors),
           EventCode.WORKER_JOB_FINISHED);
-      addErrorsAndMarkJobFinished(jobId, success, loggedErrors);
-      hooks.jobFinished(jobId, success);
-      JobLifeCycle finalStatus = deriveFinalJobStatus(success);
-      sendSignals(jobId, exportAuthData, importAuthData, finalStatus, monitor);
-      dtpInternalMetricRecorder.finishedJob(
-          JobMetadata.getDataType(),
-          JobMetadata.getExportService(),
-          JobMetadata.getImportService(),
-          success,
-          JobMetadata.getStopWatch().elapsed());
+      copier.finishJob(jobId);
+      // Whether finished or stopped by the cancel watcher, the job can't be taken over anymore.
+      removeWorkerKeyBackup(jobId);
+      if (JobMetadata.isTerminated()) {
+        // The cancel watcher already recorded the job's final state, which it must keep.
+        monitor.info(() -> format("Job %s was stopped by the cancel watcher", jobId));
+      } else {
+        addErrorsAndMarkJobFinished(jobId, success, loggedErrors);
+        removeTemporaryData(jobId);
+        hooks.jobFinished(jobId, success);
+        JobLifeCycle finalStatus = deriveFinalJobStatus(success);
+        sendSignals(jobId, exportAuthData, importAuthData, finalStatus, monitor);
+        dtpInternalMetricRecorder.finishedJob(
+            JobMetadata.getDataType(),
+            JobMetadata.getExportService(),
+            JobMetadata.getImportService(),
+            success,
+            JobMetadata.getStopWatch().elapsed());
+      }
       monitor.flushLogs();
       JobMetadata.reset();
     }
@@ -243,7 +258,8 @@ class JobProcessor {
     }
     try {
       store.markJobAsFinished(jobId, success ? State.COMPLETE : State.ERROR);
-    } catch (IOException e) {
+    } catch (IOException | IllegalStateException e) {
+      // An IllegalStateException means the job was canceled while it was being finished.
       monitor.severe(() -> format("Could not mark job %s as finished.", jobId));
     }
   }
@@ -256,6 +272,22 @@ class JobProcessor {
     }
   }
 
+  private void removeTemporaryData(UUID jobId) {
+    try {
+      store.removeAllData(jobId);
+    } catch (IOException | RuntimeException e) {
+      monitor.severe(() -> format("Could not remove temporary data of job %s", jobId), e);
+    }
+  }
+
+  private void removeWorkerKeyBackup(UUID jobId) {
+    try {
+      workerKeyBackup.remove(jobId);
+    } catch (RuntimeException e) {
+      monitor.severe(() -> format("Could not remove the worker key backup of job %s", jobId), e);
+    }
+  }
+
   private void markJobStarted(UUID jobId) {
     try {
       store.markJobAsStarted(jobId);
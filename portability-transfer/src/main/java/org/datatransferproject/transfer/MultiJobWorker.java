@@ -0,0 +1,98 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.transfer;
+
+import com.google.common.base.Preconditions;
+import com.google.inject.Injector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.transfer.threads.WorkerThreads;
+
+/**
+ * Claims and processes up to {@code maxConcurrentJobs} jobs at the same time within one worker.
+ *
+ * <p>Every job runs on its own thread, in its own {@link JobMetadata} scope and in a child of the
+ * worker's injector built from a fresh {@link JobModule}, so exporters, importers, idempotent
+ * executors, monitors and the cancel watcher are never shared between jobs. Once a job finishes
+ * its thread goes back to polling for the next one.
+ */
+final class MultiJobWorker {
+  private final Injector workerInjector;
+  private final Function<Runnable, JobModule> jobModuleFactory;
+  private final int maxConcurrentJobs;
+  private final Monitor monitor;
+  private final ExecutorService jobExecutor;
+
+  /**
+   * @param jobModuleFactory creates the {@link JobModule} of a job, given the action that stops
+   *     that job when it gets canceled
+   */
+  MultiJobWorker(
+      Injector workerInjector,
+      Function<Runnable, JobModule> jobModuleFactory,
+      int maxConcurrentJobs,
+      Monitor monitor) {
+    Preconditions.checkArgument(
+        maxConcurrentJobs > 0, "maxConcurrentJobs must be positive: %s", maxConcurrentJobs);
+    this.workerInjector = workerInjector;
+    this.jobModuleFactory = jobModuleFactory;
+    this.maxConcurrentJobs = maxConcurrentJobs;
+    this.monitor = monitor;
+    this.jobExecutor =
+        Executors.newFixedThreadPool(
+            maxConcurrentJobs, WorkerThreads.newThreadFactory("job-slot-"));
+  }
+
+  /** Processes jobs until the calling thread is interrupted. */
+  void doWork() {
+    monitor.info(() -> "Processing up to " + maxConcurrentJobs + " jobs concurrently");
+    for (int i = 0; i < maxConcurrentJobs; i++) {
+      jobExecutor.execute(this::processJobs);
+    }
+    try {
+      while (!jobExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+        // Keep waiting, the job threads only stop on shutdown.
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      jobExecutor.shutdownNow();
+    }
+  }
+
+  private void processJobs() {
+    while (!jobExecutor.isShutdown()) {
+      Thread jobThread = Thread.currentThread();
+      JobMetadata.enterJobScope();
+      try {
+        workerInjector
+            .createChildInjector(jobModuleFactory.apply(jobThread::interrupt))
+            .getInstance(Worker.class)
+            .doWork();
+      } catch (RuntimeException e) {
+        monitor.severe(() -> "Error processing job", e);
+      } finally {
+        JobMetadata.exitJobScope();
+      }
+      // A canceled job is stopped by interrupting its thread, which must not leak into the next
+      // job.
+      Thread.interrupted();
+    }
+  }
+}
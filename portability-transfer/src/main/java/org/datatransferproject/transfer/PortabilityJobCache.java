@@ -0,0 +1,67 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.spi.cloud.types.PortabilityJob;
+
+/**
+ * A read-through cache of the jobs a worker is processing, so that attributes which don't change
+ * once a job has started, such as its transfer mode, services or export information, can be read
+ * without a round trip to the {@link JobStore} for every page.
+ *
+ * <p>The state and authorization of a cached job may be stale: code that needs them current calls
+ * {@link #refresh}, which also keeps the cache up to date for everyone else. Entries are removed
+ * with {@link #invalidate} when the worker changes a job's state or the job ends.
+ */
+@Singleton
+public class PortabilityJobCache {
+
+  private final JobStore jobStore;
+  private final Map<UUID, PortabilityJob> jobs = new ConcurrentHashMap<>();
+
+  @Inject
+  public PortabilityJobCache(JobStore jobStore) {
+    this.jobStore = jobStore;
+  }
+
+  /** Returns the job, from the cache if present, or null if it doesn't exist. */
+  public PortabilityJob get(UUID jobId) {
+    PortabilityJob job = jobs.get(jobId);
+    return job != null ? job : refresh(jobId);
+  }
+
+  /** Reads the job from the store and caches it, returning null if it doesn't exist. */
+  public PortabilityJob refresh(UUID jobId) {
+    PortabilityJob job = jobStore.findJob(jobId);
+    if (job == null) {
+      jobs.remove(jobId);
+    } else {
+      jobs.put(jobId, job);
+    }
+    return job;
+  }
+
+  public void invalidate(UUID jobId) {
+    jobs.remove(jobId);
+  }
+}
@@ -21,21 +21,30 @@ import com.google.inject.Inject;
 final class Worker {
   private final JobPoller jobPoller;
   private final JobCancelWatchingService jobCancelWatchingService;
+  private final JobLeaseService jobLeaseService;
   private final JobProcessor jobProcessor;
 
   @Inject
   Worker(
       JobPoller jobPoller,
       JobCancelWatchingService jobCancelWatchingService,
+      JobLeaseService jobLeaseService,
       JobProcessor jobProcessor) {
     this.jobPoller = jobPoller;
     this.jobCancelWatchingService = jobCancelWatchingService;
+    this.jobLeaseService = jobLeaseService;
     this.jobProcessor = jobProcessor;
   }
 
   void doWork() {
     jobPoller.pollJob();
     jobCancelWatchingService.startAsync();
-    jobProcessor.processJob();
+    jobLeaseService.startAsync();
+    try {
+      jobProcessor.processJob();
+    } finally {
+      jobLeaseService.stopAsync();
+      jobCancelWatchingService.stopAsync();
+    }
   }
 }
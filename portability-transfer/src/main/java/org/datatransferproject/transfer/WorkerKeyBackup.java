@@ -0,0 +1,156 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.google.inject.Inject;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
+import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.types.common.models.DataModel;
+
+/**
+ * Backs up the private key of the worker key pair a job's credentials are encrypted with, so that
+ * another transfer worker can take the job over if this one dies mid-copy.
+ *
+ * <p>The key is stored with the job's temporary data, encrypted with a key derived from the {@code
+ * WORKER_KEY_BACKUP_SECRET} app credential shared by all transfer workers, and is removed when the
+ * job ends.
+ */
+class WorkerKeyBackup {
+  static final String BACKUP_KEY_NAME = "WORKER_KEY_BACKUP_KEY";
+  static final String BACKUP_SECRET_NAME = "WORKER_KEY_BACKUP_SECRET";
+
+  private static final String DATA_KEY = "workerKeyBackup";
+  private static final String CIPHER = "AES/GCM/NoPadding";
+  private static final int IV_LENGTH = 12;
+  private static final int TAG_LENGTH_BITS = 128;
+  private static final String HMAC = "HmacSHA256";
+  private static final byte[] HKDF_INFO =
+      "dtp-worker-key-backup".getBytes(StandardCharsets.UTF_8);
+
+  private final JobStore store;
+  private final AppCredentialStore appCredentialStore;
+  private final SecureRandom random = new SecureRandom();
+  private SecretKey backupKey;
+
+  @Inject
+  WorkerKeyBackup(JobStore store, AppCredentialStore appCredentialStore) {
+    this.store = store;
+    this.appCredentialStore = appCredentialStore;
+  }
+
+  /** Stores the encrypted {@code encodedPrivateKey} of the worker processing {@code jobId}. */
+  void backUp(UUID jobId, byte[] encodedPrivateKey) throws IOException {
+    byte[] iv = new byte[IV_LENGTH];
+    random.nextBytes(iv);
+    byte[] encrypted;
+    try {
+      Cipher cipher = Cipher.getInstance(CIPHER);
+      cipher.init(Cipher.ENCRYPT_MODE, getBackupKey(), new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+      encrypted = cipher.doFinal(encodedPrivateKey);
+    } catch (GeneralSecurityException e) {
+      throw new IOException("Could not encrypt the worker key of job " + jobId, e);
+    }
+    byte[] ivAndEncrypted =
+        ByteBuffer.allocate(iv.length + encrypted.length).put(iv).put(encrypted).array();
+    store.create(
+        jobId, DATA_KEY, new EncryptedWorkerKey(Base64.getEncoder().encodeToString(ivAndEncrypted)));
+  }
+
+  /** Removes the private key backed up for {@code jobId}, once the job has ended. */
+  void remove(UUID jobId) {
+    store.removeData(jobId, DATA_KEY);
+  }
+
+  /** Returns the private key backed up for {@code jobId}, or null if there is none. */
+  @Nullable
+  byte[] restore(UUID jobId) throws IOException {
+    EncryptedWorkerKey backup = store.findData(jobId, DATA_KEY, EncryptedWorkerKey.class);
+    if (backup == null) {
+      return null;
+    }
+    byte[] ivAndEncrypted = Base64.getDecoder().decode(backup.getEncryptedKey());
+    try {
+      Cipher cipher = Cipher.getInstance(CIPHER);
+      cipher.init(
+          Cipher.DECRYPT_MODE,
+          getBackupKey(),
+          new GCMParameterSpec(TAG_LENGTH_BITS, ivAndEncrypted, 0, IV_LENGTH));
+      return cipher.doFinal(ivAndEncrypted, IV_LENGTH, ivAndEncrypted.length - IV_LENGTH);
+    } catch (GeneralSecurityException e) {
+      throw new IOException("Could not decrypt the worker key of job " + jobId, e);
+    }
+  }
+
+  private synchronized SecretKey getBackupKey() throws IOException {
+    if (backupKey == null) {
+      String secret =
+          appCredentialStore.getAppCredentials(BACKUP_KEY_NAME, BACKUP_SECRET_NAME).getSecret();
+      try {
+        backupKey =
+            new SecretKeySpec(hkdfSha256(secret.getBytes(StandardCharsets.UTF_8)), "AES");
+      } catch (GeneralSecurityException e) {
+        throw new IOException("Could not derive the worker key backup key", e);
+      }
+    }
+    return backupKey;
+  }
+
+  /**
+   * Derives a 256 bit key from {@code secret} with HKDF-SHA256 (RFC 5869), which needs a single
+   * expand step as the key is as long as the hash.
+   */
+  private static byte[] hkdfSha256(byte[] secret) throws GeneralSecurityException {
+    Mac mac = Mac.getInstance(HMAC);
+    mac.init(new SecretKeySpec(new byte[mac.getMacLength()], HMAC));
+    byte[] pseudoRandomKey = mac.doFinal(secret);
+    mac.init(new SecretKeySpec(pseudoRandomKey, HMAC));
+    mac.update(HKDF_INFO);
+    mac.update((byte) 1);
+    return mac.doFinal();
+  }
+
+  /** A worker private key, encrypted and Base64 encoded along with its IV. */
+  @JsonTypeName("org.dataportability:EncryptedWorkerKey")
+  public static class EncryptedWorkerKey extends DataModel {
+    private final String encryptedKey;
+
+    @JsonCreator
+    public EncryptedWorkerKey(@JsonProperty("encryptedKey") String encryptedKey) {
+      this.encryptedKey = encryptedKey;
+    }
+
+    public String getEncryptedKey() {
+      return encryptedKey;
+    }
+  }
+}
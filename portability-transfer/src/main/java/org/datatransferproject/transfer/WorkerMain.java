@@ -48,14 +48,17 @@ import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportE
 import org.datatransferproject.spi.transfer.provider.TransferCompatibilityProvider;
 import org.datatransferproject.spi.transfer.security.SecurityExtension;
 import org.datatransferproject.spi.transfer.security.SecurityExtensionLoader;
+import org.datatransferproject.spi.transfer.threads.WorkerThreads;
 
 /**
  * Main class to bootstrap a portability transfer worker that will operate on a single job whose
- * state is held in {@link JobMetadata}.
+ * state is held in {@link JobMetadata}, or on up to {@code maxConcurrentJobs} jobs at once when
+ * that setting is greater than 1.
  */
 public class WorkerMain {
 
   private Worker worker;
+  private MultiJobWorker multiJobWorker;
 
   public static void main(String[] args) {
     Thread.setDefaultUncaughtExceptionHandler(UncaughtExceptionHandlers.systemExit());
@@ -117,31 +120,63 @@ public class WorkerMain {
 
     JobHooks jobHooks = loadJobHooks();
 
-    Injector injector = null;
+    WorkerModule workerModule =
+        new WorkerModule(
+            extensionContext, cloudExtension, securityExtension, symmetricKeyGenerator, jobHooks);
+    if (extensionContext.getSetting("virtualThreads", false)) {
+      if (WorkerThreads.enableVirtualThreads()) {
+        monitor.info(() -> "Running jobs, copy iterations and imports on virtual threads");
+      } else {
+        monitor.info(() -> "Virtual threads are not supported by this runtime, using platform threads");
+      }
+    }
+    WorkerThreads.setContextPropagator(JobMetadata::inCurrentScope);
+    int maxConcurrentJobs = extensionContext.getSetting("maxConcurrentJobs", 1);
     try {
-      injector =
-          Guice.createInjector(
-              new WorkerModule(
-                  extensionContext,
-                  cloudExtension,
-                  transferExtensions,
-                  securityExtension,
-                  idempotentImportExecutorExtension,
-                  symmetricKeyGenerator,
-                  jobHooks,
-                  new TransferCompatibilityProvider()));
+      if (maxConcurrentJobs > 1) {
+        // Each job gets its own transfer extension instances, as they are not required to be
+        // safe to share between jobs.
+        multiJobWorker =
+            new MultiJobWorker(
+                Guice.createInjector(workerModule),
+                jobTerminator ->
+                    new JobModule(
+                        extensionContext,
+                        getTransferExtensions(monitor),
+                        idempotentImportExecutorExtension,
+                        new TransferCompatibilityProvider(),
+                        true,
+                        jobTerminator),
+                maxConcurrentJobs,
+                monitor);
+      } else {
+        Injector injector =
+            Guice.createInjector(
+                workerModule,
+                new JobModule(
+                    extensionContext,
+                    transferExtensions,
+                    idempotentImportExecutorExtension,
+                    new TransferCompatibilityProvider(),
+                    false,
+                    () -> System.exit(0)));
+        worker = injector.getInstance(Worker.class);
+      }
     } catch (Exception e) {
       monitor.severe(() -> "Unable to initialize Guice in Worker", e);
       throw e;
     }
-    worker = injector.getInstance(Worker.class);
 
     // Reset the JobMetadata in case set previously when running SingleVMMain
     JobMetadata.reset();
   }
 
   public void poll() {
-    worker.doWork();
+    if (multiJobWorker != null) {
+      multiJobWorker.doWork();
+    } else {
+      worker.doWork();
+    }
   }
 
   private static List<TransferExtension> getTransferExtensions(Monitor monitor) {
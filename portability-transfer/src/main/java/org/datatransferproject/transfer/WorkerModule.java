@@ -16,7 +16,6 @@
 package org.datatransferproject.transfer;
 
 import static com.google.common.collect.MoreCollectors.onlyElement;
-import static java.lang.String.format;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
@@ -26,69 +25,47 @@ import com.google.common.util.concurrent.AbstractScheduledService.Scheduler;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.List;
+import java.time.Duration;
 import java.util.NoSuchElementException;
 import java.util.concurrent.TimeUnit;
-import org.datatransferproject.api.launcher.DelegatingExtensionContext;
 import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
 import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.Flag;
-import org.datatransferproject.api.launcher.MetricRecorder;
-import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.config.FlagBindingModule;
 import org.datatransferproject.launcher.metrics.LoggingDtpInternalMetricRecorder;
-import org.datatransferproject.launcher.metrics.ServiceAwareMetricRecorder;
 import org.datatransferproject.security.SymmetricKeyGenerator;
+import org.datatransferproject.spi.cloud.dispatch.JobDispatcher;
 import org.datatransferproject.spi.cloud.extension.CloudExtension;
 import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.transfer.extension.TransferExtension;
 import org.datatransferproject.spi.transfer.hooks.JobHooks;
-import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
-import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutorExtension;
-import org.datatransferproject.spi.transfer.provider.Exporter;
-import org.datatransferproject.spi.transfer.provider.Importer;
-import org.datatransferproject.spi.transfer.provider.SignalHandler;
-import org.datatransferproject.spi.transfer.provider.TransferCompatibilityProvider;
 import org.datatransferproject.spi.transfer.security.AuthDataDecryptService;
 import org.datatransferproject.spi.transfer.security.PublicKeySerializer;
 import org.datatransferproject.spi.transfer.security.SecurityExtension;
 import org.datatransferproject.spi.transfer.security.TransferKeyGenerator;
-import org.datatransferproject.transfer.copier.InMemoryDataCopier;
 import org.datatransferproject.transfer.copier.InMemoryDataCopierClassLoader;
 import org.datatransferproject.types.transfer.retry.RetryStrategyLibrary;
-import org.datatransferproject.types.transfer.serviceconfig.TransferServiceConfig;
 
 final class WorkerModule extends FlagBindingModule {
 
   private final CloudExtension cloudExtension;
   private final ExtensionContext context;
-  private final List<TransferExtension> transferExtensions;
   private final SecurityExtension securityExtension;
-  private final IdempotentImportExecutorExtension idempotentImportExecutorExtension;
   private final SymmetricKeyGenerator symmetricKeyGenerator;
   private final JobHooks jobHooks;
-  private final TransferCompatibilityProvider compatibilityProvider;
 
   WorkerModule(
       ExtensionContext context,
       CloudExtension cloudExtension,
-      List<TransferExtension> transferExtensions,
       SecurityExtension securityExtension,
-      IdempotentImportExecutorExtension idempotentImportExecutorExtension,
       SymmetricKeyGenerator symmetricKeyGenerator,
-      JobHooks jobHooks,
-      TransferCompatibilityProvider transferCompatibilityProvider) {
+      JobHooks jobHooks) {
     this.cloudExtension = cloudExtension;
     this.context = context;
-    this.transferExtensions = transferExtensions;
     this.securityExtension = securityExtension;
-    this.idempotentImportExecutorExtension = idempotentImportExecutorExtension;
     this.symmetricKeyGenerator = symmetricKeyGenerator;
     this.jobHooks = jobHooks;
-    this.compatibilityProvider = transferCompatibilityProvider;
   }
 
   @VisibleForTesting
@@ -114,8 +91,8 @@ final class WorkerModule extends FlagBindingModule {
     bindFlags(context);
 
     bind(JobHooks.class).toInstance(jobHooks);
-    bind(InMemoryDataCopier.class).to(InMemoryDataCopierClassLoader.load());
-    getMonitor()
+    context
+        .getMonitor()
         .info(() -> "Using InMemoryDataCopier: " + InMemoryDataCopierClassLoader.load().getName());
 
     bind(ObjectMapper.class).toInstance(context.getTypeManager().getMapper());
@@ -164,87 +141,10 @@ final class WorkerModule extends FlagBindingModule {
 
   @Provides
   @Singleton
-  Exporter getExporter(ImmutableList<TransferExtension> transferExtensions) {
-    TransferExtension extension =
-        findTransferExtension(transferExtensions, JobMetadata.getExportService());
-    DelegatingExtensionContext serviceSpecificContext = new DelegatingExtensionContext(context);
-    serviceSpecificContext.registerOverrideService(
-        MetricRecorder.class,
-        new ServiceAwareMetricRecorder(
-            extension.getServiceId(),
-            context.getService(DtpInternalMetricRecorder.class)));
-    serviceSpecificContext.registerOverrideService(
-        TransferServiceConfig.class,
-        getTransferServiceConfig(extension));
-    extension.initialize(serviceSpecificContext);
-
-    return compatibilityProvider.getCompatibleExporter(extension, JobMetadata.getDataType());
-  }
-
-  @Provides
-  @Singleton
-  Importer getImporter(ImmutableList<TransferExtension> transferExtensions) {
-    TransferExtension extension =
-        findTransferExtension(transferExtensions, JobMetadata.getImportService());
-    DelegatingExtensionContext serviceSpecificContext = new DelegatingExtensionContext(context);
-    serviceSpecificContext.registerOverrideService(
-        MetricRecorder.class,
-        new ServiceAwareMetricRecorder(
-            extension.getServiceId(),
-            context.getService(DtpInternalMetricRecorder.class)));
-    serviceSpecificContext.registerOverrideService(
-        TransferServiceConfig.class,
-        getTransferServiceConfig(extension));
-    extension.initialize(serviceSpecificContext);
-    return compatibilityProvider.getCompatibleImporter(extension, JobMetadata.getDataType());
-  }
-
-  @Provides
-  @Singleton
-  @Annotations.ImportSignalHandler
-  SignalHandler getImportSignalHandler(ImmutableList<TransferExtension> transferExtensions) {
-    TransferExtension extension =
-      findTransferExtension(transferExtensions, JobMetadata.getImportService());
-    DelegatingExtensionContext serviceSpecificContext = new DelegatingExtensionContext(context);
-    serviceSpecificContext.registerOverrideService(
-      MetricRecorder.class,
-      new ServiceAwareMetricRecorder(
-        extension.getServiceId(),
-        context.getService(DtpInternalMetricRecorder.class)));
-    serviceSpecificContext.registerOverrideService(
-      TransferServiceConfig.class,
-      getTransferServiceConfig(extension));
-    extension.initialize(serviceSpecificContext);
-    extension.initialize(serviceSpecificContext);
-    return extension.getSignalHandler();
-  }
-
-  @Provides
-  @Singleton
-  @Annotations.ExportSignalHandler
-  SignalHandler getExportSignalHandler(ImmutableList<TransferExtension> transferExtensions) {
-    TransferExtension extension =
-      findTransferExtension(transferExtensions, JobMetadata.getExportService());
-    DelegatingExtensionContext serviceSpecificContext = new DelegatingExtensionContext(context);
-    serviceSpecificContext.registerOverrideService(
-      MetricRecorder.class,
-      new ServiceAwareMetricRecorder(
-        extension.getServiceId(),
-        context.getService(DtpInternalMetricRecorder.class)));
-    serviceSpecificContext.registerOverrideService(
-      TransferServiceConfig.class,
-      getTransferServiceConfig(extension));
-    extension.initialize(serviceSpecificContext);
-    return extension.getSignalHandler();
-  }
-
-  @Provides
-  @Singleton
-  ImmutableList<TransferExtension> getTransferExtensions() {
-    return ImmutableList.copyOf(transferExtensions);
+  JobDispatcher getJobDispatcher() {
+    return cloudExtension.getJobDispatcher();
   }
 
-
   @Provides
   @Singleton
   RetryStrategyLibrary getRetryStrategyLibrary() {
@@ -254,26 +154,29 @@ final class WorkerModule extends FlagBindingModule {
   @Provides
   @Singleton
   Scheduler getScheduler() {
-    // TODO: parse a Duration from the settings
-    long interval = context.getSetting("pollInterval", 2000); // Default: poll every 2s
+    Duration interval = context.getDurationSetting("pollInterval", Duration.ofSeconds(2));
     return AbstractScheduledService.Scheduler.newFixedDelaySchedule(
-        0, interval, TimeUnit.MILLISECONDS);
+        0, interval.toMillis(), TimeUnit.MILLISECONDS);
   }
 
   @Provides
   @Singleton
   @Annotations.CancelScheduler
   Scheduler getCancelCheckingScheduler() {
-    // TODO: parse a Duration from the settings
-    long interval = context.getSetting("cancelCheckPollInterval", 60000); // Default: poll every 1m
+    Duration interval =
+        context.getDurationSetting("cancelCheckPollInterval", Duration.ofMinutes(1));
     return AbstractScheduledService.Scheduler.newFixedDelaySchedule(
-        0, interval, TimeUnit.MILLISECONDS);
+        0, interval.toMillis(), TimeUnit.MILLISECONDS);
   }
 
   @Provides
   @Singleton
-  Monitor getMonitor() {
-    return context.getMonitor();
+  @Annotations.LeaseScheduler
+  Scheduler getLeaseRenewingScheduler() {
+    Duration leaseDuration = context.getDurationSetting("jobLeaseDuration", Duration.ofMinutes(2));
+    // Renew well before the lease expires, so that a slow store doesn't cost the lease.
+    return AbstractScheduledService.Scheduler.newFixedDelaySchedule(
+        0, leaseDuration.toMillis() / 4, TimeUnit.MILLISECONDS);
   }
 
   @Provides
@@ -282,30 +185,19 @@ final class WorkerModule extends FlagBindingModule {
     return context;
   }
 
-  private TransferServiceConfig getTransferServiceConfig(TransferExtension ext) {
-    try {
-      return TransferServiceConfig.getForService(ext.getServiceId());
-    } catch (IOException e) {
-      throw new RuntimeException("Couldn't create config for " + ext.getServiceId(), e);
-    }
-  }
-
-  @Provides
-  @Singleton
-  public IdempotentImportExecutor getIdempotentImportExecutor() {
-    return idempotentImportExecutorExtension.getIdempotentImportExecutor(context);
-  }
-
-  @Provides
-  @Singleton
-  @Annotations.RetryingExecutor
-  public IdempotentImportExecutor getRetryingIdempotentImportExecutor() {
-    return idempotentImportExecutorExtension.getRetryingIdempotentImportExecutor(context);
-  }
-
   @Provides
   @Named("transferSignalEnabled")
   public Boolean transferSignalEnabled() {
     return context.getSetting("transferSignalEnabled", Boolean.TRUE);
   }
+
+  /**
+   * The maximum number of exported pages whose import may still be outstanding while copiers
+   * supporting it export the following pages. Defaults to 0, i.e. export and import alternate.
+   */
+  @Provides
+  @Named("importPipelineDepth")
+  public Integer importPipelineDepth() {
+    return context.getSetting("importPipelineDepth", 0);
+  }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.copier;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.datatransferproject.spi.cloud.storage.JobStore;
+
+/**
+ * Accumulates the item counts and bytes of a job's imports in memory and adds them to the {@link
+ * JobStore} at most once per flush interval, in a single {@link JobStore#addCountsAndBytes} call,
+ * rather than once per imported page.
+ *
+ * <p>Pages may be recorded concurrently. Counts not yet flushed are lost if the worker dies, so
+ * {@link #flush()} must be called when the job ends.
+ */
+public class BufferedJobCounters {
+
+  private final JobStore jobStore;
+  private final UUID jobId;
+  private final long flushIntervalMillis;
+  private final Clock clock;
+  // Taken with getAndSet when flushing, which unlike LongAdder.sumThenReset can't lose a
+  // concurrent add.
+  private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+  private final AtomicLong bytes = new AtomicLong();
+  private final AtomicLong nextFlushMillis;
+
+  public BufferedJobCounters(JobStore jobStore, UUID jobId, Duration flushInterval, Clock clock) {
+    this.jobStore = jobStore;
+    this.jobId = jobId;
+    this.flushIntervalMillis = flushInterval.toMillis();
+    this.clock = clock;
+    this.nextFlushMillis = new AtomicLong(clock.millis() + flushIntervalMillis);
+  }
+
+  public UUID getJobId() {
+    return jobId;
+  }
+
+  /**
+   * Records the counts and bytes of an imported page, and flushes everything recorded so far if
+   * the flush interval has passed.
+   */
+  public void add(@Nullable Map<String, Integer> newCounts, @Nullable Long newBytes)
+      throws IOException {
+    if (newCounts != null) {
+      newCounts.forEach(
+          (dataType, count) ->
+              counts.computeIfAbsent(dataType, k -> new AtomicLong()).addAndGet(count));
+    }
+    if (newBytes != null) {
+      bytes.addAndGet(newBytes);
+    }
+
+    long now = clock.millis();
+    long next = nextFlushMillis.get();
+    // Only the thread that moves the deadline flushes, the others carry on importing.
+    if (now >= next && nextFlushMillis.compareAndSet(next, now + flushIntervalMillis)) {
+      flush();
+    }
+  }
+
+  /**
+   * Adds everything recorded since the last flush to the job store. If that fails, the counts are
+   * kept for the next flush.
+   */
+  public synchronized void flush() throws IOException {
+    Map<String, Integer> flushedCounts = new HashMap<>();
+    counts.forEach(
+        (dataType, count) -> {
+          long sum = count.getAndSet(0);
+          if (sum != 0) {
+            flushedCounts.put(dataType, Math.toIntExact(sum));
+          }
+        });
+    long flushedBytes = bytes.getAndSet(0);
+    if (flushedCounts.isEmpty() && flushedBytes == 0) {
+      return;
+    }
+
+    try {
+      jobStore.addCountsAndBytes(
+          jobId,
+          flushedCounts.isEmpty() ? null : flushedCounts,
+          flushedBytes == 0 ? null : flushedBytes);
+    } catch (IOException | RuntimeException e) {
+      flushedCounts.forEach(
+          (dataType, count) ->
+              counts.computeIfAbsent(dataType, k -> new AtomicLong()).addAndGet(count));
+      bytes.addAndGet(flushedBytes);
+      throw e;
+    }
+  }
+}
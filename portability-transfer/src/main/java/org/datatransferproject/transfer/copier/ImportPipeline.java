@@ -0,0 +1,174 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.copier;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import org.datatransferproject.spi.transfer.threads.WorkerThreads;
+import org.datatransferproject.spi.transfer.types.CopyException;
+
+/**
+ * Starts the import half of copy iterations on a single background thread, so that the exporter
+ * can list the next page while the previous one is being imported.
+ *
+ * <p>Imports run one at a time and in submission order, so an import never overtakes the import of
+ * a parent container. An import submitted through {@link #submitAsync} may return before it has
+ * finished, e.g. while it waits to be retried; the next one only starts once it has, but the
+ * background thread isn't held in the meantime. At most {@code depth} imports are queued or
+ * running at any time; {@link #submit} blocks once that limit is reached, which bounds the number
+ * of exported pages held in memory.
+ *
+ * <p>A failed import is rethrown from the next call to {@link #submit} or {@link #awaitAll}; no
+ * further imports are started after that.
+ */
+public class ImportPipeline implements AutoCloseable {
+
+  private final String jobIdPrefix;
+  private final ExecutorService executorService;
+  private final Semaphore availableSlots;
+  private final Deque<CompletableFuture<Void>> pendingImports = new ArrayDeque<>();
+  private CompletableFuture<Void> lastImport = CompletableFuture.completedFuture(null);
+  /** The import that was started last, which closing the pipeline stops. */
+  private volatile CompletableFuture<Void> runningImport;
+
+  public ImportPipeline(UUID jobId, int depth) {
+    Preconditions.checkArgument(depth > 0, "Import pipeline depth must be positive: %s", depth);
+    this.jobIdPrefix = "Job " + jobId + ": ";
+    this.executorService =
+        Executors.newSingleThreadExecutor(
+            WorkerThreads.newThreadFactory("import-pipeline-" + jobId + "-"));
+    this.availableSlots = new Semaphore(depth);
+  }
+
+  /**
+   * Queues {@code importTask} behind the previously submitted ones, blocking while the pipeline is
+   * full.
+   *
+   * @throws CopyException if a previously submitted import failed
+   */
+  public void submit(ImportTask importTask) throws CopyException {
+    submitAsync(() -> runAsFuture(importTask), () -> {});
+  }
+
+  /**
+   * Like {@link #submit}, but the import is only finished once the future returned by {@code
+   * importTask} is, and {@code onImported} has run after it.
+   *
+   * @throws CopyException if a previously submitted import failed
+   */
+  public void submitAsync(AsyncImportTask importTask, ImportTask onImported)
+      throws CopyException {
+    rethrowFailedImports();
+    try {
+      availableSlots.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CopyException(jobIdPrefix + "Interrupted while waiting to queue an import", e);
+    }
+    CompletableFuture<Void> pendingImport =
+        lastImport.thenComposeAsync(
+            previousImport -> start(importTask, onImported), executorService);
+    pendingImport.whenComplete((ignored, failure) -> availableSlots.release());
+    pendingImports.add(pendingImport);
+    lastImport = pendingImport;
+  }
+
+  /**
+   * Waits for all submitted imports to finish.
+   *
+   * @throws CopyException if any of them failed
+   */
+  public void awaitAll() throws CopyException {
+    while (!pendingImports.isEmpty()) {
+      await(pendingImports.poll());
+    }
+  }
+
+  @Override
+  public void close() {
+    executorService.shutdownNow();
+    CompletableFuture<Void> importToStop = runningImport;
+    if (importToStop != null) {
+      importToStop.cancel(false);
+    }
+  }
+
+  private CompletableFuture<Void> start(AsyncImportTask importTask, ImportTask onImported) {
+    CompletableFuture<Void> startedImport;
+    try {
+      startedImport = importTask.start();
+    } catch (CopyException e) {
+      startedImport = CompletableFuture.failedFuture(e);
+    }
+    runningImport = startedImport;
+    return startedImport.thenCompose(imported -> runAsFuture(onImported));
+  }
+
+  private static CompletableFuture<Void> runAsFuture(ImportTask importTask) {
+    try {
+      importTask.run();
+      return CompletableFuture.completedFuture(null);
+    } catch (CopyException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /** Checks the imports that already finished, without blocking on the ones still running. */
+  private void rethrowFailedImports() throws CopyException {
+    while (!pendingImports.isEmpty() && pendingImports.peek().isDone()) {
+      await(pendingImports.poll());
+    }
+  }
+
+  private void await(CompletableFuture<Void> pendingImport) throws CopyException {
+    try {
+      pendingImport.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CopyException(jobIdPrefix + "Interrupted while waiting for an import", e);
+    } catch (ExecutionException e) {
+      executorService.shutdownNow();
+      Throwable cause = e.getCause();
+      if (cause instanceof CopyException) {
+        throw (CopyException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new CopyException(jobIdPrefix + "Error happened during import", cause);
+    }
+  }
+
+  /** The import half of a copy iteration. */
+  @FunctionalInterface
+  public interface ImportTask {
+    void run() throws CopyException;
+  }
+
+  /** The import half of a copy iteration, which may finish after it returned. */
+  @FunctionalInterface
+  public interface AsyncImportTask {
+    /** Starts the import, returning a future that fails with a {@link CopyException} if it does. */
+    CompletableFuture<Void> start() throws CopyException;
+  }
+}
@@ -35,4 +35,7 @@ public interface InMemoryDataCopier {
       throws IOException, CopyException;
 
   Collection<ErrorDetail> getErrors(UUID jobId);
+
+  /* Persists anything still buffered for the job, called once it has ended */
+  default void finishJob(UUID jobId) {}
 }
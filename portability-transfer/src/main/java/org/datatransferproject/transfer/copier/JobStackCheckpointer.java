@@ -0,0 +1,87 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.copier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+import java.util.UUID;
+import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.spi.cloud.types.JobStackDelta;
+import org.datatransferproject.types.common.ExportInformation;
+
+/**
+ * Stores the stack of a job in a {@link JobStore} after each copy iteration.
+ *
+ * <p>If the store supports it, only the difference to the previously stored stack is written, as
+ * a {@link JobStackDelta}. The whole stack is written again once there are as many deltas as
+ * entries in the stack (and at least {@link #MIN_DELTAS_BETWEEN_SNAPSHOTS}), which keeps the
+ * amortized cost of a checkpoint proportional to the size of the change rather than the size of
+ * the stack, and bounds the number of deltas applied when the stack is loaded.
+ *
+ * <p>Entries are compared by identity, as copiers push new {@link ExportInformation} instances for
+ * every continuation.
+ */
+public class JobStackCheckpointer {
+
+  private static final int MIN_DELTAS_BETWEEN_SNAPSHOTS = 32;
+
+  private final JobStore jobStore;
+  private final UUID jobId;
+  // The stack as the store currently has it, or null before anything has been stored. A loaded
+  // stack isn't used as a starting point, since the number of its deltas is unknown.
+  private List<ExportInformation> storedStack;
+  private int deltaCount;
+
+  public JobStackCheckpointer(JobStore jobStore, UUID jobId) {
+    this.jobStore = jobStore;
+    this.jobId = jobId;
+  }
+
+  /** Stores {@code stack}, which must not be modified afterwards. */
+  public synchronized void checkpoint(Stack<ExportInformation> stack) {
+    if (storedStack == null || !jobStore.supportsJobStackDeltas()) {
+      storeSnapshot(stack);
+      return;
+    }
+    int unchanged = 0;
+    int maxUnchanged = Math.min(storedStack.size(), stack.size());
+    while (unchanged < maxUnchanged && storedStack.get(unchanged) == stack.get(unchanged)) {
+      unchanged++;
+    }
+    int popCount = storedStack.size() - unchanged;
+    List<ExportInformation> pushed = stack.subList(unchanged, stack.size());
+    if (popCount == 0 && pushed.isEmpty()) {
+      return;
+    }
+    if (deltaCount >= Math.max(MIN_DELTAS_BETWEEN_SNAPSHOTS, stack.size())
+        || pushed.size() >= stack.size()) {
+      storeSnapshot(stack);
+      return;
+    }
+    jobStore.appendJobStackDelta(jobId, new JobStackDelta(deltaCount + 1, popCount, pushed));
+    deltaCount++;
+    storedStack.subList(unchanged, storedStack.size()).clear();
+    storedStack.addAll(pushed);
+  }
+
+  private void storeSnapshot(Stack<ExportInformation> stack) {
+    jobStore.storeJobStack(jobId, stack);
+    storedStack = new ArrayList<>(stack);
+    deltaCount = 0;
+  }
+}
@@ -17,15 +17,26 @@ package org.datatransferproject.transfer.copier;
 
 import com.google.cloud.datastore.DatastoreException;
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
 import com.google.inject.Provider;
 import java.io.IOException;
 import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.launcher.monitor.events.EventCode;
@@ -38,6 +49,7 @@ import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.Exporter;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.Importer;
+import org.datatransferproject.spi.transfer.threads.WorkerThreads;
 import org.datatransferproject.spi.transfer.types.CopyException;
 import org.datatransferproject.spi.transfer.types.CopyExceptionWithFailureReason;
 import org.datatransferproject.transfer.Annotations;
@@ -45,9 +57,11 @@ import org.datatransferproject.transfer.CallableExporter;
 import org.datatransferproject.transfer.CallableImporter;
 import org.datatransferproject.transfer.CallableSizeCalculator;
 import org.datatransferproject.transfer.JobMetadata;
+import org.datatransferproject.transfer.PortabilityJobCache;
 import org.datatransferproject.types.common.DownloadableItem;
 import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.models.DataModel;
+import org.datatransferproject.types.common.models.DataVertical;
 import org.datatransferproject.types.common.models.media.MediaContainerResource;
 import org.datatransferproject.types.common.models.photos.PhotosContainerResource;
 import org.datatransferproject.types.common.models.videos.VideosContainerResource;
@@ -58,6 +72,16 @@ import org.datatransferproject.types.transfer.retry.RetryStrategyLibrary;
 import org.datatransferproject.types.transfer.retry.RetryingCallable;
 
 public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryDataCopier {
+  /** Number of items of a page whose size is determined at the same time. */
+  private static final int SIZE_CALCULATION_PARALLELISM = 8;
+  /** How often the counts and bytes of imported pages are added to the job store. */
+  private static final Duration COUNTS_FLUSH_INTERVAL = Duration.ofSeconds(10);
+
+  /** Runs the attempts of the imports of all jobs. Created on first use. */
+  private static ExecutorService importAttemptExecutor;
+  /** Holds the imports of all jobs that wait to be retried. Created on first use. */
+  private static ScheduledExecutorService importRetryTimer;
+
   /**
    * Lazy evaluate exporter and importer as their providers depend on the polled {@code
    * PortabilityJob} which is not available at startup.
@@ -71,6 +95,8 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
   protected final Monitor monitor;
   protected final DtpInternalMetricRecorder metricRecorder;
   protected final JobStore jobStore;
+  protected final PortabilityJobCache jobCache;
+  private BufferedJobCounters jobCounters;
 
   public PortabilityAbstractInMemoryDataCopier(
       Provider<Exporter> exporterProvider,
@@ -81,6 +107,28 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
       @Annotations.RetryingExecutor IdempotentImportExecutor retryingIdempotentImportExecutor,
       DtpInternalMetricRecorder dtpInternalMetricRecorder,
       JobStore jobStore) {
+    this(
+        exporterProvider,
+        importerProvider,
+        retryStrategyLibraryProvider,
+        monitor,
+        idempotentImportExecutor,
+        retryingIdempotentImportExecutor,
+        dtpInternalMetricRecorder,
+        jobStore,
+        new PortabilityJobCache(jobStore));
+  }
+
+  public PortabilityAbstractInMemoryDataCopier(
+      Provider<Exporter> exporterProvider,
+      Provider<Importer> importerProvider,
+      Provider<RetryStrategyLibrary> retryStrategyLibraryProvider,
+      Monitor monitor,
+      IdempotentImportExecutor idempotentImportExecutor,
+      @Annotations.RetryingExecutor IdempotentImportExecutor retryingIdempotentImportExecutor,
+      DtpInternalMetricRecorder dtpInternalMetricRecorder,
+      JobStore jobStore,
+      PortabilityJobCache jobCache) {
     this.exporterProvider = exporterProvider;
     this.importerProvider = importerProvider;
     this.retryStrategyLibraryProvider = retryStrategyLibraryProvider;
@@ -89,6 +137,7 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
     this.retryingIdempotentImportExecutor = retryingIdempotentImportExecutor;
     this.metricRecorder = dtpInternalMetricRecorder;
     this.jobStore = jobStore;
+    this.jobCache = jobCache;
   }
 
   public abstract void resetCopyIterationCounter();
@@ -109,6 +158,21 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
     return idempotentImportExecutor.getErrors();
   }
 
+  @Override
+  public void finishJob(UUID jobId) {
+    BufferedJobCounters counters;
+    synchronized (this) {
+      counters = jobCounters;
+      jobCounters = null;
+    }
+    if (counters != null) {
+      flushJobCounters(counters);
+    }
+    idempotentImportExecutor.finishJob(jobId);
+    retryingIdempotentImportExecutor.finishJob(jobId);
+    jobCache.invalidate(jobId);
+  }
+
   protected ExportResult<?> copyIteration(
       UUID jobId,
       AuthData exportAuthData,
@@ -121,30 +185,77 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
 
     ExportResult<?> exportResult =
         exportIteration(jobId, exportAuthData, exportInformation, jobIdPrefix, copyIteration);
+    processExportResult(jobId, importAuthData, jobIdPrefix, copyIteration, exportResult);
+
+    return exportResult;
+  }
+
+  /**
+   * Second half of a copy iteration: imports (or measures, depending on the job's transfer mode)
+   * the data exported by {@link #exportIteration}. Split out so copiers can run it separately from
+   * the export, e.g. through an {@link ImportPipeline}.
+   */
+  protected void processExportResult(
+      UUID jobId,
+      AuthData importAuthData,
+      String jobIdPrefix,
+      int copyIteration,
+      ExportResult<?> exportResult)
+      throws CopyException {
+    CompletableFuture<Void> processed =
+        processExportResultAsync(jobId, importAuthData, jobIdPrefix, copyIteration, exportResult);
+    try {
+      processed.get();
+    } catch (InterruptedException e) {
+      processed.cancel(false);
+      Thread.currentThread().interrupt();
+      throw new CopyException(jobIdPrefix + "Interrupted while waiting for import", e);
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), CopyException.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new CopyException(jobIdPrefix + "Error happened during import", e.getCause());
+    }
+  }
 
+  /**
+   * Like {@link #processExportResult}, but returns once the import has started. An import doesn't
+   * hold on to a thread while it waits to be retried.
+   *
+   * @return a future that fails with a {@link CopyException} if the import fails. Cancelling it
+   *     prevents further attempts.
+   */
+  protected CompletableFuture<Void> processExportResultAsync(
+      UUID jobId,
+      AuthData importAuthData,
+      String jobIdPrefix,
+      int copyIteration,
+      ExportResult<?> exportResult) {
     DataModel exportedData = exportResult.getExportedData();
-    if (exportedData != null) {
-      PortabilityJob job = jobStore.findJob(jobId);
-      TransferMode transferMode =
-          job.transferMode() == null ? TransferMode.DATA_TRANSFER : job.transferMode();
-      switch (transferMode) {
-        case DATA_TRANSFER:
-          importIteration(jobId, importAuthData, jobIdPrefix, copyIteration, exportedData);
-          break;
-        case SIZE_CALCULATION:
+    if (exportedData == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    // The transfer mode is fixed when the job is created, so the cached job is current enough.
+    PortabilityJob job = jobCache.get(jobId);
+    TransferMode transferMode =
+        job.transferMode() == null ? TransferMode.DATA_TRANSFER : job.transferMode();
+    switch (transferMode) {
+      case DATA_TRANSFER:
+        return importIteration(jobId, importAuthData, jobIdPrefix, copyIteration, exportedData);
+      case SIZE_CALCULATION:
+        try {
           sizeCalculationIteration(jobId, jobIdPrefix, exportedData);
-          break;
-        default:
-          throw new IllegalStateException(
-              "Job mode " + transferMode.name() + " is not supported by "
-                  + getClass().getSimpleName());
-      }
+          return CompletableFuture.completedFuture(null);
+        } catch (CopyException e) {
+          return CompletableFuture.failedFuture(e);
+        }
+      default:
+        throw new IllegalStateException(
+            "Job mode " + transferMode.name() + " is not supported by "
+                + getClass().getSimpleName());
     }
-
-    return exportResult;
   }
 
-  private ExportResult<?> exportIteration(
+  protected ExportResult<?> exportIteration(
       UUID jobId,
       AuthData exportAuthData,
       Optional<ExportInformation> exportInformation,
@@ -187,13 +298,12 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
     }
   }
 
-  private void importIteration(
+  private CompletableFuture<Void> importIteration(
       UUID jobId,
       AuthData importAuthData,
       String jobIdPrefix,
       int copyIteration,
-      DataModel exportedData)
-      throws CopyException {
+      DataModel exportedData) {
 
     monitor.debug(
         () -> jobIdPrefix + "Starting import, copy iteration: " + copyIteration,
@@ -207,23 +317,79 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
             importAuthData,
             exportedData,
             metricRecorder);
+    // The import finishes on whichever thread ran its last attempt.
+    DataVertical dataType = JobMetadata.getDataType();
+    String importService = JobMetadata.getImportService();
     RetryingCallable<ImportResult> retryingImporter =
         new RetryingCallable<>(
             callableImporter,
             retryStrategyLibraryProvider.get(),
             Clock.systemUTC(),
             monitor,
-            JobMetadata.getDataType(),
-            JobMetadata.getImportService());
-    boolean importSuccess = false;
+            dataType,
+            importService);
     Stopwatch importStopwatch = Stopwatch.createStarted();
+    CompletableFuture<ImportResult> attempts =
+        retryingImporter.callAsync(
+            WorkerThreads.propagateContext(getImportAttemptExecutor()), getImportRetryTimer());
+    CompletableFuture<Void> imported = new CompletableFuture<>();
+    attempts.whenComplete(
+        (importResult, failure) -> {
+          try {
+            finishImportIteration(
+                jobId,
+                jobIdPrefix,
+                copyIteration,
+                dataType,
+                importService,
+                importStopwatch,
+                importResult,
+                failure);
+            imported.complete(null);
+          } catch (CopyException | RuntimeException e) {
+            imported.completeExceptionally(e);
+          }
+        });
+    imported.whenComplete(
+        (ignored, failure) -> {
+          if (imported.isCancelled()) {
+            attempts.cancel(false);
+          }
+        });
+    return imported;
+  }
+
+  private void finishImportIteration(
+      UUID jobId,
+      String jobIdPrefix,
+      int copyIteration,
+      DataVertical dataType,
+      String importService,
+      Stopwatch importStopwatch,
+      @Nullable ImportResult importResult,
+      @Nullable Throwable failure)
+      throws CopyException {
+    boolean importSuccess = false;
     try {
-      ImportResult importResult = retryingImporter.call();
+      if (failure instanceof CompletionException && failure.getCause() != null) {
+        failure = failure.getCause();
+      }
+      if (failure instanceof RetryException) {
+        if (!((RetryException) failure).canSkip()) {
+          throw convertToCopyException(jobIdPrefix, "import", (RetryException) failure);
+        }
+        return;
+      } else if (failure instanceof RuntimeException) {
+        throw convertToCopyException(jobIdPrefix, "import", (RuntimeException) failure);
+      } else if (failure != null) {
+        Throwables.throwIfUnchecked(failure);
+        throw new CopyException(jobIdPrefix + "Error happened during import", failure);
+      }
       importSuccess = importResult.getType() == ImportResult.ResultType.OK;
       if (importSuccess) {
         try {
-          jobStore.addCounts(jobId, importResult.getCounts().orElse(null));
-          jobStore.addBytes(jobId, importResult.getBytes().orElse(null));
+          getJobCounters(jobId)
+              .add(importResult.getCounts().orElse(null), importResult.getBytes().orElse(null));
         } catch (IOException | DatastoreException e) {
           monitor.debug(() -> jobIdPrefix + "Unable to add counts to job: ", e);
         }
@@ -231,18 +397,22 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
       monitor.debug(
           () -> jobIdPrefix + "Finished import, copy iteration: " + copyIteration,
           EventCode.COPIER_FINISHED_IMPORT);
-    } catch (RetryException e) {
-      if (!e.canSkip()) {
-        throw convertToCopyException(jobIdPrefix, "import", e);
-      }
-    } catch (RuntimeException e) {
-      throw convertToCopyException(jobIdPrefix, "import", e);
     } finally {
       metricRecorder.importPageFinished(
-          JobMetadata.getDataType(),
-          JobMetadata.getImportService(),
-          importSuccess,
-          importStopwatch.elapsed());
+          dataType, importService, importSuccess, importStopwatch.elapsed());
+      flushIdempotentImportExecutor(jobIdPrefix);
+    }
+  }
+
+  /**
+   * Persists the results buffered by the idempotent executor. Callers must not store the job's
+   * progress if this throws, as a resumed job would then skip items whose results were lost.
+   */
+  protected void flushIdempotentImportExecutor(String jobIdPrefix) throws CopyException {
+    try {
+      idempotentImportExecutor.flush();
+    } catch (IOException e) {
+      throw convertToCopyException(jobIdPrefix, "idempotent executor flush", e);
     }
   }
 
@@ -262,8 +432,11 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
       return;
     }
 
+    ExecutorService sizeExecutor =
+        Executors.newFixedThreadPool(
+            SIZE_CALCULATION_PARALLELISM, WorkerThreads.newThreadFactory("size-calculator-"));
     CallableSizeCalculator callableSizeCalculator =
-        new CallableSizeCalculator(jobId, new ConnectionProvider(jobStore), items);
+        new CallableSizeCalculator(jobId, new ConnectionProvider(jobStore), items, sizeExecutor);
     try {
       RetryingCallable<Map<String, Long>> retryingImporter =
           new RetryingCallable<>(
@@ -276,7 +449,55 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
       jobStore.addBytes(jobId, retryingImporter.call());
     } catch (RetryException | RuntimeException e) {
       throw convertToCopyException(jobIdPrefix, "size estimation", e);
+    } finally {
+      sizeExecutor.shutdownNow();
+    }
+  }
+
+  private synchronized BufferedJobCounters getJobCounters(UUID jobId) {
+    if (jobCounters == null || !jobCounters.getJobId().equals(jobId)) {
+      if (jobCounters != null) {
+        flushJobCounters(jobCounters);
+      }
+      jobCounters =
+          new BufferedJobCounters(jobStore, jobId, COUNTS_FLUSH_INTERVAL, Clock.systemUTC());
+    }
+    return jobCounters;
+  }
+
+  private void flushJobCounters(BufferedJobCounters counters) {
+    try {
+      counters.flush();
+    } catch (IOException | DatastoreException e) {
+      monitor.debug(() -> "Unable to add counts to job " + counters.getJobId(), e);
+    }
+  }
+
+  /**
+   * Creates the pool on first use, once the worker has decided which kind of threads to use. Idle
+   * threads time out, and the number of threads is bounded by the imports running at a time.
+   */
+  private static synchronized ExecutorService getImportAttemptExecutor() {
+    if (importAttemptExecutor == null) {
+      importAttemptExecutor =
+          Executors.newCachedThreadPool(WorkerThreads.newThreadFactory("import-attempt-"));
+    }
+    return importAttemptExecutor;
+  }
+
+  /**
+   * Creates the timer on first use. Its single thread only hands due retries over to the import
+   * attempt pool, and times out while no retries are waiting.
+   */
+  private static synchronized ScheduledExecutorService getImportRetryTimer() {
+    if (importRetryTimer == null) {
+      ScheduledThreadPoolExecutor timer =
+          new ScheduledThreadPoolExecutor(1, WorkerThreads.newThreadFactory("import-retry-timer-"));
+      timer.setKeepAliveTime(1, TimeUnit.MINUTES);
+      timer.allowCoreThreadTimeOut(true);
+      importRetryTimer = timer;
     }
+    return importRetryTimer;
   }
 
   private CopyException convertToCopyException(String jobIdPrefix, String suffix, Exception e) {
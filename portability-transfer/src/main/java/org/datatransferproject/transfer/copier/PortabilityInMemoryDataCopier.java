@@ -31,6 +31,7 @@ import org.datatransferproject.spi.transfer.provider.Importer;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.spi.transfer.types.CopyException;
 import org.datatransferproject.transfer.Annotations;
+import org.datatransferproject.transfer.PortabilityJobCache;
 import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.models.ContainerResource;
 import org.datatransferproject.types.transfer.auth.AuthData;
@@ -40,9 +41,8 @@ import org.datatransferproject.types.transfer.retry.RetryStrategyLibrary;
 public class PortabilityInMemoryDataCopier extends PortabilityAbstractInMemoryDataCopier
     implements InMemoryDataCopier {
 
-  private static final AtomicInteger COPY_ITERATION_COUNTER = new AtomicInteger();
+  private final AtomicInteger copyIterationCounter = new AtomicInteger();
 
-  @Inject
   public PortabilityInMemoryDataCopier(
       Provider<Exporter> exporterProvider,
       Provider<Importer> importerProvider,
@@ -63,9 +63,32 @@ public class PortabilityInMemoryDataCopier extends PortabilityAbstractInMemoryDa
         jobStore);
   }
 
+  @Inject
+  public PortabilityInMemoryDataCopier(
+      Provider<Exporter> exporterProvider,
+      Provider<Importer> importerProvider,
+      Provider<RetryStrategyLibrary> retryStrategyLibraryProvider,
+      Monitor monitor,
+      IdempotentImportExecutor idempotentImportExecutor,
+      @Annotations.RetryingExecutor IdempotentImportExecutor retryingIdempotentImportExecutor,
+      DtpInternalMetricRecorder dtpInternalMetricRecorder,
+      JobStore jobStore,
+      PortabilityJobCache jobCache) {
+    super(
+        exporterProvider,
+        importerProvider,
+        retryStrategyLibraryProvider,
+        monitor,
+        idempotentImportExecutor,
+        retryingIdempotentImportExecutor,
+        dtpInternalMetricRecorder,
+        jobStore,
+        jobCache);
+  }
+
   @Override
   public void resetCopyIterationCounter() {
-    COPY_ITERATION_COUNTER.set(0);
+    copyIterationCounter.set(0);
   }
 
   /** Kicks off transfer job {@code jobId} from {@code exporter} to {@code importer}. */
@@ -99,7 +122,7 @@ public class PortabilityInMemoryDataCopier extends PortabilityAbstractInMemoryDa
       throws CopyException {
 
     String jobIdPrefix = "Job " + jobId + ": ";
-    final int copyIteration = COPY_ITERATION_COUNTER.incrementAndGet();
+    final int copyIteration = copyIterationCounter.incrementAndGet();
 
     // NOTE: order is important below, do the import of all the items, then do continuation
     // then do sub resources, this ensures all parents are populated before children get
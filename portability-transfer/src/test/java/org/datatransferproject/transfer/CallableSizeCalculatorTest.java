@@ -6,6 +6,9 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.google.common.truth.Truth;
@@ -15,9 +18,13 @@ import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
@@ -82,6 +89,48 @@ public class CallableSizeCalculatorTest {
     Truth.assertThat(nextByte).isEqualTo(-1);
   }
 
+  @Test
+  public void testReportedSizesAreUsedWithoutConnecting() throws Exception {
+    DownloadableItem item =
+        new PhotoModel("title", "url", "description", "jpeg", "1-1234", "album", false) {
+          @Override
+          public Long getSizeInBytes() {
+            return 4242L;
+          }
+        };
+
+    Map<String, Long> actual = new CallableSizeCalculator(jobId, connectionProvider,
+        Collections.singleton(item)).call();
+
+    Truth.assertThat(actual).containsExactly(item.getIdempotentId(), 4242L);
+    verifyNoInteractions(connectionProvider);
+  }
+
+  @Test
+  public void testSizesAreDeterminedConcurrentlyWithoutDownloading() throws Exception {
+    List<DownloadableItem> items = IntStream.range(1, 20)
+        .mapToObj(i -> createItem(i + "-" + nextInt(100, 9999)))
+        .collect(Collectors.toList());
+
+    Map<String, Long> expected = new LinkedHashMap<>();
+    for (DownloadableItem item : items) {
+      long size = nextLong(1, 100000);
+      when(connectionProvider.getSizeForItem(eq(jobId), eq(item))).thenReturn(Optional.of(size));
+      expected.put(item.getIdempotentId(), size);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Map<String, Long> actual = new CallableSizeCalculator(jobId, connectionProvider,
+          items, executor).call();
+
+      Truth.assertThat(actual).containsExactlyEntriesIn(expected).inOrder();
+      verify(connectionProvider, never()).getInputStreamForItem(any(), any());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   public void testExceptionIsThrown() throws Exception {
     when(connectionProvider.getInputStreamForItem(any(), any()))
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.transfer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Stopwatch;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import org.datatransferproject.spi.transfer.threads.WorkerThreads;
+import org.datatransferproject.types.common.models.DataVertical;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class JobMetadataTest {
+
+  @BeforeEach
+  @AfterEach
+  public void resetMetadata() {
+    JobMetadata.exitJobScope();
+    JobMetadata.reset();
+  }
+
+  @Test
+  public void jobScopeIsIsolatedFromProcessScope() {
+    UUID processJobId = UUID.randomUUID();
+    init(processJobId);
+
+    JobMetadata.enterJobScope();
+    assertThat(JobMetadata.isInitialized()).isFalse();
+    UUID scopedJobId = UUID.randomUUID();
+    init(scopedJobId);
+    assertThat(JobMetadata.getJobId()).isEqualTo(scopedJobId);
+
+    JobMetadata.exitJobScope();
+    assertThat(JobMetadata.getJobId()).isEqualTo(processJobId);
+  }
+
+  @Test
+  public void threadsStartedInJobScopeShareIt() throws Exception {
+    JobMetadata.enterJobScope();
+    AtomicReference<UUID> seenJobId = new AtomicReference<>();
+    UUID jobId = UUID.randomUUID();
+
+    // The scope is initialized after the thread was created, as the job poller does.
+    Thread initializer = new Thread(() -> init(jobId));
+    initializer.start();
+    initializer.join();
+    Thread reader = new Thread(() -> seenJobId.set(JobMetadata.getJobId()));
+    reader.start();
+    reader.join();
+
+    assertThat(JobMetadata.getJobId()).isEqualTo(jobId);
+    assertThat(seenJobId.get()).isEqualTo(jobId);
+  }
+
+  @Test
+  public void tasksRunInScopeOfThreadHandingThemOver() throws Exception {
+    // A thread started outside of the job, like one of a pool shared by several jobs.
+    JobMetadata.enterJobScope();
+    init(UUID.randomUUID());
+    ExecutorService sharedExecutor = Executors.newSingleThreadExecutor();
+    sharedExecutor.submit(() -> {}).get();
+    JobMetadata.exitJobScope();
+
+    JobMetadata.enterJobScope();
+    UUID jobId = UUID.randomUUID();
+    init(jobId);
+    AtomicReference<UUID> seenJobId = new AtomicReference<>();
+    try {
+      sharedExecutor
+          .submit(JobMetadata.inCurrentScope(() -> seenJobId.set(JobMetadata.getJobId())))
+          .get();
+    } finally {
+      sharedExecutor.shutdownNow();
+    }
+
+    assertThat(seenJobId.get()).isEqualTo(jobId);
+  }
+
+  @Test
+  public void executorRunsTasksInScopeOfThreadThatWrappedIt() throws Exception {
+    ExecutorService sharedExecutor = Executors.newSingleThreadExecutor();
+    sharedExecutor.submit(() -> {}).get();
+    WorkerThreads.setContextPropagator(JobMetadata::inCurrentScope);
+    try {
+      JobMetadata.enterJobScope();
+      UUID jobId = UUID.randomUUID();
+      init(jobId);
+      Executor executor = WorkerThreads.propagateContext(sharedExecutor);
+
+      // Handed over by a thread outside of the job, like a timer shared by several jobs.
+      JobMetadata.exitJobScope();
+      UUID seenJobId =
+          CompletableFuture.supplyAsync(JobMetadata::getJobId, executor).get(10, TimeUnit.SECONDS);
+
+      assertThat(seenJobId).isEqualTo(jobId);
+    } finally {
+      WorkerThreads.setContextPropagator(UnaryOperator.identity());
+      sharedExecutor.shutdownNow();
+    }
+  }
+
+  private static void init(UUID jobId) {
+    JobMetadata.init(
+        jobId,
+        "key".getBytes(),
+        DataVertical.PHOTOS,
+        "export",
+        "import",
+        Stopwatch.createUnstarted());
+  }
+}
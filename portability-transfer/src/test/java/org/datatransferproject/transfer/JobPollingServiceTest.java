@@ -17,14 +17,20 @@ package org.datatransferproject.transfer;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.util.concurrent.AbstractScheduledService.Scheduler;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
 import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.cloud.local.LocalJobStore;
+import org.datatransferproject.spi.cloud.dispatch.PollingJobDispatcher;
+import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
 import org.datatransferproject.spi.cloud.types.JobAuthorization.State;
@@ -35,6 +41,8 @@ import org.datatransferproject.spi.transfer.security.TransferKeyGenerator;
 import org.datatransferproject.spi.transfer.security.TransferKeyGenerator.WorkerKeyPair;
 
 import org.datatransferproject.types.common.models.DataVertical;
+import org.datatransferproject.types.transfer.auth.AppCredentials;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -50,7 +58,16 @@ public class JobPollingServiceTest {
   @Mock
   private TransferKeyGenerator asymmetricKeyGenerator;
 
+  @Mock
+  private DtpInternalMetricRecorder metricRecorder;
+
+  @Mock
+  private WorkerKeyBackup workerKeyBackup;
+
   private JobStore store;
+  private PublicKeySerializer serializer;
+  private Scheduler scheduler;
+  private Monitor monitor;
   private JobPollingService jobPollingService;
 
   private static WorkerKeyPair createTestKeyPair() {
@@ -75,7 +92,7 @@ public class JobPollingServiceTest {
   @BeforeEach
   public void setUp() {
     store = new LocalJobStore();
-    PublicKeySerializer serializer =
+    serializer =
         new PublicKeySerializer() {
           @Override
           public boolean canHandle(String scheme) {
@@ -87,14 +104,21 @@ public class JobPollingServiceTest {
             return "key";
           }
         };
-    Scheduler scheduler = Scheduler.newFixedDelaySchedule(0, 20, TimeUnit.SECONDS);
-    Monitor monitor = new Monitor() {
+    scheduler = Scheduler.newFixedDelaySchedule(0, 20, TimeUnit.SECONDS);
+    monitor = new Monitor() {
     };
     ExtensionContext extensionContext = mock(ExtensionContext.class);
     when(extensionContext.getSetting("credTimeoutSeconds", 300)).thenReturn(300);
+    when(extensionContext.getSetting("jobClaimCandidates", 10)).thenReturn(10);
+    when(extensionContext.getSetting("jobFailoverEnabled", false)).thenReturn(false);
     jobPollingService =
-        new JobPollingService(store, asymmetricKeyGenerator, serializer, scheduler, monitor,
-            extensionContext);
+        new JobPollingService(store, new PollingJobDispatcher(), asymmetricKeyGenerator,
+            serializer, scheduler, monitor, metricRecorder, workerKeyBackup, extensionContext);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    JobMetadata.reset();
   }
 
   // TODO(data-transfer-project/issues/43): Make this an integration test which uses both the API
@@ -158,6 +182,9 @@ public class JobPollingServiceTest {
     assertThat(job.jobAuthorization().state())
         .isEqualTo(JobAuthorization.State.CREDS_ENCRYPTION_KEY_GENERATED);
     assertThat(job.jobAuthorization().authPublicKey()).isNotEmpty();
+    verify(metricRecorder)
+        .claimJobAttemptFinished(
+            DataVertical.PHOTOS, "DummyExportService", "DummyImportService", true);
 
     // Client encrypts data and updates the job
     job =
@@ -181,4 +208,55 @@ public class JobPollingServiceTest {
 
     store.remove(TEST_ID);
   }
+
+  @Test
+  public void jobWithExpiredLeaseIsTakenOver() throws Exception {
+    AppCredentialStore appCredentialStore = mock(AppCredentialStore.class);
+    when(appCredentialStore.getAppCredentials(
+            WorkerKeyBackup.BACKUP_KEY_NAME, WorkerKeyBackup.BACKUP_SECRET_NAME))
+        .thenReturn(new AppCredentials("key", "secret"));
+    WorkerKeyBackup keyBackup = new WorkerKeyBackup(store, appCredentialStore);
+    ExtensionContext extensionContext = mock(ExtensionContext.class);
+    when(extensionContext.getSetting("credTimeoutSeconds", 300)).thenReturn(300);
+    when(extensionContext.getSetting("jobClaimCandidates", 10)).thenReturn(10);
+    when(extensionContext.getSetting("jobFailoverEnabled", false)).thenReturn(true);
+    when(extensionContext.getDurationSetting("jobLeaseDuration", Duration.ofMinutes(2)))
+        .thenReturn(Duration.ofMinutes(2));
+    JobPollingService failoverPollingService =
+        new JobPollingService(store, new PollingJobDispatcher(), asymmetricKeyGenerator,
+            serializer, scheduler, monitor, metricRecorder, keyBackup, extensionContext);
+
+    // A worker died while processing the job, after backing up its key
+    UUID jobId = UUID.randomUUID();
+    store.createJob(
+        jobId,
+        PortabilityJob.builder()
+            .setState(PortabilityJob.State.IN_PROGRESS)
+            .setTransferDataType(DataVertical.PHOTOS)
+            .setExportService("DummyExportService")
+            .setImportService("DummyImportService")
+            .setLeaseHolder("deadWorker")
+            .setLeaseExpiry(Instant.now().minusSeconds(1))
+            .setAndValidateJobAuthorization(
+                JobAuthorization.builder()
+                    .setEncryptionScheme("cleartext")
+                    .setState(State.CREDS_STORED)
+                    .setSessionSecretKey("fooBar")
+                    .setAuthPublicKey("key")
+                    .setEncryptedAuthData("dummy export data")
+                    .build())
+            .build());
+    keyBackup.backUp(jobId, TEST_KEY_PAIR.getEncodedPrivateKey());
+
+    failoverPollingService.runOneIteration();
+
+    assertThat(JobMetadata.isInitialized()).isTrue();
+    assertThat(JobMetadata.getJobId()).isEqualTo(jobId);
+    assertThat(JobMetadata.getPrivateKey()).isEqualTo(TEST_KEY_PAIR.getEncodedPrivateKey());
+    PortabilityJob job = store.findJob(jobId);
+    assertThat(job.leaseHolder()).isEqualTo(JobMetadata.getLeaseHolder());
+    assertThat(job.leaseExpiry()).isGreaterThan(Instant.now());
+
+    store.remove(jobId);
+  }
 }
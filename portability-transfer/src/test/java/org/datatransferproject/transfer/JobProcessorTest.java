@@ -65,11 +65,13 @@ public class JobProcessorTest {
   private AuthDataDecryptService decryptionService;
   private ObjectMapper objectMapper;
   private JobStore jobStore;
+  private WorkerKeyBackup workerKeyBackup;
 
   private static class TestJobProcessor extends JobProcessor {
 
     public TestJobProcessor(JobStore jobStore,
       InMemoryDataCopier copier,
+      WorkerKeyBackup workerKeyBackup,
       ObjectMapper objectMapper,
       AuthDataDecryptService decryptionService,
       Boolean transferSignalEnabled,
@@ -80,6 +82,7 @@ public class JobProcessorTest {
           Mockito.mock(JobHooks.class),
           objectMapper,
           copier,
+          workerKeyBackup,
           decryptionService,
           importSignalHandler,
           exportSignalHandler,
@@ -98,6 +101,7 @@ public class JobProcessorTest {
     jobId = UUID.randomUUID();
     exportInfo = Mockito.mock(ExportInformation.class);
     copier = Mockito.mock(InMemoryDataCopier.class);
+    workerKeyBackup = Mockito.mock(WorkerKeyBackup.class);
     importSignalHandlerProvider = (Provider<SignalHandler>) Mockito.mock(Provider.class);
     exportSignalHandlerProvider = (Provider<SignalHandler>) Mockito.mock(Provider.class);
 
@@ -128,6 +132,7 @@ public class JobProcessorTest {
     processor = Mockito.spy(
       new TestJobProcessor(jobStore,
         copier,
+        workerKeyBackup,
         objectMapper,
         decryptionService,
         Boolean.TRUE,
@@ -161,6 +166,7 @@ public class JobProcessorTest {
         .copy(importAuthData, exportAuthData, jobId, Optional.of(exportInfo));
     processor.processJob();
     Mockito.verify(copier).getErrors(jobId);
+    Mockito.verify(workerKeyBackup).remove(jobId);
 
     Mockito.verify(importSignalHandlerProvider, Mockito.times(1)).get();
     Mockito.verify(importSignalHandler, Mockito.times(1))
@@ -200,6 +206,7 @@ public class JobProcessorTest {
     processor = Mockito.spy(
       new TestJobProcessor(jobStore,
         copier,
+        workerKeyBackup,
         objectMapper,
         decryptionService,
         Boolean.FALSE,
@@ -226,4 +233,31 @@ public class JobProcessorTest {
     Mockito.verify(exportSignalHandler, Mockito.never())
       .sendSignal(any(SignalRequest.class), eq(exportAuthData), any(Monitor.class));
   }
+
+  @Test
+  public void processJobLeavesJobStoppedByCancelWatcherUnfinished()
+      throws CopyException, IOException, RetryException {
+    JobMetadata.init(
+      jobId,
+      "".getBytes(),
+      DataVertical.BLOBS,
+      "",
+      "",
+      Stopwatch.createStarted());
+    Mockito.doAnswer(
+        invocation -> {
+          JobMetadata.markTerminated();
+          throw new CopyException("interrupted", new InterruptedException());
+        })
+      .when(copier)
+      .copy(any(), any(), eq(jobId), any());
+    processor.processJob();
+    Mockito.verify(copier).finishJob(jobId);
+
+    Mockito.verify(jobStore, Mockito.never()).markJobAsFinished(eq(jobId), any());
+    Mockito.verify(importSignalHandler, Mockito.times(1))
+      .sendSignal(any(SignalRequest.class), eq(importAuthData), any(Monitor.class));
+    Mockito.verify(exportSignalHandler, Mockito.times(1))
+      .sendSignal(any(SignalRequest.class), eq(exportAuthData), any(Monitor.class));
+  }
 }
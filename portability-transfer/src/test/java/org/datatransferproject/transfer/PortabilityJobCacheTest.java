@@ -0,0 +1,70 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.UUID;
+import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.spi.cloud.types.PortabilityJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PortabilityJobCacheTest {
+
+  private final UUID jobId = UUID.randomUUID();
+  private final PortabilityJob job = mock(PortabilityJob.class);
+  private final PortabilityJob updatedJob = mock(PortabilityJob.class);
+  private JobStore jobStore;
+  private PortabilityJobCache jobCache;
+
+  @BeforeEach
+  public void setUp() {
+    jobStore = mock(JobStore.class);
+    when(jobStore.findJob(jobId)).thenReturn(job, updatedJob);
+    jobCache = new PortabilityJobCache(jobStore);
+  }
+
+  @Test
+  public void jobIsReadFromTheStoreOnce() {
+    for (int i = 0; i < 10; i++) {
+      assertThat(jobCache.get(jobId)).isSameAs(job);
+    }
+    verify(jobStore, times(1)).findJob(jobId);
+  }
+
+  @Test
+  public void refreshReplacesTheCachedJob() {
+    jobCache.get(jobId);
+
+    assertThat(jobCache.refresh(jobId)).isSameAs(updatedJob);
+    assertThat(jobCache.get(jobId)).isSameAs(updatedJob);
+    verify(jobStore, times(2)).findJob(jobId);
+  }
+
+  @Test
+  public void invalidatedJobIsReadAgain() {
+    jobCache.get(jobId);
+    jobCache.invalidate(jobId);
+
+    assertThat(jobCache.get(jobId)).isSameAs(updatedJob);
+  }
+}
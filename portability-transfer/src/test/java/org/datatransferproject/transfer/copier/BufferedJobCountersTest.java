@@ -0,0 +1,98 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.copier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+import org.datatransferproject.cloud.local.LocalJobStore;
+import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BufferedJobCountersTest {
+
+  private final UUID jobId = UUID.randomUUID();
+  private JobStore jobStore;
+  private Clock clock;
+  private BufferedJobCounters counters;
+
+  @BeforeEach
+  public void setUp() {
+    jobStore = spy(new LocalJobStore());
+    clock = mock(Clock.class);
+    when(clock.millis()).thenReturn(0L);
+    counters = new BufferedJobCounters(jobStore, jobId, Duration.ofSeconds(10), clock);
+  }
+
+  @Test
+  public void pagesAreAddedToTheStoreOncePerInterval() throws IOException {
+    for (int i = 0; i < 5; i++) {
+      counters.add(ImmutableMap.of("PHOTO", 2, "ALBUM", 1), 100L);
+    }
+    verify(jobStore, never()).addCountsAndBytes(any(), any(), any());
+
+    when(clock.millis()).thenReturn(10_000L);
+    counters.add(ImmutableMap.of("PHOTO", 2), 100L);
+
+    verify(jobStore, times(1)).addCountsAndBytes(eq(jobId), any(), anyLong());
+    assertThat(jobStore.getCounts(jobId)).containsExactly("PHOTO", 12, "ALBUM", 5);
+    assertThat(jobStore.getBytes(jobId)).isEqualTo(600L);
+  }
+
+  @Test
+  public void failedFlushKeepsTheCounts() throws IOException {
+    counters.add(ImmutableMap.of("PHOTO", 3), 300L);
+    doThrow(new IOException("unavailable"))
+        .doCallRealMethod()
+        .when(jobStore)
+        .addCountsAndBytes(any(), any(), any());
+
+    assertThrows(IOException.class, () -> counters.flush());
+    counters.add(ImmutableMap.of("PHOTO", 1), 100L);
+    counters.flush();
+
+    assertThat(jobStore.getCounts(jobId)).containsExactly("PHOTO", 4);
+    assertThat(jobStore.getBytes(jobId)).isEqualTo(400L);
+  }
+
+  @Test
+  public void bytesAreNotAddedWithoutAnyFlushed() throws IOException {
+    counters.add(ImmutableMap.of("ALBUM", 1), 0L);
+    counters.flush();
+
+    verify(jobStore).addCountsAndBytes(jobId, ImmutableMap.of("ALBUM", 1), null);
+    verify(jobStore, never()).addBytes(eq(jobId), nullable(Long.class));
+    assertThat(jobStore.getCounts(jobId)).containsExactly("ALBUM", 1);
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.copier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.datatransferproject.spi.transfer.types.CopyException;
+import org.junit.jupiter.api.Test;
+
+public class ImportPipelineTest {
+
+  @Test
+  public void importsRunInSubmissionOrder() throws Exception {
+    List<Integer> imported = new CopyOnWriteArrayList<>();
+    try (ImportPipeline importPipeline = new ImportPipeline(UUID.randomUUID(), 2)) {
+      for (int i = 0; i < 10; i++) {
+        int page = i;
+        importPipeline.submit(() -> imported.add(page));
+      }
+      importPipeline.awaitAll();
+    }
+
+    assertThat(imported).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9).inOrder();
+  }
+
+  @Test
+  public void submitBlocksWhilePipelineIsFull() throws Exception {
+    CountDownLatch releaseImport = new CountDownLatch(1);
+    CountDownLatch secondSubmitted = new CountDownLatch(1);
+    try (ImportPipeline importPipeline = new ImportPipeline(UUID.randomUUID(), 1)) {
+      importPipeline.submit(() -> awaitUninterruptibly(releaseImport));
+      Thread submitter =
+          new Thread(
+              () -> {
+                try {
+                  importPipeline.submit(() -> {});
+                  secondSubmitted.countDown();
+                } catch (CopyException e) {
+                  throw new AssertionError(e);
+                }
+              });
+      submitter.start();
+
+      assertThat(secondSubmitted.await(200, TimeUnit.MILLISECONDS)).isFalse();
+      releaseImport.countDown();
+      assertThat(secondSubmitted.await(5, TimeUnit.SECONDS)).isTrue();
+      submitter.join();
+    }
+  }
+
+  @Test
+  public void nextImportStartsOnceAsyncImportFinished() throws Exception {
+    CompletableFuture<Void> firstImport = new CompletableFuture<>();
+    List<String> imported = new CopyOnWriteArrayList<>();
+    try (ImportPipeline importPipeline = new ImportPipeline(UUID.randomUUID(), 2)) {
+      importPipeline.submitAsync(() -> firstImport, () -> imported.add("first"));
+      importPipeline.submit(() -> imported.add("second"));
+
+      Thread.sleep(200);
+      assertThat(imported).isEmpty();
+      firstImport.complete(null);
+      importPipeline.awaitAll();
+    }
+
+    assertThat(imported).containsExactly("first", "second").inOrder();
+  }
+
+  @Test
+  public void closingPipelineStopsRunningAsyncImport() throws Exception {
+    CompletableFuture<Void> runningImport = new CompletableFuture<>();
+    try (ImportPipeline importPipeline = new ImportPipeline(UUID.randomUUID(), 1)) {
+      importPipeline.submitAsync(() -> runningImport, () -> {});
+      // The pipeline waits for the import once it has started it.
+      while (runningImport.getNumberOfDependents() == 0) {
+        Thread.sleep(10);
+      }
+    }
+
+    assertThat(runningImport.isCancelled()).isTrue();
+  }
+
+  @Test
+  public void failedImportIsRethrown() throws Exception {
+    CopyException failure = new CopyException("import failed", null);
+    try (ImportPipeline importPipeline = new ImportPipeline(UUID.randomUUID(), 2)) {
+      importPipeline.submit(
+          () -> {
+            throw failure;
+          });
+
+      CopyException thrown = assertThrows(CopyException.class, importPipeline::awaitAll);
+      assertThat(thrown).isSameAs(failure);
+    }
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.copier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Stack;
+import java.util.UUID;
+import org.datatransferproject.cloud.local.LocalJobStore;
+import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.spi.cloud.types.JobStackDelta;
+import org.datatransferproject.types.common.ExportInformation;
+import org.datatransferproject.types.common.StringPaginationToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class JobStackCheckpointerTest {
+
+  private final UUID jobId = UUID.randomUUID();
+  private JobStore jobStore;
+  private JobStackCheckpointer checkpointer;
+
+  @BeforeEach
+  public void setUp() {
+    jobStore = spy(new LocalJobStore());
+    checkpointer = new JobStackCheckpointer(jobStore, jobId);
+  }
+
+  @Test
+  public void onlyTheFirstCheckpointStoresTheWholeStack() throws IOException {
+    Stack<ExportInformation> stack = new Stack<>();
+    stack.push(page("a"));
+    stack.push(page("b"));
+    checkpointer.checkpoint(copyOf(stack));
+
+    stack.pop();
+    stack.push(page("c"));
+    stack.push(page("d"));
+    checkpointer.checkpoint(copyOf(stack));
+
+    verify(jobStore, times(1)).storeJobStack(any(), any());
+    verify(jobStore, times(1)).appendJobStackDelta(any(), any());
+    assertThat(jobStore.loadJobStack(jobId).get()).containsExactlyElementsIn(stack).inOrder();
+  }
+
+  @Test
+  public void unchangedStackIsNotStoredAgain() {
+    Stack<ExportInformation> stack = new Stack<>();
+    stack.push(page("a"));
+    stack.push(page("b"));
+    checkpointer.checkpoint(copyOf(stack));
+    checkpointer.checkpoint(copyOf(stack));
+
+    verify(jobStore, times(1)).storeJobStack(any(), any());
+    verify(jobStore, never()).appendJobStackDelta(any(), any());
+  }
+
+  @Test
+  public void deltasAreCompactedIntoTheWholeStack() throws IOException {
+    Stack<ExportInformation> stack = new Stack<>();
+    stack.push(page("album"));
+    stack.push(page("page"));
+    checkpointer.checkpoint(copyOf(stack));
+    for (int i = 0; i < 100; i++) {
+      stack.pop();
+      stack.push(page("page" + i));
+      checkpointer.checkpoint(copyOf(stack));
+    }
+
+    verify(jobStore, times(4)).storeJobStack(any(), any());
+    verify(jobStore, times(97)).appendJobStackDelta(any(), any());
+    assertThat(jobStore.loadJobStack(jobId).get()).containsExactlyElementsIn(stack).inOrder();
+  }
+
+  @Test
+  public void storesWithoutDeltaSupportRewriteTheWholeStack() throws IOException {
+    ExportInformation a = page("a");
+    ExportInformation c = page("c");
+    Stack<ExportInformation> stored = new Stack<>();
+    stored.push(a);
+    stored.push(page("b"));
+    JobStore store = mock(JobStore.class);
+    when(store.loadJobStack(jobId)).thenReturn(Optional.of(stored));
+    doCallRealMethod().when(store).appendJobStackDelta(any(), any());
+
+    store.appendJobStackDelta(jobId, new JobStackDelta(1, 1, ImmutableList.of(c)));
+
+    Stack<ExportInformation> expected = new Stack<>();
+    expected.push(a);
+    expected.push(c);
+    verify(store).storeJobStack(jobId, expected);
+  }
+
+  @Test
+  public void deltaPopsBeforePushing() {
+    ExportInformation a = page("a");
+    ExportInformation c = page("c");
+    ExportInformation d = page("d");
+    Stack<ExportInformation> stack = new Stack<>();
+    stack.push(a);
+    stack.push(page("b"));
+
+    new JobStackDelta(1, 1, ImmutableList.of(c, d)).applyTo(stack);
+
+    assertThat(stack).containsExactly(a, c, d).inOrder();
+  }
+
+  private static ExportInformation page(String token) {
+    return new ExportInformation(new StringPaginationToken(token), null);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Stack<ExportInformation> copyOf(Stack<ExportInformation> stack) {
+    return (Stack<ExportInformation>) stack.clone();
+  }
+}
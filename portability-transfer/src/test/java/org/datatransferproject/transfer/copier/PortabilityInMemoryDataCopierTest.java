@@ -26,6 +26,7 @@ import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.copier.stack.PortabilityStackInMemoryDataCopier;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
+import org.datatransferproject.spi.transfer.provider.Importer;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.spi.transfer.types.CopyException;
 import org.datatransferproject.test.types.FakeIdempotentImportExecutor;
@@ -104,6 +105,41 @@ public class PortabilityInMemoryDataCopierTest {
     }
   }
 
+  private static class TestConcurrentPortabilityStackInMemoryDataCopier
+      extends PortabilityStackInMemoryDataCopier {
+
+    public TestConcurrentPortabilityStackInMemoryDataCopier() {
+      super(
+          null,
+          TestConcurrentPortabilityStackInMemoryDataCopier::threadSafeImporter,
+          null,
+          Mockito.mock(Monitor.class),
+          new FakeIdempotentImportExecutor(),
+          new FakeIdempotentImportExecutor(),
+          null,
+          (Mockito.mock(JobStore.class)),
+          2,
+          0);
+    }
+
+    protected ExportResult<?> copyIteration(
+        UUID jobId,
+        AuthData exportAuthData,
+        AuthData importAuthData,
+        Optional<ExportInformation> exportInformation,
+        String jobIdPrefix,
+        int copyIteration)
+        throws CopyException {
+      return Mockito.mock(ExportResult.class);
+    }
+
+    private static Importer threadSafeImporter() {
+      Importer importer = Mockito.mock(Importer.class);
+      Mockito.when(importer.isThreadSafe()).thenReturn(true);
+      return importer;
+    }
+  }
+
   public static Iterable<PortabilityAbstractInMemoryDataCopier> data() {
     return Arrays.asList(
         (new PortabilityAbstractInMemoryDataCopier[]{
@@ -470,4 +506,57 @@ public class PortabilityInMemoryDataCopierTest {
             Mockito.anyString(),
             Mockito.anyInt());
   }
+
+  @Test
+  public void copySubResourcesConcurrently() throws CopyException, IOException {
+    PortabilityStackInMemoryDataCopier concurrentCopier =
+        Mockito.spy(new TestConcurrentPortabilityStackInMemoryDataCopier());
+    concurrentCopier.resetCopyIterationCounter();
+    ContainerResource subResource1 = Mockito.mock(ContainerResource.class);
+    ContainerResource subResource2 = Mockito.mock(ContainerResource.class);
+
+    ExportInformation subResource1ExportInfo = new ExportInformation(null, subResource1);
+    ExportInformation subResource2ExportInfo = new ExportInformation(null, subResource2);
+
+    Mockito.when(continuationData.getContainerResources())
+        .thenReturn(Arrays.asList(subResource1, subResource2));
+    Mockito.when(initialExportResult.getContinuationData()).thenReturn(continuationData);
+    Mockito.doReturn(initialExportResult)
+        .when(concurrentCopier)
+        .copyIteration(
+            jobId, exportAuthData, importAuthData, Optional.of(exportInfo), jobIdPrefix, 1);
+
+    concurrentCopier.copy(exportAuthData, importAuthData, jobId, Optional.of(exportInfo));
+
+    Mockito.verify(concurrentCopier)
+        .copyIteration(
+            jobId,
+            exportAuthData,
+            importAuthData,
+            Optional.of(subResource1ExportInfo),
+            jobIdPrefix,
+            2);
+    Mockito.verify(concurrentCopier)
+        .copyIteration(
+            jobId,
+            exportAuthData,
+            importAuthData,
+            Optional.of(subResource2ExportInfo),
+            jobIdPrefix,
+            3);
+
+    // Both sub-resources are in flight when the first of them finishes, so the stack stored at
+    // that point must still contain the other one.
+    Stack<ExportInformation> initialStack = new Stack<>();
+    initialStack.push(subResource2ExportInfo);
+    initialStack.push(subResource1ExportInfo);
+    InOrder orderVerifier = Mockito.inOrder(concurrentCopier.jobStore);
+    orderVerifier.verify(concurrentCopier.jobStore).storeJobStack(jobId, initialStack);
+    orderVerifier
+        .verify(concurrentCopier.jobStore)
+        .storeJobStack(
+            Mockito.eq(jobId),
+            Mockito.argThat(stack -> stack.size() == 1));
+    orderVerifier.verify(concurrentCopier.jobStore).storeJobStack(jobId, new Stack<>());
+  }
 }
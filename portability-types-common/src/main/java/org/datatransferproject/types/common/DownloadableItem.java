@@ -1,5 +1,8 @@
 package org.datatransferproject.types.common;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import javax.annotation.Nullable;
+
 /**
  * Represent an item we can download through a URL and store in a temporary storage.
  *
@@ -12,4 +15,14 @@ public interface DownloadableItem extends ImportableItem {
   String getFetchableUrl();
 
   boolean isInTempStore();
+
+  /**
+   * Size of the item in bytes as reported by the service it was exported from, or null if unknown.
+   * Lets the size of a transfer be estimated without contacting the service again.
+   */
+  @JsonIgnore
+  @Nullable
+  default Long getSizeInBytes() {
+    return null;
+  }
 }
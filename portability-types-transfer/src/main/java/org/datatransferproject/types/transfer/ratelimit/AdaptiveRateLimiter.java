@@ -0,0 +1,190 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.types.transfer.ratelimit;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.RateLimiter;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import javax.annotation.Nullable;
+
+/**
+ * A rate limiter that adapts its rate to how a service responds, with additive increase and
+ * multiplicative decrease (AIMD): successful requests raise the rate by a constant number of
+ * permits per second every second, up to the maximum rate, and a throttled request halves it, down
+ * to the minimum rate. A throttled request may also say how long the service wants to be left
+ * alone, e.g. in a {@code Retry-After} header, during which no permits are handed out at all.
+ *
+ * <p>Callers {@link #acquire()} a permit before every request, and report its outcome with {@link
+ * #onSuccess()} or {@link #onThrottled}. Instances are thread safe and meant to be shared by
+ * everything that counts towards the same limit of a service, see {@link AdaptiveRateLimiters}.
+ */
+public class AdaptiveRateLimiter {
+  private static final double DEFAULT_MIN_RATE = 0.1;
+  private static final double DECREASE_FACTOR = 0.5;
+  // The fraction of the rate after a decrease that successful requests add back every second.
+  private static final double INCREASE_FRACTION = 0.05;
+  // Requests in flight when a service starts throttling fail together, and only count once.
+  private static final long DECREASE_INTERVAL_MILLIS = 1000;
+  private static final long THROUGHPUT_WINDOW_MILLIS = 1000;
+  // A bound on the pause a service can ask for, so a bogus Retry-After can't stall a job for good.
+  private static final Duration MAX_PAUSE = Duration.ofMinutes(10);
+
+  private final RateLimiter rateLimiter;
+  private final double minRate;
+  private final double maxRate;
+  private final Clock clock;
+  private double rate;
+  private double increasePerSecond;
+  private long pausedUntilMillis;
+  private long nextDecreaseMillis = Long.MIN_VALUE;
+  private long windowStartMillis;
+  private int windowPermits;
+  private double observedRate;
+
+  /**
+   * @param initialRate the number of permits per second to start with
+   * @param maxRate the number of permits per second the rate is never raised above
+   */
+  public AdaptiveRateLimiter(double initialRate, double maxRate) {
+    this(initialRate, Math.min(DEFAULT_MIN_RATE, initialRate), maxRate, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  AdaptiveRateLimiter(double initialRate, double minRate, double maxRate, Clock clock) {
+    Preconditions.checkArgument(
+        0 < minRate && minRate <= initialRate && initialRate <= maxRate,
+        "Rates must satisfy 0 < minRate <= initialRate <= maxRate");
+    this.rateLimiter = RateLimiter.create(initialRate);
+    this.minRate = minRate;
+    this.maxRate = maxRate;
+    this.clock = clock;
+    this.rate = initialRate;
+    this.increasePerSecond = initialRate * INCREASE_FRACTION;
+    this.windowStartMillis = clock.millis();
+  }
+
+  /**
+   * Acquires a permit, blocking until the service is no longer paused and the current rate allows
+   * it, and returns the time spent waiting in seconds.
+   *
+   * @throws InterruptedException if the thread is interrupted during a pause, which can last
+   *     minutes, so that a stopped job doesn't wait it out
+   */
+  public double acquire() throws InterruptedException {
+    long pauseMillis;
+    synchronized (this) {
+      pauseMillis = pausedUntilMillis - clock.millis();
+    }
+    if (pauseMillis > 0) {
+      MILLISECONDS.sleep(pauseMillis);
+    }
+    double waitedSeconds = rateLimiter.acquire();
+    recordPermit();
+    return Math.max(0, pauseMillis) / 1000.0 + waitedSeconds;
+  }
+
+  /** Raises the rate after a request the service handled. */
+  public synchronized void onSuccess() {
+    if (rate < maxRate) {
+      // There are about rate successes per second, so the rate grows by increasePerSecond.
+      setRate(Math.min(maxRate, rate + increasePerSecond / rate));
+    }
+  }
+
+  /**
+   * Lowers the rate after a request the service rejected as over its limit or quota, and stops
+   * handing out permits for {@code retryAfter}, if the service said how long to wait.
+   */
+  public synchronized void onThrottled(@Nullable Duration retryAfter) {
+    long now = clock.millis();
+    if (retryAfter != null && !retryAfter.isNegative()) {
+      long pauseMillis = Math.min(retryAfter.toMillis(), MAX_PAUSE.toMillis());
+      pausedUntilMillis = Math.max(pausedUntilMillis, now + pauseMillis);
+    }
+    if (now < nextDecreaseMillis) {
+      return;
+    }
+    nextDecreaseMillis = now + DECREASE_INTERVAL_MILLIS;
+    // An unlimited or barely used rate says little about what the service accepts, so the cut
+    // starts from the throughput actually achieved if that is lower.
+    double windowRate = windowPermits * 1000.0 / Math.max(1, now - windowStartMillis);
+    double throughput = Math.max(observedRate, windowRate);
+    double base = throughput > 0 ? Math.min(rate, throughput) : rate;
+    setRate(Math.max(minRate, base * DECREASE_FACTOR));
+    increasePerSecond = Math.max(minRate, rate * INCREASE_FRACTION);
+  }
+
+  /** The current number of permits per second. */
+  public synchronized double getRate() {
+    return rate;
+  }
+
+  private void setRate(double newRate) {
+    rate = newRate;
+    rateLimiter.setRate(newRate);
+  }
+
+  private synchronized void recordPermit() {
+    long now = clock.millis();
+    if (now - windowStartMillis >= THROUGHPUT_WINDOW_MILLIS) {
+      observedRate = windowPermits * 1000.0 / (now - windowStartMillis);
+      windowStartMillis = now;
+      windowPermits = 0;
+    }
+    windowPermits++;
+  }
+
+  /**
+   * Parses the value of a {@code Retry-After} header, which is either a number of seconds or an
+   * HTTP date, and returns null if it is absent or malformed.
+   */
+  @Nullable
+  public static Duration parseRetryAfter(@Nullable String retryAfter) {
+    return parseRetryAfter(retryAfter, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  @Nullable
+  static Duration parseRetryAfter(@Nullable String retryAfter, Clock clock) {
+    if (Strings.isNullOrEmpty(retryAfter)) {
+      return null;
+    }
+    String value = retryAfter.trim();
+    try {
+      return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+    } catch (NumberFormatException e) {
+      // Not a number of seconds, so it should be a date.
+    }
+    try {
+      Duration untilDate =
+          Duration.between(
+              clock.instant(),
+              ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+      return untilDate.isNegative() ? Duration.ZERO : untilDate;
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.types.transfer.ratelimit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link AdaptiveRateLimiter}s of a worker, shared by all of its jobs so that concurrent jobs
+ * which count towards the same limit of a service also slow down together when it throttles them.
+ *
+ * <p>Services limit the requests made on behalf of one user, whichever job they belong to.
+ * Limiters that haven't been used for an hour are dropped, and start over from their initial rate
+ * when they are needed again.
+ */
+public final class AdaptiveRateLimiters {
+  private static final Cache<String, AdaptiveRateLimiter> LIMITERS =
+      CacheBuilder.newBuilder().expireAfterAccess(1, TimeUnit.HOURS).build();
+
+  private AdaptiveRateLimiters() {}
+
+  /** Gets the limiter of the requests made to {@code service} on behalf of {@code userId}. */
+  public static AdaptiveRateLimiter forUser(
+      String service, String userId, double initialRate, double maxRate) {
+    return LIMITERS
+        .asMap()
+        .computeIfAbsent(
+            service + "/user/" + userId, k -> new AdaptiveRateLimiter(initialRate, maxRate));
+  }
+}
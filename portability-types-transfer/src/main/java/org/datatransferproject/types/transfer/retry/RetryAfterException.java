@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.types.transfer.retry;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * An {@link IOException} from a service that said when the request may be tried again.
+ *
+ * <p>The {@code regexes} of a {@link RetryMapping} match the exception's {@code toString()}, which
+ * starts with this class's name rather than that of the exception it stands in for. A mapping that
+ * names the original exception's class no longer matches; one has to match the message, which is
+ * kept, or this class's name. Its {@code stacktraceRegexes} still see the original exception, as
+ * the cause.
+ */
+public class RetryAfterException extends IOException implements RetryDelayHint {
+
+  private final Duration retryDelay;
+
+  public RetryAfterException(String message, Duration retryDelay, Throwable cause) {
+    super(message, cause);
+    this.retryDelay = retryDelay;
+  }
+
+  @Override
+  public Duration getRetryDelay() {
+    return retryDelay;
+  }
+}
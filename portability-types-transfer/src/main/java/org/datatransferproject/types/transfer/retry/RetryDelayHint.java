@@ -0,0 +1,30 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.types.transfer.retry;
+
+import java.time.Duration;
+
+/**
+ * Implemented by exceptions that know how long to wait before the failed call is tried again, e.g.
+ * from a service's {@code Retry-After} header. {@link RetryingCallable} waits at least that long,
+ * if the {@link RetryStrategy} mapped to the exception allows another attempt at all.
+ */
+public interface RetryDelayHint {
+
+  /** The minimum time to wait before the next attempt. */
+  Duration getRetryDelay();
+}
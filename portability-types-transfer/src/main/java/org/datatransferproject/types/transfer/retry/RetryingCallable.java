@@ -22,16 +22,33 @@ import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.types.common.models.DataVertical;
 
 /**
  * Class for retrying a {@link Callable} given a {@link RetryStrategyLibrary}.
  *
+ * <p>An exception that is, or is caused by, a {@link RetryDelayHint} makes the next attempt wait
+ * at least as long as the hint says, up to {@link #MAX_HINTED_DELAY}, but only if its strategy
+ * allows another attempt.
+ *
+ * <p>{@link #call()} sleeps until the next attempt on the calling thread, which on a virtual thread
+ * parks it without holding on to a carrier thread. {@link #callAsync} doesn't hold on to any thread
+ * between attempts.
+ *
  * @param <T> The type that the inner {@link Callable} returns.
  */
 public class RetryingCallable<T> implements Callable<T> {
 
+  /** The longest a {@link RetryDelayHint} may delay an attempt, so a bogus hint can't stall it. */
+  static final Duration MAX_HINTED_DELAY = Duration.ofMinutes(10);
+
   private final Callable<T> callable;
   private final RetryStrategyLibrary retryStrategyLibrary;
   private final Clock clock;
@@ -75,54 +92,150 @@ public class RetryingCallable<T> implements Callable<T> {
   public T call() throws RetryException {
     while (true) {
       Instant start = clock.instant();
-      attempts++;
+      startAttempt();
       try {
-        monitor.debug(
-            () ->
-                String.format(
-                    "Attempt %d started, service: %s, dataType: %s",
-                    attempts, service, dataType));
         return callable.call();
       } catch (Exception e) {
-        mostRecentException = e;
-        monitor.info(() -> "RetryingCallable caught an exception", e);
-        long elapsedMillis = Duration.between(start, clock.instant()).toMillis();
-        // TODO: do we want to reset anything (eg, number of retries) if we see a different
-        // RetryStrategy?
-        RetryStrategy strategy = retryStrategyLibrary.checkoutRetryStrategy(e);
-        monitor.debug(
-            () ->
-                String.format(
-                    "Attempt %d failed, using retry strategy: %s, service: %s, dataType: %s",
-                    attempts, strategy.toString(), service, dataType));
-        if (strategy.canTryAgain(attempts)) {
-          long nextAttemptIntervalMillis =
-              strategy.getRemainingIntervalMillis(attempts, elapsedMillis);
-          monitor.debug(
-              () ->
-                  String.format(
-                      "Strategy has %d remainingIntervalMillis after %d elapsedMillis",
-                      nextAttemptIntervalMillis, elapsedMillis));
-          if (nextAttemptIntervalMillis > 0L) {
-            try {
-              Thread.sleep(nextAttemptIntervalMillis);
-              // wait is now complete, retry
-            } catch (InterruptedException ie) {
-              currentThread().interrupt();
-              throw new RetryException(attempts, mostRecentException);
-            }
-          }
-        } else {
-          monitor.debug(
-              () ->
-                  String.format("Strategy canTryAgain returned false after %d retries", attempts));
-          if (strategy.canSkip()) {
-            throw new RetryException(attempts, mostRecentException, true);
-          } else {
+        long nextAttemptIntervalMillis = getNextAttemptIntervalMillis(e, start);
+        if (nextAttemptIntervalMillis > 0L) {
+          try {
+            Thread.sleep(nextAttemptIntervalMillis);
+            // wait is now complete, retry
+          } catch (InterruptedException ie) {
+            currentThread().interrupt();
             throw new RetryException(attempts, mostRecentException);
           }
         }
       }
     }
   }
+
+  /**
+   * Tries to call the {@link Callable} on {@code executor} given the class's {@link
+   * RetryStrategyLibrary}. The wait before each retry is scheduled on {@code timer}, which hands
+   * the attempt to {@code executor} once it is due, so no thread is held while waiting.
+   *
+   * @return a future of whatever is returned by the {@link Callable}, which fails with a {@link
+   *     RetryException} once the strategy gives up. Cancelling it prevents further attempts.
+   */
+  public CompletableFuture<T> callAsync(Executor executor, ScheduledExecutorService timer) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    executeAttempt(result, executor, timer);
+    return result;
+  }
+
+  private void executeAttempt(
+      CompletableFuture<T> result, Executor executor, ScheduledExecutorService timer) {
+    try {
+      executor.execute(() -> attemptAsync(result, executor, timer));
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(
+          new RetryException(attempts, mostRecentException != null ? mostRecentException : e));
+    }
+  }
+
+  private void attemptAsync(
+      CompletableFuture<T> result, Executor executor, ScheduledExecutorService timer) {
+    if (result.isDone()) {
+      return;
+    }
+    Instant start = clock.instant();
+    startAttempt();
+    T value;
+    try {
+      value = callable.call();
+    } catch (Error e) {
+      // call() would have thrown it to the caller, so it isn't retried either.
+      result.completeExceptionally(e);
+      return;
+    } catch (Exception e) {
+      long nextAttemptIntervalMillis;
+      try {
+        nextAttemptIntervalMillis = getNextAttemptIntervalMillis(e, start);
+      } catch (RetryException re) {
+        result.completeExceptionally(re);
+        return;
+      }
+      if (nextAttemptIntervalMillis <= 0L) {
+        executeAttempt(result, executor, timer);
+        return;
+      }
+      try {
+        timer.schedule(
+            () -> executeAttempt(result, executor, timer),
+            nextAttemptIntervalMillis,
+            TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException ree) {
+        result.completeExceptionally(new RetryException(attempts, mostRecentException));
+      }
+      return;
+    }
+    result.complete(value);
+  }
+
+  private void startAttempt() {
+    attempts++;
+    monitor.debug(
+        () ->
+            String.format(
+                "Attempt %d started, service: %s, dataType: %s", attempts, service, dataType));
+  }
+
+  /**
+   * Returns how long to wait before the next attempt after the one started at {@code start} failed
+   * with {@code e}.
+   *
+   * @throws RetryException if the strategy for {@code e} doesn't allow another attempt
+   */
+  private long getNextAttemptIntervalMillis(Exception e, Instant start) throws RetryException {
+    mostRecentException = e;
+    monitor.info(() -> "RetryingCallable caught an exception", e);
+    long elapsedMillis = Duration.between(start, clock.instant()).toMillis();
+    // TODO: do we want to reset anything (eg, number of retries) if we see a different
+    // RetryStrategy?
+    RetryStrategy strategy = retryStrategyLibrary.checkoutRetryStrategy(e);
+    monitor.debug(
+        () ->
+            String.format(
+                "Attempt %d failed, using retry strategy: %s, service: %s, dataType: %s",
+                attempts, strategy.toString(), service, dataType));
+    if (!strategy.canTryAgain(attempts)) {
+      monitor.debug(
+          () -> String.format("Strategy canTryAgain returned false after %d retries", attempts));
+      if (strategy.canSkip()) {
+        throw new RetryException(attempts, mostRecentException, true);
+      } else {
+        throw new RetryException(attempts, mostRecentException);
+      }
+    }
+    long nextAttemptIntervalMillis = strategy.getRemainingIntervalMillis(attempts, elapsedMillis);
+    monitor.debug(
+        () ->
+            String.format(
+                "Strategy has %d remainingIntervalMillis after %d elapsedMillis",
+                nextAttemptIntervalMillis, elapsedMillis));
+    Duration hint = getRetryDelayHint(e);
+    if (hint == null) {
+      return nextAttemptIntervalMillis;
+    }
+    long hintedDelayMillis = Math.min(hint.toMillis(), MAX_HINTED_DELAY.toMillis());
+    if (hintedDelayMillis > nextAttemptIntervalMillis) {
+      monitor.debug(() -> String.format("Waiting %d millis as hinted instead", hintedDelayMillis));
+      return hintedDelayMillis;
+    }
+    return nextAttemptIntervalMillis;
+  }
+
+  @Nullable
+  private static Duration getRetryDelayHint(Throwable throwable) {
+    for (Throwable t = throwable; t != null; t = t.getCause()) {
+      if (t instanceof RetryDelayHint) {
+        return ((RetryDelayHint) t).getRetryDelay();
+      }
+      if (t.getCause() == t) {
+        break;
+      }
+    }
+    return null;
+  }
 }
@@ -26,6 +26,9 @@ import com.google.common.util.concurrent.RateLimiter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Optional;
+import java.util.UUID;
+import org.datatransferproject.types.transfer.ratelimit.AdaptiveRateLimiter;
+import org.datatransferproject.types.transfer.ratelimit.AdaptiveRateLimiters;
 
 /**
  * A wrapper around {@link TransferServiceConfigSpecification} to provide service specific settings
@@ -34,12 +37,19 @@ import java.util.Optional;
 public final class TransferServiceConfig {
   private static final ObjectMapper YAML_OBJECT_MAPPER = new ObjectMapper(new YAMLFactory());
 
+  private final String service;
+  private final TransferServiceConfigSpecification specification;
   private final RateLimiter rateLimiter;
   private final Optional<JsonNode> serviceConfig;
 
   public static TransferServiceConfig create(InputStream s) throws IOException {
+    // Without a service to share them with, its adaptive rate limiters are its own.
+    return create(UUID.randomUUID().toString(), s);
+  }
+
+  private static TransferServiceConfig create(String service, InputStream s) throws IOException {
     return new TransferServiceConfig(
-        YAML_OBJECT_MAPPER.readValue(s, TransferServiceConfigSpecification.class));
+        service, YAML_OBJECT_MAPPER.readValue(s, TransferServiceConfigSpecification.class));
   }
 
   public static TransferServiceConfig getForService(String service) throws IOException {
@@ -48,20 +58,26 @@ public final class TransferServiceConfig {
             .getClassLoader()
             .getResourceAsStream(format("config/%s.yaml", service.toLowerCase()));
     if (stream == null) {
-      return TransferServiceConfig.getDefaultInstance();
+      return getDefaultInstance(service);
     } else {
-      return TransferServiceConfig.create(stream);
+      return TransferServiceConfig.create(service, stream);
     }
   }
 
   /** Gets a default instance for services that don't have a specific config. * */
   public static TransferServiceConfig getDefaultInstance() {
+    return getDefaultInstance(UUID.randomUUID().toString());
+  }
+
+  private static TransferServiceConfig getDefaultInstance(String service) {
     return new TransferServiceConfig(
-        new TransferServiceConfigSpecification(Double.MAX_VALUE, null));
+        service, new TransferServiceConfigSpecification(Double.MAX_VALUE, null));
   }
 
-  private TransferServiceConfig(TransferServiceConfigSpecification specification) {
+  private TransferServiceConfig(String service, TransferServiceConfigSpecification specification) {
     checkNotNull(specification, "specification can't be null");
+    this.service = service;
+    this.specification = specification;
     rateLimiter = RateLimiter.create(specification.getPerUserRateLimit());
     serviceConfig = specification.getServiceConfig();
   }
@@ -74,6 +90,28 @@ public final class TransferServiceConfig {
     return rateLimiter;
   }
 
+  /**
+   * An {@link AdaptiveRateLimiter} for the requests made on behalf of {@code userId}, shared by all
+   * jobs of this worker that make requests to the service for that user. It starts at the per-user
+   * rate limit and is never raised above the maximum per-user rate limit.
+   */
+  public AdaptiveRateLimiter getAdaptivePerUserRateLimiter(String userId) {
+    return AdaptiveRateLimiters.forUser(
+        service,
+        userId,
+        specification.getPerUserRateLimit(),
+        specification.getMaxPerUserRateLimit());
+  }
+
+  /**
+   * The maximum number of copy iterations a job importing into this service may run at the same
+   * time, as specified in the config/[service].yaml config file. Empty if the worker's setting
+   * applies.
+   */
+  public Optional<Integer> getMaxConcurrentCopyIterations() {
+    return specification.getMaxConcurrentCopyIterations();
+  }
+
   /** Service-specific configuration * */
   public Optional<JsonNode> getServiceConfig() {
     return serviceConfig;
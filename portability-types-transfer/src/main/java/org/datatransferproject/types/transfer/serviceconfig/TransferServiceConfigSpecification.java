@@ -16,6 +16,7 @@
 
 package org.datatransferproject.types.transfer.serviceconfig;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.base.Preconditions;
@@ -28,24 +29,68 @@ public class TransferServiceConfigSpecification {
   @JsonProperty("perUserRateLimit")
   private final double perUserRateLimit;
 
+  @JsonProperty("maxPerUserRateLimit")
+  private final double maxPerUserRateLimit;
+
+  private final Optional<Integer> maxConcurrentCopyIterations;
+
   private final Optional<JsonNode> serviceConfig;
 
   public TransferServiceConfigSpecification(
       @JsonProperty("perUserRateLimit") @Nullable Double perUserRateLimit,
       @JsonProperty("serviceConfig") @Nullable JsonNode serviceConfig) {
+    this(perUserRateLimit, null, null, serviceConfig);
+  }
+
+  @JsonCreator
+  public TransferServiceConfigSpecification(
+      @JsonProperty("perUserRateLimit") @Nullable Double perUserRateLimit,
+      @JsonProperty("maxPerUserRateLimit") @Nullable Double maxPerUserRateLimit,
+      @JsonProperty("maxConcurrentCopyIterations") @Nullable Integer maxConcurrentCopyIterations,
+      @JsonProperty("serviceConfig") @Nullable JsonNode serviceConfig) {
     if (perUserRateLimit == null) {
       perUserRateLimit = Double.MAX_VALUE;
     }
     Preconditions.checkArgument(perUserRateLimit > 0, "perUserRateLimit must be greater than zero");
+    Preconditions.checkArgument(
+        maxConcurrentCopyIterations == null || maxConcurrentCopyIterations > 0,
+        "maxConcurrentCopyIterations must be greater than zero");
     this.perUserRateLimit = perUserRateLimit;
+    this.maxPerUserRateLimit = getMaxRateLimit(perUserRateLimit, maxPerUserRateLimit);
+    this.maxConcurrentCopyIterations = Optional.ofNullable(maxConcurrentCopyIterations);
     this.serviceConfig = Optional.ofNullable(serviceConfig);
   }
 
+  private static double getMaxRateLimit(double rateLimit, @Nullable Double maxRateLimit) {
+    if (maxRateLimit == null) {
+      return rateLimit;
+    }
+    Preconditions.checkArgument(
+        maxRateLimit >= rateLimit, "A maximum rate limit can't be below its rate limit");
+    return maxRateLimit;
+  }
+
   /** The number of operations per second allowed for a user. * */
   public double getPerUserRateLimit() {
     return perUserRateLimit;
   }
 
+  /**
+   * The number of operations per second an adaptive rate limiter may raise the rate for a user to,
+   * while the service doesn't throttle them. Defaults to {@link #getPerUserRateLimit()}.
+   */
+  public double getMaxPerUserRateLimit() {
+    return maxPerUserRateLimit;
+  }
+
+  /**
+   * The maximum number of copy iterations a job importing into this service may run at the same
+   * time. Empty if the worker's setting applies.
+   */
+  public Optional<Integer> getMaxConcurrentCopyIterations() {
+    return maxConcurrentCopyIterations;
+  }
+
   /** Service-specific configuration * */
   public Optional<JsonNode> getServiceConfig() {
     return serviceConfig;
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.types.transfer.ratelimit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveRateLimiterTest {
+
+  private Clock clock;
+  private AdaptiveRateLimiter rateLimiter;
+
+  @BeforeEach
+  public void setUp() {
+    clock = mock(Clock.class);
+    when(clock.millis()).thenReturn(0L);
+    rateLimiter = new AdaptiveRateLimiter(10, 1, 20, clock);
+  }
+
+  @Test
+  public void successesRaiseTheRateUpToTheMaximum() {
+    for (int i = 0; i < 10; i++) {
+      rateLimiter.onSuccess();
+    }
+    // Ten successes at ten per second add the increase of one second.
+    assertThat(rateLimiter.getRate()).isWithin(0.05).of(10.5);
+
+    for (int i = 0; i < 10_000; i++) {
+      rateLimiter.onSuccess();
+    }
+    assertThat(rateLimiter.getRate()).isEqualTo(20.0);
+  }
+
+  @Test
+  public void throttlingHalvesTheRateOncePerInterval() {
+    rateLimiter.onThrottled(null);
+    rateLimiter.onThrottled(null);
+    assertThat(rateLimiter.getRate()).isEqualTo(5.0);
+
+    when(clock.millis()).thenReturn(1_000L);
+    rateLimiter.onThrottled(null);
+    assertThat(rateLimiter.getRate()).isEqualTo(2.5);
+
+    when(clock.millis()).thenReturn(2_000L);
+    rateLimiter.onThrottled(null);
+    when(clock.millis()).thenReturn(3_000L);
+    rateLimiter.onThrottled(null);
+    assertThat(rateLimiter.getRate()).isEqualTo(1.0);
+  }
+
+  @Test
+  public void pauseIsCutShortByAnInterrupt() {
+    rateLimiter.onThrottled(Duration.ofMinutes(5));
+
+    Thread.currentThread().interrupt();
+    assertThrows(InterruptedException.class, () -> rateLimiter.acquire());
+  }
+
+  @Test
+  public void retryAfterIsParsedFromSecondsOrDate() {
+    Clock fixedClock = mock(Clock.class);
+    when(fixedClock.instant()).thenReturn(Instant.parse("2015-10-21T07:28:00Z"));
+
+    assertThat(AdaptiveRateLimiter.parseRetryAfter("120", fixedClock))
+        .isEqualTo(Duration.ofSeconds(120));
+    assertThat(AdaptiveRateLimiter.parseRetryAfter("Wed, 21 Oct 2015 07:30:00 GMT", fixedClock))
+        .isEqualTo(Duration.ofMinutes(2));
+    assertThat(AdaptiveRateLimiter.parseRetryAfter("Wed, 21 Oct 2015 07:00:00 GMT", fixedClock))
+        .isEqualTo(Duration.ZERO);
+    assertThat(AdaptiveRateLimiter.parseRetryAfter("soon", fixedClock)).isNull();
+    assertThat(AdaptiveRateLimiter.parseRetryAfter(null, fixedClock)).isNull();
+  }
+}
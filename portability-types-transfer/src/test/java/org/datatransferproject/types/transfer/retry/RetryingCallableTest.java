@@ -0,0 +1,163 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.types.transfer.retry;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.datatransferproject.api.launcher.Monitor;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class RetryingCallableTest {
+
+  private final RetryStrategyLibrary retryStrategyLibrary =
+      new RetryStrategyLibrary(ImmutableList.of(), new UniformRetryStrategy(3, 100L, "uniform"));
+
+  @Test
+  public void retriesUntilCallableSucceeds() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    RetryingCallable<String> retryingCallable =
+        new RetryingCallable<>(
+            () -> {
+              if (calls.incrementAndGet() < 3) {
+                throw new IOException("transient");
+              }
+              return "done";
+            },
+            retryStrategyLibrary,
+            Clock.systemUTC(),
+            mock(Monitor.class));
+
+    assertThat(retryingCallable.call()).isEqualTo("done");
+    assertThat(calls.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void asyncRetriesAreScheduledOnTimer() throws Exception {
+    ScheduledExecutorService timer = Mockito.spy(Executors.newSingleThreadScheduledExecutor());
+    AtomicInteger calls = new AtomicInteger();
+    RetryingCallable<String> retryingCallable =
+        new RetryingCallable<>(
+            () -> {
+              if (calls.incrementAndGet() < 3) {
+                throw new IOException("transient");
+              }
+              return "done";
+            },
+            retryStrategyLibrary,
+            Clock.systemUTC(),
+            mock(Monitor.class));
+
+    try {
+      CompletableFuture<String> result = retryingCallable.callAsync(Runnable::run, timer);
+      assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("done");
+    } finally {
+      timer.shutdownNow();
+    }
+
+    assertThat(calls.get()).isEqualTo(3);
+    verify(timer, Mockito.times(2))
+        .schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void asyncCallFailsOnceStrategyGivesUp() {
+    ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    RetryingCallable<String> retryingCallable =
+        new RetryingCallable<>(
+            () -> {
+              throw new IOException("permanent");
+            },
+            retryStrategyLibrary,
+            Clock.systemUTC(),
+            mock(Monitor.class));
+
+    try {
+      ExecutionException e =
+          assertThrows(
+              ExecutionException.class,
+              () -> retryingCallable.callAsync(Runnable::run, timer).get(10, TimeUnit.SECONDS));
+      assertThat(e.getCause()).isInstanceOf(RetryException.class);
+      assertThat(((RetryException) e.getCause()).getTriesSoFar()).isEqualTo(4);
+    } finally {
+      timer.shutdownNow();
+    }
+  }
+
+  @Test
+  public void retryWaitsAsLongAsHinted() throws Exception {
+    ScheduledExecutorService timer = Mockito.spy(Executors.newSingleThreadScheduledExecutor());
+    AtomicInteger calls = new AtomicInteger();
+    RetryingCallable<String> retryingCallable =
+        new RetryingCallable<>(
+            () -> {
+              if (calls.incrementAndGet() < 2) {
+                throw new RetryAfterException(
+                    "throttled", Duration.ofMillis(300), new IOException("429"));
+              }
+              return "done";
+            },
+            retryStrategyLibrary,
+            Clock.systemUTC(),
+            mock(Monitor.class));
+
+    try {
+      assertThat(retryingCallable.callAsync(Runnable::run, timer).get(10, TimeUnit.SECONDS))
+          .isEqualTo("done");
+    } finally {
+      timer.shutdownNow();
+    }
+
+    verify(timer).schedule(any(Runnable.class), eq(300L), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void hintedDelayIsCapped() {
+    ScheduledExecutorService timer = mock(ScheduledExecutorService.class);
+    RetryingCallable<String> retryingCallable =
+        new RetryingCallable<>(
+            () -> {
+              throw new RetryAfterException("throttled", Duration.ofDays(1), null);
+            },
+            retryStrategyLibrary,
+            Clock.systemUTC(),
+            mock(Monitor.class));
+
+    retryingCallable.callAsync(Runnable::run, timer);
+
+    verify(timer)
+        .schedule(
+            any(Runnable.class),
+            eq(RetryingCallable.MAX_HINTED_DELAY.toMillis()),
+            eq(TimeUnit.MILLISECONDS));
+  }
+}
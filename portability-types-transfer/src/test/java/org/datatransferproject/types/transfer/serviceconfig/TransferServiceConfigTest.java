@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.types.transfer.serviceconfig;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+public class TransferServiceConfigTest {
+
+  @Test
+  public void readsMaxConcurrentCopyIterations() throws IOException {
+    TransferServiceConfig config =
+        TransferServiceConfig.create(
+            new ByteArrayInputStream(
+                "perUserRateLimit: 5\nmaxConcurrentCopyIterations: 4\n".getBytes(UTF_8)));
+
+    assertThat(config.getMaxConcurrentCopyIterations()).isEqualTo(Optional.of(4));
+  }
+
+  @Test
+  public void leavesMaxConcurrentCopyIterationsToTheWorkerByDefault() {
+    assertThat(TransferServiceConfig.getDefaultInstance().getMaxConcurrentCopyIterations())
+        .isEqualTo(Optional.empty());
+  }
+}